@@ -0,0 +1,103 @@
+package com.corp.imgpro.edgedetect.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A utility class creating the reproducible random input images of the benchmarks.
+ * Sizes and types are given by name so they can be used directly as JMH {@code @Param} values.
+ */
+public class BenchmarkImages {
+
+    /**
+     * Image sizes from VGA to 50 megapixels.
+     */
+    public enum Size {
+        VGA(640, 480),
+        HD(1280, 720),
+        FHD(1920, 1080),
+        UHD(3840, 2160),
+        MP12(4000, 3000),
+        MP50(8660, 5774);
+
+        private final int width;
+        private final int height;
+
+        Size(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Returns the image width.
+         *
+         * @return the width in pixels
+         */
+        public int width() {
+            return width;
+        }
+
+        /**
+         * Returns the image height.
+         *
+         * @return the height in pixels
+         */
+        public int height() {
+            return height;
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private BenchmarkImages() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Creates a random image with a fixed seed, so every fork and every engine sees the same pixels.
+     *
+     * @param size the size name, one of {@link Size}
+     * @param type the {@code BufferedImage} type name without the {@code TYPE_} prefix, e.g. {@code INT_RGB}
+     * @return the image
+     * @throws IllegalArgumentException if the size or type name is unknown
+     */
+    public static BufferedImage create(String size, String type) {
+        Size dimensions = Size.valueOf(size.toUpperCase(Locale.ROOT));
+        BufferedImage image = new BufferedImage(dimensions.width(), dimensions.height(), imageType(type));
+        Random random = new Random(42);
+        int[] row = new int[dimensions.width()];
+
+        for (int y = 0; y < dimensions.height(); y++) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = random.nextInt();
+            }
+            image.setRGB(0, y, row.length, 1, row, 0, row.length);
+        }
+
+        return image;
+    }
+
+    /**
+     * Returns the {@code BufferedImage} type constant for a type name.
+     *
+     * @param type the type name without the {@code TYPE_} prefix
+     * @return the type constant
+     * @throws IllegalArgumentException if the type name is unknown
+     */
+    static int imageType(String type) {
+        return switch (type.toUpperCase(Locale.ROOT)) {
+            case "INT_RGB" -> BufferedImage.TYPE_INT_RGB;
+            case "INT_ARGB" -> BufferedImage.TYPE_INT_ARGB;
+            case "INT_BGR" -> BufferedImage.TYPE_INT_BGR;
+            case "3BYTE_BGR" -> BufferedImage.TYPE_3BYTE_BGR;
+            case "4BYTE_ABGR" -> BufferedImage.TYPE_4BYTE_ABGR;
+            case "BYTE_GRAY" -> BufferedImage.TYPE_BYTE_GRAY;
+            case "USHORT_565_RGB" -> BufferedImage.TYPE_USHORT_565_RGB;
+            default -> throw new IllegalArgumentException("Unknown image type '%s'".formatted(type));
+        };
+    }
+}
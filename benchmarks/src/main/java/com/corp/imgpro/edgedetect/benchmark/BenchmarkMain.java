@@ -0,0 +1,70 @@
+package com.corp.imgpro.edgedetect.benchmark;
+
+import com.corp.imgpro.edgedetect.method.TornadoDeviceIndex;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Accepts the usual JMH command line options, always adds the
+ * {@code gc} profiler so the allocation rate is reported next to throughput and average time, and skips
+ * {@link SobelTornadoBenchmark} when no TornadoVM device is available.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexps]
+ * java -jar benchmarks/target/benchmarks.jar KernelStage -p size=FHD -p type=INT_RGB
+ * </pre>
+ */
+public class BenchmarkMain {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private BenchmarkMain() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Runs the selected benchmarks.
+     *
+     * @param args JMH command line options
+     * @throws CommandLineOptionException if the options cannot be parsed
+     * @throws RunnerException            if a benchmark run fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(".*Benchmark.*");
+        }
+        if (!tornadoDeviceAvailable()) {
+            System.out.printf("No TornadoVM device available, skipping %s%n", SobelTornadoBenchmark.class.getSimpleName());
+            options.exclude(SobelTornadoBenchmark.class.getSimpleName());
+        }
+
+        new Runner(options.build()).run();
+    }
+
+    /**
+     * Checks whether the configured TornadoVM device can be looked up. This fails when the JVM was not
+     * started with the TornadoVM runtime or when the driver reports no such device.
+     *
+     * @return {@code true} if the device is available
+     */
+    private static boolean tornadoDeviceAvailable() {
+        try {
+            return TornadoDeviceIndex.configured().lookup() != null;
+        } catch (RuntimeException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.corp.imgpro.edgedetect.benchmark;
+
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage benchmark of the shared kernels in {@link Rasters} and {@link SobelMath} used by the raster,
+ * streaming and parallel engines: grayscale conversion, convolution, maximum search and normalization.
+ * Each stage reads the output of the previous stage, prepared once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx8g"})
+public class KernelStageBenchmark {
+
+    @Param({"VGA", "FHD", "MP12", "MP50"})
+    public String size;
+
+    @Param({"INT_RGB", "INT_ARGB", "3BYTE_BGR", "4BYTE_ABGR"})
+    public String type;
+
+    private BufferedImage image;
+    private int width;
+    private int height;
+    private int[] grayScale;
+    private int[] edgeColors;
+    private int[] levels;
+    private int maxGradient;
+
+    /**
+     * Creates the input image and the intermediate arrays of every stage.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = BenchmarkImages.create(size, type);
+        width = image.getWidth();
+        height = image.getHeight();
+        grayScale = Rasters.toGrayScale(image);
+        edgeColors = new int[width * height];
+        levels = new int[width * height];
+        maxGradient = convolution();
+    }
+
+    /**
+     * Converts the image to a flat grayscale array.
+     *
+     * @return the grayscale values
+     */
+    @Benchmark
+    public int[] grayScale() {
+        return Rasters.toGrayScale(image);
+    }
+
+    /**
+     * Applies both Sobel kernels and the magnitude to all interior pixels.
+     *
+     * @return the maximum gradient, which the convolution produces as a by-product
+     */
+    @Benchmark
+    public int convolution() {
+        int max = -1;
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            max = Math.max(max, SobelMath.gradientRow(grayScale, row - width, grayScale, row, grayScale, row + width,
+                    width, edgeColors, row));
+        }
+        return max;
+    }
+
+    /**
+     * Searches the maximum gradient of the interior pixels in a separate pass, as {@code SobelStandard} does.
+     *
+     * @return the maximum gradient
+     */
+    @Benchmark
+    public int max() {
+        int max = -1;
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = row + 1; x < row + width - 1; x++) {
+                if (max < edgeColors[x]) {
+                    max = edgeColors[x];
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Maps the gradients to gray levels and writes them into a new image of the input type.
+     *
+     * @return the normalized image
+     */
+    @Benchmark
+    public BufferedImage normalization() {
+        int[] table = SobelMath.normalizationTable(maxGradient);
+        BufferedImage normalizedImage = new BufferedImage(width, height, image.getType());
+
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = row + 1; x < row + width - 1; x++) {
+                levels[x] = table[edgeColors[x]];
+            }
+            Rasters.setGrayRow(normalizedImage, y, levels, row, 1, width - 1);
+        }
+
+        return normalizedImage;
+    }
+}
@@ -0,0 +1,75 @@
+package com.corp.imgpro.edgedetect.benchmark;
+
+import com.corp.imgpro.edgedetect.method.SobelParallel;
+import com.corp.imgpro.edgedetect.method.SobelRaster;
+import com.corp.imgpro.edgedetect.method.SobelStandard;
+import com.corp.imgpro.edgedetect.method.SobelStreaming;
+import com.corp.imgpro.edgedetect.method.SobelVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * End-to-end benchmark of the CPU edge detection engines, from the input {@code BufferedImage} to the
+ * normalized output image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.vector", "-Xmx8g"})
+public class SobelEngineBenchmark {
+
+    @Param({"standard", "raster", "streaming", "parallel", "vector"})
+    public String engine;
+
+    @Param({"VGA", "FHD", "MP12", "MP50"})
+    public String size;
+
+    @Param({"INT_RGB", "INT_ARGB", "3BYTE_BGR", "4BYTE_ABGR"})
+    public String type;
+
+    private BufferedImage image;
+    private UnaryOperator<BufferedImage> detector;
+
+    /**
+     * Creates the input image and resolves the engine once per trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = BenchmarkImages.create(size, type);
+        detector = switch (engine.toLowerCase(Locale.ROOT)) {
+            case "standard" -> SobelStandard::convert;
+            case "raster" -> SobelRaster::convert;
+            case "streaming" -> SobelStreaming::convert;
+            case "parallel" -> SobelParallel::convert;
+            case "vector" -> SobelVector::convert;
+            default -> throw new IllegalArgumentException("Unknown engine '%s'".formatted(engine));
+        };
+    }
+
+    /**
+     * Converts the image with the selected engine.
+     *
+     * @return the edge map, returned so the JIT cannot eliminate the work
+     */
+    @Benchmark
+    public BufferedImage convert() {
+        return detector.apply(image);
+    }
+}
@@ -0,0 +1,82 @@
+package com.corp.imgpro.edgedetect.benchmark;
+
+import com.corp.imgpro.edgedetect.method.SobelStandard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage benchmark of {@link SobelStandard}. The standard engine converts pixels to grayscale inside the
+ * convolution, so its stages are the fused grayscale conversion and convolution, the maximum search and the
+ * normalization, which the engine exposes through {@link SobelStandard.Stages}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx8g"})
+public class SobelStandardStageBenchmark {
+
+    @Param({"VGA", "FHD", "MP12", "MP50"})
+    public String size;
+
+    @Param({"INT_RGB", "INT_ARGB", "3BYTE_BGR", "4BYTE_ABGR"})
+    public String type;
+
+    private BufferedImage image;
+    private int[][] edgeColorMatrix;
+    private int maxGradient;
+
+    /**
+     * Creates the input image and the intermediate results of every stage.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = BenchmarkImages.create(size, type);
+        edgeColorMatrix = SobelStandard.Stages.computeEdgeColors(image);
+        maxGradient = SobelStandard.Stages.findMaxGradient(edgeColorMatrix);
+    }
+
+    /**
+     * Runs the fused grayscale conversion and convolution.
+     *
+     * @return the gradient matrix
+     */
+    @Benchmark
+    public int[][] grayScaleAndConvolution() {
+        return SobelStandard.Stages.computeEdgeColors(image);
+    }
+
+    /**
+     * Searches the maximum gradient.
+     *
+     * @return the maximum gradient
+     */
+    @Benchmark
+    public int max() {
+        return SobelStandard.Stages.findMaxGradient(edgeColorMatrix);
+    }
+
+    /**
+     * Normalizes the gradients into a new image.
+     *
+     * @return the normalized image
+     */
+    @Benchmark
+    public BufferedImage normalization() {
+        return SobelStandard.Stages.norm(maxGradient, edgeColorMatrix, image);
+    }
+}
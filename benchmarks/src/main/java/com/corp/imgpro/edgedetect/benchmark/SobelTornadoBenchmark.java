@@ -0,0 +1,70 @@
+package com.corp.imgpro.edgedetect.benchmark;
+
+import com.corp.imgpro.edgedetect.method.SobelTornado;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark of {@link SobelTornado} on the configured device, including the host-side
+ * packing and unpacking of the image and the transfers. The execution plan is built and compiled during
+ * warm-up and reused from the plan cache afterwards, so the measured iterations exclude kernel compilation.
+ *
+ * <p>The forked JVM inherits the TornadoVM options of the JVM that launched JMH. {@link BenchmarkMain}
+ * leaves this benchmark out when no TornadoVM device is available.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx8g"})
+public class SobelTornadoBenchmark {
+
+    @Param({"VGA", "FHD", "MP12", "MP50"})
+    public String size;
+
+    @Param({"INT_RGB", "INT_ARGB", "3BYTE_BGR", "4BYTE_ABGR"})
+    public String type;
+
+    private BufferedImage image;
+
+    /**
+     * Creates the input image once per trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = BenchmarkImages.create(size, type);
+    }
+
+    /**
+     * Releases the cached execution plans and their device memory.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SobelTornado.shutdown();
+    }
+
+    /**
+     * Converts the image on the device.
+     *
+     * @return the edge map, returned so the JIT cannot eliminate the work
+     */
+    @Benchmark
+    public BufferedImage convert() {
+        return SobelTornado.convert(image);
+    }
+}
@@ -1,5 +1,6 @@
 package com.corp.imgpro.edgedetect;
 
+import com.corp.imgpro.edgedetect.method.SobelTornado;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -32,6 +33,14 @@ public class EdgeDetectApplication extends Application {
         stage.show();
     }
 
+    /**
+     * Releases the cached TornadoVM execution plans and their device memory when the application exits.
+     */
+    @Override
+    public void stop() {
+        SobelTornado.shutdown();
+    }
+
     /**
      * The main entry point for the application.
      *
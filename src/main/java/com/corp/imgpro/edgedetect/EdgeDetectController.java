@@ -1,11 +1,20 @@
 package com.corp.imgpro.edgedetect;
 
-import com.corp.imgpro.edgedetect.method.SobelStandard;
-import com.corp.imgpro.edgedetect.method.SobelTornado;
-import javafx.embed.swing.SwingFXUtils;
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.engine.AutoEdgeDetector;
+import com.corp.imgpro.edgedetect.engine.EdgeDetector;
+import com.corp.imgpro.edgedetect.engine.EngineRegistry;
+import com.corp.imgpro.edgedetect.method.SobelPyramid;
+import com.corp.imgpro.edgedetect.method.SobelTiles;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.chart.BarChart;
@@ -15,6 +24,11 @@ import javafx.scene.control.Label;
 import javafx.scene.control.Separator;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.StackPane;
 import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
@@ -23,27 +37,42 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.text.DecimalFormat;
+import java.nio.IntBuffer;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Controller class for the edge detection application's user interface.
  * This class manages the interaction between the UI components and the edge detection
  * processing logic, handling image selection, processing, and result visualization.
- * It supports two edge detection methods: standard Sobel and TornadoVM-accelerated Sobel.
+ * Every image is processed by the standard Sobel engine and by a second engine from the {@link EngineRegistry},
+ * chosen with the {@value #ENGINE_PROPERTY} system property. It defaults to {@code auto}, whose cost model is
+ * calibrated in the background when the view is loaded and which picks the fastest engine for each image.
+ * All processing runs on a background worker, selecting another image cancels the work in flight, and the time to
+ * first pixel and the UI stalls are shown below the chart.
+ *
+ * <p>The first edge map shown is chosen with {@value #PREVIEW_PROPERTY}. In the default {@code pyramid} mode it is
+ * computed by {@link SobelPyramid} from the pyramid level matching the size of the views, within milliseconds, and
+ * replaced by each engine's full-resolution result when that is ready. In {@code tiles} mode the edge map fills in
+ * tile by tile with {@link SobelTiles}. Scrolling over the selected engine's view zooms in and out around the
+ * cursor: the visible part is enlarged at once and then recomputed at native resolution, for that region only, in
+ * the background. A double click zooms out completely.</p>
  *
  * <p>The controller provides functionality to:</p>
  * <ul>
  *     <li>Select and load input images</li>
- *     <li>Process images using both standard and TornadoVM-based Sobel edge detection</li>
+ *     <li>Process images using the standard engine and the selected engine</li>
  *     <li>Display the original and processed images</li>
- *     <li>Show performance comparison between the two processing methods</li>
+ *     <li>Show performance comparison between the two engines</li>
  * </ul>
  */
 public class EdgeDetectController {
@@ -52,6 +81,21 @@ public class EdgeDetectController {
      */
     private static final Logger logger = LoggerFactory.getLogger(EdgeDetectController.class);
 
+    /**
+     * System property naming the engine compared against the standard engine, {@code auto} by default
+     */
+    public static final String ENGINE_PROPERTY = "edgedetect.engine";
+
+    /**
+     * System property choosing the preview, {@code pyramid} by default or {@code tiles}
+     */
+    public static final String PREVIEW_PROPERTY = "edgedetect.preview";
+
+    /**
+     * Smallest width of a zoomed region in image pixels
+     */
+    private static final int MIN_ZOOM_WIDTH = 16;
+
     /**
      * Separator for visual organization of the top section
      */
@@ -77,10 +121,10 @@ public class EdgeDetectController {
     private Text stdEdgeDetectImageTxt;
 
     /**
-     * Text display for the TornadoVM edge detection result information
+     * Text display for the selected engine's edge detection result information
      */
     @FXML
-    private Text tornadoEdgeDetectImageTxt;
+    private Text engineEdgeDetectImageTxt;
 
     /**
      * Button for initiating image selection
@@ -101,10 +145,10 @@ public class EdgeDetectController {
     private ImageView stdEdgeDetectImageView;
 
     /**
-     * ImageView for displaying the TornadoVM Sobel edge detection result
+     * ImageView for displaying the selected engine's edge detection result
      */
     @FXML
-    private ImageView tornadoEdgeDetectImageView;
+    private ImageView engineEdgeDetectImageView;
 
     /**
      * Bar chart for displaying performance comparison between methods
@@ -114,99 +158,516 @@ public class EdgeDetectController {
 
     private final XYChart.Series<String, Number> seriesStandard = new XYChart.Series<>();
 
-    private final XYChart.Series<String, Number> seriesTornado = new XYChart.Series<>();
+    private final XYChart.Series<String, Number> seriesSelected = new XYChart.Series<>();
+
+    /**
+     * Text display for the progress of the current image
+     */
+    @FXML
+    private Text statusTxt;
+
+    /**
+     * Text display for the time to first pixel and the UI stalls of the last image
+     */
+    @FXML
+    private Text latencyTxt;
+
+    /**
+     * Engines available in this JVM
+     */
+    private final EngineRegistry engines = EngineRegistry.load();
+
+    /**
+     * The engine compared against the standard engine, resolved and calibrated in the background
+     */
+    private CompletableFuture<EdgeDetector> selectedEngine;
+
+    /**
+     * Runs the decoding and edge detection of the selected images, one at a time, off the JavaFX Application Thread
+     */
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("edge-detection").factory());
+
+    /**
+     * Measures how long the JavaFX Application Thread stalls while an image is processed
+     */
+    private final FrameStallMonitor stallMonitor = new FrameStallMonitor();
+
+    /**
+     * The task processing the most recently selected image, or {@code null} before the first image
+     */
+    private DetectionTask currentTask;
+
+    /**
+     * Computes the edge maps of zoomed regions, so that zooming does not wait for the full-resolution engines
+     */
+    private final ExecutorService zoomWorker = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("edge-zoom").factory());
+
+    /**
+     * The full-resolution image of the current task, or {@code null} before it has been decoded
+     */
+    private BufferedImage zoomSource;
+
+    /**
+     * The edge map of the whole image shown in the selected engine's view when it is not zoomed
+     */
+    private Image selectedEdges;
 
+    /**
+     * The zoomed region in image coordinates, or {@code null} if the whole image is shown
+     */
+    private Rectangle zoomRegion;
+
+    /**
+     * The computation of the most recently requested region, or {@code null}
+     */
+    private Future<?> zoomTask;
+
+    /**
+     * Resolves the compared engine on a background thread as soon as the view is loaded, so the calibration of
+     * {@code auto} overlaps with the user choosing an image.
+     */
+    @FXML
+    public void initialize() {
+        String name = System.getProperty(ENGINE_PROPERTY, EngineRegistry.AUTO);
+        selectedEngine = CompletableFuture.supplyAsync(() -> engines.get(name),
+                task -> Thread.ofPlatform().daemon().name("engine-calibration").start(task));
+        engineEdgeDetectImageView.setOnScroll(this::zoom);
+        engineEdgeDetectImageView.setOnMouseClicked(this::resetZoom);
+    }
 
     /**
      * Handles the image processing workflow when triggered by user interaction.
-     * This method performs the following steps:
+     * This method performs the following steps on the JavaFX Application Thread:
      * <ol>
-     *     <li>Updates UI state to indicate processing</li>
      *     <li>Opens file chooser for image selection</li>
-     *     <li>Processes the selected image using both standard and TornadoVM Sobel methods</li>
-     *     <li>Measures and displays performance metrics</li>
-     *     <li>Updates the UI with processed images and performance data</li>
-     *     <li>Adjusts image display sizes to fit the window</li>
+     *     <li>Cancels the processing of the previously selected image, if it is still running</li>
+     *     <li>Starts a {@link DetectionTask} for the selected image on the background worker and shows its progress</li>
      * </ol>
+     * Everything else, from decoding the image to measuring the engines, happens in the task, so the UI keeps
+     * rendering and another image can be selected at any time.
      */
     @FXML
     protected void process() {
-        try {
-            seriesStandard.setName("Standard");
-            seriesTornado.setName("TornadoVM");
-            selectImageBtn.setDisable(true);
-            selectImageBtn.setText("Processing... Please wait...");
-            selectedImageTxt.setVisible(false);
-            stdEdgeDetectImageTxt.setVisible(false);
-            tornadoEdgeDetectImageTxt.setVisible(false);
-            perfBarChart.setVisible(false);
-            topSeperator.setVisible(false);
-            bottomSeperator.setVisible(false);
-            FileChooser fileChooser = new FileChooser();
-            Scene scene = selectImageBtn.getScene();
-            Window window = scene.getWindow();
-            double sceneWidth = scene.getWidth();
-            double sceneHeight = scene.getHeight();
-
-            File selectedFile = fileChooser.showOpenDialog(window);
-            assert selectedFile != null;
-            URL imagePath = selectedFile.toURI().toURL();
-            DecimalFormat df = new DecimalFormat("#");
-            selectedImageView.setImage(new Image(imagePath.toURI().toString()));
-            File imageFile = new File(imagePath.toURI());
-            BufferedImage image = ImageIO.read(imageFile);
-            double selectedImageWidth = selectedImageView.getImage().getWidth();
-            double selectedImageHeight = selectedImageView.getImage().getHeight();
-            String imageDim = String.format("%s x %s", df.format(selectedImageWidth),
-                    df.format(selectedImageHeight));
+        FileChooser fileChooser = new FileChooser();
+        Scene scene = selectImageBtn.getScene();
+        Window window = scene.getWindow();
 
-            Instant start = Instant.now();
-            BufferedImage convertedImage = SobelStandard.convert(image);
-            Instant finish = Instant.now();
-            long standardTimeElapsed = Duration.between(start, finish).toMillis();
-            logger.info("[Standard] Execution time (msecs): {}", standardTimeElapsed);
-            stdEdgeDetectImageView.setImage(SwingFXUtils.toFXImage(convertedImage, null));
-            seriesStandard.getData().add(createData(imageDim, standardTimeElapsed));
-
-            Instant startTornado = Instant.now();
-            convertedImage = SobelTornado.convert(image);
-            Instant finishTornado = Instant.now();
-            long tornadoTimeElapsed = Duration.between(startTornado, finishTornado).toMillis();
-            logger.info("[TornadoVM] Execution time (msecs): {}", tornadoTimeElapsed);
-            tornadoEdgeDetectImageView.setImage(SwingFXUtils.toFXImage(convertedImage, null));
-            selectedImageTxt.setVisible(true);
-            stdEdgeDetectImageTxt.setVisible(true);
-            tornadoEdgeDetectImageTxt.setVisible(true);
-            seriesTornado.getData().add(createData(imageDim, tornadoTimeElapsed));
+        File selectedFile = fileChooser.showOpenDialog(window);
+        if (selectedFile == null) {
+            return;
+        }
+        if (currentTask != null) {
+            currentTask.cancel(true);
+        }
+        zoomSource = null;
+        setZoom(null);
 
+        seriesStandard.setName("Standard");
+        selectedImageTxt.setVisible(false);
+        stdEdgeDetectImageTxt.setVisible(false);
+        engineEdgeDetectImageTxt.setVisible(false);
+        perfBarChart.setVisible(false);
+        latencyTxt.setVisible(false);
+        topSeperator.setVisible(false);
+        bottomSeperator.setVisible(false);
+
+        DetectionTask task = new DetectionTask(selectedFile, scene.getWidth(), scene.getHeight());
+        task.setOnSucceeded(event -> finish(task));
+        task.setOnFailed(event -> {
+            logger.error("ERROR:", task.getException());
+            finish(task);
+        });
+        task.setOnCancelled(event -> finish(task));
+        currentTask = task;
+
+        statusTxt.textProperty().bind(task.messageProperty());
+        statusTxt.setVisible(true);
+        stallMonitor.start();
+        worker.execute(task);
+    }
+
+    /**
+     * Updates the UI once a task has ended. Tasks that have been superseded by a newer image are ignored.
+     *
+     * @param task the ended task
+     */
+    private void finish(DetectionTask task) {
+        if (task != currentTask) {
+            return;
+        }
+        stallMonitor.stop();
+        statusTxt.textProperty().unbind();
+        statusTxt.setVisible(false);
+
+        Result result = task.getValue();
+        if (result != null) {
+            seriesSelected.setName(result.comparison());
+            seriesStandard.getData().add(createData(result.imageDim(), result.standardMillis()));
+            seriesSelected.getData().add(createData(result.imageDim(), result.selectedMillis()));
             perfBarChart.getData().clear();
             perfBarChart.getData().add(seriesStandard);
-            perfBarChart.getData().add(seriesTornado);
+            perfBarChart.getData().add(seriesSelected);
+            engineEdgeDetectImageTxt.setText(result.comparison().equals(result.engine())
+                    ? "%s Edge Detection".formatted(result.engine())
+                    : "%s Edge Detection (%s)".formatted(result.engine(), result.comparison()));
+
+            FrameStallMonitor.Stats stalls = stallMonitor.stats();
+            latencyTxt.setText(("Time to first pixel: %d ms · Longest UI stall: %.0f ms · UI stalled: %.0f ms in total"
+                    + " · Display writes: %.1f ms, %d image copies saved").formatted(task.firstPixelMillis(),
+                    stalls.longestStallMillis(), stalls.stalledMillis(), task.displayMillis(), task.copiesSaved()));
+            logger.info("[UI] Time to first pixel (msecs): {}, longest stall (msecs): {}, frames: {}, display writes "
+                    + "(msecs): {}, copies saved: {}", task.firstPixelMillis(), stalls.longestStallMillis(),
+                    stalls.frames(), task.displayMillis(), task.copiesSaved());
+            latencyTxt.setVisible(true);
+            topSeperator.setVisible(true);
+            bottomSeperator.setVisible(true);
+        }
+        perfBarChart.setVisible(true);
+    }
+
+    /**
+     * Shows a decoded image and the empty edge maps that the task fills in, scaled to keep the 3 x 2 grid.
+     *
+     * @param image       the selected image at full resolution, for zooming
+     * @param original    the selected image
+     * @param standard    the edge map of the standard engine
+     * @param selected    the edge map of the selected engine
+     * @param sceneWidth  the width of the scene when the image was selected
+     * @param sceneHeight the height of the scene when the image was selected
+     */
+    private void showImages(BufferedImage image, Image original, WritableImage standard, WritableImage selected,
+                            double sceneWidth, double sceneHeight) {
+        zoomSource = image;
+        selectedImageView.setImage(original);
+        stdEdgeDetectImageView.setImage(standard);
+        showSelectedEdges(selected);
+        engineEdgeDetectImageTxt.setText("Selected Engine Edge Detection");
+        selectedImageTxt.setVisible(true);
+        stdEdgeDetectImageTxt.setVisible(true);
+        engineEdgeDetectImageTxt.setVisible(true);
 
-            // To keep the 3 x 2 grid
-            int gridWidth = 3;
-            int gridHeight = 2;
+        // To keep the 3 x 2 grid
+        int gridWidth = 3;
+        int gridHeight = 2;
 
-            if (selectedImageHeight > sceneHeight / gridHeight) {
-                selectedImageView.setFitHeight(sceneHeight / gridHeight);
-                stdEdgeDetectImageView.setFitHeight(sceneHeight / gridHeight);
-                tornadoEdgeDetectImageView.setFitHeight(sceneHeight / gridHeight);
+        if (original.getHeight() > sceneHeight / gridHeight) {
+            selectedImageView.setFitHeight(sceneHeight / gridHeight);
+            stdEdgeDetectImageView.setFitHeight(sceneHeight / gridHeight);
+            engineEdgeDetectImageView.setFitHeight(sceneHeight / gridHeight);
+        }
+
+        if (original.getWidth() > sceneWidth / gridWidth) {
+            selectedImageView.setFitWidth(sceneWidth / gridWidth);
+            stdEdgeDetectImageView.setFitWidth(sceneWidth / gridWidth);
+            engineEdgeDetectImageView.setFitWidth(sceneWidth / gridWidth);
+        }
+    }
+
+    /**
+     * Shows an edge map of the whole image in the selected engine's view, or keeps it for zooming out if the
+     * view is zoomed in.
+     *
+     * @param edges the edge map
+     */
+    private void showSelectedEdges(Image edges) {
+        selectedEdges = edges;
+        if (zoomRegion == null) {
+            engineEdgeDetectImageView.setImage(edges);
+        }
+    }
+
+    /**
+     * Zooms the selected engine's view in or out by a factor of two around the cursor.
+     *
+     * @param event the scroll event over the view
+     */
+    private void zoom(ScrollEvent event) {
+        if (zoomSource == null || event.getDeltaY() == 0) {
+            return;
+        }
+        int imageWidth = zoomSource.getWidth();
+        int imageHeight = zoomSource.getHeight();
+        Rectangle current = zoomRegion != null ? zoomRegion : new Rectangle(0, 0, imageWidth, imageHeight);
+        double fractionX = event.getX() / engineEdgeDetectImageView.getBoundsInLocal().getWidth();
+        double fractionY = event.getY() / engineEdgeDetectImageView.getBoundsInLocal().getHeight();
+
+        int width = (int) Math.round(event.getDeltaY() > 0 ? current.width / 2.0 : current.width * 2.0);
+        width = Math.max(Math.min(MIN_ZOOM_WIDTH, imageWidth), width);
+        if (width >= imageWidth) {
+            setZoom(null);
+            return;
+        }
+        int height = Math.max(1, (int) Math.round((double) width * imageHeight / imageWidth));
+        int x = (int) Math.round(current.x + fractionX * current.width - fractionX * width);
+        int y = (int) Math.round(current.y + fractionY * current.height - fractionY * height);
+        setZoom(new Rectangle(Math.clamp(x, 0, imageWidth - width), Math.clamp(y, 0, imageHeight - height),
+                width, height));
+        event.consume();
+    }
+
+    /**
+     * Zooms out completely on a double click.
+     *
+     * @param event the mouse event over the view
+     */
+    private void resetZoom(MouseEvent event) {
+        if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
+            setZoom(null);
+        }
+    }
+
+    /**
+     * Shows a region of the image in the original view and the selected engine's view. The engine's view first
+     * enlarges the region of the edge map it shows, whatever its resolution, and then shows the region computed
+     * at native resolution by {@link SobelPyramid#convertRegion(BufferedImage, Rectangle)} in the background.
+     *
+     * @param region the region in image coordinates, or {@code null} to show the whole image
+     */
+    private void setZoom(Rectangle region) {
+        if (zoomTask != null) {
+            zoomTask.cancel(true);
+            zoomTask = null;
+        }
+        zoomRegion = region;
+        if (region == null) {
+            selectedImageView.setViewport(null);
+            engineEdgeDetectImageView.setViewport(null);
+            if (selectedEdges != null) {
+                engineEdgeDetectImageView.setImage(selectedEdges);
             }
+            return;
+        }
 
-            if (selectedImageWidth > sceneWidth / gridWidth) {
-                selectedImageView.setFitWidth(sceneWidth / gridWidth);
-                stdEdgeDetectImageView.setFitWidth(sceneWidth / gridWidth);
-                tornadoEdgeDetectImageView.setFitWidth(sceneWidth / gridWidth);
+        for (ImageView view : new ImageView[]{selectedImageView, engineEdgeDetectImageView}) {
+            if (view.getFitWidth() == 0 && view.getFitHeight() == 0) {
+                view.setFitWidth(view.getBoundsInLocal().getWidth());
+                view.setFitHeight(view.getBoundsInLocal().getHeight());
             }
+        }
+        double scale = selectedEdges.getWidth() / zoomSource.getWidth();
+        selectedImageView.setViewport(new Rectangle2D(region.x, region.y, region.width, region.height));
+        engineEdgeDetectImageView.setImage(selectedEdges);
+        engineEdgeDetectImageView.setViewport(new Rectangle2D(region.x * scale, region.y * scale,
+                region.width * scale, region.height * scale));
 
-            topSeperator.setVisible(true);
-            bottomSeperator.setVisible(true);
-        } catch (IOException | URISyntaxException e) {
-            logger.error("ERROR:", e);
-        } finally {
-            selectImageBtn.setDisable(false);
-            selectImageBtn.setText("Select Image");
-            perfBarChart.setVisible(true);
+        BufferedImage source = zoomSource;
+        zoomTask = zoomWorker.submit(() -> {
+            Image edges = FxImages.toFxImage(SobelPyramid.convertRegion(source, region));
+            Platform.runLater(() -> {
+                if (region.equals(zoomRegion) && source == zoomSource) {
+                    engineEdgeDetectImageView.setViewport(null);
+                    engineEdgeDetectImageView.setImage(edges);
+                }
+            });
+        });
+    }
+
+    /**
+     * Outcome of processing one image.
+     *
+     * @param imageDim       the dimensions of the image, as shown on the chart
+     * @param standardMillis the execution time of the standard engine in milliseconds
+     * @param selectedMillis the execution time of the selected engine in milliseconds
+     * @param engine         the name of the engine that ran
+     * @param comparison     the name of the configured engine, e.g. {@code auto}
+     */
+    private record Result(String imageDim, long standardMillis, long selectedMillis, String engine, String comparison) {
+    }
+
+    /**
+     * Processes one image in the background. The task decodes the image, shows a preview of the edge map, either
+     * from the pyramid level matching the views or streamed into the selected engine's view tile by tile, and then
+     * times the standard and the selected engine, copying their results into the views. Every UI update is posted
+     * to the JavaFX Application Thread and dropped once the task is cancelled.
+     */
+    private final class DetectionTask extends Task<Result> {
+        private final File file;
+        private final double sceneWidth;
+        private final double sceneHeight;
+        private final long startNanos = System.nanoTime();
+        private long firstPixelNanos;
+        private long displayNanos;
+        private volatile int copiesSaved;
+
+        /**
+         * Creates a task for an image file.
+         *
+         * @param file        the image file
+         * @param sceneWidth  the width of the scene when the image was selected
+         * @param sceneHeight the height of the scene when the image was selected
+         */
+        DetectionTask(File file, double sceneWidth, double sceneHeight) {
+            this.file = file;
+            this.sceneWidth = sceneWidth;
+            this.sceneHeight = sceneHeight;
+        }
+
+        @Override
+        protected Result call() throws Exception {
+            updateMessage("Processing... Please wait...");
+            StageEvent decode = Metrics.begin(Stage.DECODE, System.getProperty(ENGINE_PROPERTY, EngineRegistry.AUTO), 0, 0);
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IOException("No ImageIO reader for %s".formatted(file));
+            }
+            Metrics.end(decode, image.getWidth(), image.getHeight());
+            int width = image.getWidth();
+            int height = image.getHeight();
+            Image original = FxImages.toFxImage(image);
+            copiesSaved += FxImages.swingCopies(image) - 1;
+            WritableImage standardView = new WritableImage(width, height);
+            WritableImage selectedView = new WritableImage(width, height);
+            Platform.runLater(() -> {
+                if (!isCancelled()) {
+                    showImages(image, original, standardView, selectedView, sceneWidth, sceneHeight);
+                }
+            });
+
+            updateMessage("Previewing edges...");
+            boolean pyramid = !"tiles".equals(System.getProperty(PREVIEW_PROPERTY, "pyramid"));
+            if (pyramid) {
+                // A third of the scene wide and half of it high, like the grid cells of the views
+                BufferedImage edges = SobelPyramid.preview(image, (int) (sceneWidth / 3), (int) (sceneHeight / 2));
+                Image preview = FxImages.toFxImage(edges);
+                copiesSaved += FxImages.swingCopies(edges) - 1;
+                Platform.runLater(() -> {
+                    if (!isCancelled()) {
+                        stdEdgeDetectImageView.setImage(preview);
+                        showSelectedEdges(preview);
+                        recordFirstPixel();
+                    }
+                });
+            }
+
+            updateMessage("Waiting for engine calibration...");
+            EdgeDetector comparison = selectedEngine.get();
+            EdgeDetector engine = comparison instanceof AutoEdgeDetector auto ? auto.select(image) : comparison;
+
+            if (!pyramid) {
+                SobelTiles.convert(image, SobelTiles.DEFAULT_TILE_ROWS,
+                        (y, rows, argb, provisional) -> writeTile(selectedView, y, rows, argb), this::isCancelled);
+            }
+
+            updateMessage("Running standard engine...");
+            long standardTimeElapsed = run(engines.get("standard"), image, standardView,
+                    () -> stdEdgeDetectImageView.setImage(standardView));
+            logger.info("[Standard] Execution time (msecs): {}", standardTimeElapsed);
+
+            updateMessage("Running %s engine...".formatted(engine.name()));
+            long selectedTimeElapsed = run(engine, image, selectedView, () -> showSelectedEdges(selectedView));
+            logger.info("[{}] Execution time (msecs): {}", engine.name(), selectedTimeElapsed);
+
+            return new Result("%d x %d".formatted(width, height), standardTimeElapsed, selectedTimeElapsed,
+                    engine.name(), comparison.name());
+        }
+
+        /**
+         * Times an engine on the image and then shows its result. The engine writes into a pooled image of
+         * {@link FxImages#DISPLAY_TYPE}, which is copied into the view with a single bulk write, instead of reading
+         * a new result image back with {@code getRGB} and writing that copy.
+         *
+         * @param detector the engine
+         * @param image    the input image
+         * @param view     the image receiving the edge map
+         * @param show     shows {@code view} on the JavaFX Application Thread, replacing the preview
+         * @return the execution time in milliseconds
+         * @throws CancellationException if the task has been cancelled
+         */
+        private long run(EdgeDetector detector, BufferedImage image, WritableImage view, Runnable show) {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+            BufferPool pool = BufferPool.shared();
+            BufferedImage output = pool.acquireImage(image.getWidth(), image.getHeight(), FxImages.DISPLAY_TYPE);
+            Instant start = Instant.now();
+            try {
+                detector.convert(image, output);
+            } catch (RuntimeException e) {
+                pool.release(output);
+                throw e;
+            }
+            long timeElapsed = Duration.between(start, Instant.now()).toMillis();
+
+            copiesSaved++;
+            Platform.runLater(() -> {
+                try {
+                    if (!isCancelled()) {
+                        long writeStart = System.nanoTime();
+                        FxImages.write(output, view);
+                        displayNanos += System.nanoTime() - writeStart;
+                        recordFirstPixel();
+                        show.run();
+                    }
+                } finally {
+                    pool.release(output);
+                }
+            });
+
+            return timeElapsed;
+        }
+
+        /**
+         * Posts a tile of ARGB pixels to the JavaFX Application Thread and writes it into a view there, recording
+         * the time of the first written tile.
+         *
+         * @param view the view
+         * @param y    the first row of the tile
+         * @param rows the number of rows of the tile
+         * @param argb the pixels of the tile
+         */
+        private void writeTile(WritableImage view, int y, int rows, int[] argb) {
+            int width = (int) view.getWidth();
+            Platform.runLater(() -> {
+                if (isCancelled()) {
+                    return;
+                }
+                long writeStart = System.nanoTime();
+                view.getPixelWriter().setPixels(0, y, width, rows, PixelFormat.getIntArgbInstance(),
+                        IntBuffer.wrap(argb), width);
+                displayNanos += System.nanoTime() - writeStart;
+                recordFirstPixel();
+            });
+        }
+
+        /**
+         * Records the time of the first edge pixels shown. Must be called on the JavaFX Application Thread.
+         */
+        private void recordFirstPixel() {
+            if (firstPixelNanos == 0) {
+                firstPixelNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * Returns the time from selecting the image to showing its first edge pixels. Must be called on the
+         * JavaFX Application Thread.
+         *
+         * @return the time to first pixel in milliseconds, or -1 if no tile has been shown
+         */
+        long firstPixelMillis() {
+            return firstPixelNanos == 0 ? -1 : (firstPixelNanos - startNanos) / 1_000_000;
+        }
+
+        /**
+         * Returns the time spent writing edge map pixels into the views. Must be called on the JavaFX Application
+         * Thread.
+         *
+         * @return the time of the bulk pixel writes in milliseconds
+         */
+        double displayMillis() {
+            return displayNanos / 1e6;
+        }
+
+        /**
+         * Returns the number of full-size pixel copies saved compared with converting every image with
+         * {@code SwingFXUtils.toFXImage} and reading engine results back with {@code getRGB}.
+         *
+         * @return the number of copies saved
+         */
+        int copiesSaved() {
+            return copiesSaved;
         }
     }
 
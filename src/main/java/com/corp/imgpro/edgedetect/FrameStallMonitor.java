@@ -0,0 +1,67 @@
+package com.corp.imgpro.edgedetect;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Measures how long the JavaFX Application Thread fails to render frames. While running, an
+ * {@link AnimationTimer} requests a pulse for every frame; a gap between two pulses longer than
+ * {@link #STALL_THRESHOLD_NANOS} means the thread was busy and the UI froze for that long.
+ *
+ * <p>All methods must be called on the JavaFX Application Thread.</p>
+ */
+class FrameStallMonitor extends AnimationTimer {
+
+    /**
+     * Gap between two pulses above which the UI counts as stalled, about three frames at 60 Hz.
+     */
+    private static final long STALL_THRESHOLD_NANOS = 50_000_000L;
+
+    /**
+     * UI responsiveness during one measurement.
+     *
+     * @param longestStallMillis the longest gap between two frames, in milliseconds
+     * @param stalledMillis      the sum of all gaps above the threshold, in milliseconds
+     * @param frames             the number of frames rendered
+     */
+    record Stats(double longestStallMillis, double stalledMillis, long frames) {
+    }
+
+    private long lastPulse;
+    private long longestGap;
+    private long stalled;
+    private long frames;
+
+    /**
+     * Resets the counters and starts measuring.
+     */
+    @Override
+    public void start() {
+        lastPulse = 0;
+        longestGap = 0;
+        stalled = 0;
+        frames = 0;
+        super.start();
+    }
+
+    @Override
+    public void handle(long now) {
+        if (lastPulse != 0) {
+            long gap = now - lastPulse;
+            longestGap = Math.max(longestGap, gap);
+            if (gap > STALL_THRESHOLD_NANOS) {
+                stalled += gap;
+            }
+        }
+        lastPulse = now;
+        frames++;
+    }
+
+    /**
+     * Returns the measurements since the last {@link #start()}.
+     *
+     * @return the stall statistics
+     */
+    Stats stats() {
+        return new Stats(longestGap / 1e6, stalled / 1e6, frames);
+    }
+}
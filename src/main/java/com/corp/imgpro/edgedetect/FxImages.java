@@ -0,0 +1,104 @@
+package com.corp.imgpro.edgedetect;
+
+import com.corp.imgpro.edgedetect.common.Rasters;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.IntBuffer;
+
+/**
+ * Copies {@link BufferedImage} pixels into JavaFX {@link WritableImage}s with bulk
+ * {@link PixelWriter#setPixels(int, int, int, int, PixelFormat, java.nio.Buffer, int) setPixels} calls, in place of
+ * {@code SwingFXUtils.toFXImage}.
+ *
+ * <p>{@code TYPE_INT_ARGB_PRE}, the native format of JavaFX, and {@code TYPE_INT_ARGB} images are handed to the
+ * pixel writer as an {@link IntBuffer} over their backing array, so the pixels are copied once. Engines write their
+ * edge maps into a {@code TYPE_INT_ARGB_PRE} image from {@link #DISPLAY_TYPE} for that reason. Other types are
+ * converted with {@link Rasters#argbRow(BufferedImage, int, int[], int)} through a buffer of
+ * {@link #STRIP_ROWS} rows, which still avoids the full-size intermediate image {@code SwingFXUtils} converts them
+ * into first.</p>
+ */
+final class FxImages {
+
+    /**
+     * The {@code BufferedImage} type copied into a JavaFX image without conversion.
+     */
+    static final int DISPLAY_TYPE = BufferedImage.TYPE_INT_ARGB_PRE;
+
+    /**
+     * Number of rows converted at a time for the other image types.
+     */
+    static final int STRIP_ROWS = 64;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private FxImages() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Creates a JavaFX image holding the pixels of an image.
+     *
+     * @param image the image
+     * @return the JavaFX image
+     */
+    static WritableImage toFxImage(BufferedImage image) {
+        WritableImage target = new WritableImage(image.getWidth(), image.getHeight());
+        write(image, target);
+        return target;
+    }
+
+    /**
+     * Copies the pixels of an image into the top left corner of a JavaFX image. A JavaFX image that is shown must
+     * only be written on the JavaFX Application Thread.
+     *
+     * @param image  the image
+     * @param target the JavaFX image, at least as large as {@code image}
+     */
+    static void write(BufferedImage image, WritableImage target) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        PixelWriter writer = target.getPixelWriter();
+        int type = image.getType();
+
+        if (type == BufferedImage.TYPE_INT_ARGB_PRE || type == BufferedImage.TYPE_INT_ARGB) {
+            WritableRaster raster = image.getRaster();
+            int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            int start = Rasters.packedRowStart(raster, 0);
+            int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            writer.setPixels(0, 0, width, height, type == BufferedImage.TYPE_INT_ARGB_PRE
+                            ? PixelFormat.getIntArgbPreInstance() : PixelFormat.getIntArgbInstance(),
+                    IntBuffer.wrap(data, start, data.length - start), stride);
+            return;
+        }
+
+        int[] strip = new int[width * Math.min(STRIP_ROWS, height)];
+        for (int y = 0; y < height; y += STRIP_ROWS) {
+            int rows = Math.min(STRIP_ROWS, height - y);
+            for (int row = 0; row < rows; row++) {
+                Rasters.argbRow(image, y + row, strip, row * width);
+            }
+            writer.setPixels(0, y, width, rows, PixelFormat.getIntArgbInstance(), IntBuffer.wrap(strip), width);
+        }
+    }
+
+    /**
+     * Returns the number of full-size pixel copies {@code SwingFXUtils.toFXImage} makes for an image: one for the
+     * ARGB types it reads directly, two for the others, which it first draws into an ARGB image.
+     *
+     * @param image the image
+     * @return the number of copies
+     */
+    static int swingCopies(BufferedImage image) {
+        int type = image.getType();
+        return type == BufferedImage.TYPE_INT_ARGB_PRE || type == BufferedImage.TYPE_INT_ARGB ? 1 : 2;
+    }
+}
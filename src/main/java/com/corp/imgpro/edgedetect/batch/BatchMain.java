@@ -0,0 +1,289 @@
+package com.corp.imgpro.edgedetect.batch;
+
+import com.corp.imgpro.edgedetect.cache.CachingEdgeDetector;
+import com.corp.imgpro.edgedetect.cache.EdgeMapCache;
+import com.corp.imgpro.edgedetect.common.OffHeapRaster;
+import com.corp.imgpro.edgedetect.engine.EdgeDetector;
+import com.corp.imgpro.edgedetect.engine.EngineRegistry;
+import com.corp.imgpro.edgedetect.method.SobelOffHeap;
+import com.corp.imgpro.edgedetect.method.SobelStrips;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Headless entry point running edge detection over directories or glob patterns of images, without JavaFX.
+ *
+ * <pre>
+ * BatchMain --output DIR [--engine auto|standard|raster|streaming|parallel|vector|tornado|...]
+ *           [--decoders N] [--detectors N] [--encoders N] [--queue N] [--format png]
+ *           [--cache-mb N] [--cache-dir DIR] [--cache-disk-mb N]
+ *           [--strips ROWS | --offheap memory|mapped] INPUT...
+ * </pre>
+ *
+ * <p>Each {@code INPUT} is an image file, a directory (all files directly inside it) or a glob such as
+ * {@code scans/**}{@code /*.tif}. Engines are looked up in the {@link EngineRegistry}, so any engine registered
+ * as a service can be named; {@code auto} calibrates a cost model first and picks an engine per image. At the end
+ * the throughput and the utilization of each stage are printed.</p>
+ *
+ * <p>{@code --cache-mb} and {@code --cache-dir} put an {@link EdgeMapCache} in front of the engine, with a
+ * memory tier of the given size and a disk tier in the given directory bounded by {@code --cache-disk-mb}
+ * (default {@value #DEFAULT_CACHE_DISK_MB}), so images submitted again, even in a later run, are not
+ * recomputed.</p>
+ *
+ * <p>With {@code --strips} the pipeline and the engine choice are bypassed: every file is processed by
+ * {@link SobelStrips} in strips of the given height, so images larger than the heap can be converted.
+ * {@code --offheap} likewise processes one file at a time, decoding it into an {@link OffHeapRaster} that is
+ * allocated in native memory or mapped from a temporary file and converting it in place with
+ * {@link SobelOffHeap}.</p>
+ */
+public class BatchMain {
+    private static final Logger logger = LoggerFactory.getLogger(BatchMain.class);
+
+    /**
+     * Characters marking an input argument as a glob pattern.
+     */
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /**
+     * Default size of the disk tier of the edge map cache, in megabytes.
+     */
+    private static final long DEFAULT_CACHE_DISK_MB = 1024;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private BatchMain() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Parses the command line, runs the pipeline and prints its report.
+     *
+     * @param args the command line arguments
+     * @throws IOException          if the inputs cannot be listed or the output directory cannot be created
+     * @throws InterruptedException if the main thread is interrupted while waiting for the pipeline
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        String engine = "standard";
+        String format = "png";
+        Path output = null;
+        int decoders = Math.max(1, processors / 4);
+        int detectors = Math.max(1, processors / 2);
+        int encoders = Math.max(1, processors / 4);
+        int queue = 8;
+        int strips = 0;
+        String offHeap = null;
+        long cacheMb = 0;
+        Path cacheDir = null;
+        long cacheDiskMb = DEFAULT_CACHE_DISK_MB;
+        List<String> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--engine" -> engine = value(args, ++i);
+                case "--output" -> output = Paths.get(value(args, ++i));
+                case "--decoders" -> decoders = Integer.parseInt(value(args, ++i));
+                case "--detectors" -> detectors = Integer.parseInt(value(args, ++i));
+                case "--encoders" -> encoders = Integer.parseInt(value(args, ++i));
+                case "--queue" -> queue = Integer.parseInt(value(args, ++i));
+                case "--format" -> format = value(args, ++i);
+                case "--strips" -> strips = Integer.parseInt(value(args, ++i));
+                case "--offheap" -> offHeap = value(args, ++i);
+                case "--cache-mb" -> cacheMb = Long.parseLong(value(args, ++i));
+                case "--cache-dir" -> cacheDir = Paths.get(value(args, ++i));
+                case "--cache-disk-mb" -> cacheDiskMb = Long.parseLong(value(args, ++i));
+                default -> inputs.add(args[i]);
+            }
+        }
+        if (output == null || inputs.isEmpty() || (offHeap != null && !offHeap.matches("memory|mapped"))) {
+            System.err.println("Usage: BatchMain --output DIR [--engine NAME] [--decoders N] [--detectors N] [--encoders N] "
+                    + "[--queue N] [--format png] [--cache-mb N] [--cache-dir DIR] [--cache-disk-mb N] "
+                    + "[--strips ROWS | --offheap memory|mapped] INPUT...");
+            System.exit(2);
+        }
+
+        List<Path> files = resolveInputs(inputs);
+        if (strips > 0) {
+            logger.info("[Batch] {} input files, strips of {} rows", files.size(), strips);
+            int stripRows = strips;
+            runSequentially(files, output, format, "strips",
+                    (file, target, edgeFormat) -> SobelStrips.convert(file, target, edgeFormat, stripRows));
+            return;
+        }
+        if (offHeap != null) {
+            logger.info("[Batch] {} input files, off-heap rasters in {}", files.size(), offHeap);
+            boolean mapped = offHeap.equals("mapped");
+            runSequentially(files, output, format, "off-heap", (file, target, edgeFormat) -> {
+                try (OffHeapRaster raster = OffHeapRaster.read(file, mapped)) {
+                    SobelOffHeap.convert(raster, raster).write(target, edgeFormat);
+                }
+            });
+            return;
+        }
+        logger.info("[Batch] {} input files, engine {}, {} decoders, {} detectors, {} encoders",
+                files.size(), engine, decoders, detectors, encoders);
+
+        try (EngineRegistry engines = EngineRegistry.load()) {
+            EdgeDetector detector = engines.get(engine);
+            EdgeMapCache cache = null;
+            if (cacheMb > 0 || cacheDir != null) {
+                cache = EdgeMapCache.open(cacheMb << 20, cacheDir, cacheDiskMb << 20);
+                detector = new CachingEdgeDetector(detector, cache);
+            }
+            BatchPipeline pipeline = new BatchPipeline(new BatchPipeline.Config(decoders, detectors, encoders, queue),
+                    detector, output, format);
+            BatchPipeline.Report report = pipeline.run(files);
+            System.out.println(report);
+            System.out.print(Metrics.report());
+            if (cache != null) {
+                System.out.println(cache.stats());
+            }
+        }
+    }
+
+    /**
+     * Converts the files one after another, bypassing the pipeline, and prints the throughput.
+     *
+     * @param files     the image files to process
+     * @param output    the directory receiving the edge maps, named as in the pipeline
+     * @param format    the ImageIO format name of the edge maps
+     * @param mode      the name of the conversion mode, for log messages
+     * @param converter converts one input file into one edge map file
+     * @throws IOException if the output directory cannot be created
+     */
+    private static void runSequentially(List<Path> files, Path output, String format, String mode,
+                                        FileConverter converter) throws IOException {
+        Files.createDirectories(output);
+
+        long start = System.nanoTime();
+        int written = 0;
+        for (Map.Entry<Path, Path> entry : BatchPipeline.outputFiles(files, output, format).entrySet()) {
+            Path file = entry.getKey();
+            Path target = entry.getValue();
+            try {
+                converter.convert(file, target, format);
+                written++;
+            } catch (IOException | RuntimeException e) {
+                logger.error("[Batch] {} failed for {}:", mode, file, e);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%d images in %.1f s, %.2f images/sec%n", written, elapsed / 1e9,
+                elapsed == 0 ? 0 : written * 1e9 / elapsed);
+        System.out.print(Metrics.report());
+    }
+
+    /**
+     * Expands files, directories and glob patterns into a sorted list of files.
+     *
+     * @param inputs the input arguments
+     * @return the regular files matched by the inputs
+     * @throws IOException if a directory cannot be listed
+     */
+    static List<Path> resolveInputs(List<String> inputs) throws IOException {
+        Set<Path> files = new TreeSet<>();
+
+        for (String input : inputs) {
+            if (input.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0)) {
+                Path base = globBase(input);
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+                try (Stream<Path> walk = Files.walk(base)) {
+                    walk.filter(Files::isRegularFile)
+                            .filter(path -> matcher.matches(base.equals(Paths.get(".")) ? base.relativize(path) : path))
+                            .forEach(files::add);
+                }
+            } else {
+                Path path = Paths.get(input);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> list = Files.list(path)) {
+                        list.filter(Files::isRegularFile).forEach(files::add);
+                    }
+                } else {
+                    files.add(path);
+                }
+            }
+        }
+
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Returns the leading directory of a glob pattern that contains no glob characters.
+     *
+     * @param glob the glob pattern
+     * @return the directory to walk, {@code .} for patterns relative to the working directory
+     */
+    private static Path globBase(String glob) {
+        String prefix = glob.substring(0, firstGlobCharacter(glob));
+        int slash = prefix.lastIndexOf('/');
+
+        return slash < 0 ? Paths.get(".") : Paths.get(prefix.substring(0, slash + 1));
+    }
+
+    /**
+     * Returns the index of the first glob character in a pattern.
+     *
+     * @param glob the glob pattern
+     * @return the index of the first glob character
+     */
+    private static int firstGlobCharacter(String glob) {
+        int index = glob.length();
+        for (char c : GLOB_CHARACTERS.toCharArray()) {
+            int found = glob.indexOf(c);
+            if (found >= 0) {
+                index = Math.min(index, found);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the value following an option.
+     *
+     * @param args  the command line arguments
+     * @param index the index of the value
+     * @return the option value
+     * @throws IllegalArgumentException if the value is missing
+     */
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for option %s".formatted(args[index - 1]));
+        }
+        return args[index];
+    }
+
+    /**
+     * Converts one image file into one edge map file.
+     */
+    @FunctionalInterface
+    private interface FileConverter {
+
+        /**
+         * Converts a file.
+         *
+         * @param input  the image file
+         * @param output the edge map file
+         * @param format the ImageIO format name of the edge map
+         * @throws IOException if a file cannot be read or written
+         */
+        void convert(Path input, Path output, String format) throws IOException;
+    }
+}
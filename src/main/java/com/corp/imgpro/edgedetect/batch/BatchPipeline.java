@@ -0,0 +1,377 @@
+package com.corp.imgpro.edgedetect.batch;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.engine.EdgeDetector;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A three-stage decode → detect → encode pipeline for headless batch edge detection.
+ * Each stage runs on its own threads and hands images to the next stage through a bounded queue, so
+ * file I/O and edge detection overlap while the number of decoded images held in memory stays bounded.
+ * Every stage records how long its threads were busy, from which the per-stage utilization is reported.
+ * Decoding and encoding of every image are also timed by {@link Metrics}, tagged with the engine name.
+ */
+public class BatchPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(BatchPipeline.class);
+
+    /**
+     * Marker telling a stage thread that no more jobs will arrive.
+     */
+    private static final Job POISON = new Job(null, null, null);
+
+    /**
+     * An image moving through the pipeline.
+     *
+     * @param source the input file
+     * @param target the edge map file
+     * @param image  the decoded image, or the edge map after detection
+     */
+    private record Job(Path source, Path target, BufferedImage image) {
+    }
+
+    /**
+     * A stage function, which may drop a job by returning {@code null}.
+     */
+    @FunctionalInterface
+    private interface StageFunction {
+        Job apply(Job job) throws IOException;
+    }
+
+    /**
+     * Thread counts and queue capacity of the pipeline.
+     *
+     * @param decoders      number of decoding threads
+     * @param detectors     number of edge detection threads
+     * @param encoders      number of encoding threads
+     * @param queueCapacity capacity of each queue between two stages
+     */
+    public record Config(int decoders, int detectors, int encoders, int queueCapacity) {
+        public Config {
+            if (decoders < 1 || detectors < 1 || encoders < 1 || queueCapacity < 1) {
+                throw new IllegalArgumentException("Thread counts and queue capacity must be positive");
+            }
+        }
+    }
+
+    /**
+     * Statistics of one stage.
+     *
+     * @param name      the stage name
+     * @param threads   the number of stage threads
+     * @param processed the number of jobs completed
+     * @param failed    the number of jobs that failed
+     * @param busyNanos the total time the stage threads spent working
+     */
+    public record StageReport(String name, int threads, long processed, long failed, long busyNanos) {
+
+        /**
+         * Returns the fraction of the available thread time this stage spent working.
+         *
+         * @param elapsedNanos the wall-clock time of the whole run
+         * @return the utilization between 0 and 1
+         */
+        public double utilization(long elapsedNanos) {
+            return elapsedNanos == 0 ? 0 : (double) busyNanos / ((double) threads * elapsedNanos);
+        }
+    }
+
+    /**
+     * Result of a pipeline run.
+     *
+     * @param images       the number of edge maps written
+     * @param elapsedNanos the wall-clock time of the run
+     * @param stages       the statistics of the decode, detect and encode stages
+     */
+    public record Report(long images, long elapsedNanos, List<StageReport> stages) {
+
+        /**
+         * Returns the throughput of the run.
+         *
+         * @return the number of images written per second
+         */
+        public double imagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : images * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder("%d images in %.1f s, %.2f images/sec".formatted(
+                    images, elapsedNanos / 1e9, imagesPerSecond()));
+            for (StageReport stage : stages) {
+                text.append("%n  %-7s threads=%d processed=%d failed=%d busy=%.1f s utilization=%.1f%%".formatted(
+                        stage.name(), stage.threads(), stage.processed(), stage.failed(),
+                        stage.busyNanos() / 1e9, 100 * stage.utilization(elapsedNanos)));
+            }
+            return text.toString();
+        }
+    }
+
+    private final Config config;
+    private final EdgeDetector detector;
+    private final Path outputDirectory;
+    private final String format;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param config          the thread counts and queue capacity
+     * @param detector        the edge detection engine
+     * @param outputDirectory the directory receiving the edge maps
+     * @param format          the ImageIO format name of the edge maps, e.g. {@code png}
+     */
+    public BatchPipeline(Config config, EdgeDetector detector, Path outputDirectory, String format) {
+        this.config = config;
+        this.detector = detector;
+        this.outputDirectory = outputDirectory;
+        this.format = format;
+    }
+
+    /**
+     * Assigns every input file the edge map file it is written to: its base name with the extension of the format,
+     * in the output directory. Inputs that would share a file, such as {@code a/x.png} and {@code b/x.png} or
+     * {@code x.png} and {@code x.jpg}, get a numeric suffix in input order ({@code x-2.png}), so no edge map
+     * overwrites another. Names are compared ignoring case, for case-insensitive file systems.
+     *
+     * @param inputs          the image files
+     * @param outputDirectory the directory receiving the edge maps
+     * @param format          the ImageIO format name of the edge maps
+     * @return the edge map file of every input file, in input order
+     */
+    static Map<Path, Path> outputFiles(List<Path> inputs, Path outputDirectory, String format) {
+        Map<Path, Path> targets = new LinkedHashMap<>();
+        Set<String> taken = new HashSet<>();
+
+        for (Path input : inputs) {
+            String fileName = input.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+            String name = baseName + "." + format;
+            for (int suffix = 2; !taken.add(name.toLowerCase(Locale.ROOT)); suffix++) {
+                name = baseName + "-" + suffix + "." + format;
+            }
+            if (!name.equals(baseName + "." + format)) {
+                logger.warn("[Batch] {} would overwrite another edge map, writing {}", input, name);
+            }
+            targets.put(input, outputDirectory.resolve(name));
+        }
+        return targets;
+    }
+
+    /**
+     * Processes all input files and waits until the last edge map is written.
+     *
+     * @param inputs the image files to process
+     * @return the throughput and per-stage statistics of the run
+     * @throws IOException          if the output directory cannot be created
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public Report run(List<Path> inputs) throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+
+        BlockingQueue<Job> sources = new LinkedBlockingQueue<>();
+        BlockingQueue<Job> decoded = new ArrayBlockingQueue<>(config.queueCapacity());
+        BlockingQueue<Job> detected = new ArrayBlockingQueue<>(config.queueCapacity());
+        outputFiles(inputs, outputDirectory, format).forEach((input, target) -> sources.add(new Job(input, target, null)));
+        for (int i = 0; i < config.decoders(); i++) {
+            sources.add(POISON);
+        }
+
+        PipelineStage encode = new PipelineStage("encode", config.encoders(), detected, null, 0, this::encode);
+        PipelineStage detect = new PipelineStage("detect", config.detectors(), decoded, detected, config.encoders(),
+                this::detect);
+        PipelineStage decode = new PipelineStage("decode", config.decoders(), sources, decoded, config.detectors(),
+                this::decode);
+
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (PipelineStage stage : List.of(decode, detect, encode)) {
+            threads.addAll(stage.start());
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new Report(encode.processed.get(), elapsed, List.of(decode.report(), detect.report(), encode.report()));
+    }
+
+    /**
+     * Reads the source image of a job.
+     *
+     * @param job the job holding the source file
+     * @return the job with the decoded image, or {@code null} if the file is not a readable image
+     * @throws IOException if the file cannot be read
+     */
+    private Job decode(Job job) throws IOException {
+        StageEvent event = Metrics.begin(Stage.DECODE, detector.name(), 0, 0);
+        BufferedImage image = null;
+        try {
+            image = ImageIO.read(job.source().toFile());
+        } finally {
+            if (image == null) {
+                Metrics.end(event);
+            } else {
+                Metrics.end(event, image.getWidth(), image.getHeight());
+            }
+        }
+        if (image == null) {
+            logger.warn("[Batch] Skipping {}: no ImageIO reader", job.source());
+            return null;
+        }
+        return new Job(job.source(), job.target(), image);
+    }
+
+    /**
+     * Runs the edge detection engine on the decoded image of a job. The edge map is written into an image
+     * from the shared {@link BufferPool}, which {@link #encode(Job)} releases once it is written, so a batch
+     * of same-size images reuses a few output images.
+     *
+     * @param job the job holding the decoded image
+     * @return the job with the edge map
+     */
+    private Job detect(Job job) {
+        BufferedImage image = job.image();
+        int type = image.getType() == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_RGB : image.getType();
+        BufferedImage output = BufferPool.shared().acquireImage(image.getWidth(), image.getHeight(), type);
+        try {
+            return new Job(job.source(), job.target(), detector.convert(image, output));
+        } catch (RuntimeException | Error e) {
+            BufferPool.shared().release(output);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the edge map of a job into its file from {@link #outputFiles(List, Path, String)} and returns the
+     * edge map to the shared {@link BufferPool}.
+     *
+     * @param job the job holding the edge map
+     * @return the job
+     * @throws IOException if the file cannot be written
+     */
+    private Job encode(Job job) throws IOException {
+        Path target = job.target();
+        try {
+            StageEvent event = Metrics.begin(Stage.ENCODE, detector.name(), job.image().getWidth(), job.image().getHeight());
+            if (!ImageIO.write(job.image(), format, target.toFile())) {
+                throw new IOException("No ImageIO writer for format %s and image type %d".formatted(format, job.image().getType()));
+            }
+            Metrics.end(event);
+        } finally {
+            BufferPool.shared().release(job.image());
+        }
+        return job;
+    }
+
+    /**
+     * A pipeline stage: a group of threads taking jobs from one queue and putting results on the next.
+     * The last thread of a stage to finish sends one poison job per downstream thread.
+     */
+    private static final class PipelineStage {
+        private final String name;
+        private final int threads;
+        private final BlockingQueue<Job> input;
+        private final BlockingQueue<Job> output;
+        private final int downstreamThreads;
+        private final StageFunction function;
+        private final AtomicInteger running;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        PipelineStage(String name, int threads, BlockingQueue<Job> input, BlockingQueue<Job> output, int downstreamThreads,
+              StageFunction function) {
+            this.name = name;
+            this.threads = threads;
+            this.input = input;
+            this.output = output;
+            this.downstreamThreads = downstreamThreads;
+            this.function = function;
+            this.running = new AtomicInteger(threads);
+        }
+
+        List<Thread> start() {
+            List<Thread> started = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                started.add(Thread.ofPlatform().name("batch-" + name + "-" + i).start(this::work));
+            }
+            return started;
+        }
+
+        StageReport report() {
+            return new StageReport(name, threads, processed.get(), failed.get(), busyNanos.get());
+        }
+
+        private void work() {
+            try {
+                for (Job job = input.take(); job != POISON; job = input.take()) {
+                    long start = System.nanoTime();
+                    Job result = null;
+                    try {
+                        result = function.apply(job);
+                    } catch (Throwable e) {
+                        failed.incrementAndGet();
+                        logger.error("[Batch] {} failed for {}:", name, job.source(), e);
+                    }
+                    busyNanos.addAndGet(System.nanoTime() - start);
+
+                    if (result != null) {
+                        processed.incrementAndGet();
+                        if (output != null) {
+                            output.put(result);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (running.decrementAndGet() == 0 && output != null) {
+                    poisonDownstream();
+                }
+            }
+        }
+
+        /**
+         * Sends one poison job per downstream thread, even if this thread was interrupted, so the downstream
+         * stage always terminates and {@link BatchPipeline#run(List)} does not wait forever.
+         */
+        private void poisonDownstream() {
+            boolean interrupted = Thread.interrupted();
+            for (int i = 0; i < downstreamThreads; i++) {
+                while (true) {
+                    try {
+                        output.put(POISON);
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
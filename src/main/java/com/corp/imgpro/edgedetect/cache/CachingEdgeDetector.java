@@ -0,0 +1,127 @@
+package com.corp.imgpro.edgedetect.cache;
+
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Precision;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.engine.EdgeDetector;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * An {@link EdgeDetector} answering from an {@link EdgeMapCache} when the same pixels were converted before and
+ * delegating to another engine otherwise. A hit costs one pass over the input pixels to hash them and one pass
+ * over the output to write the cached levels, instead of the whole edge detection.
+ *
+ * <p>Only outputs of the 8-bit RGB layouts are cached, since their gray levels are read back exactly. Other
+ * types, such as {@code TYPE_USHORT_565_RGB} or {@code TYPE_BYTE_GRAY}, go through a color conversion that some
+ * engines apply more than once, so they are passed to the delegate uncached.</p>
+ *
+ * <p>The cache variant is the {@link EdgeDetector#variant() variant} of the delegate, which includes its
+ * precision and operator, so maps computed by different engines, with different arithmetic or with different
+ * kernels are kept apart. The
+ * cache belongs to the caller, the delegate to its registry; neither is closed by this detector.</p>
+ */
+public class CachingEdgeDetector implements EdgeDetector {
+
+    private final EdgeDetector delegate;
+    private final EdgeMapCache cache;
+    private final String variant;
+
+    /**
+     * Creates a caching engine.
+     *
+     * @param delegate the engine computing edge maps on a miss
+     * @param cache    the cache of edge maps
+     */
+    public CachingEdgeDetector(EdgeDetector delegate, EdgeMapCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.variant = delegate.variant();
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public Precision precision() {
+        return delegate.precision();
+    }
+
+    @Override
+    public GradientOperator operator() {
+        return delegate.operator();
+    }
+
+    @Override
+    public boolean isGradientMap() {
+        return delegate.isGradientMap();
+    }
+
+    @Override
+    public String variant() {
+        return variant;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        if (!storesLevels(image.getType())) {
+            return delegate.convert(image);
+        }
+        EdgeMapCache.Key key = EdgeMapCache.key(image, variant);
+        byte[] levels = cache.get(key);
+        if (levels != null) {
+            return EdgeMapCache.write(levels, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()));
+        }
+
+        BufferedImage edges = delegate.convert(image);
+        cache.put(key, EdgeMapCache.levels(edges));
+        return edges;
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        Rasters.requireSameSize(image, output);
+        if (!storesLevels(output.getType())) {
+            return delegate.convert(image, output);
+        }
+        EdgeMapCache.Key key = EdgeMapCache.key(image, variant);
+        byte[] levels = cache.get(key);
+        if (levels != null) {
+            return EdgeMapCache.write(levels, output);
+        }
+
+        delegate.convert(image, output);
+        cache.put(key, EdgeMapCache.levels(output));
+        return output;
+    }
+
+    /**
+     * Returns whether images of a type store gray levels verbatim, so that they can be read back exactly.
+     *
+     * @param type the {@code BufferedImage} type
+     * @return {@code true} for the packed and interleaved 8-bit RGB layouts
+     */
+    private static boolean storesLevels(int type) {
+        return switch (type) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR,
+                 BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Returns the cache of this engine.
+     *
+     * @return the cache
+     */
+    public EdgeMapCache cache() {
+        return cache;
+    }
+}
@@ -0,0 +1,507 @@
+package com.corp.imgpro.edgedetect.cache;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed cache of edge maps. Entries are keyed by a SHA-256 digest of the decoded RGB pixels and the
+ * image size, truncated to 128 bits, together with a variant string naming the engine and its settings, so
+ * re-submitted images are recognized regardless of file name, container format or alpha channel. The digest is
+ * cryptographic because the cache is shared between the clients of the HTTP service and its disk tier survives
+ * restarts: a client must not be able to craft an image whose key equals that of another client's image and so
+ * plant the edge map served for it.
+ *
+ * <p>Edge maps are stored compactly as one gray level per pixel. The memory tier is a least recently used map
+ * bounded in bytes. The optional disk tier keeps one file per entry in a directory, written through on every
+ * {@link #put(Key, byte[])} so that it survives restarts, and read by mapping the file; it is bounded in bytes
+ * as well, evicting the least recently used files. Disk hits are promoted to the memory tier.</p>
+ *
+ * <p>All methods are thread-safe. Several processes may share a directory: files are written to a temporary
+ * name and moved into place atomically.</p>
+ */
+public class EdgeMapCache {
+    private static final Logger logger = LoggerFactory.getLogger(EdgeMapCache.class);
+
+    /**
+     * Suffix of the entry files of the disk tier.
+     */
+    private static final String SUFFIX = ".edges";
+
+    /**
+     * Mask of the RGB bits of a packed pixel; the edge map does not depend on alpha.
+     */
+    private static final int RGB = 0xffffff;
+
+    /**
+     * View of a byte array as big-endian ints, for feeding pixels to the digest.
+     */
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Identity of an edge map.
+     *
+     * @param high    the first 64 bits of the pixel digest
+     * @param low     the next 64 bits of the pixel digest
+     * @param width   the image width
+     * @param height  the image height
+     * @param variant the engine name and settings the edge map was computed with
+     */
+    public record Key(long high, long low, int width, int height, String variant) {
+
+        /**
+         * Returns the file name of the entry in the disk tier.
+         *
+         * @return the file name
+         */
+        String fileName() {
+            return "%016x%016x-%dx%d-%s%s".formatted(high, low, width, height,
+                    variant.replaceAll("[^A-Za-z0-9._-]", "_"), SUFFIX);
+        }
+    }
+
+    /**
+     * Cache counters.
+     *
+     * @param hits          the number of lookups answered by the memory tier
+     * @param diskHits      the number of lookups answered by the disk tier
+     * @param misses        the number of lookups answered by neither tier
+     * @param evictions     the number of entries evicted from the memory tier
+     * @param diskEvictions the number of files deleted from the disk tier
+     * @param entries       the number of entries in the memory tier
+     * @param memoryBytes   the bytes held by the memory tier
+     * @param diskFiles     the number of files in the disk tier
+     * @param diskBytes     the bytes held by the disk tier
+     */
+    public record Stats(long hits, long diskHits, long misses, long evictions, long diskEvictions, int entries,
+                        long memoryBytes, int diskFiles, long diskBytes) {
+
+        /**
+         * Returns the fraction of lookups answered by either tier.
+         *
+         * @return the hit rate between 0 and 1
+         */
+        public double hitRate() {
+            long lookups = hits + diskHits + misses;
+            return lookups == 0 ? 0 : (double) (hits + diskHits) / lookups;
+        }
+    }
+
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final LinkedHashMap<Key, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    /**
+     * Creates a cache with a memory tier only.
+     *
+     * @param maxMemoryBytes the maximum number of bytes held in memory
+     */
+    public EdgeMapCache(long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = null;
+        this.maxDiskBytes = 0;
+    }
+
+    /**
+     * Creates a cache with a memory and a disk tier. Entries already in the directory are taken over, the most
+     * recently modified ones being the most recently used.
+     *
+     * @param maxMemoryBytes the maximum number of bytes held in memory
+     * @param directory      the directory of the disk tier, created if missing
+     * @param maxDiskBytes   the maximum number of bytes held on disk
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public EdgeMapCache(long maxMemoryBytes, Path directory, long maxDiskBytes) throws IOException {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = Files.createDirectories(directory);
+        this.maxDiskBytes = maxDiskBytes;
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> entries = files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(EdgeMapCache::lastModified))
+                    .toList();
+            for (Path file : entries) {
+                long size = Files.size(file);
+                disk.put(file.getFileName().toString(), size);
+                diskBytes += size;
+            }
+        }
+        synchronized (disk) {
+            evictFiles();
+        }
+        logger.info("[Cache] Disk tier {} holds {} entries, {} bytes", directory, disk.size(), diskBytes);
+    }
+
+    /**
+     * Creates a cache from command line settings.
+     *
+     * @param maxMemoryBytes the maximum number of bytes held in memory
+     * @param directory      the directory of the disk tier, or {@code null} for a memory tier only
+     * @param maxDiskBytes   the maximum number of bytes held on disk
+     * @return the cache
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public static EdgeMapCache open(long maxMemoryBytes, Path directory, long maxDiskBytes) throws IOException {
+        return directory == null ? new EdgeMapCache(maxMemoryBytes) : new EdgeMapCache(maxMemoryBytes, directory, maxDiskBytes);
+    }
+
+    /**
+     * Computes the key of an image. The pixels are read once, a row at a time; packed integer layouts are read
+     * straight from their backing array.
+     *
+     * @param image   the decoded image
+     * @param variant the engine name and settings
+     * @return the key
+     */
+    public static Key key(BufferedImage image, String variant) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int type = image.getType();
+        MessageDigest digest = sha256();
+        byte[] bytes = new byte[Math.max(8, 4 * width)];
+        INTS.set(bytes, 0, width);
+        INTS.set(bytes, 4, height);
+        digest.update(bytes, 0, 8);
+
+        int[] row = null;
+        int[] data;
+        WritableRaster raster = image.getRaster();
+        boolean packed = type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB;
+        if (packed) {
+            data = ((DataBufferInt) raster.getDataBuffer()).getData();
+        } else {
+            row = BufferPool.shared().acquireInts(width);
+            data = row;
+        }
+        try {
+            for (int y = 0; y < height; y++) {
+                int start;
+                if (packed) {
+                    start = Rasters.packedRowStart(raster, y);
+                } else {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    start = 0;
+                }
+                for (int x = 0; x < width; x++) {
+                    INTS.set(bytes, 4 * x, data[start + x] & RGB);
+                }
+                digest.update(bytes, 0, 4 * width);
+            }
+        } finally {
+            BufferPool.shared().release(row);
+        }
+
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new Key(hash.getLong(), hash.getLong(), width, height, variant);
+    }
+
+    /**
+     * Returns the edge map of a key.
+     *
+     * @param key the key
+     * @return the gray levels in row-major order, or {@code null} on a miss; the caller must not modify them
+     */
+    public byte[] get(Key key) {
+        byte[] levels;
+        synchronized (memory) {
+            levels = memory.get(key);
+        }
+        if (levels != null) {
+            hits.incrementAndGet();
+            return levels;
+        }
+
+        levels = directory != null ? read(key) : null;
+        if (levels != null) {
+            diskHits.incrementAndGet();
+            remember(key, levels);
+        } else {
+            misses.incrementAndGet();
+        }
+        return levels;
+    }
+
+    /**
+     * Stores the edge map of a key in memory and, if configured, on disk. A failure to write the disk tier, such
+     * as a full disk, is logged and leaves the entry in memory only, since the caller has already computed it.
+     *
+     * @param key    the key
+     * @param levels the gray levels in row-major order, {@code width * height} bytes; must not be modified later
+     * @throws IllegalArgumentException if the number of levels does not match the key's size
+     */
+    public void put(Key key, byte[] levels) {
+        if (levels.length != key.width() * key.height()) {
+            throw new IllegalArgumentException("Expected %d levels for %dx%d, got %d".formatted(
+                    key.width() * key.height(), key.width(), key.height(), levels.length));
+        }
+        remember(key, levels);
+        if (directory != null) {
+            write(key, levels);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        int entries;
+        long inMemory;
+        synchronized (memory) {
+            entries = memory.size();
+            inMemory = memoryBytes;
+        }
+        int files;
+        long onDisk;
+        synchronized (disk) {
+            files = disk.size();
+            onDisk = diskBytes;
+        }
+        return new Stats(hits.get(), diskHits.get(), misses.get(), evictions.get(), diskEvictions.get(), entries,
+                inMemory, files, onDisk);
+    }
+
+    /**
+     * Reads the gray levels of an edge map from an image, i.e. the blue samples of its pixels.
+     *
+     * @param edges the edge map
+     * @return the gray levels in row-major order
+     */
+    public static byte[] levels(BufferedImage edges) {
+        int width = edges.getWidth();
+        int height = edges.getHeight();
+        byte[] levels = new byte[width * height];
+        int[] row = BufferPool.shared().acquireInts(width);
+
+        try {
+            for (int y = 0; y < height; y++) {
+                edges.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0, i = y * width; x < width; x++, i++) {
+                    levels[i] = (byte) row[x];
+                }
+            }
+        } finally {
+            BufferPool.shared().release(row);
+        }
+        return levels;
+    }
+
+    /**
+     * Writes cached gray levels into an output image the way the engines write their result: interior pixels
+     * as opaque gray, the border cleared to zero.
+     *
+     * @param levels the gray levels in row-major order
+     * @param output the output image, of the cached size
+     * @return {@code output}
+     */
+    public static BufferedImage write(byte[] levels, BufferedImage output) {
+        int width = output.getWidth();
+        int height = output.getHeight();
+        int[] row = BufferPool.shared().acquireInts(width);
+
+        try {
+            for (int y = 1; y < height - 1; y++) {
+                for (int x = 1, i = y * width + 1; x < width - 1; x++, i++) {
+                    row[x] = levels[i] & 0xff;
+                }
+                Rasters.setGrayRow(output, y, row, 0, 1, width - 1);
+            }
+        } finally {
+            BufferPool.shared().release(row);
+        }
+        Rasters.clearBorder(output);
+        return output;
+    }
+
+    /**
+     * Puts an entry into the memory tier, evicting least recently used entries beyond the budget. Entries larger
+     * than the whole budget are not kept in memory.
+     *
+     * @param key    the key
+     * @param levels the gray levels
+     */
+    private void remember(Key key, byte[] levels) {
+        if (levels.length > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            byte[] previous = memory.put(key, levels);
+            memoryBytes += levels.length - (previous != null ? previous.length : 0);
+
+            Iterator<byte[]> eldest = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().length;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Reads an entry from the disk tier by mapping its file.
+     *
+     * @param key the key
+     * @return the gray levels, or {@code null} if the entry is missing or damaged
+     */
+    private byte[] read(Key key) {
+        String name = key.fileName();
+        synchronized (disk) {
+            if (disk.get(name) == null) {
+                return null;
+            }
+        }
+        Path file = directory.resolve(name);
+        int size = key.width() * key.height();
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != size) {
+                logger.warn("[Cache] Dropping {}: {} bytes, expected {}", file, channel.size(), size);
+                forget(name, true);
+                return null;
+            }
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            byte[] levels = new byte[size];
+            MemorySegment.copy(mapped, ValueLayout.JAVA_BYTE, 0, levels, 0, size);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return levels;
+        } catch (IOException e) {
+            logger.warn("[Cache] Cannot read {}: {}", file, e.toString());
+            forget(name, false);
+            return null;
+        }
+    }
+
+    /**
+     * Writes an entry to the disk tier and deletes least recently used files beyond the budget. Entries that
+     * cannot be written are skipped.
+     *
+     * @param key    the key
+     * @param levels the gray levels
+     */
+    private void write(Key key, byte[] levels) {
+        String name = key.fileName();
+        try {
+            Path temporary = Files.createTempFile(directory, "edges", ".tmp");
+            try {
+                Files.write(temporary, levels);
+                Files.move(temporary, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            logger.warn("[Cache] Cannot write {}, keeping it in memory only: {}", name, e.toString());
+            return;
+        }
+        synchronized (disk) {
+            Long previous = disk.put(name, (long) levels.length);
+            diskBytes += levels.length - (previous != null ? previous : 0);
+            evictFiles();
+        }
+    }
+
+    /**
+     * Deletes least recently used files until the disk tier is within its budget. Callers hold the disk lock.
+     */
+    private void evictFiles() {
+        Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            diskBytes -= entry.getValue();
+            diskEvictions.incrementAndGet();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+            } catch (IOException e) {
+                logger.warn("[Cache] Cannot delete {}: {}", entry.getKey(), e.toString());
+            }
+        }
+    }
+
+    /**
+     * Removes a file from the disk index.
+     *
+     * @param name   the file name
+     * @param delete {@code true} to delete the file as well
+     */
+    private void forget(String name, boolean delete) {
+        synchronized (disk) {
+            Long size = disk.remove(name);
+            if (size != null) {
+                diskBytes -= size;
+            }
+        }
+        if (delete) {
+            try {
+                Files.deleteIfExists(directory.resolve(name));
+            } catch (IOException e) {
+                logger.warn("[Cache] Cannot delete {}: {}", name, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Returns the modification time of a file, or the epoch if it cannot be read.
+     *
+     * @param file the file
+     * @return the modification time
+     */
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Returns a new SHA-256 digest, which every Java platform provides.
+     *
+     * @return the digest
+     */
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
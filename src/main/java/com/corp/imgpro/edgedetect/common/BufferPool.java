@@ -0,0 +1,498 @@
+package com.corp.imgpro.edgedetect.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pool of the scratch buffers and output images used by the edge detection engines, so that processing a
+ * stream of similarly sized images reuses memory instead of allocating it per image.
+ *
+ * <p>Arrays are pooled in size classes: lengths up to {@value #MIN_LENGTH} share one class, longer lengths are
+ * rounded up to the next quarter step between powers of two, so at most 25% of a buffer is wasted and images
+ * of slightly different sizes share buffers. Output images are pooled by exact width, height and type. A
+ * buffer's contents are undefined when it is acquired.</p>
+ *
+ * <p>The memory retained by idle buffers is capped; when a released buffer does not fit, the least recently
+ * used idle buffers of other classes are evicted first, and a buffer larger than the whole cap is dropped.
+ * Buffers that are acquired but never released are counted as outstanding. With leak detection enabled each
+ * acquisition also records its call site, and buffers garbage-collected without being released are logged
+ * with that call site.</p>
+ */
+public class BufferPool {
+    private static final Logger logger = LoggerFactory.getLogger(BufferPool.class);
+
+    /**
+     * System property setting the maximum number of bytes retained by the shared pool.
+     */
+    public static final String MAX_BYTES_PROPERTY = "edgedetect.pool.maxBytes";
+
+    /**
+     * System property enabling leak detection in the shared pool.
+     */
+    public static final String LEAK_DETECTION_PROPERTY = "edgedetect.pool.leakDetection";
+
+    /**
+     * Base-2 logarithm of the smallest pooled array length.
+     */
+    private static final int MIN_SHIFT = 12;
+
+    /**
+     * Smallest pooled array length; shorter requests get an array of this length.
+     */
+    private static final int MIN_LENGTH = 1 << MIN_SHIFT;
+
+    /**
+     * Base-2 logarithm of the largest power of two below a pooled length; longer arrays are not pooled.
+     */
+    private static final int MAX_SHIFT = 29;
+
+    /**
+     * Number of array size classes: the smallest class plus four steps per power of two.
+     */
+    private static final int SIZE_CLASSES = (MAX_SHIFT - MIN_SHIFT + 1) * 4 + 1;
+
+    private static final BufferPool SHARED = new BufferPool(
+            Long.getLong(MAX_BYTES_PROPERTY, Math.min(256L << 20, Runtime.getRuntime().maxMemory() / 4)),
+            Boolean.getBoolean(LEAK_DETECTION_PROPERTY));
+
+    /**
+     * Snapshot of the pool counters.
+     *
+     * @param acquisitions     number of buffers handed out
+     * @param hits             number of acquisitions served by an idle buffer
+     * @param misses           number of acquisitions that allocated a new buffer
+     * @param drops            number of released buffers discarded because they cannot be pooled
+     * @param evictions        number of idle buffers discarded to stay under the memory cap
+     * @param leaks            number of buffers garbage-collected without being released (leak detection only)
+     * @param outstanding      number of buffers currently acquired and not yet released
+     * @param retainedBytes    number of bytes held by idle buffers
+     * @param maxRetainedBytes the memory cap
+     */
+    public record Stats(long acquisitions, long hits, long misses, long drops, long evictions, long leaks,
+                        long outstanding, long retainedBytes, long maxRetainedBytes) {
+    }
+
+    /**
+     * Key of a pooled output image.
+     */
+    private record ImageKey(int width, int height, int type) {
+    }
+
+    /**
+     * Idle buffers of one size class or image key.
+     */
+    private static final class FreeList {
+        private final ArrayDeque<Object> buffers = new ArrayDeque<>();
+        private final long bytesEach;
+        private long lastUsed;
+
+        FreeList(long bytesEach) {
+            this.bytesEach = bytesEach;
+        }
+    }
+
+    /**
+     * An acquired buffer tracked by leak detection, with the call site that acquired it.
+     */
+    private static final class Lease extends WeakReference<Object> {
+        private final int identity;
+        private final Throwable site;
+
+        Lease(Object buffer, ReferenceQueue<Object> queue) {
+            super(buffer, queue);
+            this.identity = System.identityHashCode(buffer);
+            this.site = new Throwable("Buffer acquired here");
+        }
+    }
+
+    private final long maxRetainedBytes;
+    private final boolean leakDetection;
+    private final FreeList[] ints = new FreeList[SIZE_CLASSES];
+    private final FreeList[] chars = new FreeList[SIZE_CLASSES];
+    private final Map<ImageKey, FreeList> images = new HashMap<>();
+    private final Map<Integer, List<Lease>> leases = new HashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    private long acquisitions;
+    private long hits;
+    private long misses;
+    private long drops;
+    private long evictions;
+    private long leaks;
+    private long outstanding;
+    private long retainedBytes;
+    private long tick;
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param maxRetainedBytes the maximum number of bytes held by idle buffers
+     * @param leakDetection    whether to record the call site of every acquisition and report leaked buffers
+     */
+    public BufferPool(long maxRetainedBytes, boolean leakDetection) {
+        if (maxRetainedBytes < 0) {
+            throw new IllegalArgumentException("Memory cap must not be negative, got %d".formatted(maxRetainedBytes));
+        }
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.leakDetection = leakDetection;
+    }
+
+    /**
+     * Returns the pool shared by the engines, configured with {@value #MAX_BYTES_PROPERTY} (default the
+     * smaller of 256 MB and a quarter of the maximum heap) and {@value #LEAK_DETECTION_PROPERTY}.
+     *
+     * @return the shared pool
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Acquires an {@code int} array of at least the given length.
+     *
+     * @param minLength the minimum length
+     * @return an array of the size class covering {@code minLength}, with undefined contents
+     */
+    public int[] acquireInts(int minLength) {
+        int sizeClass = sizeClass(minLength);
+        int[] buffer = (int[]) take(ints, sizeClass);
+        if (buffer == null) {
+            buffer = new int[sizeClass < 0 ? minLength : classLength(sizeClass)];
+        }
+        leased(buffer);
+        return buffer;
+    }
+
+    /**
+     * Acquires a {@code char} array of at least the given length.
+     *
+     * @param minLength the minimum length
+     * @return an array of the size class covering {@code minLength}, with undefined contents
+     */
+    public char[] acquireChars(int minLength) {
+        int sizeClass = sizeClass(minLength);
+        char[] buffer = (char[]) take(chars, sizeClass);
+        if (buffer == null) {
+            buffer = new char[sizeClass < 0 ? minLength : classLength(sizeClass)];
+        }
+        leased(buffer);
+        return buffer;
+    }
+
+    /**
+     * Acquires an image of exactly the given size and type.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @param type   the {@code BufferedImage} type, not {@code TYPE_CUSTOM}
+     * @return the image, with undefined pixels
+     */
+    public BufferedImage acquireImage(int width, int height, int type) {
+        BufferedImage image;
+        synchronized (this) {
+            acquisitions++;
+            image = (BufferedImage) pop(images.get(new ImageKey(width, height, type)));
+        }
+        if (image == null) {
+            image = new BufferedImage(width, height, type);
+        }
+        leased(image);
+        return image;
+    }
+
+    /**
+     * Returns an array acquired with {@link #acquireInts(int)} to the pool. The caller must not use it afterwards.
+     *
+     * @param buffer the array, or {@code null}
+     */
+    public void release(int[] buffer) {
+        if (buffer != null && returned(buffer)) {
+            put(ints, buffer, buffer.length, (long) buffer.length * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Returns an array acquired with {@link #acquireChars(int)} to the pool. The caller must not use it afterwards.
+     *
+     * @param buffer the array, or {@code null}
+     */
+    public void release(char[] buffer) {
+        if (buffer != null && returned(buffer)) {
+            put(chars, buffer, buffer.length, (long) buffer.length * Character.BYTES);
+        }
+    }
+
+    /**
+     * Returns an image acquired with {@link #acquireImage(int, int, int)} to the pool. The caller must not use
+     * it afterwards.
+     *
+     * @param image the image, or {@code null}
+     */
+    public void release(BufferedImage image) {
+        if (image == null || !returned(image)) {
+            return;
+        }
+        if (image.getType() == BufferedImage.TYPE_CUSTOM) {
+            synchronized (this) {
+                drops++;
+            }
+            return;
+        }
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        long bytes = (long) dataBuffer.getSize() * dataBuffer.getNumBanks()
+                * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / Byte.SIZE;
+
+        synchronized (this) {
+            FreeList list = images.computeIfAbsent(new ImageKey(image.getWidth(), image.getHeight(), image.getType()),
+                    key -> new FreeList(bytes));
+            push(list, image);
+        }
+    }
+
+    /**
+     * Discards all idle buffers.
+     */
+    public synchronized void clear() {
+        for (FreeList[] lists : List.of(ints, chars)) {
+            for (FreeList list : lists) {
+                if (list != null) {
+                    list.buffers.clear();
+                }
+            }
+        }
+        images.clear();
+        retainedBytes = 0;
+    }
+
+    /**
+     * Returns a snapshot of the pool counters, after collecting pending leak reports.
+     *
+     * @return the current statistics
+     */
+    public synchronized Stats stats() {
+        pollLeaks();
+        return new Stats(acquisitions, hits, misses, drops, evictions, leaks, outstanding, retainedBytes, maxRetainedBytes);
+    }
+
+    /**
+     * Returns the size class of an array length.
+     *
+     * @param length the requested length
+     * @return the size class, or -1 if arrays of this length are not pooled
+     */
+    static int sizeClass(int length) {
+        if (length <= MIN_LENGTH) {
+            return 0;
+        }
+        int shift = 31 - Integer.numberOfLeadingZeros(length - 1);
+        if (shift > MAX_SHIFT) {
+            return -1;
+        }
+        int step = 1 << (shift - 2);
+        int quarter = (length - (1 << shift) + step - 1) / step;
+
+        return (shift - MIN_SHIFT) * 4 + quarter;
+    }
+
+    /**
+     * Returns the array length of a size class.
+     *
+     * @param sizeClass the size class
+     * @return the length of arrays in that class
+     */
+    static int classLength(int sizeClass) {
+        if (sizeClass == 0) {
+            return MIN_LENGTH;
+        }
+        int shift = (sizeClass - 1) / 4 + MIN_SHIFT;
+        int quarter = (sizeClass - 1) % 4 + 1;
+
+        return (1 << shift) + quarter * (1 << (shift - 2));
+    }
+
+    /**
+     * Takes an idle array of a size class.
+     *
+     * @param lists     the free lists of the array kind
+     * @param sizeClass the size class, or -1 for arrays that are not pooled
+     * @return the array, or {@code null} if none is idle
+     */
+    private synchronized Object take(FreeList[] lists, int sizeClass) {
+        acquisitions++;
+        return pop(sizeClass < 0 ? null : lists[sizeClass]);
+    }
+
+    /**
+     * Pops an idle buffer and updates the counters; the caller holds the lock.
+     *
+     * @param list the free list, or {@code null}
+     * @return the buffer, or {@code null} if none is idle
+     */
+    private Object pop(FreeList list) {
+        if (list == null || list.buffers.isEmpty()) {
+            misses++;
+            return null;
+        }
+        hits++;
+        retainedBytes -= list.bytesEach;
+        list.lastUsed = ++tick;
+        return list.buffers.pop();
+    }
+
+    /**
+     * Puts a released array into the free list of its size class, unless its length is not a class length.
+     *
+     * @param lists  the free lists of the array kind
+     * @param buffer the array
+     * @param length the array length
+     * @param bytes  the array size in bytes
+     */
+    private synchronized void put(FreeList[] lists, Object buffer, int length, long bytes) {
+        int sizeClass = sizeClass(length);
+        if (sizeClass < 0 || classLength(sizeClass) != length) {
+            drops++;
+            return;
+        }
+        if (lists[sizeClass] == null) {
+            lists[sizeClass] = new FreeList(bytes);
+        }
+        push(lists[sizeClass], buffer);
+    }
+
+    /**
+     * Pushes a buffer onto a free list, evicting least recently used idle buffers of other lists to stay
+     * under the memory cap; the caller holds the lock.
+     *
+     * @param list   the free list
+     * @param buffer the buffer
+     */
+    private void push(FreeList list, Object buffer) {
+        if (list.bytesEach > maxRetainedBytes) {
+            drops++;
+            return;
+        }
+        while (retainedBytes + list.bytesEach > maxRetainedBytes) {
+            FreeList victim = leastRecentlyUsed(list);
+            if (victim == null) {
+                drops++;
+                return;
+            }
+            victim.buffers.pop();
+            retainedBytes -= victim.bytesEach;
+            evictions++;
+        }
+        list.buffers.push(buffer);
+        list.lastUsed = ++tick;
+        retainedBytes += list.bytesEach;
+    }
+
+    /**
+     * Finds the non-empty free list used least recently, preferring lists other than the given one.
+     *
+     * @param current the list receiving a buffer
+     * @return the victim list, or {@code null} if only {@code current} holds idle buffers
+     */
+    private FreeList leastRecentlyUsed(FreeList current) {
+        FreeList victim = null;
+        for (FreeList list : ints) {
+            victim = older(victim, list, current);
+        }
+        for (FreeList list : chars) {
+            victim = older(victim, list, current);
+        }
+        for (FreeList list : images.values()) {
+            victim = older(victim, list, current);
+        }
+        return victim == null && !current.buffers.isEmpty() ? current : victim;
+    }
+
+    /**
+     * Returns the eviction candidate used less recently.
+     *
+     * @param victim  the candidate so far, or {@code null}
+     * @param list    the list to compare, or {@code null}
+     * @param current the list receiving a buffer, never chosen here
+     * @return the new candidate
+     */
+    private static FreeList older(FreeList victim, FreeList list, FreeList current) {
+        if (list == null || list == current || list.buffers.isEmpty()) {
+            return victim;
+        }
+        return victim == null || list.lastUsed < victim.lastUsed ? list : victim;
+    }
+
+    /**
+     * Records that a buffer was handed out.
+     *
+     * @param buffer the buffer
+     */
+    private synchronized void leased(Object buffer) {
+        outstanding++;
+        if (leakDetection) {
+            pollLeaks();
+            Lease lease = new Lease(buffer, collected);
+            leases.computeIfAbsent(lease.identity, identity -> new ArrayList<>(1)).add(lease);
+        }
+    }
+
+    /**
+     * Records that a buffer came back.
+     *
+     * @param buffer the buffer
+     * @return {@code false} if leak detection knows the buffer was not acquired from this pool
+     */
+    private synchronized boolean returned(Object buffer) {
+        if (leakDetection) {
+            List<Lease> candidates = leases.get(System.identityHashCode(buffer));
+            Lease lease = null;
+            if (candidates != null) {
+                for (Lease candidate : candidates) {
+                    if (candidate.get() == buffer) {
+                        lease = candidate;
+                    }
+                }
+            }
+            if (lease == null) {
+                logger.warn("[Pool] Ignoring a {} that was not acquired from this pool or was released twice",
+                        buffer.getClass().getSimpleName());
+                return false;
+            }
+            candidates.remove(lease);
+            if (candidates.isEmpty()) {
+                leases.remove(lease.identity);
+            }
+            lease.clear();
+        }
+        outstanding--;
+        return true;
+    }
+
+    /**
+     * Reports buffers garbage-collected while still acquired; the caller holds the lock.
+     */
+    private void pollLeaks() {
+        for (Reference<?> reference = collected.poll(); reference != null; reference = collected.poll()) {
+            Lease lease = (Lease) reference;
+            List<Lease> candidates = leases.get(lease.identity);
+            if (candidates != null && candidates.remove(lease)) {
+                if (candidates.isEmpty()) {
+                    leases.remove(lease.identity);
+                }
+                leaks++;
+                outstanding--;
+                logger.error("[Pool] A pooled buffer was garbage-collected without being released", lease.site);
+            }
+        }
+    }
+}
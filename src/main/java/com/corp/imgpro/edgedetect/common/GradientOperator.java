@@ -0,0 +1,143 @@
+package com.corp.imgpro.edgedetect.common;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A gradient operator: a pair of kernels whose responses {@code gx} and {@code gy} are combined into the gradient
+ * magnitude {@code sqrt(gx² + gy²)}. Besides the 3x3 {@link #SOBEL} operator of {@link Filters}, the larger
+ * Sobel operators and the Prewitt and Scharr operators are predefined; any pair of kernels of the same size can
+ * be used through the constructor.
+ *
+ * <p>All predefined kernels are separable, so their {@link Kernel#passes() passes} run a horizontal and a
+ * vertical pass of at most {@code size} taps each. The border of {@link Kernel#radius()} pixels is not
+ * covered by the kernels and stays black.</p>
+ *
+ * <p>{@code gx} is the derivative along the x axis, increasing from left to right, and {@code gy} the derivative
+ * along the y axis, increasing from top to bottom. The matrices of {@link Filters} are named the other way round:
+ * indexed {@code [column][row]}, as {@code SobelStandard} applies them, {@link Filters#getSobelXMatrix()}
+ * differentiates along y. The magnitude does not depend on the naming.</p>
+ *
+ * @param name the lower-case name used to select the operator, e.g. on the command line
+ * @param x    the kernel producing {@code gx}, differentiating along the rows
+ * @param y    the kernel producing {@code gy}, differentiating along the columns
+ */
+public record GradientOperator(String name, Kernel x, Kernel y) {
+
+    /**
+     * System property selecting the operator of the raster and TornadoVM engines.
+     */
+    public static final String PROPERTY = "edgedetect.operator";
+
+    /**
+     * The 3x3 Sobel operator, whose X and Y kernels equal {@link Filters#getSobelYMatrix()} and
+     * {@link Filters#getSobelXMatrix()}.
+     */
+    public static final GradientOperator SOBEL = derivative("sobel", new int[]{1, 2, 1}, new int[]{-1, 0, 1});
+
+    /**
+     * The 5x5 Sobel operator, binomial smoothing with a derivative of the same order.
+     */
+    public static final GradientOperator SOBEL_5 = derivative("sobel5",
+            new int[]{1, 4, 6, 4, 1}, new int[]{-1, -2, 0, 2, 1});
+
+    /**
+     * The 7x7 Sobel operator, binomial smoothing with a derivative of the same order. It equals the 3x3
+     * {@link #SOBEL} operator applied after the 5x5 binomial blur {@code [1, 4, 6, 4, 1] / 16}, scaled by 256.
+     */
+    public static final GradientOperator SOBEL_7 = derivative("sobel7",
+            new int[]{1, 6, 15, 20, 15, 6, 1}, new int[]{-1, -4, -5, 0, 5, 4, 1});
+
+    /**
+     * The 3x3 Prewitt operator, a central difference with box smoothing.
+     */
+    public static final GradientOperator PREWITT = derivative("prewitt", new int[]{1, 1, 1}, new int[]{-1, 0, 1});
+
+    /**
+     * The 3x3 Scharr operator, whose smoothing weights make the gradient direction nearly rotation invariant.
+     */
+    public static final GradientOperator SCHARR = derivative("scharr", new int[]{3, 10, 3}, new int[]{-1, 0, 1});
+
+    /**
+     * The predefined operators.
+     */
+    private static final List<GradientOperator> PREDEFINED = List.of(SOBEL, SOBEL_5, SOBEL_7, PREWITT, SCHARR);
+
+    /**
+     * Creates an operator.
+     *
+     * @throws IllegalArgumentException if the kernels differ in size
+     */
+    public GradientOperator {
+        if (x.size() != y.size()) {
+            throw new IllegalArgumentException("Kernels of %s differ in size: %d and %d".formatted(name, x.size(), y.size()));
+        }
+    }
+
+    /**
+     * Returns the width of the image border the operator cannot be applied to.
+     *
+     * @return the radius of the kernels
+     */
+    public int radius() {
+        return x.radius();
+    }
+
+    /**
+     * Returns the largest gradient magnitude the operator can produce from 8-bit grayscale values.
+     *
+     * @return an upper bound of the magnitude
+     */
+    public long maxMagnitude() {
+        return (long) Math.ceil(255 * Math.hypot(x.gain(), y.gain()));
+    }
+
+    /**
+     * Returns the predefined operators.
+     *
+     * @return {@link #SOBEL}, {@link #SOBEL_5}, {@link #SOBEL_7}, {@link #PREWITT} and {@link #SCHARR}
+     */
+    public static List<GradientOperator> predefined() {
+        return PREDEFINED;
+    }
+
+    /**
+     * Looks up a predefined operator by name, ignoring case.
+     *
+     * @param name the operator name
+     * @return the operator
+     * @throws IllegalArgumentException if no predefined operator has that name
+     */
+    public static GradientOperator parse(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        for (GradientOperator operator : PREDEFINED) {
+            if (operator.name.equals(key)) {
+                return operator;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operator '%s', available: %s".formatted(name,
+                PREDEFINED.stream().map(GradientOperator::name).toList()));
+    }
+
+    /**
+     * Returns the operator configured with {@link #PROPERTY}, or {@link #SOBEL} if the property is not set.
+     *
+     * @return the configured operator
+     */
+    public static GradientOperator configured() {
+        return parse(System.getProperty(PROPERTY, SOBEL.name));
+    }
+
+    /**
+     * Creates a separable operator from a smoothing and a derivative vector. The X kernel differentiates
+     * along the rows and smooths along the columns; the Y kernel is its transpose.
+     *
+     * @param name       the operator name
+     * @param smoothing  the smoothing weights
+     * @param derivative the derivative weights
+     * @return the operator
+     */
+    private static GradientOperator derivative(String name, int[] smoothing, int[] derivative) {
+        return new GradientOperator(name, Kernel.separable(derivative, smoothing), Kernel.separable(smoothing, derivative));
+    }
+}
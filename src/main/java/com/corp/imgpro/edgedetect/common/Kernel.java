@@ -0,0 +1,351 @@
+package com.corp.imgpro.edgedetect.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable square convolution kernel with integer weights and an odd size, indexed like
+ * {@link Filters#getSobelXMatrix()}: the first index is the column offset and the second index is the row
+ * offset of the neighbouring pixel.
+ *
+ * <p>Building a kernel compiles it into {@link Pass passes}: lists of taps with their zero weights removed.
+ * A kernel that is the outer product of a horizontal and a vertical vector, as all Sobel, Scharr and Prewitt
+ * kernels are, is detected and compiled into a horizontal pass followed by a vertical pass, which costs
+ * {@code 2 * size} instead of {@code size²} multiplications per pixel. Other kernels compile into a single
+ * two-dimensional pass.</p>
+ */
+public final class Kernel {
+
+    /**
+     * Upper bound of the sum of the absolute weights, so that the response to 8-bit values and the L1
+     * magnitude of two responses fit in an {@code int}.
+     */
+    private static final long MAX_GAIN = (1L << 30) / 255;
+
+    /**
+     * One convolution pass: the pixel at {@code (x, y)} receives the sum of
+     * {@code weights[k] * source(x + deltaX[k], y + deltaY[k])} over all taps {@code k}.
+     *
+     * @param deltaX  the column offsets of the taps
+     * @param deltaY  the row offsets of the taps
+     * @param weights the non-zero weights of the taps
+     * @param marginX the number of columns at each side where the pass is not defined
+     * @param marginY the number of rows at the top and bottom where the pass is not defined
+     */
+    public record Pass(int[] deltaX, int[] deltaY, int[] weights, int marginX, int marginY) {
+
+        /**
+         * Returns the number of taps.
+         *
+         * @return the number of non-zero weights
+         */
+        public int taps() {
+            return weights.length;
+        }
+
+        /**
+         * Returns the offsets of the taps in a row-major array of the given width.
+         *
+         * @param width the row length of the array
+         * @return {@code deltaY[k] * width + deltaX[k]} for every tap
+         */
+        public int[] offsets(int width) {
+            int[] offsets = new int[weights.length];
+            for (int k = 0; k < offsets.length; k++) {
+                offsets[k] = deltaY[k] * width + deltaX[k];
+            }
+            return offsets;
+        }
+    }
+
+    private final int size;
+    private final int[][] matrix;
+    private final int[] horizontal;
+    private final int[] vertical;
+    private final List<Pass> passes;
+
+    private Kernel(int[][] matrix, int[] horizontal, int[] vertical) {
+        this.size = matrix.length;
+        this.matrix = matrix;
+        this.horizontal = horizontal;
+        this.vertical = vertical;
+        this.passes = compile();
+    }
+
+    /**
+     * Creates a kernel from a square matrix, detecting whether it is separable.
+     *
+     * @param matrix the weights, {@code matrix[column][row]}; the array is copied
+     * @return the kernel
+     * @throws IllegalArgumentException if the matrix is not square with an odd size of at least 3, or its
+     *                                  weights are all zero or so large that the response could overflow
+     */
+    public static Kernel of(int[][] matrix) {
+        int size = matrix.length;
+        int[][] copy = new int[size][];
+        for (int c = 0; c < size; c++) {
+            if (matrix[c].length != size) {
+                throw new IllegalArgumentException("Kernel must be square, got %d x %d".formatted(size, matrix[c].length));
+            }
+            copy[c] = matrix[c].clone();
+        }
+        checkSize(size);
+        int[][] factors = factor(copy);
+
+        return factors == null ? new Kernel(copy, null, null) : new Kernel(copy, factors[0], factors[1]);
+    }
+
+    /**
+     * Creates the separable kernel {@code weight(dx, dy) = horizontal[dx] * vertical[dy]}.
+     *
+     * @param horizontal the weights along a row, indexed from the leftmost column
+     * @param vertical   the weights along a column, indexed from the top row
+     * @return the kernel
+     * @throws IllegalArgumentException if the vectors differ in length, have an even length or less than 3
+     *                                  elements, or their weights are all zero or could overflow
+     */
+    public static Kernel separable(int[] horizontal, int[] vertical) {
+        if (horizontal.length != vertical.length) {
+            throw new IllegalArgumentException("Kernel vectors differ in length: %d and %d".formatted(
+                    horizontal.length, vertical.length));
+        }
+        int size = horizontal.length;
+        checkSize(size);
+        int[][] matrix = new int[size][size];
+        for (int c = 0; c < size; c++) {
+            for (int r = 0; r < size; r++) {
+                matrix[c][r] = horizontal[c] * vertical[r];
+            }
+        }
+
+        return new Kernel(matrix, horizontal.clone(), vertical.clone());
+    }
+
+    /**
+     * Returns the number of rows and columns.
+     *
+     * @return the odd kernel size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of pixels on each side of the center covered by the kernel, which is also the width
+     * of the image border the kernel cannot be applied to.
+     *
+     * @return {@code size / 2}
+     */
+    public int radius() {
+        return size / 2;
+    }
+
+    /**
+     * Returns the weight of a neighbour.
+     *
+     * @param dx the column offset, between {@code -radius()} and {@code radius()}
+     * @param dy the row offset, between {@code -radius()} and {@code radius()}
+     * @return the weight
+     */
+    public int weight(int dx, int dy) {
+        return matrix[dx + radius()][dy + radius()];
+    }
+
+    /**
+     * Returns the weights as a matrix in the layout of {@link Filters#getSobelXMatrix()}.
+     *
+     * @return a copy of the weights, {@code matrix[column][row]}
+     */
+    public int[][] toMatrix() {
+        int[][] copy = new int[size][];
+        for (int c = 0; c < size; c++) {
+            copy[c] = matrix[c].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns whether the kernel is compiled into a horizontal and a vertical pass.
+     *
+     * @return {@code true} if the kernel is separable
+     */
+    public boolean isSeparable() {
+        return horizontal != null;
+    }
+
+    /**
+     * Returns the passes computing the convolution, in order. Each pass reads the result of the previous one;
+     * the first reads the source.
+     *
+     * @return one pass for a general kernel, a horizontal and a vertical pass for a separable one
+     */
+    public List<Pass> passes() {
+        return passes;
+    }
+
+    /**
+     * Returns the sum of the absolute weights, the largest response to values in {@code 0..1}.
+     *
+     * @return the gain of the kernel
+     */
+    public long gain() {
+        long gain = 0;
+        for (int[] column : matrix) {
+            for (int weight : column) {
+                gain += Math.abs(weight);
+            }
+        }
+        return gain;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Kernel kernel && Arrays.deepEquals(matrix, kernel.matrix));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(matrix);
+    }
+
+    @Override
+    public String toString() {
+        return isSeparable()
+                ? "Kernel[%dx%d, %s x %s]".formatted(size, size, Arrays.toString(horizontal), Arrays.toString(vertical))
+                : "Kernel[%dx%d, %s]".formatted(size, size, Arrays.deepToString(matrix));
+    }
+
+    /**
+     * Compiles the kernel into passes without zero taps.
+     *
+     * @return the passes
+     * @throws IllegalArgumentException if all weights are zero or the kernel gain is too large
+     */
+    private List<Pass> compile() {
+        if (gain() == 0) {
+            throw new IllegalArgumentException("Kernel has no non-zero weight");
+        }
+        if (gain() > MAX_GAIN) {
+            throw new IllegalArgumentException("Kernel weights too large, gain %d exceeds %d".formatted(gain(), MAX_GAIN));
+        }
+        int radius = radius();
+        if (isSeparable()) {
+            return List.of(linePass(horizontal, true), linePass(vertical, false));
+        }
+
+        List<int[]> taps = new ArrayList<>();
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                if (weight(dx, dy) != 0) {
+                    taps.add(new int[]{dx, dy, weight(dx, dy)});
+                }
+            }
+        }
+        return List.of(new Pass(taps.stream().mapToInt(tap -> tap[0]).toArray(),
+                taps.stream().mapToInt(tap -> tap[1]).toArray(),
+                taps.stream().mapToInt(tap -> tap[2]).toArray(), radius, radius));
+    }
+
+    /**
+     * Compiles one factor of a separable kernel into a pass along a row or a column. The horizontal pass runs
+     * on every row, since the vertical pass needs the rows above and below the interior.
+     *
+     * @param vector     the factor
+     * @param horizontal {@code true} for a pass along the row, {@code false} for a pass along the column
+     * @return the pass
+     */
+    private Pass linePass(int[] vector, boolean horizontal) {
+        int radius = radius();
+        int taps = (int) Arrays.stream(vector).filter(weight -> weight != 0).count();
+        int[] along = new int[taps];
+        int[] across = new int[taps];
+        int[] weights = new int[taps];
+
+        for (int i = 0, k = 0; i < vector.length; i++) {
+            if (vector[i] != 0) {
+                along[k] = i - radius;
+                weights[k++] = vector[i];
+            }
+        }
+
+        return horizontal ? new Pass(along, across, weights, radius, 0) : new Pass(across, along, weights, radius, radius);
+    }
+
+    /**
+     * Factors a matrix into the outer product of two integer vectors.
+     *
+     * @param matrix the weights, {@code matrix[column][row]}
+     * @return the horizontal and the vertical vector, or {@code null} if the matrix is not such a product
+     */
+    private static int[][] factor(int[][] matrix) {
+        int size = matrix.length;
+        int pivotColumn = -1;
+        int pivotRow = -1;
+        for (int c = 0; c < size && pivotColumn < 0; c++) {
+            for (int r = 0; r < size; r++) {
+                if (matrix[c][r] != 0) {
+                    pivotColumn = c;
+                    pivotRow = r;
+                    break;
+                }
+            }
+        }
+        if (pivotColumn < 0) {
+            return null;
+        }
+
+        // matrix[c][r] = matrix[c][pivotRow] * matrix[pivotColumn][r] / pivot for a product of two vectors
+        long pivot = matrix[pivotColumn][pivotRow];
+        for (int c = 0; c < size; c++) {
+            for (int r = 0; r < size; r++) {
+                if ((long) matrix[c][r] * pivot != (long) matrix[c][pivotRow] * matrix[pivotColumn][r]) {
+                    return null;
+                }
+            }
+        }
+
+        // Move the common factor of the row weights into the column weights, which must then divide evenly
+        int divisor = 0;
+        for (int c = 0; c < size; c++) {
+            divisor = gcd(divisor, Math.abs(matrix[c][pivotRow]));
+        }
+        int[] horizontal = new int[size];
+        int[] vertical = new int[size];
+        for (int c = 0; c < size; c++) {
+            horizontal[c] = matrix[c][pivotRow] / divisor;
+        }
+        int pivotHorizontal = horizontal[pivotColumn];
+        for (int r = 0; r < size; r++) {
+            if (matrix[pivotColumn][r] % pivotHorizontal != 0) {
+                return null;
+            }
+            vertical[r] = matrix[pivotColumn][r] / pivotHorizontal;
+        }
+
+        return new int[][]{horizontal, vertical};
+    }
+
+    /**
+     * Returns the greatest common divisor of two non-negative numbers.
+     *
+     * @param a the first number
+     * @param b the second number
+     * @return the greatest common divisor, {@code a} if {@code b} is 0
+     */
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Checks the size of a kernel.
+     *
+     * @param size the number of rows and columns
+     * @throws IllegalArgumentException if the size is even or less than 3
+     */
+    private static void checkSize(int size) {
+        if (size < 3 || size % 2 == 0) {
+            throw new IllegalArgumentException("Kernel size must be odd and at least 3, got %d".formatted(size));
+        }
+    }
+}
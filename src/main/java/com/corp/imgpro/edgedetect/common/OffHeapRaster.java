@@ -0,0 +1,558 @@
+package com.corp.imgpro.edgedetect.common;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Vector;
+
+/**
+ * An image of packed ARGB pixels stored outside the Java heap in a {@link MemorySegment}, one {@code int} per
+ * pixel in row-major order and native byte order. The pixels are neither scanned nor moved by the garbage
+ * collector, and a raster may be far larger than the heap.
+ *
+ * <p>A raster is either allocated in an arena, its own or the caller's, or mapped from a file. A mapped raster
+ * is a plain pixel array without header, so the file can be mapped again later with the same dimensions;
+ * {@link #mapTemporary(int, int)} maps an anonymous temporary file instead, for spilling large intermediate
+ * results to disk when memory is tight. Closing a raster that owns its arena frees or unmaps the memory.</p>
+ *
+ * <p>Rasters allocated or mapped here use shared arenas and can be read and written from several threads.
+ * Allocated rasters count against {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size;
+ * mapped rasters do not.</p>
+ */
+public class OffHeapRaster implements AutoCloseable {
+
+    /**
+     * Layout of one pixel.
+     */
+    public static final ValueLayout.OfInt PIXEL = ValueLayout.JAVA_INT;
+
+    /**
+     * Number of rows decoded or encoded at a time by {@link #read(Path, boolean)} and {@link #write(Path, String)}.
+     */
+    private static final int STRIP_ROWS = 256;
+
+    private final int width;
+    private final int height;
+    private final MemorySegment segment;
+    private final Arena arena;
+
+    /**
+     * Creates a raster over a segment.
+     *
+     * @param width   the image width
+     * @param height  the image height
+     * @param segment the pixels, at least {@code width * height} ints
+     * @param arena   the arena to close with the raster, or {@code null} if the caller owns it
+     */
+    private OffHeapRaster(int width, int height, MemorySegment segment, Arena arena) {
+        this.width = width;
+        this.height = height;
+        this.segment = segment;
+        this.arena = arena;
+    }
+
+    /**
+     * Allocates a zero-filled raster in its own shared arena, freed by {@link #close()}.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @return the raster
+     */
+    public static OffHeapRaster allocate(int width, int height) {
+        Arena arena = Arena.ofShared();
+        try {
+            return new OffHeapRaster(width, height, arena.allocate(byteSize(width, height), PIXEL.byteAlignment()), arena);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Allocates a zero-filled raster in the caller's arena. {@link #close()} does nothing; the memory is
+     * freed when the arena is closed.
+     *
+     * @param arena  the arena owning the memory
+     * @param width  the image width
+     * @param height the image height
+     * @return the raster
+     */
+    public static OffHeapRaster allocate(Arena arena, int width, int height) {
+        return new OffHeapRaster(width, height, arena.allocate(byteSize(width, height), PIXEL.byteAlignment()), null);
+    }
+
+    /**
+     * Maps a raster from a file, creating or extending the file to the raster's size. Pixels written to the
+     * raster end up in the file, which is kept when the raster is closed.
+     *
+     * @param file   the pixel file
+     * @param width  the image width
+     * @param height the image height
+     * @return the raster
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static OffHeapRaster map(Path file, int width, int height) throws IOException {
+        return map(file, width, height, StandardOpenOption.CREATE);
+    }
+
+    /**
+     * Maps a raster from a new temporary file, which is deleted as soon as the platform allows, so its disk
+     * space is released when the raster is closed at the latest. The operating system pages the pixels out to
+     * disk under memory pressure, so such rasters suit intermediate results larger than the available memory.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @return the raster
+     * @throws IOException if the temporary file cannot be created or mapped
+     */
+    public static OffHeapRaster mapTemporary(int width, int height) throws IOException {
+        return map(Files.createTempFile("edgedetect-raster", ".bin"), width, height, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Copies an image into a newly allocated raster.
+     *
+     * @param image the image
+     * @return the raster, owning its arena
+     */
+    public static OffHeapRaster of(BufferedImage image) {
+        OffHeapRaster raster = allocate(image.getWidth(), image.getHeight());
+        raster.copyFrom(image);
+        return raster;
+    }
+
+    /**
+     * Decodes an image file into a raster strip by strip, so that only one strip of the decoded image is on
+     * the heap at a time.
+     *
+     * @param input  the image file
+     * @param mapped {@code true} to map the raster from a temporary file (see {@link #mapTemporary(int, int)}),
+     *               {@code false} to allocate it in memory
+     * @return the raster, owning its memory
+     * @throws IOException if the image cannot be read or the raster file cannot be mapped
+     */
+    public static OffHeapRaster read(Path input, boolean mapped) throws IOException {
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(input.toFile())) {
+            if (imageInput == null) {
+                throw new IOException("Cannot open %s".formatted(input));
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                throw new IOException("No ImageIO reader for %s".formatted(input));
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, false, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                OffHeapRaster raster = mapped ? mapTemporary(width, height) : allocate(width, height);
+                try {
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    int[] row = new int[width];
+                    for (int from = 0; from < height; from += STRIP_ROWS) {
+                        int rows = Math.min(STRIP_ROWS, height - from);
+                        param.setSourceRegion(new Rectangle(0, from, width, rows));
+                        BufferedImage strip = reader.read(0, param);
+                        for (int y = 0; y < rows; y++) {
+                            strip.getRGB(0, y, width, 1, row, 0, width);
+                            raster.setRow(from + y, row, 0);
+                        }
+                    }
+                    return raster;
+                } catch (IOException | RuntimeException e) {
+                    raster.close();
+                    throw e;
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns the image width.
+     *
+     * @return the width in pixels
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the image height.
+     *
+     * @return the height in pixels
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the memory holding the pixels.
+     *
+     * @return the segment; pixel {@code (x, y)} is at byte offset {@code (y * width + x) * 4}
+     */
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    /**
+     * Returns the packed ARGB value of a pixel.
+     *
+     * @param x the column
+     * @param y the row
+     * @return the pixel value
+     */
+    public int get(int x, int y) {
+        return segment.getAtIndex(PIXEL, (long) y * width + x);
+    }
+
+    /**
+     * Sets the packed ARGB value of a pixel.
+     *
+     * @param x     the column
+     * @param y     the row
+     * @param value the pixel value
+     */
+    public void set(int x, int y, int value) {
+        segment.setAtIndex(PIXEL, (long) y * width + x, value);
+    }
+
+    /**
+     * Copies a row of pixels into an array.
+     *
+     * @param y      the row
+     * @param dest   the destination array
+     * @param offset the index in {@code dest} receiving pixel {@code (0, y)}
+     */
+    public void getRow(int y, int[] dest, int offset) {
+        MemorySegment.copy(segment, PIXEL, (long) y * width * Integer.BYTES, dest, offset, width);
+    }
+
+    /**
+     * Copies a row of pixels from an array.
+     *
+     * @param y      the row
+     * @param src    the source array
+     * @param offset the index in {@code src} holding pixel {@code (0, y)}
+     */
+    public void setRow(int y, int[] src, int offset) {
+        MemorySegment.copy(src, offset, segment, PIXEL, (long) y * width * Integer.BYTES, width);
+    }
+
+    /**
+     * Copies the pixels of an image of the same size into this raster.
+     *
+     * @param image the image
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    public void copyFrom(BufferedImage image) {
+        requireSize(image);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            setRow(y, row, 0);
+        }
+    }
+
+    /**
+     * Copies the pixels of this raster into an image of the same size.
+     *
+     * @param image the image
+     * @return {@code image}
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    public BufferedImage copyTo(BufferedImage image) {
+        requireSize(image);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            getRow(y, row, 0);
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    /**
+     * Copies the pixels of this raster into a new on-heap image.
+     *
+     * @param imageType the type of the image, e.g. {@link BufferedImage#TYPE_INT_RGB}
+     * @return the image
+     */
+    public BufferedImage toImage(int imageType) {
+        return copyTo(new BufferedImage(width, height, imageType));
+    }
+
+    /**
+     * Encodes the raster as 8-bit RGB into an image file, strip by strip, dropping the alpha channel.
+     *
+     * @param output the image file, replaced if it exists
+     * @param format the ImageIO format name, e.g. {@code tiff}
+     * @throws IOException if no writer supports the format or the file cannot be written
+     */
+    public void write(Path output, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No ImageIO writer for format %s".formatted(format));
+        }
+        ImageWriter writer = writers.next();
+        Files.deleteIfExists(output);
+
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output.toFile())) {
+            writer.setOutput(imageOutput);
+            writer.write(new IIOImage(new StripView(), null, null));
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Frees or unmaps the memory if the raster owns its arena. The raster must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (arena != null) {
+            arena.close();
+        }
+    }
+
+    /**
+     * Maps a raster from a file in a new shared arena.
+     *
+     * @param file   the pixel file
+     * @param width  the image width
+     * @param height the image height
+     * @param option an additional open option
+     * @return the raster, owning the mapping
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    private static OffHeapRaster map(Path file, int width, int height, StandardOpenOption option) throws IOException {
+        long size = byteSize(width, height);
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, option)) {
+            return new OffHeapRaster(width, height, channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena), arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of a raster.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @return the size in bytes
+     * @throws IllegalArgumentException if a dimension is not positive
+     */
+    private static long byteSize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Raster dimensions must be positive, got %dx%d".formatted(width, height));
+        }
+        return (long) width * height * Integer.BYTES;
+    }
+
+    /**
+     * Checks that an image has the size of this raster.
+     *
+     * @param image the image
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    private void requireSize(BufferedImage image) {
+        if (image.getWidth() != width || image.getHeight() != height) {
+            throw new IllegalArgumentException("Image is %dx%d but the raster is %dx%d".formatted(
+                    image.getWidth(), image.getHeight(), width, height));
+        }
+    }
+
+    /**
+     * A read-only {@link RenderedImage} view of the raster as 8-bit RGB, made of full-width strips of
+     * {@link #STRIP_ROWS} rows converted on demand, so that image writers pulling the image strip by strip
+     * never hold more than one strip on the heap.
+     */
+    private final class StripView implements RenderedImage {
+        private final ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        private final SampleModel sampleModel = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, width,
+                STRIP_ROWS, 3, width * 3, new int[]{0, 1, 2});
+        private final int[] row = new int[width];
+        private int cachedStrip = -1;
+        private Raster cachedTile;
+
+        @Override
+        public synchronized Raster getTile(int tileX, int tileY) {
+            if (tileY == cachedStrip) {
+                return cachedTile;
+            }
+            int from = tileY * STRIP_ROWS;
+            int rows = Math.min(STRIP_ROWS, height - from);
+            WritableRaster tile = Raster.createWritableRaster(sampleModel, new Point(0, from));
+            byte[] samples = ((DataBufferByte) tile.getDataBuffer()).getData();
+
+            for (int y = 0, i = 0; y < rows; y++) {
+                getRow(from + y, row, 0);
+                for (int x = 0; x < width; x++, i += 3) {
+                    int p = row[x];
+                    samples[i] = (byte) (p >> 16);
+                    samples[i + 1] = (byte) (p >> 8);
+                    samples[i + 2] = (byte) p;
+                }
+            }
+
+            cachedStrip = tileY;
+            cachedTile = tile;
+            return tile;
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            Rectangle bounds = rect.intersection(new Rectangle(0, 0, width, height));
+            WritableRaster data = Raster.createWritableRaster(
+                    sampleModel.createCompatibleSampleModel(bounds.width, bounds.height), new Point(bounds.x, bounds.y));
+            copyInto(data, bounds);
+            return data;
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            WritableRaster target = raster != null ? raster : colorModel.createCompatibleWritableRaster(width, height);
+            copyInto(target, target.getBounds().intersection(new Rectangle(0, 0, width, height)));
+            return target;
+        }
+
+        /**
+         * Copies the strips overlapping a region into a raster.
+         *
+         * @param target the destination raster
+         * @param bounds the region, within the image
+         */
+        private void copyInto(WritableRaster target, Rectangle bounds) {
+            if (bounds.isEmpty()) {
+                return;
+            }
+            for (int tileY = bounds.y / STRIP_ROWS; tileY <= (bounds.y + bounds.height - 1) / STRIP_ROWS; tileY++) {
+                Raster tile = getTile(0, tileY);
+                Rectangle overlap = tile.getBounds().intersection(bounds);
+                target.setRect(tile.createChild(overlap.x, overlap.y, overlap.width, overlap.height,
+                        overlap.x, overlap.y, null));
+            }
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return colorModel;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + STRIP_ROWS - 1) / STRIP_ROWS;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return STRIP_ROWS;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+}
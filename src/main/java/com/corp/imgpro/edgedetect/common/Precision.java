@@ -0,0 +1,95 @@
+package com.corp.imgpro.edgedetect.common;
+
+import java.util.Locale;
+
+/**
+ * Arithmetic used for the grayscale conversion and the gradient magnitude of the array-based Sobel engines.
+ * The mode trades exactness for speed; {@code tools.PrecisionReport} measures the error of each mode against
+ * {@link #EXACT} on a corpus of images.
+ *
+ * <p>The error bounds below are stated in gray levels of the final, normalized edge map (0-255):</p>
+ * <ul>
+ *     <li>{@link #EXACT}: the floating-point formulas of {@code SobelStandard}; no error.</li>
+ *     <li>{@link #FIXED_POINT}: integer luminance weights in 16.16 fixed point and an integer square root
+ *     looked up in a table. The luminance differs from the exact one by at most 1, for about 7,000 of the
+ *     16.7 million colors, whose exact luminance lies within 2<sup>-16</sup> of an integer; the square root is
+ *     exact. The Sobel weights of a pixel's neighbours add up to 8 per kernel, so {@code gx} and {@code gy}
+ *     move by at most 8 each and the magnitude by at most {@code 8 * sqrt(2)}, about 11.3. Both magnitudes are
+ *     truncated, so the integer gradients differ by at most 12, and so do the image maxima. A level
+ *     {@code 255 * g / max} therefore moves by at most {@code 24 * 255 / (max - 12) + 1} for an image whose
+ *     exact maximum gradient {@code max} is above 12: a few levels on contrasty images, more on flat,
+ *     low-contrast ones whose small maximum stretches every difference, and no useful bound below that.</li>
+ *     <li>{@link #L1}: the fixed-point luminance and the magnitude approximated by {@code |gx| + |gy|},
+ *     which lies between the Euclidean magnitude and {@code sqrt(2)} times it. After normalization by the
+ *     image maximum, which is scaled by the same bounds, a level {@code v} can move to anywhere in
+ *     {@code [v / sqrt(2), v * sqrt(2)]} clamped to 255, i.e. by up to 105 levels in theory. In practice
+ *     most pixels move by a few levels and the largest errors are around 60 levels, on edges whose
+ *     orientation differs from that of the strongest edge.</li>
+ * </ul>
+ *
+ * <p>The normalization table is built with the exact formula in every mode; it is computed once per image
+ * and does not touch the pixels.</p>
+ */
+public enum Precision {
+
+    /**
+     * The floating-point arithmetic of {@code SobelStandard}.
+     */
+    EXACT("exact"),
+
+    /**
+     * Integer-only fixed-point luminance and integer square root.
+     */
+    FIXED_POINT("fixed"),
+
+    /**
+     * Fixed-point luminance and the L1 magnitude {@code |gx| + |gy|}.
+     */
+    L1("l1");
+
+    /**
+     * System property selecting the precision of the raster and parallel engines.
+     */
+    public static final String PROPERTY = "edgedetect.precision";
+
+    private final String label;
+
+    Precision(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the lower-case name of the mode, as accepted by {@link #parse(String)}.
+     *
+     * @return the label
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Parses a mode from its label, ignoring case.
+     *
+     * @param value {@code exact}, {@code fixed} or {@code l1}
+     * @return the mode
+     * @throws IllegalArgumentException if the value names no mode
+     */
+    public static Precision parse(String value) {
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        for (Precision precision : values()) {
+            if (precision.label.equals(normalized)) {
+                return precision;
+            }
+        }
+        throw new IllegalArgumentException("Precision must be exact, fixed or l1, got '%s'".formatted(value));
+    }
+
+    /**
+     * Returns the mode configured with {@link #PROPERTY}, or {@link #EXACT} if the property is not set.
+     *
+     * @return the configured mode
+     */
+    public static Precision configured() {
+        return parse(System.getProperty(PROPERTY, EXACT.label));
+    }
+}
@@ -0,0 +1,374 @@
+package com.corp.imgpro.edgedetect.common;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Utility class for moving pixel data between {@link BufferedImage} rasters and flat, row-major arrays.
+ * The common layouts ({@code TYPE_INT_RGB}, {@code TYPE_INT_ARGB}, {@code TYPE_INT_BGR},
+ * {@code TYPE_3BYTE_BGR} and {@code TYPE_4BYTE_ABGR}) are accessed through the backing array of the
+ * raster's data buffer; every other layout falls back to the bulk {@code getRGB}/{@code setRGB} methods
+ * so that the color model conversions stay exactly the same as per-pixel access.
+ */
+public class Rasters {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private Rasters() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts the whole image to a flat, row-major grayscale array in a single pass.
+     *
+     * @param image the input image
+     * @return an array of {@code width * height} grayscale values, indexed by {@code y * width + x}
+     */
+    public static int[] toGrayScale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] gray = new int[width * height];
+
+        for (int y = 0; y < height; y++) {
+            grayScaleRow(image, y, gray, y * width);
+        }
+
+        return gray;
+    }
+
+    /**
+     * Converts a single image row to grayscale values using {@link SobelMath#luminance(int, int, int)}.
+     *
+     * @param image  the input image
+     * @param y      the row to convert
+     * @param dest   the destination array
+     * @param offset the index in {@code dest} receiving the value of pixel {@code (0, y)}
+     */
+    public static void grayScaleRow(BufferedImage image, int y, int[] dest, int offset) {
+        int width = image.getWidth();
+        WritableRaster raster = image.getRaster();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int start = packedRowStart(raster, y);
+                for (int x = 0; x < width; x++) {
+                    int p = data[start + x];
+                    dest[offset + x] = SobelMath.luminance((p >> 16) & 0xff, (p >> 8) & 0xff, p & 0xff);
+                }
+            }
+            case BufferedImage.TYPE_INT_BGR -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int start = packedRowStart(raster, y);
+                for (int x = 0; x < width; x++) {
+                    int p = data[start + x];
+                    dest[offset + x] = SobelMath.luminance(p & 0xff, (p >> 8) & 0xff, (p >> 16) & 0xff);
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int pixelStride = ((ComponentSampleModel) raster.getSampleModel()).getPixelStride();
+                int r = interleavedRowStart(raster, y, 0);
+                int g = interleavedRowStart(raster, y, 1);
+                int b = interleavedRowStart(raster, y, 2);
+                for (int x = 0, i = 0; x < width; x++, i += pixelStride) {
+                    dest[offset + x] = SobelMath.luminance(data[r + i] & 0xff, data[g + i] & 0xff, data[b + i] & 0xff);
+                }
+            }
+            default -> {
+                image.getRGB(0, y, width, 1, dest, offset, width);
+                for (int x = offset; x < offset + width; x++) {
+                    int p = dest[x];
+                    dest[x] = SobelMath.luminance((p >> 16) & 0xff, (p >> 8) & 0xff, p & 0xff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a single image row to grayscale values with the luminance of the given precision.
+     * {@link Precision#EXACT} is {@link #grayScaleRow(BufferedImage, int, int[], int)}; the other modes use
+     * {@link SobelMath#fixedLuminance(int, int, int)}.
+     *
+     * @param precision the precision mode
+     * @param image     the input image
+     * @param y         the row to convert
+     * @param dest      the destination array
+     * @param offset    the index in {@code dest} receiving the value of pixel {@code (0, y)}
+     */
+    public static void grayScaleRow(Precision precision, BufferedImage image, int y, int[] dest, int offset) {
+        if (precision == Precision.EXACT) {
+            grayScaleRow(image, y, dest, offset);
+            return;
+        }
+        int width = image.getWidth();
+        WritableRaster raster = image.getRaster();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int start = packedRowStart(raster, y);
+                for (int x = 0; x < width; x++) {
+                    int p = data[start + x];
+                    dest[offset + x] = SobelMath.fixedLuminance((p >> 16) & 0xff, (p >> 8) & 0xff, p & 0xff);
+                }
+            }
+            case BufferedImage.TYPE_INT_BGR -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int start = packedRowStart(raster, y);
+                for (int x = 0; x < width; x++) {
+                    int p = data[start + x];
+                    dest[offset + x] = SobelMath.fixedLuminance(p & 0xff, (p >> 8) & 0xff, (p >> 16) & 0xff);
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int pixelStride = ((ComponentSampleModel) raster.getSampleModel()).getPixelStride();
+                int r = interleavedRowStart(raster, y, 0);
+                int g = interleavedRowStart(raster, y, 1);
+                int b = interleavedRowStart(raster, y, 2);
+                for (int x = 0, i = 0; x < width; x++, i += pixelStride) {
+                    dest[offset + x] = SobelMath.fixedLuminance(data[r + i] & 0xff, data[g + i] & 0xff, data[b + i] & 0xff);
+                }
+            }
+            default -> {
+                image.getRGB(0, y, width, 1, dest, offset, width);
+                for (int x = offset; x < offset + width; x++) {
+                    int p = dest[x];
+                    dest[x] = SobelMath.fixedLuminance((p >> 16) & 0xff, (p >> 8) & 0xff, p & 0xff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a single image row as non-premultiplied ARGB colors, the values {@code getRGB} would return.
+     *
+     * @param image  the input image
+     * @param y      the row to read
+     * @param dest   the destination array
+     * @param offset the index in {@code dest} receiving the color of pixel {@code (0, y)}
+     */
+    public static void argbRow(BufferedImage image, int y, int[] dest, int offset) {
+        int width = image.getWidth();
+        WritableRaster raster = image.getRaster();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int start = packedRowStart(raster, y);
+                for (int x = 0; x < width; x++) {
+                    dest[offset + x] = 0xff000000 | data[start + x];
+                }
+            }
+            case BufferedImage.TYPE_INT_ARGB -> System.arraycopy(((DataBufferInt) raster.getDataBuffer()).getData(),
+                    packedRowStart(raster, y), dest, offset, width);
+            case BufferedImage.TYPE_INT_BGR -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int start = packedRowStart(raster, y);
+                for (int x = 0; x < width; x++) {
+                    int p = data[start + x];
+                    dest[offset + x] = 0xff000000 | (p & 0xff) << 16 | p & 0xff00 | (p >> 16) & 0xff;
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int pixelStride = ((ComponentSampleModel) raster.getSampleModel()).getPixelStride();
+                int r = interleavedRowStart(raster, y, 0);
+                int g = interleavedRowStart(raster, y, 1);
+                int b = interleavedRowStart(raster, y, 2);
+                int a = pixelStride == 4 ? interleavedRowStart(raster, y, 3) : 0;
+                for (int x = 0, i = 0; x < width; x++, i += pixelStride) {
+                    int alpha = pixelStride == 4 ? data[a + i] & 0xff : 0xff;
+                    dest[offset + x] = alpha << 24 | (data[r + i] & 0xff) << 16 | (data[g + i] & 0xff) << 8
+                            | data[b + i] & 0xff;
+                }
+            }
+            default -> image.getRGB(0, y, width, 1, dest, offset, width);
+        }
+    }
+
+    /**
+     * Writes gray levels into a row of the output image. Each level {@code v} is stored as the opaque
+     * color {@code 0xff000000 | v << 16 | v << 8 | v}, which is what {@code setRGB} would store.
+     *
+     * @param image  the output image
+     * @param y      the row to write
+     * @param levels the gray levels, each in the range 0-255
+     * @param offset the index in {@code levels} holding the level of pixel {@code (0, y)}
+     * @param fromX  the first column to write (inclusive)
+     * @param toX    the last column to write (exclusive)
+     */
+    public static void setGrayRow(BufferedImage image, int y, int[] levels, int offset, int fromX, int toX) {
+        if (fromX >= toX) {
+            return;
+        }
+        WritableRaster raster = image.getRaster();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_BGR -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int start = packedRowStart(raster, y);
+                for (int x = fromX; x < toX; x++) {
+                    data[start + x] = levels[offset + x] * 0x010101;
+                }
+            }
+            case BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int start = packedRowStart(raster, y);
+                for (int x = fromX; x < toX; x++) {
+                    data[start + x] = 0xff000000 | levels[offset + x] * 0x010101;
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_4BYTE_ABGR_PRE -> {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int pixelStride = ((ComponentSampleModel) raster.getSampleModel()).getPixelStride();
+                int r = interleavedRowStart(raster, y, 0);
+                int g = interleavedRowStart(raster, y, 1);
+                int b = interleavedRowStart(raster, y, 2);
+                int a = pixelStride == 4 ? interleavedRowStart(raster, y, 3) : 0;
+                for (int x = fromX; x < toX; x++) {
+                    byte level = (byte) levels[offset + x];
+                    int i = x * pixelStride;
+                    data[r + i] = level;
+                    data[g + i] = level;
+                    data[b + i] = level;
+                    if (pixelStride == 4) {
+                        data[a + i] = (byte) 0xff;
+                    }
+                }
+            }
+            default -> {
+                int[] argb = new int[toX - fromX];
+                for (int x = fromX; x < toX; x++) {
+                    argb[x - fromX] = 0xff000000 | levels[offset + x] * 0x010101;
+                }
+                image.setRGB(fromX, y, argb.length, 1, argb, 0, argb.length);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of pixel {@code (0, y)} in the backing array of a packed integer raster.
+     *
+     * @param raster the raster backed by a {@link SinglePixelPackedSampleModel}
+     * @param y      the row in raster coordinates
+     * @return the array index of the first pixel of the row
+     */
+    public static int packedRowStart(WritableRaster raster, int y) {
+        SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+
+        return raster.getDataBuffer().getOffset() + sampleModel.getOffset(
+                -raster.getSampleModelTranslateX(), y - raster.getSampleModelTranslateY());
+    }
+
+    /**
+     * Clears the border pixels of an image, i.e. the first and last row and column, to all-zero samples, which
+     * is what a newly created image holds. Engines writing into a reused output image call this, since they
+     * leave the border untouched like {@code SobelStandard}.
+     *
+     * @param image the output image
+     */
+    public static void clearBorder(BufferedImage image) {
+        clearBorder(image, 1);
+    }
+
+    /**
+     * Clears a border of the given width, for kernels larger than 3x3 that leave more than one pixel
+     * uncovered at every side.
+     *
+     * @param image  the output image
+     * @param margin the number of rows and columns to clear at every side
+     */
+    public static void clearBorder(BufferedImage image, int margin) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        for (int y = 0; y < height; y++) {
+            if (y < margin || y >= height - margin) {
+                clearRow(image, y, 0, width);
+            } else {
+                clearRow(image, y, 0, Math.min(margin, width));
+                clearRow(image, y, Math.max(0, width - margin), width);
+            }
+        }
+    }
+
+    /**
+     * Checks that an output image has the size of the input image.
+     *
+     * @param image  the input image
+     * @param output the output image
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    public static void requireSameSize(BufferedImage image, BufferedImage output) {
+        if (image.getWidth() != output.getWidth() || image.getHeight() != output.getHeight()) {
+            throw new IllegalArgumentException("Output image is %dx%d, expected %dx%d".formatted(
+                    output.getWidth(), output.getHeight(), image.getWidth(), image.getHeight()));
+        }
+    }
+
+    /**
+     * Sets the samples of a range of pixels in one row to zero.
+     *
+     * @param image the image
+     * @param y     the row
+     * @param fromX the first column to clear (inclusive)
+     * @param toX   the last column to clear (exclusive)
+     */
+    private static void clearRow(BufferedImage image, int y, int fromX, int toX) {
+        if (fromX >= toX) {
+            return;
+        }
+        WritableRaster raster = image.getRaster();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_INT_ARGB,
+                 BufferedImage.TYPE_INT_ARGB_PRE -> {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int start = packedRowStart(raster, y);
+                Arrays.fill(data, start + fromX, start + toX, 0);
+            }
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_4BYTE_ABGR_PRE -> {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int pixelStride = ((ComponentSampleModel) raster.getSampleModel()).getPixelStride();
+                for (int band = 0; band < raster.getNumBands(); band++) {
+                    int start = interleavedRowStart(raster, y, band);
+                    for (int x = fromX; x < toX; x++) {
+                        data[start + x * pixelStride] = 0;
+                    }
+                }
+            }
+            default -> {
+                for (int x = fromX; x < toX; x++) {
+                    for (int band = 0; band < raster.getNumBands(); band++) {
+                        raster.setSample(x, y, band, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of one band of pixel {@code (0, y)} in the backing array of a pixel interleaved raster.
+     *
+     * @param raster the raster backed by a {@link ComponentSampleModel}
+     * @param y      the row in raster coordinates
+     * @param band   the band
+     * @return the array index of the band sample of the first pixel of the row
+     */
+    private static int interleavedRowStart(WritableRaster raster, int y, int band) {
+        ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+
+        return raster.getDataBuffer().getOffset() + sampleModel.getOffset(
+                -raster.getSampleModelTranslateX(), y - raster.getSampleModelTranslateY(), band);
+    }
+}
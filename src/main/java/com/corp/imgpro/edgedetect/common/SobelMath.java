@@ -0,0 +1,379 @@
+package com.corp.imgpro.edgedetect.common;
+
+/**
+ * Utility class holding the arithmetic shared by the array-based Sobel engines.
+ * Every method reproduces the formulas of {@code SobelStandard} exactly, so engines built on top of it
+ * produce the same pixels, only with flat, row-major primitive arrays instead of per-pixel image access.
+ *
+ * <p>The convolution follows the orientation of {@link Filters#getSobelXMatrix()} and
+ * {@link Filters#getSobelYMatrix()}, whose first index is the column offset and whose second index is
+ * the row offset of the neighbouring pixel.</p>
+ */
+public class SobelMath {
+
+    /**
+     * Weight of the red component in 16.16 fixed point, {@code round(0.2126 * 65536)}.
+     */
+    private static final int FIXED_RED = 13933;
+
+    /**
+     * Weight of the green component in 16.16 fixed point, {@code round(0.7152 * 65536)}.
+     */
+    private static final int FIXED_GREEN = 46871;
+
+    /**
+     * Weight of the blue component in 16.16 fixed point, {@code round(0.0722 * 65536)}; the three weights sum
+     * to exactly 65536, so white stays 255.
+     */
+    private static final int FIXED_BLUE = 4732;
+
+    /**
+     * The largest squared gradient magnitude of 8-bit grayscale values, {@code 2 * (4 * 255)²}.
+     */
+    public static final int MAX_SQUARED_GRADIENT = 2 * 1020 * 1020;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelMath() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts RGB components to a grayscale value using the linear luminance formula
+     * 0.2126R + 0.7152G + 0.0722B.
+     *
+     * @param r the red component (0-255)
+     * @param g the green component (0-255)
+     * @param b the blue component (0-255)
+     * @return the grayscale value between 0 and 255
+     */
+    public static int luminance(int r, int g, int b) {
+        return (int) (0.2126 * r + 0.7152 * g + 0.0722 * b);
+    }
+
+    /**
+     * Converts RGB components to a grayscale value like {@link #luminance(int, int, int)}, but with integer
+     * weights in 16.16 fixed point. The result differs from the floating-point one by at most 1.
+     *
+     * @param r the red component (0-255)
+     * @param g the green component (0-255)
+     * @param b the blue component (0-255)
+     * @return the grayscale value between 0 and 255
+     */
+    public static int fixedLuminance(int r, int g, int b) {
+        return (FIXED_RED * r + FIXED_GREEN * g + FIXED_BLUE * b) >>> 16;
+    }
+
+    /**
+     * Computes the integer square root {@code floor(sqrt(n))} without floating-point arithmetic. Radicands up
+     * to {@link #MAX_SQUARED_GRADIENT} are looked up in a table of 4 MB, built on first use; larger ones are
+     * computed digit by digit. For every non-negative {@code int} this equals {@code (int) Math.sqrt(n)}.
+     *
+     * @param n the non-negative radicand
+     * @return the integer square root
+     */
+    public static int isqrt(int n) {
+        if (n <= MAX_SQUARED_GRADIENT) {
+            return SqrtTable.ROOTS[n];
+        }
+        int bit = 1 << 30;
+        while (bit > n) {
+            bit >>>= 2;
+        }
+        int root = 0;
+        int rest = n;
+        for (; bit != 0; bit >>>= 2) {
+            if (rest >= root + bit) {
+                rest -= root + bit;
+                root = (root >>> 1) + bit;
+            } else {
+                root >>>= 1;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Computes the integer square root {@code floor(sqrt(n))} of a {@code long}, for the squared magnitudes of
+     * kernels larger than 3x3, like {@link #isqrt(int)}.
+     *
+     * @param n the non-negative radicand
+     * @return the integer square root
+     */
+    public static long isqrt(long n) {
+        if (n <= MAX_SQUARED_GRADIENT) {
+            return SqrtTable.ROOTS[(int) n];
+        }
+        long bit = 1L << 62;
+        while (bit > n) {
+            bit >>>= 2;
+        }
+        long root = 0;
+        long rest = n;
+        for (; bit != 0; bit >>>= 2) {
+            if (rest >= root + bit) {
+                rest -= root + bit;
+                root = (root >>> 1) + bit;
+            } else {
+                root >>>= 1;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Converts RGB components to a grayscale value with the arithmetic of the given precision.
+     *
+     * @param precision the precision mode
+     * @param r         the red component (0-255)
+     * @param g         the green component (0-255)
+     * @param b         the blue component (0-255)
+     * @return the grayscale value between 0 and 255
+     */
+    public static int luminance(Precision precision, int r, int g, int b) {
+        return precision == Precision.EXACT ? luminance(r, g, b) : fixedLuminance(r, g, b);
+    }
+
+    /**
+     * Computes the gradient magnitude with the arithmetic of the given precision.
+     *
+     * @param precision the precision mode
+     * @param gx        the response of the Sobel X operator
+     * @param gy        the response of the Sobel Y operator
+     * @return the gradient magnitude, or its L1 approximation for {@link Precision#L1}
+     */
+    public static int magnitude(Precision precision, int gx, int gy) {
+        return switch (precision) {
+            case EXACT -> magnitude(gx, gy);
+            case FIXED_POINT -> isqrt(gx * gx + gy * gy);
+            case L1 -> Math.abs(gx) + Math.abs(gy);
+        };
+    }
+
+    /**
+     * Computes the truncated gradient magnitude sqrt(gx² + gy²).
+     *
+     * @param gx the response of the Sobel X operator
+     * @param gy the response of the Sobel Y operator
+     * @return the gradient magnitude
+     */
+    public static int magnitude(int gx, int gy) {
+        return (int) Math.sqrt((double) (gx * gx) + (gy * gy));
+    }
+
+    /**
+     * Computes the gradient magnitudes of one image row from the grayscale values of the row and its
+     * two neighbours. Only the interior columns {@code 1..width-2} are written.
+     *
+     * @param above       grayscale values of the row above
+     * @param aboveOffset index of column 0 in {@code above}
+     * @param row         grayscale values of the current row
+     * @param rowOffset   index of column 0 in {@code row}
+     * @param below       grayscale values of the row below
+     * @param belowOffset index of column 0 in {@code below}
+     * @param width       the image width
+     * @param edges       the destination of the gradient magnitudes
+     * @param edgesOffset index of column 0 in {@code edges}
+     * @return the maximum gradient of the row, or -1 if the row has no interior columns
+     */
+    public static int gradientRow(int[] above, int aboveOffset, int[] row, int rowOffset,
+                                  int[] below, int belowOffset, int width, int[] edges, int edgesOffset) {
+        return gradientRange(above, aboveOffset, row, rowOffset, below, belowOffset, 1, width - 1, edges, edgesOffset);
+    }
+
+    /**
+     * Computes the gradient magnitudes of one image row like
+     * {@link #gradientRow(int[], int, int[], int, int[], int, int, int[], int)}, with the magnitude of the
+     * given precision.
+     *
+     * @param precision   the precision mode
+     * @param above       grayscale values of the row above
+     * @param aboveOffset index of column 0 in {@code above}
+     * @param row         grayscale values of the current row
+     * @param rowOffset   index of column 0 in {@code row}
+     * @param below       grayscale values of the row below
+     * @param belowOffset index of column 0 in {@code below}
+     * @param width       the image width
+     * @param edges       the destination of the gradient magnitudes
+     * @param edgesOffset index of column 0 in {@code edges}
+     * @return the maximum gradient of the row, or -1 if the row has no interior columns
+     */
+    public static int gradientRow(Precision precision, int[] above, int aboveOffset, int[] row, int rowOffset,
+                                  int[] below, int belowOffset, int width, int[] edges, int edgesOffset) {
+        return switch (precision) {
+            case EXACT -> gradientRange(above, aboveOffset, row, rowOffset, below, belowOffset, 1, width - 1,
+                    edges, edgesOffset);
+            case FIXED_POINT -> fixedGradientRange(above, aboveOffset, row, rowOffset, below, belowOffset,
+                    1, width - 1, edges, edgesOffset);
+            case L1 -> l1GradientRange(above, aboveOffset, row, rowOffset, below, belowOffset, 1, width - 1,
+                    edges, edgesOffset);
+        };
+    }
+
+    /**
+     * Computes the gradient magnitudes of the columns {@code [fromX, toX)} of one image row. The caller
+     * guarantees that columns {@code fromX - 1} and {@code toX} exist in all three rows.
+     *
+     * @param above       grayscale values of the row above
+     * @param aboveOffset index of column 0 in {@code above}
+     * @param row         grayscale values of the current row
+     * @param rowOffset   index of column 0 in {@code row}
+     * @param below       grayscale values of the row below
+     * @param belowOffset index of column 0 in {@code below}
+     * @param fromX       the first column to compute (inclusive)
+     * @param toX         the last column to compute (exclusive)
+     * @param edges       the destination of the gradient magnitudes
+     * @param edgesOffset index of column 0 in {@code edges}
+     * @return the maximum gradient of the range, or -1 if the range is empty
+     */
+    public static int gradientRange(int[] above, int aboveOffset, int[] row, int rowOffset,
+                                    int[] below, int belowOffset, int fromX, int toX, int[] edges, int edgesOffset) {
+        int max = -1;
+
+        for (int x = fromX; x < toX; x++) {
+            int a = aboveOffset + x;
+            int c = rowOffset + x;
+            int b = belowOffset + x;
+
+            int gx = (below[b - 1] - above[a - 1]) + 2 * (below[b] - above[a]) + (below[b + 1] - above[a + 1]);
+            int gy = (above[a + 1] - above[a - 1]) + 2 * (row[c + 1] - row[c - 1]) + (below[b + 1] - below[b - 1]);
+
+            int g = magnitude(gx, gy);
+            edges[edgesOffset + x] = g;
+            if (max < g) {
+                max = g;
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Computes the gradient magnitudes of the columns {@code [fromX, toX)} of one image row with the integer
+     * square root table of {@link Precision#FIXED_POINT}.
+     *
+     * @param above       grayscale values of the row above
+     * @param aboveOffset index of column 0 in {@code above}
+     * @param row         grayscale values of the current row
+     * @param rowOffset   index of column 0 in {@code row}
+     * @param below       grayscale values of the row below
+     * @param belowOffset index of column 0 in {@code below}
+     * @param fromX       the first column to compute (inclusive)
+     * @param toX         the last column to compute (exclusive)
+     * @param edges       the destination of the gradient magnitudes
+     * @param edgesOffset index of column 0 in {@code edges}
+     * @return the maximum gradient of the range, or -1 if the range is empty
+     */
+    private static int fixedGradientRange(int[] above, int aboveOffset, int[] row, int rowOffset,
+                                          int[] below, int belowOffset, int fromX, int toX, int[] edges, int edgesOffset) {
+        char[] roots = SqrtTable.ROOTS;
+        int max = -1;
+
+        for (int x = fromX; x < toX; x++) {
+            int a = aboveOffset + x;
+            int c = rowOffset + x;
+            int b = belowOffset + x;
+
+            int gx = (below[b - 1] - above[a - 1]) + 2 * (below[b] - above[a]) + (below[b + 1] - above[a + 1]);
+            int gy = (above[a + 1] - above[a - 1]) + 2 * (row[c + 1] - row[c - 1]) + (below[b + 1] - below[b - 1]);
+
+            int g = roots[gx * gx + gy * gy];
+            edges[edgesOffset + x] = g;
+            if (max < g) {
+                max = g;
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Computes the L1 gradient magnitudes {@code |gx| + |gy|} of the columns {@code [fromX, toX)} of one image
+     * row, as used by {@link Precision#L1}.
+     *
+     * @param above       grayscale values of the row above
+     * @param aboveOffset index of column 0 in {@code above}
+     * @param row         grayscale values of the current row
+     * @param rowOffset   index of column 0 in {@code row}
+     * @param below       grayscale values of the row below
+     * @param belowOffset index of column 0 in {@code below}
+     * @param fromX       the first column to compute (inclusive)
+     * @param toX         the last column to compute (exclusive)
+     * @param edges       the destination of the gradient magnitudes
+     * @param edgesOffset index of column 0 in {@code edges}
+     * @return the maximum gradient of the range, or -1 if the range is empty
+     */
+    private static int l1GradientRange(int[] above, int aboveOffset, int[] row, int rowOffset,
+                                       int[] below, int belowOffset, int fromX, int toX, int[] edges, int edgesOffset) {
+        int max = -1;
+
+        for (int x = fromX; x < toX; x++) {
+            int a = aboveOffset + x;
+            int c = rowOffset + x;
+            int b = belowOffset + x;
+
+            int gx = (below[b - 1] - above[a - 1]) + 2 * (below[b] - above[a]) + (below[b + 1] - above[a + 1]);
+            int gy = (above[a + 1] - above[a - 1]) + 2 * (row[c + 1] - row[c - 1]) + (below[b + 1] - below[b - 1]);
+
+            int g = Math.abs(gx) + Math.abs(gy);
+            edges[edgesOffset + x] = g;
+            if (max < g) {
+                max = g;
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Builds a lookup table mapping each gradient value in {@code 0..maxGradient} to its normalized
+     * gray level, using the same scaling as {@code SobelStandard}: {@code (int) (g * (255.0 / maxGradient))}.
+     *
+     * @param maxGradient the maximum gradient of the image
+     * @return the normalization table, empty if {@code maxGradient} is negative
+     */
+    public static int[] normalizationTable(int maxGradient) {
+        return normalizationTable(maxGradient, new int[Math.max(0, maxGradient + 1)]);
+    }
+
+    /**
+     * Fills a caller-provided lookup table like {@link #normalizationTable(int)}, so that steady-state
+     * processing does not allocate a table per image.
+     *
+     * @param maxGradient the maximum gradient of the image
+     * @param table       the destination, with room for at least {@code maxGradient + 1} entries
+     * @return {@code table}
+     */
+    public static int[] normalizationTable(int maxGradient, int[] table) {
+        double scale = 255.0 / maxGradient;
+
+        for (int g = 0; g <= maxGradient; g++) {
+            table[g] = (int) (g * scale);
+        }
+
+        return table;
+    }
+
+    /**
+     * Holder of the square root table, so that it is only built by the first fixed-point conversion.
+     */
+    private static final class SqrtTable {
+
+        /**
+         * The integer square roots of {@code 0..MAX_SQUARED_GRADIENT}.
+         */
+        private static final char[] ROOTS = new char[MAX_SQUARED_GRADIENT + 1];
+
+        static {
+            for (int n = 0, root = 0; n < ROOTS.length; n++) {
+                if ((root + 1) * (root + 1) <= n) {
+                    root++;
+                }
+                ROOTS[n] = (char) root;
+            }
+        }
+    }
+}
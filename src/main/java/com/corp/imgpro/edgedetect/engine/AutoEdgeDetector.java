@@ -0,0 +1,102 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Precision;
+
+import java.awt.image.BufferedImage;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An {@link EdgeDetector} sending each image to the engine its {@link CostModel} predicts to be fastest for
+ * the image's pixel count. It is created by {@link EngineRegistry} rather than discovered as a service, since
+ * it delegates to the discovered engines. All engines it chooses from must compute with the same
+ * {@link Precision} and {@link GradientOperator}, so that the result of an image does not depend on the engine
+ * picked for it.
+ */
+public class AutoEdgeDetector implements EdgeDetector {
+
+    private final Map<String, EdgeDetector> detectors = new LinkedHashMap<>();
+    private final CostModel costModel;
+
+    /**
+     * Creates an automatic engine from a model of the given engines.
+     *
+     * @param detectors the engines to choose from
+     * @param costModel the cost model; engines it does not know are never chosen
+     * @throws IllegalArgumentException if the model covers none of the engines or the engines differ in precision or
+     *                                  operator
+     */
+    public AutoEdgeDetector(Collection<? extends EdgeDetector> detectors, CostModel costModel) {
+        for (EdgeDetector detector : detectors) {
+            if (costModel.costs().containsKey(detector.name())) {
+                this.detectors.put(detector.name(), detector);
+            }
+        }
+        if (this.detectors.isEmpty()) {
+            throw new IllegalArgumentException("Cost model %s covers none of the engines".formatted(costModel));
+        }
+        if (this.detectors.values().stream().map(EdgeDetector::precision).distinct().count() > 1) {
+            throw new IllegalArgumentException("Engines %s differ in precision".formatted(this.detectors.keySet()));
+        }
+        if (this.detectors.values().stream().map(EdgeDetector::operator).distinct().count() > 1) {
+            throw new IllegalArgumentException("Engines %s differ in operator".formatted(this.detectors.keySet()));
+        }
+        this.costModel = costModel;
+    }
+
+    /**
+     * Calibrates a cost model for the given engines and creates an automatic engine from it.
+     *
+     * @param detectors the engines to choose from
+     * @return the automatic engine
+     */
+    public static AutoEdgeDetector calibrate(Collection<? extends EdgeDetector> detectors) {
+        return new AutoEdgeDetector(detectors, CostModel.calibrate(detectors));
+    }
+
+    @Override
+    public String name() {
+        return EngineRegistry.AUTO;
+    }
+
+    @Override
+    public Precision precision() {
+        return detectors.values().iterator().next().precision();
+    }
+
+    @Override
+    public GradientOperator operator() {
+        return detectors.values().iterator().next().operator();
+    }
+
+    /**
+     * Returns the engine predicted to be fastest for an image.
+     *
+     * @param image the image to be processed
+     * @return the selected engine
+     */
+    public EdgeDetector select(BufferedImage image) {
+        return detectors.get(costModel.fastest((long) image.getWidth() * image.getHeight()));
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        return select(image).convert(image);
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return select(image).convert(image, output);
+    }
+
+    /**
+     * Returns the cost model used for selection.
+     *
+     * @return the cost model
+     */
+    public CostModel costModel() {
+        return costModel;
+    }
+}
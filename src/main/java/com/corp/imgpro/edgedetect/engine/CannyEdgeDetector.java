@@ -0,0 +1,64 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.method.SobelCanny;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@link EdgeDetector} adapter for {@link SobelCanny}, running on the common fork/join pool. The operator and
+ * the thresholds are chosen with the system properties of {@link SobelCanny.Parameters}. The engine produces
+ * binary edges rather than a gradient map, so it is never chosen by {@value EngineRegistry#AUTO}.
+ */
+public class CannyEdgeDetector implements EdgeDetector {
+
+    private final SobelCanny.Parameters parameters;
+
+    /**
+     * Creates the engine with the configured parameters.
+     */
+    public CannyEdgeDetector() {
+        this(SobelCanny.Parameters.configured());
+    }
+
+    /**
+     * Creates the engine with the given parameters.
+     *
+     * @param parameters the operator and the thresholds
+     */
+    public CannyEdgeDetector(SobelCanny.Parameters parameters) {
+        this.parameters = parameters;
+    }
+
+    @Override
+    public String name() {
+        return "canny";
+    }
+
+    @Override
+    public GradientOperator operator() {
+        return parameters.operator();
+    }
+
+    @Override
+    public boolean isGradientMap() {
+        return false;
+    }
+
+    @Override
+    public String variant() {
+        return "%s-%s-%s-%s".formatted(name(), operator().name(), parameters.low(), parameters.high());
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        return SobelCanny.convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()),
+                ForkJoinPool.commonPool(), parameters);
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return SobelCanny.convert(image, output, ForkJoinPool.commonPool(), parameters);
+    }
+}
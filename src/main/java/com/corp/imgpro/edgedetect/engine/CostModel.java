@@ -0,0 +1,242 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+
+/**
+ * A per-engine linear cost model {@code time = fixed + perPixel * pixels}, calibrated by timing each engine
+ * on a few small random images and fitting a least-squares line through the medians. The fixed part captures
+ * per-call overhead such as device transfers and task scheduling, the slope captures throughput, so the model
+ * prefers low-overhead engines for small images and high-throughput engines for large ones.
+ */
+public class CostModel {
+    private static final Logger logger = LoggerFactory.getLogger(CostModel.class);
+
+    /**
+     * Image sizes used for calibration, as {@code {width, height}}. Kept small so calibration takes seconds.
+     */
+    private static final int[][] CALIBRATION_SIZES = {{256, 256}, {640, 480}, {1280, 720}};
+
+    /**
+     * Minimum untimed running time per engine before measuring, covering JIT warm-up and kernel compilation.
+     */
+    private static final long WARM_UP_NANOS = 300_000_000L;
+
+    /**
+     * Minimum number of untimed runs per engine and size.
+     */
+    private static final int WARM_UP_RUNS = 3;
+
+    /**
+     * Number of timed runs per engine and size; the median is used.
+     */
+    private static final int MEASURED_RUNS = 5;
+
+    /**
+     * Predicted cost of one engine.
+     *
+     * @param fixedNanos    the cost per call independent of the image size, in nanoseconds
+     * @param nanosPerPixel the cost per pixel, in nanoseconds
+     */
+    public record Cost(double fixedNanos, double nanosPerPixel) {
+
+        /**
+         * Predicts the time to convert an image.
+         *
+         * @param pixels the number of pixels of the image
+         * @return the predicted time in nanoseconds
+         */
+        public double predict(long pixels) {
+            return fixedNanos + nanosPerPixel * pixels;
+        }
+
+        @Override
+        public String toString() {
+            return "%.0f µs + %.2f ns/pixel".formatted(fixedNanos / 1e3, nanosPerPixel);
+        }
+    }
+
+    private final Map<String, Cost> costs;
+
+    /**
+     * Creates a model from known costs.
+     *
+     * @param costs the cost of each engine by name
+     */
+    public CostModel(Map<String, Cost> costs) {
+        if (costs.isEmpty()) {
+            throw new IllegalArgumentException("Cost model needs at least one engine");
+        }
+        this.costs = Collections.unmodifiableMap(new LinkedHashMap<>(costs));
+    }
+
+    /**
+     * Times every engine on the calibration images and fits its cost line. Engines failing during calibration
+     * are left out of the model.
+     *
+     * @param detectors the engines to calibrate
+     * @return the calibrated model
+     * @throws IllegalStateException if no engine could be calibrated
+     */
+    public static CostModel calibrate(Collection<? extends EdgeDetector> detectors) {
+        BufferedImage[] images = new BufferedImage[CALIBRATION_SIZES.length];
+        long[] pixels = new long[CALIBRATION_SIZES.length];
+        for (int i = 0; i < images.length; i++) {
+            images[i] = randomImage(CALIBRATION_SIZES[i][0], CALIBRATION_SIZES[i][1]);
+            pixels[i] = (long) CALIBRATION_SIZES[i][0] * CALIBRATION_SIZES[i][1];
+        }
+
+        Map<String, Cost> costs = new LinkedHashMap<>();
+        for (EdgeDetector detector : detectors) {
+            try {
+                warmUp(detector, images);
+                double[] nanos = new double[images.length];
+                for (int i = 0; i < images.length; i++) {
+                    nanos[i] = medianNanos(detector, images[i]);
+                }
+                Cost cost = fit(pixels, nanos);
+                costs.put(detector.name(), cost);
+                logger.info("[Auto] {}: {}", detector.name(), cost);
+            } catch (RuntimeException | LinkageError e) {
+                logger.warn("[Auto] Leaving out {}, calibration failed: {}", detector.name(), e.toString());
+            }
+        }
+        if (costs.isEmpty()) {
+            throw new IllegalStateException("No engine could be calibrated");
+        }
+
+        return new CostModel(costs);
+    }
+
+    /**
+     * Fits a least-squares line through the measurements. A negative intercept, which only arises from
+     * measurement noise, is clamped to zero; a slope that is not positive falls back to the line through the
+     * origin and the largest measurement, so large images are never predicted to be free.
+     *
+     * @param pixels the image sizes in pixels
+     * @param nanos  the measured times in nanoseconds
+     * @return the fitted cost
+     */
+    static Cost fit(long[] pixels, double[] nanos) {
+        int n = pixels.length;
+        double meanX = Arrays.stream(pixels).average().orElse(0);
+        double meanY = Arrays.stream(nanos).average().orElse(0);
+        double covariance = 0;
+        double variance = 0;
+
+        for (int i = 0; i < n; i++) {
+            covariance += (pixels[i] - meanX) * (nanos[i] - meanY);
+            variance += (pixels[i] - meanX) * (pixels[i] - meanX);
+        }
+        double slope = variance == 0 ? 0 : covariance / variance;
+        if (slope <= 0) {
+            return new Cost(0, nanos[n - 1] / pixels[n - 1]);
+        }
+        double intercept = Math.max(0, meanY - slope * meanX);
+
+        return new Cost(intercept, slope);
+    }
+
+    /**
+     * Returns the name of the engine with the lowest predicted time for an image size.
+     *
+     * @param pixels the number of pixels of the image
+     * @return the engine name
+     */
+    public String fastest(long pixels) {
+        String best = null;
+        double bestNanos = Double.POSITIVE_INFINITY;
+
+        for (Map.Entry<String, Cost> entry : costs.entrySet()) {
+            double nanos = entry.getValue().predict(pixels);
+            if (nanos < bestNanos) {
+                best = entry.getKey();
+                bestNanos = nanos;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns the cost of every calibrated engine.
+     *
+     * @return the costs by engine name, in calibration order
+     */
+    public Map<String, Cost> costs() {
+        return costs;
+    }
+
+    /**
+     * Runs an engine on the calibration images until it has run for {@link #WARM_UP_NANOS} and at least
+     * {@link #WARM_UP_RUNS} times per image.
+     *
+     * @param detector the engine
+     * @param images   the calibration images
+     */
+    private static void warmUp(EdgeDetector detector, BufferedImage[] images) {
+        long start = System.nanoTime();
+        for (int run = 0; run < WARM_UP_RUNS || System.nanoTime() - start < WARM_UP_NANOS; run++) {
+            for (BufferedImage image : images) {
+                detector.convert(image);
+            }
+        }
+    }
+
+    /**
+     * Runs an engine a few times on an image and returns the median time.
+     *
+     * @param detector the engine
+     * @param image    the calibration image
+     * @return the median time in nanoseconds
+     */
+    private static double medianNanos(EdgeDetector detector, BufferedImage image) {
+        long[] times = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            detector.convert(image);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+
+        return times[MEASURED_RUNS / 2];
+    }
+
+    /**
+     * Creates a random RGB image with a fixed seed.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @return the image
+     */
+    private static BufferedImage randomImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = random.nextInt();
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+
+        return image;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner text = new StringJoiner(", ", "CostModel[", "]");
+        costs.forEach((name, cost) -> text.add(name + ": " + cost));
+        return text.toString();
+    }
+}
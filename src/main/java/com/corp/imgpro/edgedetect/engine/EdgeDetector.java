@@ -0,0 +1,123 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Precision;
+import com.corp.imgpro.edgedetect.common.Rasters;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Service provider interface of an edge detection engine. Implementations are discovered with
+ * {@link java.util.ServiceLoader} by {@link EngineRegistry}, so a new engine is added by implementing this
+ * interface and listing the class in {@code META-INF/services/com.corp.imgpro.edgedetect.engine.EdgeDetector}.
+ *
+ * <p>Implementations need a public no-argument constructor that does not touch optional dependencies such as
+ * the TornadoVM runtime; such checks belong in {@link #isAvailable()}. {@link #convert(BufferedImage)} must be
+ * safe to call from several threads at once.</p>
+ */
+public interface EdgeDetector extends AutoCloseable {
+
+    /**
+     * Returns the unique, lower-case name used to select the engine, e.g. on the command line.
+     *
+     * @return the engine name
+     */
+    String name();
+
+    /**
+     * Returns whether the engine can run in this JVM, e.g. whether its hardware or incubator module is present.
+     * The registry skips unavailable engines.
+     *
+     * @return {@code true} if {@link #convert(BufferedImage)} can be called
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Returns the arithmetic the engine computes with. Engines of different precisions produce different edge
+     * maps for the same image, so callers that compare or store results, such as the result cache, keep them
+     * apart. The default is {@link Precision#EXACT}.
+     *
+     * @return the precision mode
+     */
+    default Precision precision() {
+        return Precision.EXACT;
+    }
+
+    /**
+     * Returns the gradient operator the engine convolves with. Like the precision, it changes the edge map of an
+     * image, so callers comparing or storing results keep engines of different operators apart. The default is
+     * {@link GradientOperator#SOBEL}.
+     *
+     * @return the gradient operator
+     */
+    default GradientOperator operator() {
+        return GradientOperator.SOBEL;
+    }
+
+    /**
+     * Returns whether the engine produces the normalized gradient magnitude of the Sobel engines. Engines
+     * producing another kind of edge map, such as the binary Canny edges, are never chosen by
+     * {@value EngineRegistry#AUTO}. The default is {@code true}.
+     *
+     * @return {@code true} for a gradient magnitude map
+     */
+    default boolean isGradientMap() {
+        return true;
+    }
+
+    /**
+     * Returns a name that differs between engines, or configurations of an engine, producing different edge
+     * maps, so that stored results can be kept apart. The default is the engine name, followed by the
+     * precision unless that is {@link Precision#EXACT} and by the operator unless that is
+     * {@link GradientOperator#SOBEL}.
+     *
+     * @return the variant name
+     */
+    default String variant() {
+        return name()
+                + (precision() == Precision.EXACT ? "" : "-" + precision().label())
+                + (operator().equals(GradientOperator.SOBEL) ? "" : "-" + operator().name());
+    }
+
+    /**
+     * Converts an input image to its edge-detected version.
+     *
+     * @param image the input image to be processed
+     * @return a new BufferedImage containing the edge-detected version of the input image
+     */
+    BufferedImage convert(BufferedImage image);
+
+    /**
+     * Converts an input image into a caller-provided output image of the same size, so that callers processing
+     * many images can reuse one output, e.g. from {@link com.corp.imgpro.edgedetect.common.BufferPool}.
+     * The default converts into a new image and copies it; engines that can write the output directly
+     * override this.
+     *
+     * @param image  the input image to be processed
+     * @param output the image receiving the edge-detected version
+     * @return {@code output}
+     * @throws IllegalArgumentException if the sizes of the images differ
+     */
+    default BufferedImage convert(BufferedImage image, BufferedImage output) {
+        Rasters.requireSameSize(image, output);
+        BufferedImage result = convert(image);
+        int width = result.getWidth();
+        int[] row = new int[width];
+
+        for (int y = 0; y < result.getHeight(); y++) {
+            result.getRGB(0, y, width, 1, row, 0, width);
+            output.setRGB(0, y, width, 1, row, 0, width);
+        }
+
+        return output;
+    }
+
+    /**
+     * Releases resources held by the engine, such as device memory. The default does nothing.
+     */
+    @Override
+    default void close() {
+    }
+}
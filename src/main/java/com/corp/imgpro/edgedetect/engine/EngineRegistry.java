@@ -0,0 +1,170 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Precision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Registry of the edge detection engines available in this JVM, discovered with {@link ServiceLoader}.
+ * Besides the discovered engines it offers {@value #AUTO}, an {@link AutoEdgeDetector} calibrated against all of
+ * them that compute with the configured {@link Precision} and {@link GradientOperator}. Calibration is lazy and
+ * runs on the first {@value #AUTO} lookup, unless {@value #EAGER_CALIBRATION_PROPERTY} asks {@link #load()} to
+ * calibrate right away.
+ */
+public class EngineRegistry implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EngineRegistry.class);
+
+    /**
+     * Name of the automatically selecting engine.
+     */
+    public static final String AUTO = "auto";
+
+    /**
+     * System property that makes {@link #load()} calibrate {@value #AUTO} before returning, so the first lookup
+     * does not pay for it.
+     */
+    public static final String EAGER_CALIBRATION_PROPERTY = "edgedetect.auto.eager";
+
+    private final Map<String, EdgeDetector> detectors = new LinkedHashMap<>();
+    private AutoEdgeDetector auto;
+
+    /**
+     * Creates a registry of the given engines, skipping unavailable ones and duplicate names.
+     *
+     * @param candidates the engines to register
+     */
+    public EngineRegistry(Iterable<? extends EdgeDetector> candidates) {
+        for (EdgeDetector detector : candidates) {
+            register(detector);
+        }
+    }
+
+    /**
+     * Creates a registry of all engines found by {@link ServiceLoader} on the class path. Providers that cannot
+     * be instantiated are logged and skipped. With {@value #EAGER_CALIBRATION_PROPERTY} set, {@value #AUTO} is
+     * calibrated before returning.
+     *
+     * @return the registry
+     */
+    public static EngineRegistry load() {
+        EngineRegistry registry = new EngineRegistry(Collections.emptyList());
+
+        ServiceLoader.load(EdgeDetector.class).stream().forEach(provider -> {
+            try {
+                registry.register(provider.get());
+            } catch (ServiceConfigurationError | LinkageError e) {
+                logger.warn("[Engines] Skipping provider {}: {}", provider.type().getName(), e.toString());
+            }
+        });
+        logger.info("[Engines] Available: {}", registry.names());
+        if (Boolean.getBoolean(EAGER_CALIBRATION_PROPERTY)) {
+            registry.auto();
+        }
+
+        return registry;
+    }
+
+    /**
+     * Returns the names of all available engines, including {@value #AUTO}.
+     *
+     * @return the engine names, in discovery order followed by {@value #AUTO}
+     */
+    public Set<String> names() {
+        Set<String> names = new LinkedHashSet<>(detectors.keySet());
+        names.add(AUTO);
+        return names;
+    }
+
+    /**
+     * Returns the discovered engines, without {@value #AUTO}.
+     *
+     * @return the engines in discovery order
+     */
+    public Collection<EdgeDetector> detectors() {
+        return Collections.unmodifiableCollection(detectors.values());
+    }
+
+    /**
+     * Returns the engine with the given name. Asking for {@value #AUTO} the first time calibrates its cost model.
+     *
+     * @param name the engine name, case-insensitive
+     * @return the engine
+     * @throws IllegalArgumentException if no available engine has that name
+     */
+    public EdgeDetector get(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        if (AUTO.equals(key)) {
+            return auto();
+        }
+        EdgeDetector detector = detectors.get(key);
+        if (detector == null) {
+            throw new IllegalArgumentException("Unknown or unavailable engine '%s', available: %s".formatted(name, names()));
+        }
+        return detector;
+    }
+
+    /**
+     * Returns the automatically selecting engine, calibrating it on the first call. It chooses among the engines
+     * producing gradient maps with the precision configured by {@value Precision#PROPERTY} and the operator
+     * configured by {@value GradientOperator#PROPERTY}.
+     *
+     * @return the automatic engine
+     */
+    public synchronized AutoEdgeDetector auto() {
+        if (auto == null) {
+            long start = System.nanoTime();
+            Precision precision = Precision.configured();
+            GradientOperator operator = GradientOperator.configured();
+            List<EdgeDetector> candidates = detectors.values().stream()
+                    .filter(EdgeDetector::isGradientMap)
+                    .filter(detector -> detector.precision() == precision)
+                    .filter(detector -> detector.operator().equals(operator))
+                    .toList();
+            auto = AutoEdgeDetector.calibrate(candidates);
+            logger.info("[Engines] Calibrated in {} ms: {}", (System.nanoTime() - start) / 1_000_000, auto.costModel());
+        }
+        return auto;
+    }
+
+    /**
+     * Closes all engines, releasing their resources.
+     */
+    @Override
+    public void close() {
+        for (EdgeDetector detector : detectors.values()) {
+            try {
+                detector.close();
+            } catch (RuntimeException | LinkageError e) {
+                logger.warn("[Engines] Closing {} failed: {}", detector.name(), e.toString());
+            }
+        }
+    }
+
+    /**
+     * Adds an engine if it is available and its name is not taken.
+     *
+     * @param detector the engine
+     */
+    private void register(EdgeDetector detector) {
+        String name = detector.name().toLowerCase(Locale.ROOT);
+        if (AUTO.equals(name) || detectors.containsKey(name)) {
+            logger.warn("[Engines] Ignoring {}: name '{}' is already taken", detector.getClass().getName(), name);
+        } else if (!detector.isAvailable()) {
+            logger.info("[Engines] Engine '{}' is not available in this JVM", name);
+        } else {
+            detectors.put(name, detector);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.method.SobelHybrid;
+import com.corp.imgpro.edgedetect.method.TornadoBandProcessor;
+import com.corp.imgpro.edgedetect.method.TornadoDeviceIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link EdgeDetector} adapter for {@link SobelHybrid}, sharing the rows of each image between the TornadoVM
+ * device configured with {@value TornadoDeviceIndex#DEVICE_PROPERTY} and the common fork/join pool. The band
+ * sizes and the initial split are configured with the {@link SobelHybrid.Settings} properties. Like the
+ * {@code tornado} engine it is available only when the device can be looked up; the device plans are built on
+ * the first conversion and released on {@link #close()}.
+ */
+public class HybridEdgeDetector implements EdgeDetector {
+    private static final Logger logger = LoggerFactory.getLogger(HybridEdgeDetector.class);
+
+    private TornadoBandProcessor device;
+    private SobelHybrid hybrid;
+
+    @Override
+    public String name() {
+        return "hybrid";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        try {
+            return TornadoDeviceIndex.configured().lookup() != null;
+        } catch (RuntimeException | LinkageError e) {
+            logger.debug("[Hybrid] No device available: {}", e.toString());
+            return false;
+        }
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()));
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return hybrid().convert(image, output);
+    }
+
+    /**
+     * Returns how the rows of the last image were shared, or {@code null} before the first conversion.
+     *
+     * @return the statistics of the last conversion
+     */
+    public synchronized SobelHybrid.HybridStats lastStats() {
+        return hybrid != null ? hybrid.lastStats() : null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (device != null) {
+            device.close();
+            device = null;
+            hybrid = null;
+        }
+    }
+
+    /**
+     * Returns the hybrid engine, creating it and its device processor on first use.
+     *
+     * @return the hybrid engine
+     */
+    private synchronized SobelHybrid hybrid() {
+        if (hybrid == null) {
+            SobelHybrid.Settings settings = SobelHybrid.Settings.configured();
+            device = new TornadoBandProcessor(TornadoDeviceIndex.configured(), settings.deviceRows());
+            hybrid = new SobelHybrid(device, settings);
+        }
+        return hybrid;
+    }
+}
@@ -0,0 +1,53 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.common.Precision;
+import com.corp.imgpro.edgedetect.method.SobelParallel;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@link EdgeDetector} adapter for {@link SobelParallel}, running on the common fork/join pool.
+ * The arithmetic is chosen with the system property {@value Precision#PROPERTY}, see {@link Precision}.
+ */
+public class ParallelEdgeDetector implements EdgeDetector {
+
+    private final Precision precision;
+
+    /**
+     * Creates the engine with the precision configured by {@value Precision#PROPERTY}.
+     */
+    public ParallelEdgeDetector() {
+        this(Precision.configured());
+    }
+
+    /**
+     * Creates the engine with the given precision.
+     *
+     * @param precision the precision mode
+     */
+    public ParallelEdgeDetector(Precision precision) {
+        this.precision = precision;
+    }
+
+    @Override
+    public String name() {
+        return "parallel";
+    }
+
+    @Override
+    public Precision precision() {
+        return precision;
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        return SobelParallel.convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()),
+                ForkJoinPool.commonPool(), precision);
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return SobelParallel.convert(image, output, ForkJoinPool.commonPool(), precision);
+    }
+}
@@ -0,0 +1,73 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Precision;
+import com.corp.imgpro.edgedetect.method.GradientFilter;
+import com.corp.imgpro.edgedetect.method.SobelRaster;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link EdgeDetector} adapter for {@link SobelRaster}, or {@link GradientFilter} for operators other than Sobel.
+ * The arithmetic is chosen with the system property {@value Precision#PROPERTY}, see {@link Precision}, and the
+ * operator with {@value GradientOperator#PROPERTY}, see {@link GradientOperator}.
+ */
+public class RasterEdgeDetector implements EdgeDetector {
+
+    private final Precision precision;
+    private final GradientOperator operator;
+
+    /**
+     * Creates the engine with the precision configured by {@value Precision#PROPERTY} and the operator configured
+     * by {@value GradientOperator#PROPERTY}.
+     */
+    public RasterEdgeDetector() {
+        this(Precision.configured(), GradientOperator.configured());
+    }
+
+    /**
+     * Creates the Sobel engine with the given precision.
+     *
+     * @param precision the precision mode
+     */
+    public RasterEdgeDetector(Precision precision) {
+        this(precision, GradientOperator.SOBEL);
+    }
+
+    /**
+     * Creates the engine with the given precision and operator.
+     *
+     * @param precision the precision mode
+     * @param operator  the gradient operator
+     */
+    public RasterEdgeDetector(Precision precision, GradientOperator operator) {
+        this.precision = precision;
+        this.operator = operator;
+    }
+
+    @Override
+    public String name() {
+        return "raster";
+    }
+
+    @Override
+    public Precision precision() {
+        return precision;
+    }
+
+    @Override
+    public GradientOperator operator() {
+        return operator;
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        return GradientFilter.convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()),
+                operator, precision);
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return GradientFilter.convert(image, output, operator, precision);
+    }
+}
@@ -0,0 +1,28 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.method.SobelStandard;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link EdgeDetector} adapter for {@link SobelStandard}, the reference implementation.
+ */
+public class StandardEdgeDetector implements EdgeDetector {
+
+    @Override
+    public String name() {
+        return "standard";
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        return SobelStandard.convert(image);
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        Rasters.requireSameSize(image, output);
+        return SobelStandard.convert(image, output);
+    }
+}
@@ -0,0 +1,26 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.method.SobelStreaming;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link EdgeDetector} adapter for {@link SobelStreaming}.
+ */
+public class StreamingEdgeDetector implements EdgeDetector {
+
+    @Override
+    public String name() {
+        return "streaming";
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        return SobelStreaming.convert(image);
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return SobelStreaming.convert(image, output);
+    }
+}
@@ -0,0 +1,78 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.method.GradientTornado;
+import com.corp.imgpro.edgedetect.method.SobelTornado;
+import com.corp.imgpro.edgedetect.method.TornadoDeviceIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link EdgeDetector} adapter for {@link SobelTornado} on the configured device, or {@link GradientTornado} for
+ * the operator configured with {@value GradientOperator#PROPERTY} if it is not Sobel. The engine is available
+ * only when the TornadoVM runtime is loaded and the device can be looked up, and it releases the cached
+ * execution plans on {@link #close()} if it has been used.
+ */
+public class TornadoEdgeDetector implements EdgeDetector {
+    private static final Logger logger = LoggerFactory.getLogger(TornadoEdgeDetector.class);
+
+    private final GradientOperator operator;
+    private volatile boolean used;
+
+    /**
+     * Creates the engine with the operator configured by {@value GradientOperator#PROPERTY}.
+     */
+    public TornadoEdgeDetector() {
+        this(GradientOperator.configured());
+    }
+
+    /**
+     * Creates the engine with the given operator.
+     *
+     * @param operator the gradient operator
+     */
+    public TornadoEdgeDetector(GradientOperator operator) {
+        this.operator = operator;
+    }
+
+    @Override
+    public String name() {
+        return "tornado";
+    }
+
+    @Override
+    public GradientOperator operator() {
+        return operator;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        try {
+            return TornadoDeviceIndex.configured().lookup() != null;
+        } catch (RuntimeException | LinkageError e) {
+            logger.debug("[TornadoVM] No device available: {}", e.toString());
+            return false;
+        }
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()));
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        used = true;
+        return GradientTornado.convert(image, output, operator, TornadoDeviceIndex.configured());
+    }
+
+    @Override
+    public void close() {
+        if (used) {
+            SobelTornado.shutdown();
+            GradientTornado.shutdown();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import com.corp.imgpro.edgedetect.method.SobelVector;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link EdgeDetector} adapter for {@link SobelVector}. The engine is only offered when the Vector API is
+ * enabled; otherwise it would silently run {@code SobelRaster} under a different name.
+ */
+public class VectorEdgeDetector implements EdgeDetector {
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return SobelVector.isEnabled();
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image) {
+        return SobelVector.convert(image);
+    }
+
+    @Override
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return SobelVector.convert(image, output);
+    }
+}
@@ -0,0 +1,453 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Kernel;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+
+import java.awt.image.BufferedImage;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The gradient field of an image: the responses {@code gx} and {@code gy} of a {@link GradientOperator}, the
+ * gradient magnitude and the quantized gradient orientation, each in its own row-major primitive array
+ * (struct of arrays), for consumers such as HOG features or corner detectors that need more than the
+ * normalized edge map of the engines.
+ *
+ * <p>The {@link Component components} are selected when the field is computed. Only the selected ones are
+ * allocated, and the kernel of a response is only run if a selected component depends on it, so a field of
+ * {@code gx} alone never convolves with the Y kernel. The responses are computed once with the compiled
+ * {@link Kernel#passes() passes} of {@link GradientFilter}, and a single loop over every row then writes all
+ * selected components.</p>
+ *
+ * <p>{@code gx} is the derivative along the x axis, growing from left to right, and {@code gy} the derivative
+ * along the y axis, growing from top to bottom. The responses are exact integers. They are stored as
+ * {@code short} when every response of the operator fits, see {@link #fitsShort(GradientOperator)}, which halves
+ * their memory for the 3x3 and 5x5 operators, and as {@code float} otherwise, which holds every response of the
+ * predefined operators. The magnitude is {@code sqrt(gx² + gy²)} rounded to {@code float}; truncating it gives
+ * the integer magnitude of the engines, except for magnitudes of more than a few thousand, where it may be one
+ * more. The orientation is unsigned, folded into {@code [0, π)}, and quantized into equal bins. All components
+ * are 0 on the border of {@link GradientOperator#radius()} pixels.</p>
+ */
+public final class GradientField {
+
+    /**
+     * Default number of orientation bins, the usual choice of HOG descriptors.
+     */
+    public static final int DEFAULT_ORIENTATION_BINS = 9;
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "field";
+
+    /**
+     * The components of a gradient field.
+     */
+    public enum Component {
+        /**
+         * The response of the X kernel, the derivative along the rows.
+         */
+        GX,
+        /**
+         * The response of the Y kernel, the derivative along the columns.
+         */
+        GY,
+        /**
+         * The gradient magnitude {@code sqrt(gx² + gy²)}.
+         */
+        MAGNITUDE,
+        /**
+         * The unsigned gradient orientation, quantized into bins.
+         */
+        ORIENTATION
+    }
+
+    private final int width;
+    private final int height;
+    private final GradientOperator operator;
+    private final Set<Component> components;
+    private final int orientationBins;
+    private final float[] gx;
+    private final float[] gy;
+    private final short[] gxShort;
+    private final short[] gyShort;
+    private final float[] magnitude;
+    private final byte[] orientation;
+    private float maxMagnitude;
+
+    /**
+     * The directions of the boundaries between orientation bins, empty without {@link Component#ORIENTATION}.
+     */
+    private final double[] boundaryCos;
+    private final double[] boundarySin;
+
+    private GradientField(int width, int height, GradientOperator operator, Set<Component> components,
+                          int orientationBins) {
+        this.width = width;
+        this.height = height;
+        this.operator = operator;
+        this.components = components;
+        this.orientationBins = orientationBins;
+        boolean compact = fitsShort(operator);
+        boolean hasX = components.contains(Component.GX);
+        boolean hasY = components.contains(Component.GY);
+        this.gx = hasX && !compact ? new float[width * height] : null;
+        this.gy = hasY && !compact ? new float[width * height] : null;
+        this.gxShort = hasX && compact ? new short[width * height] : null;
+        this.gyShort = hasY && compact ? new short[width * height] : null;
+        this.magnitude = components.contains(Component.MAGNITUDE) ? new float[width * height] : null;
+        this.orientation = components.contains(Component.ORIENTATION) ? new byte[width * height] : null;
+        int boundaries = orientation != null ? orientationBins - 1 : 0;
+        this.boundaryCos = new double[boundaries];
+        this.boundarySin = new double[boundaries];
+        for (int k = 0; k < boundaries; k++) {
+            boundaryCos[k] = Math.cos((k + 1) * Math.PI / orientationBins);
+            boundarySin[k] = Math.sin((k + 1) * Math.PI / orientationBins);
+        }
+    }
+
+    /**
+     * Computes the selected components of the gradient field of an image, with
+     * {@value #DEFAULT_ORIENTATION_BINS} orientation bins.
+     *
+     * @param image      the input image
+     * @param operator   the gradient operator
+     * @param components the components to compute
+     * @return the gradient field
+     * @throws IllegalArgumentException if no component is selected
+     */
+    public static GradientField compute(BufferedImage image, GradientOperator operator, Set<Component> components) {
+        return compute(image, operator, components, DEFAULT_ORIENTATION_BINS);
+    }
+
+    /**
+     * Computes the selected components of the gradient field of an image. {@link Metrics} times grayscale and
+     * convolution, which includes writing the components.
+     *
+     * @param image           the input image
+     * @param operator        the gradient operator
+     * @param components      the components to compute
+     * @param orientationBins the number of orientation bins, each covering {@code π / orientationBins}
+     * @return the gradient field
+     * @throws IllegalArgumentException if no component is selected or the number of bins is not within
+     *                                  {@code 1..256}
+     */
+    public static GradientField compute(BufferedImage image, GradientOperator operator, Set<Component> components,
+                                        int orientationBins) {
+        if (components.isEmpty()) {
+            throw new IllegalArgumentException("No gradient field component selected");
+        }
+        if (orientationBins < 1 || orientationBins > 256) {
+            throw new IllegalArgumentException("Orientation bins must be within 1..256, got %d".formatted(orientationBins));
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        GradientField field = new GradientField(width, height, operator, EnumSet.copyOf(components), orientationBins);
+        int radius = operator.radius();
+        if (width <= 2 * radius || height <= 2 * radius) {
+            return field;
+        }
+        // Magnitude and orientation need both responses
+        boolean needsX = !components.equals(EnumSet.of(Component.GY));
+        boolean needsY = !components.equals(EnumSet.of(Component.GX));
+        BufferPool pool = BufferPool.shared();
+
+        int[] grayScale = pool.acquireInts(width * height);
+        int[] scratch = pool.acquireInts(width * height);
+        int[] responseX = needsX ? pool.acquireInts(width * height) : null;
+        int[] responseY = needsY ? pool.acquireInts(width * height) : null;
+        try {
+            StageEvent event = Metrics.begin(Stage.GRAYSCALE, ENGINE, width, height);
+            for (int y = 0; y < height; y++) {
+                Rasters.grayScaleRow(image, y, grayScale, y * width);
+            }
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+            if (needsX) {
+                convolve(operator.x(), grayScale, scratch, responseX, width, height);
+            }
+            if (needsY) {
+                convolve(operator.y(), grayScale, scratch, responseY, width, height);
+            }
+            for (int y = radius; y < height - radius; y++) {
+                field.writeRow(responseX, responseY, y * width + radius, (y + 1) * width - radius);
+            }
+            Metrics.end(event);
+        } finally {
+            pool.release(responseY);
+            pool.release(responseX);
+            pool.release(scratch);
+            pool.release(grayScale);
+        }
+
+        return field;
+    }
+
+    /**
+     * Returns whether the responses of an operator to 8-bit grayscale values fit in a {@code short}, in which
+     * case fields of that operator store {@code gx} and {@code gy} as {@code short}. This holds for the
+     * predefined operators except {@link GradientOperator#SOBEL_7}.
+     *
+     * @param operator the gradient operator
+     * @return {@code true} if {@code 255 * gain} of both kernels is at most {@link Short#MAX_VALUE}
+     */
+    public static boolean fitsShort(GradientOperator operator) {
+        return 255 * Math.max(operator.x().gain(), operator.y().gain()) <= Short.MAX_VALUE;
+    }
+
+    /**
+     * Returns the image width.
+     *
+     * @return the width of every component in pixels
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the image height.
+     *
+     * @return the height of every component in pixels
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the operator the field was computed with.
+     *
+     * @return the gradient operator
+     */
+    public GradientOperator operator() {
+        return operator;
+    }
+
+    /**
+     * Returns whether a component was computed.
+     *
+     * @param component the component
+     * @return {@code true} if it was selected
+     */
+    public boolean has(Component component) {
+        return components.contains(component);
+    }
+
+    /**
+     * Returns whether {@code gx} and {@code gy} are stored as {@code short}, to be read with {@link #gxShort()}
+     * and {@link #gyShort()}, rather than as {@code float}, to be read with {@link #gx()} and {@link #gy()}.
+     *
+     * @return {@link #fitsShort(GradientOperator)} of the operator
+     */
+    public boolean hasShortResponses() {
+        return fitsShort(operator);
+    }
+
+    /**
+     * Returns the responses of the X kernel of an operator whose responses do not fit in a {@code short}.
+     *
+     * @return the row-major responses, the array of the field
+     * @throws IllegalStateException if {@link Component#GX} was not selected or the responses are stored as
+     *                               {@code short}
+     */
+    public float[] gx() {
+        return require(gx, Component.GX, false);
+    }
+
+    /**
+     * Returns the responses of the Y kernel of an operator whose responses do not fit in a {@code short}.
+     *
+     * @return the row-major responses, the array of the field
+     * @throws IllegalStateException if {@link Component#GY} was not selected or the responses are stored as
+     *                               {@code short}
+     */
+    public float[] gy() {
+        return require(gy, Component.GY, false);
+    }
+
+    /**
+     * Returns the responses of the X kernel of an operator whose responses fit in a {@code short}.
+     *
+     * @return the row-major responses, the array of the field
+     * @throws IllegalStateException if {@link Component#GX} was not selected or the responses are stored as
+     *                               {@code float}
+     */
+    public short[] gxShort() {
+        return require(gxShort, Component.GX, true);
+    }
+
+    /**
+     * Returns the responses of the Y kernel of an operator whose responses fit in a {@code short}.
+     *
+     * @return the row-major responses, the array of the field
+     * @throws IllegalStateException if {@link Component#GY} was not selected or the responses are stored as
+     *                               {@code float}
+     */
+    public short[] gyShort() {
+        return require(gyShort, Component.GY, true);
+    }
+
+    /**
+     * Returns the gradient magnitudes.
+     *
+     * @return the row-major magnitudes, the array of the field
+     * @throws IllegalStateException if {@link Component#MAGNITUDE} was not selected
+     */
+    public float[] magnitude() {
+        return require(magnitude, Component.MAGNITUDE);
+    }
+
+    /**
+     * Returns the largest gradient magnitude.
+     *
+     * @return the maximum magnitude, 0 if the image has no interior pixels
+     * @throws IllegalStateException if {@link Component#MAGNITUDE} was not selected
+     */
+    public float maxMagnitude() {
+        require(magnitude, Component.MAGNITUDE);
+        return maxMagnitude;
+    }
+
+    /**
+     * Returns the quantized orientations. The value of a pixel, read as {@code orientation[i] & 0xff}, is the bin
+     * {@code floor(θ * bins / π)} of its orientation {@code θ = atan2(gy, gx)} folded into {@code [0, π)}; pixels
+     * without a gradient are in bin 0, and a pixel on the boundary of two bins is in the upper one.
+     *
+     * @return the row-major bins, the array of the field
+     * @throws IllegalStateException if {@link Component#ORIENTATION} was not selected
+     */
+    public byte[] orientation() {
+        return require(orientation, Component.ORIENTATION);
+    }
+
+    /**
+     * Returns the number of orientation bins.
+     *
+     * @return the number of bins covering {@code [0, π)}
+     */
+    public int orientationBins() {
+        return orientationBins;
+    }
+
+    /**
+     * Writes the selected components of the pixels {@code [from, to)} of one row.
+     *
+     * @param responseX the responses of the X kernel, or {@code null} if not computed
+     * @param responseY the responses of the Y kernel, or {@code null} if not computed
+     * @param from      the index of the first pixel
+     * @param to        the index after the last pixel
+     */
+    private void writeRow(int[] responseX, int[] responseY, int from, int to) {
+        if (gx != null) {
+            for (int i = from; i < to; i++) {
+                gx[i] = responseX[i];
+            }
+        }
+        if (gy != null) {
+            for (int i = from; i < to; i++) {
+                gy[i] = responseY[i];
+            }
+        }
+        if (gxShort != null) {
+            for (int i = from; i < to; i++) {
+                gxShort[i] = (short) responseX[i];
+            }
+        }
+        if (gyShort != null) {
+            for (int i = from; i < to; i++) {
+                gyShort[i] = (short) responseY[i];
+            }
+        }
+        if (magnitude != null) {
+            float max = maxMagnitude;
+            for (int i = from; i < to; i++) {
+                float m = (float) Math.sqrt((double) responseX[i] * responseX[i] + (double) responseY[i] * responseY[i]);
+                magnitude[i] = m;
+                max = Math.max(max, m);
+            }
+            maxMagnitude = max;
+        }
+        if (orientation != null) {
+            // theta >= phi for theta and phi in [0, π) exactly when the cross product with (cos phi, sin phi)
+            // is not negative, so the bin is the number of boundaries at or below theta; counting them without
+            // branches is about four times faster than atan2
+            for (int i = from; i < to; i++) {
+                int x = responseX[i];
+                int y = responseY[i];
+                if (y < 0 || (y == 0 && x < 0)) {
+                    x = -x;
+                    y = -y;
+                }
+                int bin = 0;
+                for (int k = 0; k < boundaryCos.length; k++) {
+                    bin += boundaryCos[k] * y - boundarySin[k] * x >= 0 ? 1 : 0;
+                }
+                orientation[i] = (byte) (x == 0 && y == 0 ? 0 : bin);
+            }
+        }
+    }
+
+    /**
+     * Convolves a grayscale image with a kernel, running its passes one after another.
+     *
+     * @param kernel    the compiled kernel
+     * @param grayScale the row-major grayscale values
+     * @param scratch   a row-major array receiving the result of the first of two passes
+     * @param response  the row-major destination of the kernel response, defined outside the border
+     * @param width     the image width
+     * @param height    the image height
+     */
+    private static void convolve(Kernel kernel, int[] grayScale, int[] scratch, int[] response, int width,
+                                 int height) {
+        List<Kernel.Pass> passes = kernel.passes();
+        Kernel.Pass last = passes.get(passes.size() - 1);
+        if (passes.size() == 2) {
+            Kernel.Pass first = passes.get(0);
+            GradientFilter.pass(first, grayScale, scratch, width, first.marginY(), height - first.marginY());
+            GradientFilter.pass(last, scratch, response, width, last.marginY(), height - last.marginY());
+        } else {
+            GradientFilter.pass(last, grayScale, response, width, last.marginY(), height - last.marginY());
+        }
+    }
+
+    /**
+     * Returns the array of a component, failing if it was not selected.
+     *
+     * @param array     the array, {@code null} if the component was not selected
+     * @param component the component
+     * @param <T>       the array type
+     * @return {@code array}
+     * @throws IllegalStateException if the array is {@code null}
+     */
+    private static <T> T require(T array, Component component) {
+        if (array == null) {
+            throw new IllegalStateException("Gradient field component %s was not selected".formatted(component));
+        }
+        return array;
+    }
+
+    /**
+     * Returns the array of a response in one of its two storage types, failing if the component was not
+     * selected or is stored in the other type.
+     *
+     * @param array     the array, {@code null} if the component was not selected or has the other type
+     * @param component {@link Component#GX} or {@link Component#GY}
+     * @param asShort   whether the caller reads the {@code short} array
+     * @param <T>       the array type
+     * @return {@code array}
+     * @throws IllegalStateException if the array is {@code null}
+     */
+    private <T> T require(T array, Component component, boolean asShort) {
+        if (array == null && has(component) && asShort != hasShortResponses()) {
+            throw new IllegalStateException("Gradient field component %s of %s is stored as %s".formatted(component,
+                    operator.name(), hasShortResponses() ? "short" : "float"));
+        }
+        return require(array, component);
+    }
+}
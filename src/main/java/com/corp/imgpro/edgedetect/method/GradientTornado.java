@@ -0,0 +1,280 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Kernel;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.manchester.tornado.api.TaskGraph;
+import uk.ac.manchester.tornado.api.TornadoExecutionPlan;
+import uk.ac.manchester.tornado.api.TornadoExecutionResult;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.enums.DataTransferMode;
+import uk.ac.manchester.tornado.api.enums.ProfilerMode;
+import uk.ac.manchester.tornado.api.exceptions.TornadoExecutionPlanException;
+import uk.ac.manchester.tornado.api.math.TornadoMath;
+import uk.ac.manchester.tornado.api.types.arrays.IntArray;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Edge detection with any {@link GradientOperator} using TornadoVM, built like {@link SobelTornado}: the grayscale
+ * values computed on the host go to the device, only the maximum gradient comes back, and the device looks the
+ * magnitudes up in the normalization table the host builds from it, so the kernels need no double precision.
+ *
+ * <p>The task graph contains one {@code convolve} task per {@link Kernel#passes() pass} of the two kernels, so a
+ * separable operator runs a horizontal and a vertical pass of its non-zero taps per kernel. The taps are
+ * uploaded once per plan as offset and weight arrays; the pass kernel loops over them, which the OpenCL compiler
+ * unrolls since their number is small. The gradient task graph is:</p>
+ * <ol>
+ *     <li>{@code x0}, {@code x1}, {@code y0}, {@code y1}: the passes of the X and Y kernels</li>
+ *     <li>{@code magnitude}: combining the responses into gradient magnitudes</li>
+ *     <li>{@code max}: the maximum reduction of {@link SobelTornado}</li>
+ * </ol>
+ * <p>followed by a normalization graph running the {@code normalize} task of {@link SobelTornado} on the
+ * magnitudes kept on the device, with a table of {@link GradientOperator#maxMagnitude()} + 1 entries. The
+ * magnitudes are 0 on the border of {@link GradientOperator#radius()} pixels, and so are the levels. Plans are
+ * cached per operator, image size and device. The magnitude is computed in single precision
+ * like {@link SobelTornado}, which is exact for 3x3 operators; the larger ones can produce squared magnitudes
+ * above 2<sup>24</sup>, where a gradient may be one less than on the CPU.</p>
+ */
+public class GradientTornado {
+    private static final Logger logger = LoggerFactory.getLogger(GradientTornado.class);
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "tornado";
+
+    /**
+     * Name of the task graph computing the gradient magnitudes, from which the normalization graph consumes them.
+     */
+    private static final String GRADIENT_GRAPH = "gradient-graph";
+
+    /**
+     * Execution plans per operator, each cache holding the plans of one operator.
+     */
+    private static final Map<GradientOperator, TornadoPlanCache<GradientPlan>> planCaches = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this is a utility class
+     */
+    private GradientTornado() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts an input image into a caller-provided output image of the same size with the given operator on
+     * the given device. {@link GradientOperator#SOBEL} is delegated to {@link SobelTornado}.
+     *
+     * @param image    the input BufferedImage to process
+     * @param output   the image receiving the edge-detected version
+     * @param operator the gradient operator
+     * @param device   the device running the task graph
+     * @return {@code output}
+     * @throws IllegalArgumentException if the sizes of the images differ
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output, GradientOperator operator,
+                                        TornadoDeviceIndex device) {
+        if (operator.equals(GradientOperator.SOBEL)) {
+            return SobelTornado.convert(image, output, device);
+        }
+        Rasters.requireSameSize(image, output);
+        TornadoPlanCache<GradientPlan> cache = planCaches.computeIfAbsent(operator, key -> new TornadoPlanCache<>(
+                "gradient-plans-" + key.name(), Integer.getInteger(SobelTornado.PLAN_CACHE_PROPERTY, 4),
+                planKey -> new GradientPlan(planKey, key)));
+        while (true) {
+            GradientPlan plan = cache.acquire(image.getWidth(), image.getHeight(), device);
+            synchronized (plan) {
+                if (!plan.isClosed()) {
+                    return plan.execute(image, output, cache);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the cached execution plans of all operators and releases their device memory.
+     */
+    public static void shutdown() {
+        planCaches.values().forEach(TornadoPlanCache::close);
+    }
+
+    /**
+     * Runs one convolution pass: every pixel outside the margins receives the weighted sum of the source values
+     * at the tap offsets, every pixel inside them 0.
+     *
+     * @param source      the row-major input
+     * @param offsets     the offsets of the taps in the row-major arrays
+     * @param weights     the weights of the taps
+     * @param width       the image width
+     * @param height      the image height
+     * @param marginX     the number of columns at each side without a result
+     * @param marginY     the number of rows at the top and bottom without a result
+     * @param destination the row-major output
+     */
+    private static void convolve(IntArray source, IntArray offsets, IntArray weights, int width, int height,
+                                 int marginX, int marginY, IntArray destination) {
+        for (@Parallel int y = 0; y < height; y++) {
+            for (@Parallel int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if (x < marginX || y < marginY || x >= width - marginX || y >= height - marginY) {
+                    destination.set(index, 0);
+                } else {
+                    int sum = 0;
+                    for (int k = 0; k < offsets.getSize(); k++) {
+                        sum += weights.get(k) * source.get(index + offsets.get(k));
+                    }
+                    destination.set(index, sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Combines the responses of the two kernels into truncated gradient magnitudes. The responses are 0 on
+     * the border, and so are the magnitudes.
+     *
+     * @param gx    the responses of the X kernel
+     * @param gy    the responses of the Y kernel
+     * @param edges the output gradient magnitudes
+     */
+    private static void magnitude(IntArray gx, IntArray gy, IntArray edges) {
+        for (@Parallel int i = 0; i < edges.getSize(); i++) {
+            float x = gx.get(i);
+            float y = gy.get(i);
+            edges.set(i, (int) TornadoMath.sqrt(x * x + y * y));
+        }
+    }
+
+    /**
+     * A cached execution plan for one operator, image size and device.
+     */
+    private static final class GradientPlan implements TornadoPlanCache.CachedPlan {
+        private final int width;
+        private final int height;
+        private final IntArray grayScale;
+        private final IntArray maxGradient;
+        private final IntArray edges;
+        private final IntArray table;
+        private final IntArray levels;
+        private final int[] rowBuffer;
+        private int[] hostTable = new int[0];
+        private final TornadoExecutionPlan executionPlan;
+        private boolean closed;
+
+        /**
+         * Builds the task graph and execution plan for the given key and operator.
+         *
+         * @param key      the image dimensions and device
+         * @param operator the gradient operator
+         */
+        GradientPlan(TornadoPlanCache.Key key, GradientOperator operator) {
+            this.width = key.width();
+            this.height = key.height();
+            this.grayScale = new IntArray(width * height);
+            this.maxGradient = new IntArray(1);
+            this.edges = new IntArray(width * height);
+            this.table = new IntArray((int) operator.maxMagnitude() + 1);
+            this.levels = new IntArray(width * height);
+            this.rowBuffer = new int[width];
+            IntArray gx = new IntArray(width * height);
+            IntArray gy = new IntArray(width * height);
+
+            TaskGraph taskGraph = new TaskGraph(GRADIENT_GRAPH)
+                    .transferToDevice(DataTransferMode.EVERY_EXECUTION, grayScale, maxGradient);
+            addPasses(taskGraph, "x", operator.x(), grayScale, gx);
+            addPasses(taskGraph, "y", operator.y(), grayScale, gy);
+            taskGraph.task("magnitude", GradientTornado::magnitude, gx, gy, edges)
+                    .task("max", SobelTornado::findMaxGradient, edges, maxGradient)
+                    .persistOnDevice(edges)
+                    .transferToHost(DataTransferMode.EVERY_EXECUTION, maxGradient);
+            TaskGraph normalization = new TaskGraph("gradient-normalization-graph")
+                    .consumeFromDevice(GRADIENT_GRAPH, edges)
+                    .transferToDevice(DataTransferMode.EVERY_EXECUTION, table)
+                    .task("normalize", SobelTornado::normalize, edges, table, levels)
+                    .transferToHost(DataTransferMode.EVERY_EXECUTION, levels);
+
+            this.executionPlan = new TornadoExecutionPlan(taskGraph.snapshot(), normalization.snapshot());
+            this.executionPlan.withProfiler(ProfilerMode.SILENT).withDevice(key.device().lookup());
+            logger.info("[TornadoVM] Built {} execution plan for {}x{} on device {}", operator.name(), width, height,
+                    key.device());
+        }
+
+        /**
+         * Adds the passes of one kernel to the task graph, with their taps transferred on the first execution.
+         *
+         * @param taskGraph the task graph
+         * @param prefix    the prefix of the task names
+         * @param kernel    the compiled kernel
+         * @param source    the input of the first pass
+         * @param response  the output of the last pass
+         */
+        private void addPasses(TaskGraph taskGraph, String prefix, Kernel kernel, IntArray source, IntArray response) {
+            List<Kernel.Pass> passes = kernel.passes();
+            IntArray input = source;
+            for (int i = 0; i < passes.size(); i++) {
+                Kernel.Pass pass = passes.get(i);
+                IntArray offsets = IntArray.fromArray(pass.offsets(width));
+                IntArray weights = IntArray.fromArray(pass.weights());
+                IntArray result = i == passes.size() - 1 ? response : new IntArray(width * height);
+                taskGraph.transferToDevice(DataTransferMode.FIRST_EXECUTION, offsets, weights)
+                        .task(prefix + i, GradientTornado::convolve, input, offsets, weights, width, height,
+                                pass.marginX(), pass.marginY(), result);
+                input = result;
+            }
+        }
+
+        /**
+         * Runs the plan on an image of the plan's size. Callers hold the plan's monitor.
+         *
+         * @param image  the input image
+         * @param output the image receiving the result
+         * @param cache  the cache holding the plan, for the compilation statistics
+         * @return {@code output}
+         */
+        BufferedImage execute(BufferedImage image, BufferedImage output, TornadoPlanCache<GradientPlan> cache) {
+            StageEvent event = Metrics.begin(Stage.IMAGE_TO_ARRAY, ENGINE, width, height);
+            SobelTornado.copyGrayScale(image, grayScale, rowBuffer);
+            Metrics.end(event);
+            maxGradient.init(0);
+
+            TornadoExecutionResult result = executionPlan.withGraph(0).execute();
+            SobelTornado.recordProfile(cache, result.getProfilerResult(), ENGINE, width, height);
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+            hostTable = SobelTornado.uploadNormalizationTable(maxGradient.get(0), hostTable, table);
+            Metrics.end(event);
+            result = executionPlan.withGraph(1).execute();
+            SobelTornado.recordProfile(cache, result.getProfilerResult(), ENGINE, width, height);
+
+            event = Metrics.begin(Stage.ARRAY_TO_IMAGE, ENGINE, width, height);
+            SobelTornado.writeLevels(levels, output, rowBuffer);
+            Metrics.end(event);
+            return output;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            try {
+                executionPlan.close();
+            } catch (TornadoExecutionPlanException e) {
+                logger.error("Tornado execution error:", e);
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Kernel;
+import com.corp.imgpro.edgedetect.common.Precision;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A utility class implementing the Canny edge detector on a {@link ForkJoinPool}, built on the gradient stage
+ * of {@link GradientFilter}. Unlike the Sobel engines it keeps the responses {@code gx} and {@code gy} next to
+ * the magnitudes, so the gradient direction is available without convolving again. The output is a binary
+ * edge map: edge pixels are white, everything else black.
+ *
+ * <p>The image is split into row bands, and every phase runs the bands in parallel:</p>
+ * <ol>
+ *     <li>Grayscale conversion and the horizontal passes of both kernels, row by row</li>
+ *     <li>The vertical passes and the magnitudes, reduced to the maximum magnitude</li>
+ *     <li>Non-maximum suppression along the gradient direction, quantized to four sectors, and classification
+ *     of the remaining pixels into strong and weak edges by the {@link Parameters thresholds}; each band then
+ *     unites its 8-connected edge pixels in a union-find forest whose roots carry the strong flag</li>
+ *     <li>Hysteresis: the forests of adjacent bands are joined along their boundary rows, which is a serial
+ *     pass over one row per band, and every edge pixel whose component contains a strong pixel is written
+ *     white</li>
+ * </ol>
+ *
+ * <p>The Gaussian pre-blur is folded into the gradient stage: the 3x3 Sobel operator applied after the 5x5
+ * binomial blur is the 7x7 {@link GradientOperator#SOBEL_7} operator, which computes the blurred gradients in
+ * two separable passes per kernel without rounding a blurred intermediate image. The border of
+ * {@code radius + 1} pixels, where a neighbour of the suppression is missing, is black.</p>
+ *
+ * <p>Horizontal and vertical steps, and diagonal steps away from 45 degrees, yield edges one pixel wide.
+ * On a 45 degree step the suppression compares each pixel with its diagonal neighbours, which lie two diagonals
+ * away, so the edge is a 4-connected staircase over the two diagonals next to the step.</p>
+ */
+public class SobelCanny {
+
+    /**
+     * Minimum number of rows in a band.
+     */
+    private static final int MIN_BAND_ROWS = 16;
+
+    /**
+     * Number of bands created per worker thread, for load balancing.
+     */
+    private static final int BANDS_PER_THREAD = 4;
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "canny";
+
+    /**
+     * Pixel states of the suppression and hysteresis phases.
+     */
+    private static final int NONE = 0;
+    private static final int WEAK = 1;
+    private static final int STRONG = 2;
+
+    /**
+     * The gradient operator and the thresholds of the Canny detector. The thresholds are fractions of the
+     * largest gradient magnitude of the image, so that they do not depend on the gain of the operator: pixels
+     * of at least {@code high} times the maximum are strong edges, pixels of at least {@code low} times the
+     * maximum are weak edges that are kept only if they connect to a strong one.
+     *
+     * @param operator the gradient operator, including the pre-blur
+     * @param low      the weak threshold, between 0 and {@code high}
+     * @param high     the strong threshold, between {@code low} and 1
+     */
+    public record Parameters(GradientOperator operator, double low, double high) {
+
+        /**
+         * System property selecting the operator by name, see {@link GradientOperator#parse(String)}.
+         */
+        public static final String OPERATOR_PROPERTY = "edgedetect.canny.operator";
+
+        /**
+         * System property setting the weak threshold.
+         */
+        public static final String LOW_PROPERTY = "edgedetect.canny.low";
+
+        /**
+         * System property setting the strong threshold.
+         */
+        public static final String HIGH_PROPERTY = "edgedetect.canny.high";
+
+        /**
+         * Gaussian-smoothed Sobel gradients with a strong threshold of 20% and a weak threshold of 8% of the
+         * maximum magnitude.
+         */
+        public static final Parameters DEFAULT = new Parameters(GradientOperator.SOBEL_7, 0.08, 0.2);
+
+        /**
+         * Creates parameters.
+         *
+         * @throws IllegalArgumentException if the thresholds are not ordered within {@code [0, 1]}
+         */
+        public Parameters {
+            if (!(0 <= low && low <= high && high <= 1)) {
+                throw new IllegalArgumentException("Canny thresholds must satisfy 0 <= low <= high <= 1, got %s and %s"
+                        .formatted(low, high));
+            }
+        }
+
+        /**
+         * Returns the parameters configured with {@value #OPERATOR_PROPERTY}, {@value #LOW_PROPERTY} and
+         * {@value #HIGH_PROPERTY}, taking unset ones from {@link #DEFAULT}.
+         *
+         * @return the configured parameters
+         */
+        public static Parameters configured() {
+            String operator = System.getProperty(OPERATOR_PROPERTY);
+            String low = System.getProperty(LOW_PROPERTY);
+            String high = System.getProperty(HIGH_PROPERTY);
+
+            return new Parameters(operator == null ? DEFAULT.operator : GradientOperator.parse(operator),
+                    low == null ? DEFAULT.low : Double.parseDouble(low),
+                    high == null ? DEFAULT.high : Double.parseDouble(high));
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelCanny() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Detects the Canny edges of an image on the common fork/join pool with the configured parameters.
+     *
+     * @param image the input image to be processed
+     * @return a new BufferedImage containing the edge map of the input image
+     */
+    public static BufferedImage convert(BufferedImage image) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()),
+                ForkJoinPool.commonPool(), Parameters.configured());
+    }
+
+    /**
+     * Detects the Canny edges of an image into a caller-provided output image on the given fork/join pool.
+     * The arrays come from the shared {@link BufferPool}. {@link Metrics} times the first two phases as
+     * convolution, which includes grayscale conversion, then suppression and hysteresis.
+     *
+     * @param image      the input image to be processed
+     * @param output     the image receiving the edge map, of the same size as {@code image} and any type
+     * @param pool       the pool running the band tasks
+     * @param parameters the operator and the thresholds
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output, ForkJoinPool pool,
+                                        Parameters parameters) {
+        Rasters.requireSameSize(image, output);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        GradientOperator operator = parameters.operator();
+        int radius = operator.radius();
+        int margin = radius + 1;
+        if (width <= 2 * margin || height <= 2 * margin) {
+            Rasters.clearBorder(output, margin);
+            return output;
+        }
+        int bandRows = Math.max(MIN_BAND_ROWS, height / (pool.getParallelism() * BANDS_PER_THREAD));
+        BufferPool buffers = BufferPool.shared();
+
+        int[] grayScale = buffers.acquireInts(width * height);
+        int[] scratchX = buffers.acquireInts(width * height);
+        int[] scratchY = buffers.acquireInts(width * height);
+        int[] gx = buffers.acquireInts(width * height);
+        int[] gy = buffers.acquireInts(width * height);
+        int[] magnitudes = buffers.acquireInts(width * height);
+        try {
+            List<Kernel.Pass> passesX = operator.x().passes();
+            List<Kernel.Pass> passesY = operator.y().passes();
+
+            StageEvent event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+            pool.invoke(new BandTask(bands(0, height, bandRows), (from, to) -> {
+                for (int y = from; y < to; y++) {
+                    Rasters.grayScaleRow(Precision.EXACT, image, y, grayScale, y * width);
+                }
+                if (passesX.size() == 2) {
+                    GradientFilter.pass(passesX.get(0), grayScale, scratchX, width, from, to);
+                }
+                if (passesY.size() == 2) {
+                    GradientFilter.pass(passesY.get(0), grayScale, scratchY, width, from, to);
+                }
+                return -1;
+            }));
+            int maxGradient = pool.invoke(new BandTask(bands(radius, height - radius, bandRows), (from, to) -> {
+                lastPass(passesX, grayScale, scratchX, gx, width, from, to);
+                lastPass(passesY, grayScale, scratchY, gy, width, from, to);
+                return GradientFilter.magnitudes(Precision.EXACT, gx, gy, magnitudes, width, radius, from, to);
+            }));
+            Metrics.end(event);
+
+            // The scratch arrays are free from here on and hold the pixel states and the union-find forest
+            int[] state = scratchX;
+            int[] parent = scratchY;
+            int low = threshold(parameters.low(), maxGradient);
+            int high = threshold(parameters.high(), maxGradient);
+            int[] bounds = bands(margin, height - margin, bandRows);
+
+            event = Metrics.begin(Stage.SUPPRESSION, ENGINE, width, height);
+            pool.invoke(new BandTask(bounds, (from, to) -> {
+                suppress(gx, gy, magnitudes, state, parent, width, margin, from, to, low, high);
+                return -1;
+            }));
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.HYSTERESIS, ENGINE, width, height);
+            for (int band = 1; band < bounds.length - 1; band++) {
+                int row = bounds[band] * width;
+                for (int i = row + margin; i < row + width - margin; i++) {
+                    if (state[i] != NONE) {
+                        uniteAbove(state, parent, i, width, i == row + margin, i == row + width - margin - 1);
+                    }
+                }
+            }
+            int[] levels = grayScale;
+            pool.invoke(new BandTask(bounds, (from, to) -> {
+                for (int y = from; y < to; y++) {
+                    int row = y * width;
+                    for (int i = row + margin; i < row + width - margin; i++) {
+                        levels[i] = state[i] != NONE && state[root(parent, i)] == STRONG ? 255 : 0;
+                    }
+                    Rasters.setGrayRow(output, y, levels, row, margin, width - margin);
+                }
+                return -1;
+            }));
+            Rasters.clearBorder(output, margin);
+            Metrics.end(event);
+        } finally {
+            buffers.release(magnitudes);
+            buffers.release(gy);
+            buffers.release(gx);
+            buffers.release(scratchY);
+            buffers.release(scratchX);
+            buffers.release(grayScale);
+        }
+
+        return output;
+    }
+
+    /**
+     * Runs the pass of a kernel that produces its response: the vertical pass of a separable kernel, reading
+     * the horizontal pass, or the only pass of a general kernel, reading the grayscale values.
+     *
+     * @param passes    the passes of the kernel
+     * @param grayScale the row-major grayscale values
+     * @param scratch   the row-major result of the horizontal pass
+     * @param response  the row-major destination
+     * @param width     the image width
+     * @param from      the first row to compute
+     * @param to        the row after the last row to compute
+     */
+    private static void lastPass(List<Kernel.Pass> passes, int[] grayScale, int[] scratch, int[] response,
+                                 int width, int from, int to) {
+        if (passes.size() == 2) {
+            GradientFilter.pass(passes.get(1), scratch, response, width, from, to);
+        } else {
+            GradientFilter.pass(passes.get(0), grayScale, response, width, from, to);
+        }
+    }
+
+    /**
+     * Converts a threshold fraction into a magnitude. Magnitudes of 0 are never edges.
+     *
+     * @param fraction    the fraction of the maximum magnitude
+     * @param maxGradient the maximum magnitude
+     * @return the smallest magnitude reaching the threshold, at least 1
+     */
+    private static int threshold(double fraction, int maxGradient) {
+        return Math.max(1, (int) Math.ceil(fraction * maxGradient));
+    }
+
+    /**
+     * Suppresses the non-maximum gradients of the rows {@code [from, to)}, classifies the rest and unites the
+     * edge pixels of the band. A pixel is a local maximum if its magnitude exceeds the neighbour before it and
+     * is not below the neighbour after it along the gradient direction, so plateaus yield one-pixel-wide edges.
+     *
+     * @param gx         the responses of the X kernel, the derivative along the rows
+     * @param gy         the responses of the Y kernel, the derivative along the columns
+     * @param magnitudes the gradient magnitudes
+     * @param state      receives {@link #NONE}, {@link #WEAK} or {@link #STRONG} for every pixel of the band
+     * @param parent     receives the union-find forest of the band
+     * @param width      the image width
+     * @param margin     the width of the border
+     * @param from       the first row of the band
+     * @param to         the row after the last row of the band
+     * @param low        the weak threshold
+     * @param high       the strong threshold
+     */
+    private static void suppress(int[] gx, int[] gy, int[] magnitudes, int[] state, int[] parent, int width,
+                                 int margin, int from, int to, int low, int high) {
+        for (int y = from; y < to; y++) {
+            int row = y * width;
+            for (int i = row + margin; i < row + width - margin; i++) {
+                int magnitude = magnitudes[i];
+                if (magnitude < low) {
+                    state[i] = NONE;
+                    continue;
+                }
+                long ax = Math.abs((long) gx[i]);
+                long ay = Math.abs((long) gy[i]);
+                int step;
+                if (ay * 70 <= ax * 29) {
+                    step = 1;
+                } else if (ax * 70 <= ay * 29) {
+                    step = width;
+                } else {
+                    step = (gx[i] ^ gy[i]) >= 0 ? width + 1 : width - 1;
+                }
+                if (magnitude <= magnitudes[i - step] || magnitude < magnitudes[i + step]) {
+                    state[i] = NONE;
+                    continue;
+                }
+
+                state[i] = magnitude >= high ? STRONG : WEAK;
+                parent[i] = i;
+                boolean first = i == row + margin;
+                if (!first && state[i - 1] != NONE) {
+                    unite(state, parent, i - 1, i);
+                }
+                if (y > from) {
+                    uniteAbove(state, parent, i, width, first, i == row + width - margin - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unites an edge pixel with the edge pixels among its three neighbours in the row above.
+     *
+     * @param state  the pixel states
+     * @param parent the union-find forest
+     * @param i      the index of the edge pixel
+     * @param width  the image width
+     * @param first  whether the pixel is the first of its row, without an upper left neighbour
+     * @param last   whether the pixel is the last of its row, without an upper right neighbour
+     */
+    private static void uniteAbove(int[] state, int[] parent, int i, int width, boolean first, boolean last) {
+        int above = i - width;
+        for (int j = first ? above : above - 1; j <= (last ? above : above + 1); j++) {
+            if (state[j] != NONE) {
+                unite(state, parent, j, i);
+            }
+        }
+    }
+
+    /**
+     * Unites the components of two edge pixels. The root with the smaller index, the first pixel of the
+     * component in scan order, becomes the root of both, so the roots of a band stay inside it; the root is
+     * strong if either component was.
+     *
+     * @param state  the pixel states
+     * @param parent the union-find forest
+     * @param a      the index of one edge pixel
+     * @param b      the index of the other edge pixel
+     */
+    private static void unite(int[] state, int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA == rootB) {
+            return;
+        }
+        int root = Math.min(rootA, rootB);
+        int child = Math.max(rootA, rootB);
+        parent[child] = root;
+        if (state[child] == STRONG) {
+            state[root] = STRONG;
+        }
+    }
+
+    /**
+     * Finds the root of a pixel, halving the path on the way.
+     *
+     * @param parent the union-find forest
+     * @param i      the index of an edge pixel
+     * @return the index of the root
+     */
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Finds the root of a pixel without modifying the forest, so that bands can look up roots concurrently.
+     *
+     * @param parent the union-find forest
+     * @param i      the index of an edge pixel
+     * @return the index of the root
+     */
+    private static int root(int[] parent, int i) {
+        while (parent[i] != i) {
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Splits the rows {@code [from, to)} into bands.
+     *
+     * @param from     the first row
+     * @param to       the row after the last row
+     * @param bandRows the number of rows per band; the last band may be shorter
+     * @return the first row of every band followed by {@code to}, or just {@code to} if there are no rows
+     */
+    private static int[] bands(int from, int to, int bandRows) {
+        int count = Math.max(0, (to - from + bandRows - 1) / bandRows);
+        int[] bounds = new int[count + 1];
+        for (int band = 0; band < count; band++) {
+            bounds[band] = from + band * bandRows;
+        }
+        bounds[count] = to;
+        return bounds;
+    }
+
+    /**
+     * Runs a band body over the bands {@code [lo, hi)} of a band list and returns the maximum of the results.
+     */
+    private static final class BandTask extends RecursiveTask<Integer> {
+        private final int[] bounds;
+        private final int lo;
+        private final int hi;
+        private final transient IntBinaryOperator body;
+
+        BandTask(int[] bounds, IntBinaryOperator body) {
+            this(bounds, 0, bounds.length - 1, body);
+        }
+
+        BandTask(int[] bounds, int lo, int hi, IntBinaryOperator body) {
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+            this.body = body;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (hi - lo <= 0) {
+                return -1;
+            }
+            if (hi - lo == 1) {
+                return body.applyAsInt(bounds[lo], bounds[hi]);
+            }
+            int mid = (lo + hi) >>> 1;
+            BandTask upper = new BandTask(bounds, lo, mid, body);
+            upper.fork();
+            int lowerMax = new BandTask(bounds, mid, hi, body).compute();
+
+            return Math.max(upper.join(), lowerMax);
+        }
+    }
+}
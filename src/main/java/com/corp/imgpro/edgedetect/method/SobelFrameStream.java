@@ -0,0 +1,344 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Incremental Sobel edge detection for a stream of frames of the same size, such as a fixed camera, where most of
+ * a frame equals the previous one.
+ *
+ * <p>The stream keeps the grayscale values, the gradient magnitudes and the maximum gradient of every square tile
+ * of the previous frame. Each new frame is converted to grayscale row by row and compared with the stored values
+ * tile by tile; a tile with any changed value is dirty. Only the gradients of the dirty tiles and a one-pixel
+ * halo around them are recomputed, since a grayscale value only enters the gradients of its eight neighbours.
+ * The maxima of the tiles touched are rescanned, and the maximum of the frame is the largest tile maximum. While
+ * it stays the same only the recomputed pixels are normalized and written; when it changes the whole edge map is
+ * renormalized from the stored gradients.</p>
+ *
+ * <p>The edge map of every frame is identical to {@link SobelStandard#convert(BufferedImage)} of that frame.
+ * Changes are detected on the grayscale values, so a change of color with the same luminance leaves its tile
+ * clean. Sensor noise makes every tile dirty, and the stream then costs about as much as {@link SobelRaster}.</p>
+ *
+ * <p>A stream is not thread-safe; it is meant to be fed by the thread reading the frames.</p>
+ */
+public class SobelFrameStream {
+
+    /**
+     * Default width and height of a tile in pixels.
+     */
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "frames";
+
+    /**
+     * Counters of a frame stream since it was created.
+     *
+     * @param frames           the number of frames converted
+     * @param recomputedTiles  the number of dirty tiles whose gradients were recomputed
+     * @param totalTiles       the number of tiles of all frames
+     * @param renormalizations the number of frames whose maximum gradient changed, the first frame included
+     * @param elapsedNanos     the time spent converting frames
+     */
+    public record FrameStats(long frames, long recomputedTiles, long totalTiles, long renormalizations,
+                             long elapsedNanos) {
+
+        /**
+         * Returns the conversion throughput.
+         *
+         * @return frames per second of conversion time, 0 before the first frame
+         */
+        public double framesPerSecond() {
+            return elapsedNanos == 0 ? 0 : frames * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the share of tiles that were recomputed.
+         *
+         * @return the recomputed fraction of all tiles, between 0 and 1
+         */
+        public double recomputedFraction() {
+            return totalTiles == 0 ? 0 : (double) recomputedTiles / totalTiles;
+        }
+
+        @Override
+        public String toString() {
+            return "%d frames, %.1f frames/s, %.1f%% of tiles recomputed, %d renormalizations".formatted(frames,
+                    framesPerSecond(), 100 * recomputedFraction(), renormalizations);
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int tilesX;
+    private final int tilesY;
+    private final int[] grayScale;
+    private final int[] gradients;
+    private final int[] tileMax;
+    private final boolean[] dirty;
+    private final boolean[] touched;
+    private final int[] row;
+    private final int[] levels;
+    private final BufferedImage output;
+    private int[] table = new int[0];
+    private int maxGradient = -1;
+
+    private long frames;
+    private long recomputedTiles;
+    private long renormalizations;
+    private long elapsedNanos;
+
+    /**
+     * Creates a stream for frames of the given size with tiles of {@value #DEFAULT_TILE_SIZE} pixels.
+     *
+     * @param width  the frame width
+     * @param height the frame height
+     */
+    public SobelFrameStream(int width, int height) {
+        this(width, height, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Creates a stream for frames of the given size.
+     *
+     * @param width    the frame width
+     * @param height   the frame height
+     * @param tileSize the width and height of a tile in pixels
+     * @throws IllegalArgumentException if a dimension or the tile size is not positive
+     */
+    public SobelFrameStream(int width, int height, int tileSize) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Frame size must be positive, got %d x %d".formatted(width, height));
+        }
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size must be positive, got %d".formatted(tileSize));
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.tilesX = (width + tileSize - 1) / tileSize;
+        this.tilesY = (height + tileSize - 1) / tileSize;
+        this.grayScale = new int[width * height];
+        this.gradients = new int[width * height];
+        this.tileMax = new int[tilesX * tilesY];
+        this.dirty = new boolean[tilesX * tilesY];
+        this.touched = new boolean[tilesX * tilesY];
+        this.row = new int[width];
+        this.levels = new int[width];
+        this.output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        // No luminance is negative, so every tile of the first frame is dirty
+        Arrays.fill(grayScale, -1);
+        Arrays.fill(tileMax, -1);
+    }
+
+    /**
+     * Converts the next frame, recomputing only what differs from the previous one.
+     *
+     * @param frame the frame, of the size of the stream
+     * @return the edge map of the frame, a {@code TYPE_INT_RGB} image owned by the stream and updated in place by
+     * the next call; copy it to keep it
+     * @throws IllegalArgumentException if the frame size differs from the stream size
+     */
+    public BufferedImage next(BufferedImage frame) {
+        Rasters.requireSameSize(frame, output);
+        long start = System.nanoTime();
+
+        StageEvent event = Metrics.begin(Stage.GRAYSCALE, ENGINE, width, height);
+        int dirtyTiles = findDirtyTiles(frame);
+        Metrics.end(event);
+
+        event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+        int max = dirtyTiles == 0 ? maxGradient : computeGradients();
+        Metrics.end(event);
+
+        event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+        if (max != maxGradient) {
+            maxGradient = max;
+            if (table.length < max + 1) {
+                table = new int[max + 1];
+            }
+            SobelMath.normalizationTable(max, table);
+            writeLevels(1, 1, width - 1, height - 1);
+            renormalizations++;
+        } else if (dirtyTiles > 0) {
+            for (int t = 0; t < dirty.length; t++) {
+                if (dirty[t]) {
+                    writeLevels(haloFromX(t), haloFromY(t), haloToX(t), haloToY(t));
+                }
+            }
+        }
+        Metrics.end(event);
+
+        frames++;
+        recomputedTiles += dirtyTiles;
+        elapsedNanos += System.nanoTime() - start;
+        return output;
+    }
+
+    /**
+     * Returns the counters of the frames converted so far.
+     *
+     * @return the statistics of the stream
+     */
+    public FrameStats stats() {
+        return new FrameStats(frames, recomputedTiles, frames * tilesX * tilesY, renormalizations, elapsedNanos);
+    }
+
+    /**
+     * Converts a frame to grayscale, stores the values of the tiles that changed and marks them dirty.
+     *
+     * @param frame the frame
+     * @return the number of dirty tiles
+     */
+    private int findDirtyTiles(BufferedImage frame) {
+        Arrays.fill(dirty, false);
+        int count = 0;
+
+        for (int y = 0; y < height; y++) {
+            Rasters.grayScaleRow(frame, y, row, 0);
+            int base = y * width;
+            int tileRow = y / tileSize * tilesX;
+            for (int tx = 0; tx < tilesX; tx++) {
+                int from = tx * tileSize;
+                int to = Math.min(width, from + tileSize);
+                if (Arrays.mismatch(row, from, to, grayScale, base + from, base + to) >= 0) {
+                    System.arraycopy(row, from, grayScale, base + from, to - from);
+                    if (!dirty[tileRow + tx]) {
+                        dirty[tileRow + tx] = true;
+                        count++;
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Recomputes the gradients of the dirty tiles and their halo, rescans the maxima of the tiles they touch and
+     * returns the maximum of the frame.
+     *
+     * @return the maximum gradient of the interior pixels, or -1 if there are none
+     */
+    private int computeGradients() {
+        Arrays.fill(touched, false);
+        for (int t = 0; t < dirty.length; t++) {
+            if (!dirty[t]) {
+                continue;
+            }
+            int fromX = haloFromX(t);
+            int toX = haloToX(t);
+            for (int y = haloFromY(t); y < haloToY(t); y++) {
+                int base = y * width;
+                SobelMath.gradientRange(grayScale, base - width, grayScale, base, grayScale, base + width,
+                        fromX, toX, gradients, base);
+            }
+            // The halo reaches into the eight neighbouring tiles
+            int tx = t % tilesX;
+            int ty = t / tilesX;
+            for (int ny = Math.max(0, ty - 1); ny <= Math.min(tilesY - 1, ty + 1); ny++) {
+                for (int nx = Math.max(0, tx - 1); nx <= Math.min(tilesX - 1, tx + 1); nx++) {
+                    touched[ny * tilesX + nx] = true;
+                }
+            }
+        }
+
+        int max = -1;
+        for (int t = 0; t < tileMax.length; t++) {
+            if (touched[t]) {
+                tileMax[t] = scanMax(t);
+            }
+            max = Math.max(max, tileMax[t]);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the maximum gradient of the interior pixels of a tile.
+     *
+     * @param tile the tile index
+     * @return the maximum, or -1 if the tile lies entirely on the image border
+     */
+    private int scanMax(int tile) {
+        int fromX = Math.max(1, tile % tilesX * tileSize);
+        int toX = Math.min(width - 1, (tile % tilesX + 1) * tileSize);
+        int fromY = Math.max(1, tile / tilesX * tileSize);
+        int toY = Math.min(height - 1, (tile / tilesX + 1) * tileSize);
+        int max = -1;
+
+        for (int y = fromY; y < toY; y++) {
+            int base = y * width;
+            for (int i = base + fromX; i < base + toX; i++) {
+                max = Math.max(max, gradients[i]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Normalizes the stored gradients of a rectangle of interior pixels and writes them into the edge map.
+     *
+     * @param fromX the first column (inclusive)
+     * @param fromY the first row (inclusive)
+     * @param toX   the last column (exclusive)
+     * @param toY   the last row (exclusive)
+     */
+    private void writeLevels(int fromX, int fromY, int toX, int toY) {
+        for (int y = fromY; y < toY; y++) {
+            int base = y * width;
+            for (int x = fromX; x < toX; x++) {
+                levels[x] = table[gradients[base + x]];
+            }
+            Rasters.setGrayRow(output, y, levels, 0, fromX, toX);
+        }
+    }
+
+    /**
+     * Returns the first interior column of a tile and its halo.
+     *
+     * @param tile the tile index
+     * @return the first column (inclusive)
+     */
+    private int haloFromX(int tile) {
+        return Math.max(1, tile % tilesX * tileSize - 1);
+    }
+
+    /**
+     * Returns the end of the interior columns of a tile and its halo.
+     *
+     * @param tile the tile index
+     * @return the last column (exclusive)
+     */
+    private int haloToX(int tile) {
+        return Math.min(width - 1, (tile % tilesX + 1) * tileSize + 1);
+    }
+
+    /**
+     * Returns the first interior row of a tile and its halo.
+     *
+     * @param tile the tile index
+     * @return the first row (inclusive)
+     */
+    private int haloFromY(int tile) {
+        return Math.max(1, tile / tilesX * tileSize - 1);
+    }
+
+    /**
+     * Returns the end of the interior rows of a tile and its halo.
+     *
+     * @param tile the tile index
+     * @return the last row (exclusive)
+     */
+    private int haloToY(int tile) {
+        return Math.min(height - 1, (tile / tilesX + 1) * tileSize + 1);
+    }
+}
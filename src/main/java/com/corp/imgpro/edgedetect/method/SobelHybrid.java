@@ -0,0 +1,488 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Heterogeneous Sobel edge detection computing the rows of one image on an accelerator and on the CPU cores at
+ * the same time. The interior rows are split at a ratio into a device partition at the top and a CPU partition
+ * at the bottom. The calling thread sends the device partition to a {@link BandProcessor}, normally a
+ * {@link TornadoBandProcessor}, band by band from the top, while one worker per thread of the fork/join pool
+ * converts the CPU partition in smaller bands from its top. A side that runs out of rows steals the remaining
+ * bands of the other partition from its bottom end, so both sides stay busy until the last band.
+ *
+ * <p>Every band returns its maximum gradient. The band maxima are merged into the maximum of the image, which
+ * normalizes all rows at once, so the result is identical to {@link SobelStandard} however the rows were split.
+ * The split ratio is the device's share of the measured throughput: every band updates an exponentially
+ * weighted average of the pixels per second of its side, the CPU side counting all of its workers, and the next
+ * image is split at {@code device / (device + cpu)}. A device that fails hands its band to the CPU and is not
+ * used for the rest of the image.</p>
+ *
+ * <p>Instances are safe to use from several threads; the throughput averages are shared by all conversions.</p>
+ */
+public final class SobelHybrid {
+    private static final Logger logger = LoggerFactory.getLogger(SobelHybrid.class);
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "hybrid";
+
+    /**
+     * Weight of the newest band in the throughput averages.
+     */
+    private static final double THROUGHPUT_WEIGHT = 0.25;
+
+    /**
+     * Computes the gradient magnitudes of a band of rows.
+     */
+    @FunctionalInterface
+    public interface BandProcessor {
+
+        /**
+         * Computes the gradient magnitudes of the rows {@code [from, to)}, which are interior rows of the image,
+         * with the arithmetic of {@link SobelStandard}. The first and last column of each row are not read.
+         *
+         * @param image the input image
+         * @param from  the first row (inclusive), at least 1
+         * @param to    the last row (exclusive), at most {@code height - 1}
+         * @param edges the gradient magnitudes of the image, indexed by {@code y * width + x}
+         * @return the maximum gradient of the interior pixels of the band, or -1 if it has none
+         */
+        int gradients(BufferedImage image, int from, int to, int[] edges);
+
+        /**
+         * Returns the number of times the processor has built or compiled an execution plan so far. A band during
+         * which it changes paid for the compilation, so its time is not a throughput sample. The default is 0,
+         * for processors that compile nothing.
+         *
+         * @return the number of plan builds and compilations
+         */
+        default long warmUps() {
+            return 0;
+        }
+    }
+
+    /**
+     * The band sizes and the initial split of a hybrid engine.
+     *
+     * @param deviceRows   the number of rows the device converts per band
+     * @param cpuRows      the number of rows a CPU worker converts per band
+     * @param initialRatio the device's share of the rows before any throughput is measured, 0 to 1
+     */
+    public record Settings(int deviceRows, int cpuRows, double initialRatio) {
+
+        /**
+         * System property setting the rows of a device band.
+         */
+        public static final String DEVICE_ROWS_PROPERTY = "edgedetect.hybrid.deviceRows";
+
+        /**
+         * System property setting the rows of a CPU band.
+         */
+        public static final String CPU_ROWS_PROPERTY = "edgedetect.hybrid.cpuRows";
+
+        /**
+         * System property setting the initial device share.
+         */
+        public static final String RATIO_PROPERTY = "edgedetect.hybrid.ratio";
+
+        /**
+         * Device bands of 256 rows, CPU bands of 32 rows and an even initial split.
+         */
+        public static final Settings DEFAULT = new Settings(256, 32, 0.5);
+
+        /**
+         * Creates settings.
+         *
+         * @throws IllegalArgumentException if a band size is not positive or the ratio is outside 0 to 1
+         */
+        public Settings {
+            if (deviceRows < 1 || cpuRows < 1 || !(initialRatio >= 0 && initialRatio <= 1)) {
+                throw new IllegalArgumentException("Hybrid settings need positive band rows and a ratio in [0, 1], "
+                        + "got %d, %d, %s".formatted(deviceRows, cpuRows, initialRatio));
+            }
+        }
+
+        /**
+         * Returns the settings configured with {@value #DEVICE_ROWS_PROPERTY}, {@value #CPU_ROWS_PROPERTY} and
+         * {@value #RATIO_PROPERTY}, taking unset ones from {@link #DEFAULT}.
+         *
+         * @return the configured settings
+         */
+        public static Settings configured() {
+            String ratio = System.getProperty(RATIO_PROPERTY);
+            return new Settings(Integer.getInteger(DEVICE_ROWS_PROPERTY, DEFAULT.deviceRows),
+                    Integer.getInteger(CPU_ROWS_PROPERTY, DEFAULT.cpuRows),
+                    ratio != null ? Double.parseDouble(ratio) : DEFAULT.initialRatio);
+        }
+    }
+
+    /**
+     * How the rows of one image were shared.
+     *
+     * @param ratio          the device share the image was split at
+     * @param deviceRows     the number of rows the device converted
+     * @param cpuRows        the number of rows the CPU workers converted
+     * @param stolenByDevice the number of rows the device took from the CPU partition
+     * @param stolenByCpu    the number of rows the CPU workers took from the device partition
+     * @param nextRatio      the device share the next image will be split at
+     */
+    public record HybridStats(double ratio, int deviceRows, int cpuRows, int stolenByDevice, int stolenByCpu,
+                              double nextRatio) {
+
+        @Override
+        public String toString() {
+            return "split %.2f, device %d rows (%d stolen), cpu %d rows (%d stolen), next split %.2f".formatted(
+                    ratio, deviceRows, stolenByDevice, cpuRows, stolenByCpu, nextRatio);
+        }
+    }
+
+    private final BandProcessor device;
+    private final Settings settings;
+    private final ForkJoinPool pool;
+    private double devicePixelsPerNano;
+    private double cpuPixelsPerNano;
+    private volatile HybridStats lastStats;
+
+    /**
+     * Creates a hybrid engine running its CPU workers on the common fork/join pool.
+     *
+     * @param device   converts the bands of the device
+     * @param settings the band sizes and initial split
+     */
+    public SobelHybrid(BandProcessor device, Settings settings) {
+        this(device, settings, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a hybrid engine.
+     *
+     * @param device   converts the bands of the device
+     * @param settings the band sizes and initial split
+     * @param pool     the pool running one CPU worker per thread
+     */
+    public SobelHybrid(BandProcessor device, Settings settings, ForkJoinPool pool) {
+        this.device = device;
+        this.settings = settings;
+        this.pool = pool;
+        this.lastStats = new HybridStats(settings.initialRatio(), 0, 0, 0, 0, settings.initialRatio());
+    }
+
+    /**
+     * Converts an input image into a caller-provided output image of the same size, clearing the border of the
+     * output. {@link Metrics} times the shared gradient phase as convolution, which includes grayscale
+     * conversion and the band maxima, and normalization.
+     *
+     * @param image  the input image to be processed
+     * @param output the image receiving the result, of the same size as {@code image} and any type
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public BufferedImage convert(BufferedImage image, BufferedImage output) {
+        Rasters.requireSameSize(image, output);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (height < 3) {
+            Rasters.clearBorder(output);
+            return output;
+        }
+        BufferPool buffers = BufferPool.shared();
+
+        int[] edges = buffers.acquireInts(width * height);
+        int[] table = null;
+        try {
+            StageEvent event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+            double ratio = ratio();
+            Partition partition = new Partition(1, 1 + (int) Math.round(ratio * (height - 2)), height - 1);
+            AtomicInteger maxGradient = new AtomicInteger(-1);
+            int workers = pool.getParallelism();
+            List<ForkJoinTask<?>> cpuTasks = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                cpuTasks.add(pool.submit(() -> runCpu(image, edges, partition, maxGradient, workers)));
+            }
+            runDevice(image, edges, partition, maxGradient);
+            cpuTasks.forEach(ForkJoinTask::join);
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+            int max = maxGradient.get();
+            table = SobelMath.normalizationTable(Math.max(0, max), buffers.acquireInts(Math.max(0, max) + 1));
+            int[] levels = table;
+            pool.invoke(ForkJoinTask.adapt(() -> normalize(levels, edges, output)));
+            Rasters.clearBorder(output);
+            Metrics.end(event);
+
+            lastStats = new HybridStats(ratio, partition.deviceRowsDone.get(), partition.cpuRowsDone.get(),
+                    partition.stolenByDevice, partition.stolenByCpu, ratio());
+            logger.debug("[Hybrid] {}x{}: {}", width, height, lastStats);
+        } finally {
+            buffers.release(table);
+            buffers.release(edges);
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the device share the next image will be split at: the initial ratio until both sides have been
+     * measured, then the device's share of the measured throughput.
+     *
+     * @return the ratio, 0 to 1
+     */
+    public synchronized double ratio() {
+        if (devicePixelsPerNano == 0 || cpuPixelsPerNano == 0) {
+            return settings.initialRatio();
+        }
+        return devicePixelsPerNano / (devicePixelsPerNano + cpuPixelsPerNano);
+    }
+
+    /**
+     * Returns how the rows of the last image were shared.
+     *
+     * @return the statistics of the last conversion
+     */
+    public HybridStats lastStats() {
+        return lastStats;
+    }
+
+    /**
+     * Computes the gradients of the rows {@code [from, to)} on the CPU with the arithmetic of
+     * {@link SobelRaster}, converting the band and its one-row halo to grayscale first.
+     *
+     * @param image the input image
+     * @param from  the first row (inclusive), at least 1
+     * @param to    the last row (exclusive), at most {@code height - 1}
+     * @param edges the gradient magnitudes of the image
+     * @return the maximum gradient of the band, or -1 if it has none
+     */
+    public static int cpuGradients(BufferedImage image, int from, int to, int[] edges) {
+        int width = image.getWidth();
+        int haloFrom = from - 1;
+        int haloRows = to - from + 2;
+        int[] grayScale = BufferPool.shared().acquireInts(haloRows * width);
+        int max = -1;
+
+        try {
+            for (int i = 0; i < haloRows; i++) {
+                Rasters.grayScaleRow(image, haloFrom + i, grayScale, i * width);
+            }
+            for (int y = from; y < to; y++) {
+                int row = (y - haloFrom) * width;
+                max = Math.max(max, SobelMath.gradientRow(grayScale, row - width, grayScale, row,
+                        grayScale, row + width, width, edges, y * width));
+            }
+        } finally {
+            BufferPool.shared().release(grayScale);
+        }
+
+        return max;
+    }
+
+    /**
+     * Sends bands to the device until no rows are left. If the device fails, its band is converted on the
+     * calling thread and the remaining rows are left to the CPU workers. Bands during which the device built or
+     * compiled a plan are not throughput samples.
+     *
+     * @param image       the input image
+     * @param edges       the gradient magnitudes of the image
+     * @param partition   the rows of the image
+     * @param maxGradient the maximum gradient so far
+     */
+    private void runDevice(BufferedImage image, int[] edges, Partition partition, AtomicInteger maxGradient) {
+        int width = image.getWidth();
+        Band band;
+        while ((band = partition.claimDevice(settings.deviceRows())) != null) {
+            long warmUps = device.warmUps();
+            long start = System.nanoTime();
+            int max;
+            try {
+                max = device.gradients(image, band.from(), band.to(), edges);
+            } catch (RuntimeException e) {
+                logger.warn("[Hybrid] Device failed, leaving the remaining rows to the CPU: {}", e.toString());
+                maxGradient.accumulateAndGet(cpuGradients(image, band.from(), band.to(), edges), Math::max);
+                partition.cpuRowsDone.addAndGet(band.rows());
+                return;
+            }
+            long nanos = System.nanoTime() - start;
+            if (device.warmUps() == warmUps) {
+                recordDevice((double) band.rows() * width / Math.max(1, nanos));
+            } else {
+                logger.debug("[Hybrid] Not sampling a band that compiled a plan ({} ms)", nanos / 1_000_000);
+            }
+            maxGradient.accumulateAndGet(max, Math::max);
+            partition.deviceRowsDone.addAndGet(band.rows());
+        }
+    }
+
+    /**
+     * Converts CPU bands until no rows are left.
+     *
+     * @param image       the input image
+     * @param edges       the gradient magnitudes of the image
+     * @param partition   the rows of the image
+     * @param maxGradient the maximum gradient so far
+     * @param workers     the number of CPU workers, to scale the throughput of one worker to the CPU side
+     */
+    private void runCpu(BufferedImage image, int[] edges, Partition partition, AtomicInteger maxGradient,
+                        int workers) {
+        int width = image.getWidth();
+        Band band;
+        while ((band = partition.claimCpu(settings.cpuRows())) != null) {
+            long start = System.nanoTime();
+            maxGradient.accumulateAndGet(cpuGradients(image, band.from(), band.to(), edges), Math::max);
+            recordCpu((double) band.rows() * width * workers / Math.max(1, System.nanoTime() - start));
+            partition.cpuRowsDone.addAndGet(band.rows());
+        }
+    }
+
+    /**
+     * Adds the throughput of a device band to the device's average.
+     *
+     * @param pixelsPerNano the pixels converted per nanosecond
+     */
+    private synchronized void recordDevice(double pixelsPerNano) {
+        devicePixelsPerNano = devicePixelsPerNano == 0 ? pixelsPerNano
+                : devicePixelsPerNano + THROUGHPUT_WEIGHT * (pixelsPerNano - devicePixelsPerNano);
+    }
+
+    /**
+     * Adds the throughput of a CPU band, scaled to all workers, to the CPU's average.
+     *
+     * @param pixelsPerNano the pixels the CPU side converts per nanosecond
+     */
+    private synchronized void recordCpu(double pixelsPerNano) {
+        cpuPixelsPerNano = cpuPixelsPerNano == 0 ? pixelsPerNano
+                : cpuPixelsPerNano + THROUGHPUT_WEIGHT * (pixelsPerNano - cpuPixelsPerNano);
+    }
+
+    /**
+     * Normalizes the interior rows in parallel, in bands of the CPU band size.
+     *
+     * @param table  the normalization table
+     * @param edges  the gradient magnitudes, overwritten by the levels
+     * @param output the output image
+     */
+    private void normalize(int[] table, int[] edges, BufferedImage output) {
+        int width = output.getWidth();
+        int height = output.getHeight();
+        List<ForkJoinTask<?>> bands = new ArrayList<>();
+        for (int from = 1; from < height - 1; from += settings.cpuRows()) {
+            int bandFrom = from;
+            int bandTo = Math.min(height - 1, from + settings.cpuRows());
+            bands.add(ForkJoinTask.adapt(() -> {
+                for (int y = bandFrom; y < bandTo; y++) {
+                    int row = y * width;
+                    for (int x = row + 1; x < row + width - 1; x++) {
+                        edges[x] = table[edges[x]];
+                    }
+                    Rasters.setGrayRow(output, y, edges, row, 1, width - 1);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(bands);
+    }
+
+    /**
+     * A band of rows claimed by one side.
+     *
+     * @param from the first row (inclusive)
+     * @param to   the last row (exclusive)
+     */
+    private record Band(int from, int to) {
+
+        /**
+         * Returns the number of rows of the band.
+         *
+         * @return {@code to - from}
+         */
+        int rows() {
+            return to - from;
+        }
+    }
+
+    /**
+     * The interior rows of one image, split into the device partition {@code [deviceNext, deviceEnd)} and the
+     * CPU partition {@code [cpuNext, cpuEnd)}. Each side claims bands from the top of its own partition and, once
+     * that is empty, from the bottom of the other one.
+     */
+    private static final class Partition {
+        private final AtomicInteger deviceRowsDone = new AtomicInteger();
+        private final AtomicInteger cpuRowsDone = new AtomicInteger();
+        private int deviceNext;
+        private int deviceEnd;
+        private int cpuNext;
+        private int cpuEnd;
+        private int stolenByDevice;
+        private int stolenByCpu;
+
+        /**
+         * Creates a partition.
+         *
+         * @param from  the first interior row
+         * @param split the first row of the CPU partition
+         * @param to    the end of the interior rows
+         */
+        Partition(int from, int split, int to) {
+            this.deviceNext = from;
+            this.deviceEnd = split;
+            this.cpuNext = split;
+            this.cpuEnd = to;
+        }
+
+        /**
+         * Claims the next band for the device.
+         *
+         * @param rows the maximum number of rows
+         * @return the band, or {@code null} if no rows are left
+         */
+        synchronized Band claimDevice(int rows) {
+            if (deviceNext < deviceEnd) {
+                Band band = new Band(deviceNext, Math.min(deviceEnd, deviceNext + rows));
+                deviceNext = band.to();
+                return band;
+            }
+            if (cpuNext < cpuEnd) {
+                Band band = new Band(Math.max(cpuNext, cpuEnd - rows), cpuEnd);
+                cpuEnd = band.from();
+                stolenByDevice += band.rows();
+                return band;
+            }
+            return null;
+        }
+
+        /**
+         * Claims the next band for a CPU worker.
+         *
+         * @param rows the maximum number of rows
+         * @return the band, or {@code null} if no rows are left
+         */
+        synchronized Band claimCpu(int rows) {
+            if (cpuNext < cpuEnd) {
+                Band band = new Band(cpuNext, Math.min(cpuEnd, cpuNext + rows));
+                cpuNext = band.to();
+                return band;
+            }
+            if (deviceNext < deviceEnd) {
+                Band band = new Band(Math.max(deviceNext, deviceEnd - rows), deviceEnd);
+                deviceEnd = band.from();
+                stolenByCpu += band.rows();
+                return band;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.OffHeapRaster;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A utility class running the Sobel edge detection algorithm on {@link OffHeapRaster}s, so that neither the
+ * image nor its gradients live on the Java heap. Like {@link SobelStreaming} it slides a window of three
+ * grayscale rows down the image; the gradient magnitudes are staged in the output raster itself and normalized
+ * in place by a second pass, so the heap only ever holds four rows regardless of the image size. When the output
+ * is mapped from a file, the staged gradients are thereby spilled to that file as well.
+ *
+ * <p>The result has the levels of {@link SobelStandard#convert(BufferedImage)}, stored as opaque gray ARGB
+ * pixels, and a border of zero pixels.</p>
+ */
+public class SobelOffHeap {
+    private static final Logger logger = LoggerFactory.getLogger(SobelOffHeap.class);
+
+    /**
+     * Number of grayscale rows kept in the sliding window.
+     */
+    private static final int WINDOW_ROWS = 3;
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "offheap";
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelOffHeap() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts a raster to its edge-detected version in a newly allocated off-heap raster.
+     *
+     * @param image the input raster
+     * @return the edge-detected raster, to be closed by the caller
+     */
+    public static OffHeapRaster convert(OffHeapRaster image) {
+        OffHeapRaster output = OffHeapRaster.allocate(image.width(), image.height());
+        try {
+            return convert(image, output);
+        } catch (RuntimeException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Converts a raster to its edge-detected version, writing every pixel of the output raster. The output may
+     * be the input raster itself: each input row is read before the row it depends on is overwritten.
+     *
+     * @param image  the input raster
+     * @param output the raster receiving the result, of the same size as {@code image}
+     * @return {@code output}
+     * @throws IllegalArgumentException if the sizes of the rasters differ
+     */
+    public static OffHeapRaster convert(OffHeapRaster image, OffHeapRaster output) {
+        if (image.width() != output.width() || image.height() != output.height()) {
+            throw new IllegalArgumentException("Output is %dx%d but the image is %dx%d".formatted(
+                    output.width(), output.height(), image.width(), image.height()));
+        }
+        int width = image.width();
+        BufferPool pool = BufferPool.shared();
+
+        int[] rows = pool.acquireInts((WINDOW_ROWS + 1) * width);
+        int[] table = null;
+        try {
+            StageEvent event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, image.height());
+            int maxGradient = computeEdgeColors(image, output, rows);
+            Metrics.end(event);
+            logger.debug("[OffHeap] {}x{} max gradient: {}", width, image.height(), maxGradient);
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, image.height());
+            table = SobelMath.normalizationTable(maxGradient, pool.acquireInts(maxGradient + 1));
+            norm(table, output, rows);
+            Metrics.end(event);
+        } finally {
+            pool.release(table);
+            pool.release(rows);
+        }
+
+        return output;
+    }
+
+    /**
+     * Streams the image through the grayscale window and stores the gradient magnitudes of the interior rows
+     * in the output raster, tracking the maximum on the way.
+     *
+     * @param image  the input raster
+     * @param output the raster receiving the gradient magnitudes
+     * @param rows   scratch space for the {@value #WINDOW_ROWS} window rows followed by one pixel row
+     * @return the maximum gradient value found, or -1 if the image has no interior pixels
+     */
+    private static int computeEdgeColors(OffHeapRaster image, OffHeapRaster output, int[] rows) {
+        int width = image.width();
+        int height = image.height();
+        int rowBuffer = WINDOW_ROWS * width;
+        int max = -1;
+
+        if (height < WINDOW_ROWS) {
+            return max;
+        }
+
+        grayScaleRow(image, 0, rows, 0, rowBuffer);
+        grayScaleRow(image, 1, rows, width, rowBuffer);
+
+        for (int y = 1; y < height - 1; y++) {
+            int above = ((y - 1) % WINDOW_ROWS) * width;
+            int row = (y % WINDOW_ROWS) * width;
+            int below = ((y + 1) % WINDOW_ROWS) * width;
+            grayScaleRow(image, y + 1, rows, below, rowBuffer);
+
+            int rowMax = SobelMath.gradientRow(rows, above, rows, row, rows, below, width, rows, rowBuffer);
+            if (max < rowMax) {
+                max = rowMax;
+            }
+            output.setRow(y, rows, rowBuffer);
+        }
+
+        return max;
+    }
+
+    /**
+     * Reads a raster row and converts it to grayscale values using {@link SobelMath#luminance(int, int, int)}.
+     *
+     * @param image     the input raster
+     * @param y         the row to convert
+     * @param dest      the destination array
+     * @param offset    the index in {@code dest} receiving the value of pixel {@code (0, y)}
+     * @param rowBuffer the index in {@code dest} of a scratch row, distinct from the destination row
+     */
+    private static void grayScaleRow(OffHeapRaster image, int y, int[] dest, int offset, int rowBuffer) {
+        int width = image.width();
+        image.getRow(y, dest, rowBuffer);
+
+        for (int x = 0; x < width; x++) {
+            int p = dest[rowBuffer + x];
+            dest[offset + x] = SobelMath.luminance((p >> 16) & 0xff, (p >> 8) & 0xff, p & 0xff);
+        }
+    }
+
+    /**
+     * Replaces the staged gradients of the interior pixels by their normalized gray levels and clears the border.
+     *
+     * @param table  the normalization table
+     * @param output the raster holding the staged gradients
+     * @param rows   scratch space whose last {@code width} elements hold a pixel row
+     */
+    private static void norm(int[] table, OffHeapRaster output, int[] rows) {
+        int width = output.width();
+        int height = output.height();
+        int rowBuffer = WINDOW_ROWS * width;
+
+        for (int y = 0; y < height; y++) {
+            if (y == 0 || y == height - 1) {
+                for (int x = 0; x < width; x++) {
+                    rows[rowBuffer + x] = 0;
+                }
+            } else {
+                output.getRow(y, rows, rowBuffer);
+                for (int x = 1; x < width - 1; x++) {
+                    rows[rowBuffer + x] = 0xff000000 | table[rows[rowBuffer + x]] * 0x010101;
+                }
+                rows[rowBuffer] = 0;
+                rows[rowBuffer + width - 1] = 0;
+            }
+            output.setRow(y, rows, rowBuffer);
+        }
+    }
+}
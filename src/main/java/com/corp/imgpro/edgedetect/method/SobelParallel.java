@@ -0,0 +1,265 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.Precision;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A utility class implementing a multi-core Sobel edge detection algorithm on a {@link ForkJoinPool}.
+ * The image is split recursively into row bands. Each band converts its own rows plus a one-row halo
+ * above and below to grayscale, convolves them and returns its maximum gradient; the band maxima are
+ * combined by the fork/join reduction instead of a separate serial pass. Normalization then runs in
+ * parallel over the same bands.
+ *
+ * <p>Every band uses exactly the arithmetic of {@link SobelRaster}, so the result is bit-identical to
+ * the serial engines regardless of the parallelism. The {@link Precision} overload uses the arithmetic of
+ * {@link SobelRaster#convert(BufferedImage, BufferedImage, Precision)} instead.</p>
+ */
+public class SobelParallel {
+
+    /**
+     * Minimum number of rows in a leaf band.
+     */
+    private static final int MIN_BAND_ROWS = 16;
+
+    /**
+     * Number of leaf bands created per worker thread, for load balancing.
+     */
+    private static final int BANDS_PER_THREAD = 4;
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "parallel";
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelParallel() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts an input image to its edge-detected version on the common fork/join pool.
+     *
+     * @param image the input image to be processed
+     * @return a new BufferedImage containing the edge-detected version of the input image
+     */
+    public static BufferedImage convert(BufferedImage image) {
+        return convert(image, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Converts an input image to its edge-detected version on the given fork/join pool.
+     * The parallelism of the pool determines how many bands the image is split into.
+     *
+     * @param image the input image to be processed
+     * @param pool  the pool running the band tasks
+     * @return a new BufferedImage containing the edge-detected version of the input image
+     */
+    public static BufferedImage convert(BufferedImage image, ForkJoinPool pool) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()), pool);
+    }
+
+    /**
+     * Converts an input image into a caller-provided output image on the common fork/join pool.
+     *
+     * @param image  the input image to be processed
+     * @param output the image receiving the result, of the same size as {@code image} and any type
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return convert(image, output, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Converts an input image into a caller-provided output image on the given fork/join pool, clearing the
+     * border of the output. The gradient array, the per-band grayscale arrays and the normalization table come
+     * from the shared {@link BufferPool}. {@link Metrics} times the two parallel phases as convolution, which
+     * includes grayscale conversion and the max reduction, and normalization.
+     *
+     * @param image  the input image to be processed
+     * @param output the image receiving the result, of the same size as {@code image} and any type
+     * @param pool   the pool running the band tasks
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output, ForkJoinPool pool) {
+        return convert(image, output, pool, Precision.EXACT);
+    }
+
+    /**
+     * Converts an input image into a caller-provided output image on the given fork/join pool with the
+     * arithmetic of the given precision.
+     *
+     * @param image     the input image to be processed
+     * @param output    the image receiving the result, of the same size as {@code image} and any type
+     * @param pool      the pool running the band tasks
+     * @param precision the precision mode
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output, ForkJoinPool pool,
+                                        Precision precision) {
+        Rasters.requireSameSize(image, output);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int bandRows = bandRows(height, pool.getParallelism());
+        BufferPool buffers = BufferPool.shared();
+
+        int[] edgeColors = buffers.acquireInts(width * height);
+        int[] table = null;
+        try {
+            StageEvent event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+            int maxGradient = pool.invoke(new EdgeColorTask(precision, image, edgeColors, 1, height - 1, bandRows));
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+            table = SobelMath.normalizationTable(maxGradient, buffers.acquireInts(maxGradient + 1));
+            pool.invoke(new NormTask(table, edgeColors, output, 1, height - 1, bandRows));
+            Rasters.clearBorder(output);
+            Metrics.end(event);
+        } finally {
+            buffers.release(table);
+            buffers.release(edgeColors);
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the number of rows of a leaf band for the given image height and parallelism.
+     *
+     * @param height      the image height
+     * @param parallelism the number of worker threads
+     * @return the number of rows processed by one leaf task
+     */
+    private static int bandRows(int height, int parallelism) {
+        return Math.max(MIN_BAND_ROWS, height / (parallelism * BANDS_PER_THREAD));
+    }
+
+    /**
+     * Computes the edge colors of the interior rows {@code [from, to)} and returns their maximum gradient.
+     */
+    private static final class EdgeColorTask extends RecursiveTask<Integer> {
+        private final Precision precision;
+        private final transient BufferedImage image;
+        private final int[] edgeColors;
+        private final int from;
+        private final int to;
+        private final int bandRows;
+
+        EdgeColorTask(Precision precision, BufferedImage image, int[] edgeColors, int from, int to, int bandRows) {
+            this.precision = precision;
+            this.image = image;
+            this.edgeColors = edgeColors;
+            this.from = from;
+            this.to = to;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= bandRows) {
+                return computeBand();
+            }
+            int mid = (from + to) >>> 1;
+            EdgeColorTask upper = new EdgeColorTask(precision, image, edgeColors, from, mid, bandRows);
+            EdgeColorTask lower = new EdgeColorTask(precision, image, edgeColors, mid, to, bandRows);
+            upper.fork();
+            int lowerMax = lower.compute();
+
+            return Math.max(upper.join(), lowerMax);
+        }
+
+        /**
+         * Converts the band and its one-row halo to grayscale and convolves it.
+         *
+         * @return the maximum gradient of the band, or -1 if the band is empty
+         */
+        private int computeBand() {
+            int width = image.getWidth();
+            int haloFrom = from - 1;
+            int haloRows = to - from + 2;
+            int[] grayScale = BufferPool.shared().acquireInts(haloRows * width);
+            int max = -1;
+
+            try {
+                for (int i = 0; i < haloRows; i++) {
+                    Rasters.grayScaleRow(precision, image, haloFrom + i, grayScale, i * width);
+                }
+                for (int y = from; y < to; y++) {
+                    int row = (y - haloFrom) * width;
+                    int rowMax = SobelMath.gradientRow(precision, grayScale, row - width, grayScale, row,
+                            grayScale, row + width, width, edgeColors, y * width);
+                    if (max < rowMax) {
+                        max = rowMax;
+                    }
+                }
+            } finally {
+                BufferPool.shared().release(grayScale);
+            }
+
+            return max;
+        }
+    }
+
+    /**
+     * Normalizes the edge colors of the interior rows {@code [from, to)} and writes them into the output.
+     */
+    private static final class NormTask extends RecursiveAction {
+        private final int[] table;
+        private final int[] edgeColors;
+        private final transient BufferedImage normalizedImage;
+        private final int from;
+        private final int to;
+        private final int bandRows;
+
+        NormTask(int[] table, int[] edgeColors, BufferedImage normalizedImage, int from, int to, int bandRows) {
+            this.table = table;
+            this.edgeColors = edgeColors;
+            this.normalizedImage = normalizedImage;
+            this.from = from;
+            this.to = to;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= bandRows) {
+                normBand();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new NormTask(table, edgeColors, normalizedImage, from, mid, bandRows),
+                    new NormTask(table, edgeColors, normalizedImage, mid, to, bandRows));
+        }
+
+        /**
+         * Maps the gradients of the band through the normalization table and writes the rows.
+         */
+        private void normBand() {
+            int width = normalizedImage.getWidth();
+
+            for (int y = from; y < to; y++) {
+                int row = y * width;
+                for (int x = row + 1; x < row + width - 1; x++) {
+                    edgeColors[x] = table[edgeColors[x]];
+                }
+                Rasters.setGrayRow(normalizedImage, y, edgeColors, row, 1, width - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A utility class for multi-resolution edge maps: a quick preview at the resolution of the view, and edge maps of
+ * regions at native resolution for zooming in.
+ *
+ * <p>The preview builds a pyramid of grayscale {@link Level levels}, each averaging 2 x 2 pixels of the one above
+ * it, until the next halving would fall below the view size, and computes the edge map of the smallest level.
+ * The first level is built straight from pairs of image rows, so the full-resolution grayscale image is never
+ * stored. For a 1920 x 1080 image in a view of a third of a Full HD scene this is the 960 x 540 level, and the
+ * whole preview costs about half of a full-resolution conversion. Its levels approximate the full-resolution
+ * edge map, since halving averages away fine detail and noise.</p>
+ *
+ * <p>{@link #convertRegion(BufferedImage, Rectangle)} computes only the pixels of a region, reading a one-pixel
+ * halo around it, so the gradients are identical to those of the full image and pixels on the image border
+ * stay black. The region is normalized by its own maximum gradient, like a separate image.</p>
+ */
+public class SobelPyramid {
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "pyramid";
+
+    /**
+     * A reduced level of the pyramid.
+     *
+     * @param width     the width in pixels
+     * @param height    the height in pixels
+     * @param grayScale the row-major grayscale values
+     */
+    public record Level(int width, int height, int[] grayScale) {
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelPyramid() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Builds the reduced levels of the pyramid of an image down to a minimum size.
+     *
+     * @param image     the full-resolution image
+     * @param minWidth  the smallest width a level may have
+     * @param minHeight the smallest height a level may have
+     * @return the levels of half, a quarter and so on of the image size, each at least {@code minWidth} by
+     * {@code minHeight} pixels; empty if the image cannot be halved within these bounds
+     */
+    public static List<Level> pyramid(BufferedImage image, int minWidth, int minHeight) {
+        List<Level> levels = new ArrayList<>();
+        int minimumWidth = Math.max(1, minWidth);
+        int minimumHeight = Math.max(1, minHeight);
+        if (image.getWidth() / 2 < minimumWidth || image.getHeight() / 2 < minimumHeight) {
+            return levels;
+        }
+
+        StageEvent event = Metrics.begin(Stage.DOWNSAMPLE, ENGINE, image.getWidth(), image.getHeight());
+        Level level = downsample(image);
+        levels.add(level);
+        while (level.width() / 2 >= minimumWidth && level.height() / 2 >= minimumHeight) {
+            level = downsample(level);
+            levels.add(level);
+        }
+        Metrics.end(event);
+
+        return levels;
+    }
+
+    /**
+     * Computes the edge map of the smallest pyramid level that still covers a view of the given size at one level
+     * pixel per view pixel or more, or of the image itself if it cannot be halved.
+     *
+     * @param image      the full-resolution image
+     * @param viewWidth  the width of the view in pixels
+     * @param viewHeight the height of the view in pixels
+     * @return a new {@code TYPE_INT_RGB} edge map of the image size divided by a power of two
+     */
+    public static BufferedImage preview(BufferedImage image, int viewWidth, int viewHeight) {
+        List<Level> levels = pyramid(image, viewWidth, viewHeight);
+        if (levels.isEmpty()) {
+            return SobelRaster.convert(image, new BufferedImage(image.getWidth(), image.getHeight(),
+                    BufferedImage.TYPE_INT_RGB));
+        }
+        return convert(levels.get(levels.size() - 1));
+    }
+
+    /**
+     * Computes the edge map of a pyramid level, with the arithmetic of {@link SobelRaster}.
+     *
+     * @param level the level
+     * @return a new {@code TYPE_INT_RGB} edge map of the size of the level
+     */
+    public static BufferedImage convert(Level level) {
+        int width = level.width();
+        int height = level.height();
+        int[] grayScale = level.grayScale();
+        BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        BufferPool pool = BufferPool.shared();
+
+        int[] gradients = pool.acquireInts(width * height);
+        int[] table = null;
+        try {
+            StageEvent event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+            int maxGradient = -1;
+            for (int y = 1; y < height - 1; y++) {
+                int row = y * width;
+                maxGradient = Math.max(maxGradient, SobelMath.gradientRow(grayScale, row - width, grayScale, row,
+                        grayScale, row + width, width, gradients, row));
+            }
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+            table = SobelMath.normalizationTable(maxGradient, pool.acquireInts(maxGradient + 1));
+            for (int y = 1; y < height - 1; y++) {
+                int row = y * width;
+                for (int x = row + 1; x < row + width - 1; x++) {
+                    gradients[x] = table[gradients[x]];
+                }
+                Rasters.setGrayRow(output, y, gradients, row, 1, width - 1);
+            }
+            Metrics.end(event);
+        } finally {
+            pool.release(table);
+            pool.release(gradients);
+        }
+
+        return output;
+    }
+
+    /**
+     * Builds the first reduced level of an image, averaging the grayscale values of every 2 x 2 block with
+     * rounding. An odd last row or column is dropped.
+     *
+     * @param image the image, at least 2 x 2 pixels
+     * @return the level of half the image size
+     */
+    public static Level downsample(BufferedImage image) {
+        int sourceWidth = image.getWidth();
+        int width = sourceWidth / 2;
+        int height = image.getHeight() / 2;
+        int[] grayScale = new int[width * height];
+        int[] rows = BufferPool.shared().acquireInts(2 * sourceWidth);
+
+        try {
+            for (int y = 0; y < height; y++) {
+                Rasters.grayScaleRow(image, 2 * y, rows, 0);
+                Rasters.grayScaleRow(image, 2 * y + 1, rows, sourceWidth);
+                average(rows, 0, sourceWidth, grayScale, y * width, width);
+            }
+        } finally {
+            BufferPool.shared().release(rows);
+        }
+
+        return new Level(width, height, grayScale);
+    }
+
+    /**
+     * Builds the next reduced level of a level like {@link #downsample(BufferedImage)}.
+     *
+     * @param level the level, at least 2 x 2 pixels
+     * @return the level of half its size
+     */
+    public static Level downsample(Level level) {
+        int width = level.width() / 2;
+        int height = level.height() / 2;
+        int[] grayScale = new int[width * height];
+
+        for (int y = 0; y < height; y++) {
+            average(level.grayScale(), 2 * y * level.width(), level.width(), grayScale, y * width, width);
+        }
+
+        return new Level(width, height, grayScale);
+    }
+
+    /**
+     * Averages two source rows pairwise into one destination row.
+     *
+     * @param source      the grayscale values holding the two rows one after the other
+     * @param offset      the index of the first value of the upper row
+     * @param sourceWidth the length of a source row, the distance between the two rows
+     * @param destination the destination values
+     * @param start       the index of the first destination value
+     * @param width       the number of destination values
+     */
+    private static void average(int[] source, int offset, int sourceWidth, int[] destination, int start, int width) {
+        for (int x = 0; x < width; x++) {
+            int upper = offset + 2 * x;
+            int lower = upper + sourceWidth;
+            destination[start + x] = (source[upper] + source[upper + 1] + source[lower] + source[lower + 1] + 2) >> 2;
+        }
+    }
+
+    /**
+     * Computes the edge map of a region of an image at native resolution. Only the region and a one-pixel halo
+     * around it are converted to grayscale.
+     *
+     * @param image  the full-resolution image
+     * @param region the region in image coordinates; the part outside the image is ignored
+     * @return a new {@code TYPE_INT_RGB} image of the size of the region within the image, whose gradients equal
+     * those of the same pixels in the edge map of the whole image
+     * @throws IllegalArgumentException if the region does not overlap the image
+     */
+    public static BufferedImage convertRegion(BufferedImage image, Rectangle region) {
+        Rectangle bounds = region.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (bounds.isEmpty()) {
+            throw new IllegalArgumentException("Region %s is outside the %d x %d image".formatted(region,
+                    image.getWidth(), image.getHeight()));
+        }
+        int haloX = Math.max(0, bounds.x - 1);
+        int haloY = Math.max(0, bounds.y - 1);
+        int haloWidth = Math.min(image.getWidth(), bounds.x + bounds.width + 1) - haloX;
+        int haloHeight = Math.min(image.getHeight(), bounds.y + bounds.height + 1) - haloY;
+        BufferedImage halo = image.getSubimage(haloX, haloY, haloWidth, haloHeight);
+        BufferedImage output = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_RGB);
+        // The halo pixels not on the image border are the region pixels with gradients
+        int dx = bounds.x - haloX;
+        int dy = bounds.y - haloY;
+        BufferPool pool = BufferPool.shared();
+
+        int[] grayScale = pool.acquireInts(haloWidth * haloHeight);
+        int[] gradients = pool.acquireInts(haloWidth * haloHeight);
+        int[] table = null;
+        try {
+            StageEvent event = Metrics.begin(Stage.CONVOLUTION, ENGINE, bounds.width, bounds.height);
+            for (int y = 0; y < haloHeight; y++) {
+                Rasters.grayScaleRow(halo, y, grayScale, y * haloWidth);
+            }
+            int maxGradient = -1;
+            for (int y = 1; y < haloHeight - 1; y++) {
+                int row = y * haloWidth;
+                maxGradient = Math.max(maxGradient, SobelMath.gradientRow(grayScale, row - haloWidth, grayScale, row,
+                        grayScale, row + haloWidth, haloWidth, gradients, row));
+            }
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, bounds.width, bounds.height);
+            table = SobelMath.normalizationTable(maxGradient, pool.acquireInts(maxGradient + 1));
+            int fromX = Math.max(0, 1 - dx);
+            int toX = Math.min(bounds.width, haloWidth - 1 - dx);
+            for (int y = Math.max(0, 1 - dy); y < Math.min(bounds.height, haloHeight - 1 - dy); y++) {
+                int offset = (y + dy) * haloWidth + dx;
+                for (int x = offset + fromX; x < offset + toX; x++) {
+                    gradients[x] = table[gradients[x]];
+                }
+                Rasters.setGrayRow(output, y, gradients, offset, fromX, toX);
+            }
+            Metrics.end(event);
+        } finally {
+            pool.release(table);
+            pool.release(gradients);
+            pool.release(grayScale);
+        }
+
+        return output;
+    }
+}
@@ -0,0 +1,169 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.Precision;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A utility class implementing the Sobel edge detection algorithm on primitive raster data.
+ * It produces exactly the same pixels as {@link SobelStandard#convert(BufferedImage)}, but instead of
+ * calling {@code getRGB} and allocating a {@link java.awt.Color} nine times per pixel, it reads the
+ * backing array of the image raster once into a flat, row-major grayscale array, convolves that array
+ * and writes the normalized result straight into the raster of the output image.
+ *
+ * <p>All intermediate data is kept in one-dimensional arrays indexed by {@code y * width + x}, so every
+ * pass walks memory sequentially. These arrays come from the shared {@link BufferPool}, and with
+ * {@link #convert(BufferedImage, BufferedImage)} the caller also provides the output image, so a loop over
+ * same-size images allocates nothing once the pool is warm.</p>
+ *
+ * <p>The {@link Precision} overloads trade exactness for speed with integer-only arithmetic; the default is
+ * {@link Precision#EXACT}.</p>
+ */
+public class SobelRaster {
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "raster";
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelRaster() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts an input image to its edge-detected version using the Sobel operator.
+     * The process involves converting the image to grayscale, computing edge colors together with the
+     * maximum gradient, and normalizing the result to create the final edge-detected image.
+     *
+     * @param image the input image to be processed
+     * @return a new BufferedImage containing the edge-detected version of the input image
+     */
+    public static BufferedImage convert(BufferedImage image) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()));
+    }
+
+    /**
+     * Converts an input image to its edge-detected version, writing every pixel of a caller-provided output
+     * image. The border, which {@link SobelStandard} leaves untouched, is cleared. The maximum gradient is
+     * found during the convolution, so {@link Metrics} times grayscale, convolution and normalization only.
+     *
+     * @param image  the input image to be processed
+     * @param output the image receiving the result, of the same size as {@code image} and any type
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return convert(image, output, Precision.EXACT);
+    }
+
+    /**
+     * Converts an input image to its edge-detected version with the arithmetic of the given precision.
+     *
+     * @param image     the input image to be processed
+     * @param precision the precision mode
+     * @return a new BufferedImage containing the edge-detected version of the input image
+     */
+    public static BufferedImage convert(BufferedImage image, Precision precision) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()), precision);
+    }
+
+    /**
+     * Converts an input image into a caller-provided output image with the arithmetic of the given precision,
+     * like {@link #convert(BufferedImage, BufferedImage)}.
+     *
+     * @param image     the input image to be processed
+     * @param output    the image receiving the result, of the same size as {@code image} and any type
+     * @param precision the precision mode
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output, Precision precision) {
+        Rasters.requireSameSize(image, output);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferPool pool = BufferPool.shared();
+
+        int[] grayScale = pool.acquireInts(width * height);
+        int[] edgeColors = pool.acquireInts(width * height);
+        try {
+            StageEvent event = Metrics.begin(Stage.GRAYSCALE, ENGINE, width, height);
+            for (int y = 0; y < height; y++) {
+                Rasters.grayScaleRow(precision, image, y, grayScale, y * width);
+            }
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+            int maxGradient = computeEdgeColors(precision, grayScale, width, height, edgeColors);
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+            norm(maxGradient, edgeColors, output);
+            Metrics.end(event);
+        } finally {
+            pool.release(edgeColors);
+            pool.release(grayScale);
+        }
+
+        return output;
+    }
+
+    /**
+     * Computes the edge colors of all interior pixels and tracks the maximum gradient on the way.
+     *
+     * @param precision  the precision mode
+     * @param grayScale  the row-major grayscale values of the image
+     * @param width      the image width
+     * @param height     the image height
+     * @param edgeColors the row-major destination of the gradient magnitudes
+     * @return the maximum gradient value found, or -1 if the image has no interior pixels
+     */
+    private static int computeEdgeColors(Precision precision, int[] grayScale, int width, int height, int[] edgeColors) {
+        int max = -1;
+
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            int rowMax = SobelMath.gradientRow(precision, grayScale, row - width, grayScale, row, grayScale, row + width,
+                    width, edgeColors, row);
+            if (max < rowMax) {
+                max = rowMax;
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Normalizes the edge values and writes them into the output image, clearing its border.
+     *
+     * @param maxGradient the maximum gradient value used for normalization
+     * @param edgeColors  the row-major gradient magnitudes
+     * @param output      the output image
+     */
+    private static void norm(int maxGradient, int[] edgeColors, BufferedImage output) {
+        int width = output.getWidth();
+        int height = output.getHeight();
+        BufferPool pool = BufferPool.shared();
+        int[] table = SobelMath.normalizationTable(maxGradient, pool.acquireInts(maxGradient + 1));
+
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = row + 1; x < row + width - 1; x++) {
+                edgeColors[x] = table[edgeColors[x]];
+            }
+            Rasters.setGrayRow(output, y, edgeColors, row, 1, width - 1);
+        }
+        Rasters.clearBorder(output);
+        pool.release(table);
+    }
+}
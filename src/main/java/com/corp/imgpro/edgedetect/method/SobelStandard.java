@@ -1,6 +1,10 @@
 package com.corp.imgpro.edgedetect.method;
 
 import com.corp.imgpro.edgedetect.common.Filters;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -16,6 +20,11 @@ import java.awt.image.BufferedImage;
  */
 public class SobelStandard {
 
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "standard";
+
     /**
      * Private constructor to prevent instantiation of this utility class.
      *
@@ -28,16 +37,45 @@ public class SobelStandard {
     /**
      * Converts an input image to its edge-detected version using the Sobel operator.
      * The process involves computing edge colors, finding the maximum gradient,
-     * and normalizing the result to create the final edge-detected image.
+     * and normalizing the result to create the final edge-detected image. Each of these stages is timed by
+     * {@link Metrics}; grayscale conversion is part of the convolution stage.
      *
      * @param image the input image to be processed
-     * @return a new BufferedImage containing the edge-detected version of the input image
+     * @return a new BufferedImage of the input image's type containing the edge-detected version of the input image
      */
     public static BufferedImage convert(BufferedImage image) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()));
+    }
+
+    /**
+     * Converts an input image into a caller-provided output image of the same size, with the same stages and
+     * arithmetic as {@link #convert(BufferedImage)}. The border of the output is cleared, as a reused output may
+     * hold an earlier edge map.
+     *
+     * @param image  the input image to be processed
+     * @param output the image receiving the edge-detected version, of the same size as {@code image}
+     * @return {@code output}
+     * @throws IllegalArgumentException if the sizes of the images differ
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output) {
+        Rasters.requireSameSize(image, output);
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        StageEvent event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
         var edgeColorMatrix = computeEdgeColors(image);
+        Metrics.end(event);
+
+        event = Metrics.begin(Stage.MAX_REDUCTION, ENGINE, width, height);
         var maxGradient = findMaxGradient(edgeColorMatrix);
+        Metrics.end(event);
 
-        return norm(maxGradient, edgeColorMatrix, image);
+        event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+        Rasters.clearBorder(output);
+        norm(maxGradient, edgeColorMatrix, width, height, output);
+        Metrics.end(event);
+
+        return output;
     }
 
     /**
@@ -155,11 +193,27 @@ public class SobelStandard {
      * @return the normalized edge-detected image
      */
     private static BufferedImage norm(int maxGradient, int[][] edgeColorMatrix, BufferedImage image) {
-        double scale = 255.0 / maxGradient;
         int width = image.getWidth();
         int height = image.getHeight();
 
         BufferedImage normalizedImage = new BufferedImage(width, height, image.getType());
+        norm(maxGradient, edgeColorMatrix, width, height, normalizedImage);
+
+        return normalizedImage;
+    }
+
+    /**
+     * Writes the normalized edge values of the interior pixels into an image, leaving its border untouched.
+     *
+     * @param maxGradient     the maximum gradient value used for normalization
+     * @param edgeColorMatrix the matrix of edge values
+     * @param width           the image width
+     * @param height          the image height
+     * @param normalizedImage the image receiving the edge values
+     */
+    private static void norm(int maxGradient, int[][] edgeColorMatrix, int width, int height,
+                             BufferedImage normalizedImage) {
+        double scale = 255.0 / maxGradient;
 
         for (int i = 1; i < width - 1; i++) {
             for (int j = 1; j < height - 1; j++) {
@@ -170,7 +224,54 @@ public class SobelStandard {
                 normalizedImage.setRGB(i, j, edgeColor);
             }
         }
+    }
 
-        return normalizedImage;
+    /**
+     * The individual stages of {@link SobelStandard}, for the stage benchmarks and for tests comparing the
+     * intermediate results of other engines. The stages stay private to the engine; this hook only forwards to
+     * them and is not meant for conversions, which go through {@link SobelStandard#convert(BufferedImage)}.
+     */
+    public static final class Stages {
+
+        /**
+         * Private constructor to prevent instantiation of this utility class.
+         *
+         * @throws IllegalStateException always, as this class should not be instantiated
+         */
+        private Stages() {
+            throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+        }
+
+        /**
+         * Runs the fused grayscale conversion and convolution.
+         *
+         * @param image the input image
+         * @return the gradient magnitudes, indexed by {@code [x][y]}, 0 on the border
+         */
+        public static int[][] computeEdgeColors(BufferedImage image) {
+            return SobelStandard.computeEdgeColors(image);
+        }
+
+        /**
+         * Finds the maximum gradient of the interior pixels.
+         *
+         * @param edgeColorMatrix the gradient magnitudes
+         * @return the maximum gradient, -1 if the image has no interior pixel
+         */
+        public static int findMaxGradient(int[][] edgeColorMatrix) {
+            return SobelStandard.findMaxGradient(edgeColorMatrix);
+        }
+
+        /**
+         * Normalizes the gradient magnitudes into a new image of the type of the input image.
+         *
+         * @param maxGradient     the maximum gradient
+         * @param edgeColorMatrix the gradient magnitudes
+         * @param image           the input image
+         * @return the edge map
+         */
+        public static BufferedImage norm(int maxGradient, int[][] edgeColorMatrix, BufferedImage image) {
+            return SobelStandard.norm(maxGradient, edgeColorMatrix, image);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,178 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A utility class implementing a row-streaming variant of the Sobel edge detection algorithm.
+ * Instead of materializing the whole image as a grayscale or gradient matrix of {@code int}s, it keeps
+ * a ring of three grayscale rows and slides it down the image, computing the gradients of one row at a
+ * time. The maximum gradient is tracked while the gradients are produced, so no separate pass is needed.
+ *
+ * <p>Gradients are kept in a compact {@code char} store: with 8-bit grayscale input the Sobel responses
+ * are bounded by ±1020, so the magnitude never exceeds 1443 and always fits into 16 bits. The working
+ * set is therefore about two bytes per pixel plus four rows, which is at most twice the size of the
+ * smallest supported output raster. The output is identical to {@link SobelStandard#convert(BufferedImage)}.</p>
+ */
+public class SobelStreaming {
+    private static final Logger logger = LoggerFactory.getLogger(SobelStreaming.class);
+
+    /**
+     * Number of grayscale rows kept in the sliding window.
+     */
+    private static final int WINDOW_ROWS = 3;
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "streaming";
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelStreaming() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts an input image to its edge-detected version using the Sobel operator, streaming the image
+     * row by row through a three-row window.
+     *
+     * @param image the input image to be processed
+     * @return a new BufferedImage containing the edge-detected version of the input image
+     */
+    public static BufferedImage convert(BufferedImage image) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()));
+    }
+
+    /**
+     * Converts an input image to its edge-detected version, writing every pixel of a caller-provided output
+     * image. The border, which {@link SobelStandard} leaves untouched, is cleared. The gradient store and the
+     * rows come from the shared {@link BufferPool}, so with a reused output nothing is allocated per image.
+     * Grayscale conversion and the maximum are part of the convolution stage timed by {@link Metrics}.
+     *
+     * @param image  the input image to be processed
+     * @param output the image receiving the result, of the same size as {@code image} and any type
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output) {
+        Rasters.requireSameSize(image, output);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferPool pool = BufferPool.shared();
+
+        char[] edgeColors = pool.acquireChars(width * height);
+        int[] rows = pool.acquireInts((WINDOW_ROWS + 1) * width);
+        try {
+            StageEvent event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+            int maxGradient = computeEdgeColors(image, edgeColors, rows);
+            Metrics.end(event);
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("[Streaming] {}x{} peak working set (bytes): {}", width, height, workingSetBytes(width, height));
+            }
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+            norm(maxGradient, edgeColors, rows, output);
+            Metrics.end(event);
+        } finally {
+            pool.release(rows);
+            pool.release(edgeColors);
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the number of bytes of working memory used by {@link #convert(BufferedImage)} for an image
+     * of the given size, excluding the output image itself.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @return the size of the gradient store, the grayscale window and the row buffer in bytes
+     */
+    public static long workingSetBytes(int width, int height) {
+        long gradientStore = (long) width * height * Character.BYTES;
+        long rows = (long) (WINDOW_ROWS + 1) * width * Integer.BYTES;
+
+        return gradientStore + rows;
+    }
+
+    /**
+     * Streams the image through the grayscale window and stores the gradient magnitudes of all interior
+     * pixels, tracking the maximum on the way.
+     *
+     * @param image      the input image
+     * @param edgeColors the row-major destination of the gradient magnitudes
+     * @param rows       scratch space for the {@value #WINDOW_ROWS} window rows followed by one output row
+     * @return the maximum gradient value found, or -1 if the image has no interior pixels
+     */
+    private static int computeEdgeColors(BufferedImage image, char[] edgeColors, int[] rows) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int rowBuffer = WINDOW_ROWS * width;
+        int max = -1;
+
+        if (height < WINDOW_ROWS) {
+            return max;
+        }
+
+        Rasters.grayScaleRow(image, 0, rows, 0);
+        Rasters.grayScaleRow(image, 1, rows, width);
+
+        for (int y = 1; y < height - 1; y++) {
+            int above = ((y - 1) % WINDOW_ROWS) * width;
+            int row = (y % WINDOW_ROWS) * width;
+            int below = ((y + 1) % WINDOW_ROWS) * width;
+            Rasters.grayScaleRow(image, y + 1, rows, below);
+
+            int rowMax = SobelMath.gradientRow(rows, above, rows, row, rows, below, width, rows, rowBuffer);
+            if (max < rowMax) {
+                max = rowMax;
+            }
+
+            int offset = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                edgeColors[offset + x] = (char) rows[rowBuffer + x];
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Normalizes the stored edge values row by row and writes them into the output image, clearing its border.
+     *
+     * @param maxGradient the maximum gradient value used for normalization
+     * @param edgeColors  the row-major gradient magnitudes
+     * @param rowBuffer   a scratch row of at least {@code width} elements
+     * @param output      the output image
+     */
+    private static void norm(int maxGradient, char[] edgeColors, int[] rowBuffer, BufferedImage output) {
+        int width = output.getWidth();
+        int height = output.getHeight();
+        BufferPool pool = BufferPool.shared();
+        int[] table = SobelMath.normalizationTable(maxGradient, pool.acquireInts(maxGradient + 1));
+
+        for (int y = 1; y < height - 1; y++) {
+            int offset = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                rowBuffer[x] = table[edgeColors[offset + x]];
+            }
+            Rasters.setGrayRow(output, y, rowBuffer, 0, 1, width - 1);
+        }
+        Rasters.clearBorder(output);
+        pool.release(table);
+    }
+}
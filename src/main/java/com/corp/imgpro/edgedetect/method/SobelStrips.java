@@ -0,0 +1,415 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Vector;
+
+/**
+ * A utility class implementing bounded-memory Sobel edge detection for images too large to decode at once.
+ * The input is read in horizontal strips through {@link ImageReadParam#setSourceRegion(Rectangle)}, each with
+ * a one-row halo above and below, and the output is pulled strip by strip by an {@link ImageWriter}. Heap use
+ * depends only on the image width and the strip height, never on the image height.
+ *
+ * <p>The global maximum gradient is handled with a two-pass scheme: the first pass decodes and convolves every
+ * strip once, tracks the maximum and spills the 16-bit gradients sequentially to a temporary file; the second
+ * pass reads the spilled gradients back strip by strip, normalizes them and hands them to the writer. The input
+ * is therefore decoded only once. The edge map is written as 8-bit RGB, with the same levels that
+ * {@link SobelStandard#convert(BufferedImage)} produces.</p>
+ *
+ * <p>Writers that request their input row by row or tile by tile, such as the PNG and TIFF writers, keep
+ * memory flat; readers with random access to rows, such as TIFF, avoid re-decoding earlier rows per strip.</p>
+ */
+public class SobelStrips {
+    private static final Logger logger = LoggerFactory.getLogger(SobelStrips.class);
+
+    /**
+     * Default number of rows per strip.
+     */
+    public static final int DEFAULT_STRIP_ROWS = 256;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelStrips() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts an image file to its edge map with strips of {@link #DEFAULT_STRIP_ROWS} rows.
+     *
+     * @param input  the input image file
+     * @param output the output image file
+     * @param format the ImageIO format name of the output, e.g. {@code png} or {@code tiff}
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    public static void convert(Path input, Path output, String format) throws IOException {
+        convert(input, output, format, DEFAULT_STRIP_ROWS);
+    }
+
+    /**
+     * Converts an image file to its edge map, holding at most one strip of the given height in memory.
+     *
+     * @param input     the input image file
+     * @param output    the output image file
+     * @param format    the ImageIO format name of the output, e.g. {@code png} or {@code tiff}
+     * @param stripRows the number of rows per strip
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    public static void convert(Path input, Path output, String format, int stripRows) throws IOException {
+        if (stripRows < 1) {
+            throw new IllegalArgumentException("Strip height must be positive, got %d".formatted(stripRows));
+        }
+        Path spillFile = Files.createTempFile("edgedetect-gradients", ".bin");
+
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(input.toFile());
+             FileChannel spill = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.DELETE_ON_CLOSE)) {
+            if (imageInput == null) {
+                throw new IOException("Cannot open %s".formatted(input));
+            }
+            ImageReader reader = reader(imageInput, input);
+            try {
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                int maxGradient = computeEdgeColors(reader, width, height, stripRows, spill);
+                logger.info("[Strips] {} ({}x{}) max gradient: {}", input, width, height, maxGradient);
+
+                write(new EdgeImage(width, height, stripRows, SobelMath.normalizationTable(maxGradient), spill),
+                        output, format);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * First pass: decodes every strip with its halo, convolves it, spills the gradients and tracks the maximum.
+     *
+     * @param reader    the image reader positioned on the input
+     * @param width     the image width
+     * @param height    the image height
+     * @param stripRows the number of rows per strip
+     * @param spill     the channel receiving the 16-bit gradients, row-major
+     * @return the maximum gradient value found, or -1 if the image has no interior pixels
+     * @throws IOException if a strip cannot be read or spilled
+     */
+    private static int computeEdgeColors(ImageReader reader, int width, int height, int stripRows, FileChannel spill)
+            throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        int[] grayScale = new int[(stripRows + 2) * width];
+        int[] rowBuffer = new int[width];
+        ByteBuffer spillBuffer = ByteBuffer.allocateDirect(stripRows * width * Character.BYTES);
+        CharBuffer gradients = spillBuffer.asCharBuffer();
+        int max = -1;
+
+        for (int from = 0; from < height; from += stripRows) {
+            int to = Math.min(height, from + stripRows);
+            int haloFrom = Math.max(0, from - 1);
+            int haloTo = Math.min(height, to + 1);
+
+            param.setSourceRegion(new Rectangle(0, haloFrom, width, haloTo - haloFrom));
+            BufferedImage strip = reader.read(0, param);
+            for (int y = haloFrom; y < haloTo; y++) {
+                Rasters.grayScaleRow(strip, y - haloFrom, grayScale, (y - haloFrom) * width);
+            }
+
+            gradients.clear();
+            for (int y = from; y < to; y++) {
+                if (y > 0 && y < height - 1) {
+                    int row = (y - haloFrom) * width;
+                    int rowMax = SobelMath.gradientRow(grayScale, row - width, grayScale, row, grayScale, row + width,
+                            width, rowBuffer, 0);
+                    max = Math.max(max, rowMax);
+                } else {
+                    Arrays.fill(rowBuffer, 0);
+                }
+                for (int x = 0; x < width; x++) {
+                    gradients.put((char) rowBuffer[x]);
+                }
+            }
+
+            spillBuffer.clear().limit(gradients.position() * Character.BYTES);
+            long position = (long) from * width * Character.BYTES;
+            while (spillBuffer.hasRemaining()) {
+                position += spill.write(spillBuffer, position);
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Writes the edge image with the first ImageIO writer for the format.
+     *
+     * @param image  the lazily computed edge image
+     * @param output the output file, replaced if it exists
+     * @param format the ImageIO format name
+     * @throws IOException if no writer exists or the file cannot be written
+     */
+    private static void write(RenderedImage image, Path output, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No ImageIO writer for format %s".formatted(format));
+        }
+        ImageWriter writer = writers.next();
+        Files.deleteIfExists(output);
+
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output.toFile())) {
+            writer.setOutput(imageOutput);
+            writer.write(new IIOImage(image, null, null));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Returns the first ImageIO reader for the input.
+     *
+     * @param imageInput the input stream
+     * @param input      the input file, for error messages
+     * @return the reader with its input set
+     * @throws IOException if no reader understands the input
+     */
+    private static ImageReader reader(ImageInputStream imageInput, Path input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+        if (!readers.hasNext()) {
+            throw new IOException("No ImageIO reader for %s".formatted(input));
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(imageInput, false, true);
+
+        return reader;
+    }
+
+    /**
+     * Second pass: an 8-bit RGB image whose tiles are full-width strips, computed on demand from the spilled
+     * gradients. Only the most recently requested strip is kept.
+     */
+    private static final class EdgeImage implements RenderedImage {
+        private final int width;
+        private final int height;
+        private final int stripRows;
+        private final int[] table;
+        private final FileChannel spill;
+        private final ColorModel colorModel;
+        private final SampleModel sampleModel;
+        private final ByteBuffer spillBuffer;
+        private int cachedStrip = -1;
+        private Raster cachedTile;
+
+        EdgeImage(int width, int height, int stripRows, int[] table, FileChannel spill) {
+            this.width = width;
+            this.height = height;
+            this.stripRows = stripRows;
+            this.table = table;
+            this.spill = spill;
+            this.colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false,
+                    Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+            this.sampleModel = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, width, stripRows, 3, width * 3,
+                    new int[]{0, 1, 2});
+            this.spillBuffer = ByteBuffer.allocateDirect(stripRows * width * Character.BYTES);
+        }
+
+        @Override
+        public synchronized Raster getTile(int tileX, int tileY) {
+            if (tileY == cachedStrip) {
+                return cachedTile;
+            }
+            int from = tileY * stripRows;
+            int rows = Math.min(stripRows, height - from);
+            WritableRaster tile = Raster.createWritableRaster(sampleModel, new Point(0, from));
+            byte[] samples = ((DataBufferByte) tile.getDataBuffer()).getData();
+
+            try {
+                spillBuffer.clear().limit(rows * width * Character.BYTES);
+                long position = (long) from * width * Character.BYTES;
+                while (spillBuffer.hasRemaining()) {
+                    int read = spill.read(spillBuffer, position);
+                    if (read < 0) {
+                        throw new IOException("Gradient spill file ended early at strip %d".formatted(tileY));
+                    }
+                    position += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            CharBuffer gradients = spillBuffer.flip().asCharBuffer();
+            for (int y = 0; y < rows; y++) {
+                int global = from + y;
+                for (int x = 0; x < width; x++) {
+                    char g = gradients.get();
+                    if (global > 0 && global < height - 1 && x > 0 && x < width - 1) {
+                        byte level = (byte) table[g];
+                        int i = (y * width + x) * 3;
+                        samples[i] = level;
+                        samples[i + 1] = level;
+                        samples[i + 2] = level;
+                    }
+                }
+            }
+
+            cachedStrip = tileY;
+            cachedTile = tile;
+            return tile;
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            Rectangle bounds = rect.intersection(new Rectangle(0, 0, width, height));
+            WritableRaster data = Raster.createWritableRaster(
+                    sampleModel.createCompatibleSampleModel(bounds.width, bounds.height), new Point(bounds.x, bounds.y));
+            copyInto(data, bounds);
+            return data;
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            WritableRaster target = raster != null ? raster : colorModel.createCompatibleWritableRaster(width, height);
+            copyInto(target, target.getBounds().intersection(new Rectangle(0, 0, width, height)));
+            return target;
+        }
+
+        private void copyInto(WritableRaster target, Rectangle bounds) {
+            if (bounds.isEmpty()) {
+                return;
+            }
+            for (int tileY = bounds.y / stripRows; tileY <= (bounds.y + bounds.height - 1) / stripRows; tileY++) {
+                Raster tile = getTile(0, tileY);
+                Rectangle overlap = tile.getBounds().intersection(bounds);
+                target.setRect(tile.createChild(overlap.x, overlap.y, overlap.width, overlap.height,
+                        overlap.x, overlap.y, null));
+            }
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return colorModel;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + stripRows - 1) / stripRows;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return stripRows;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A utility class running the Sobel edge detection algorithm tile by tile and handing every finished tile to a
+ * listener, so that a viewer can show the edge map while it is being computed. Tiles are full-width bands of
+ * rows.
+ *
+ * <p>Normalization needs the maximum gradient of the whole image, which is only known after the last tile.
+ * The first pass therefore reports each tile as soon as its gradients are computed, normalized with the
+ * maximum found so far; these provisional tiles are too bright where the maximum grows later. The second pass
+ * reports every tile again with its final levels, identical to {@link SobelStandard#convert(BufferedImage)}.
+ * Border pixels are opaque black.</p>
+ *
+ * <p>The work can be cancelled between tiles.</p>
+ */
+public class SobelTiles {
+
+    /**
+     * Default number of rows per tile.
+     */
+    public static final int DEFAULT_TILE_ROWS = 64;
+
+    /**
+     * Opaque black, the color of the border pixels.
+     */
+    private static final int BLACK = 0xff000000;
+
+    /**
+     * Receives the tiles of the edge map.
+     */
+    @FunctionalInterface
+    public interface TileListener {
+
+        /**
+         * Called on the converting thread for every finished tile.
+         *
+         * @param y           the first row of the tile
+         * @param rows        the number of rows of the tile
+         * @param argb        the opaque ARGB pixels of the tile, {@code rows * width} values in row-major order;
+         *                    the array is not used by the converter afterwards
+         * @param provisional {@code true} if the tile is normalized with a preliminary maximum and will be
+         *                    reported again
+         */
+        void tileReady(int y, int rows, int[] argb, boolean provisional);
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelTiles() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts an image tile by tile, reporting every tile twice: provisionally during the gradient pass and
+     * finally during the normalization pass.
+     *
+     * @param image     the input image to be processed
+     * @param tileRows  the number of rows per tile
+     * @param listener  the receiver of the tiles
+     * @param cancelled polled between tiles; once it returns {@code true} the conversion stops
+     * @throws CancellationException if the conversion was cancelled
+     * @throws IllegalArgumentException if {@code tileRows} is not positive
+     */
+    public static void convert(BufferedImage image, int tileRows, TileListener listener, BooleanSupplier cancelled) {
+        if (tileRows < 1) {
+            throw new IllegalArgumentException("Tile height must be positive, got %d".formatted(tileRows));
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferPool pool = BufferPool.shared();
+
+        int[] grayScale = pool.acquireInts(width * height);
+        int[] edgeColors = pool.acquireInts(width * height);
+        int[] table = null;
+        try {
+            int maxGradient = computeEdgeColors(image, tileRows, grayScale, edgeColors, listener, cancelled);
+            table = SobelMath.normalizationTable(maxGradient, pool.acquireInts(maxGradient + 1));
+            for (int from = 0; from < height; from += tileRows) {
+                checkCancelled(cancelled);
+                int to = Math.min(height, from + tileRows);
+                listener.tileReady(from, to - from, tile(edgeColors, width, height, from, to, table, 1), false);
+            }
+        } finally {
+            pool.release(table);
+            pool.release(edgeColors);
+            pool.release(grayScale);
+        }
+    }
+
+    /**
+     * Computes the gradient magnitudes tile by tile and reports each tile normalized with the maximum so far.
+     *
+     * @param image      the input image
+     * @param tileRows   the number of rows per tile
+     * @param grayScale  the row-major destination of the grayscale values
+     * @param edgeColors the row-major destination of the gradient magnitudes
+     * @param listener   the receiver of the provisional tiles
+     * @param cancelled  polled between tiles
+     * @return the maximum gradient value found, or -1 if the image has no interior pixels
+     */
+    private static int computeEdgeColors(BufferedImage image, int tileRows, int[] grayScale, int[] edgeColors,
+                                         TileListener listener, BooleanSupplier cancelled) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int max = -1;
+        int grayRows = 0;
+
+        for (int from = 0; from < height; from += tileRows) {
+            checkCancelled(cancelled);
+            int to = Math.min(height, from + tileRows);
+            for (; grayRows < Math.min(height, to + 1); grayRows++) {
+                Rasters.grayScaleRow(image, grayRows, grayScale, grayRows * width);
+            }
+            for (int y = Math.max(1, from); y < Math.min(to, height - 1); y++) {
+                int row = y * width;
+                int rowMax = SobelMath.gradientRow(grayScale, row - width, grayScale, row, grayScale, row + width,
+                        width, edgeColors, row);
+                if (max < rowMax) {
+                    max = rowMax;
+                }
+            }
+            listener.tileReady(from, to - from, tile(edgeColors, width, height, from, to, null, max), true);
+        }
+
+        return max;
+    }
+
+    /**
+     * Builds the ARGB pixels of a tile from the gradient magnitudes.
+     *
+     * @param edgeColors the row-major gradient magnitudes
+     * @param width      the image width
+     * @param height     the image height
+     * @param from       the first row of the tile
+     * @param to         the row after the tile
+     * @param table      the normalization table, or {@code null} to scale by {@code max} directly
+     * @param max        the maximum gradient to scale by when {@code table} is {@code null}
+     * @return the pixels of the tile
+     */
+    private static int[] tile(int[] edgeColors, int width, int height, int from, int to, int[] table, int max) {
+        int[] argb = new int[(to - from) * width];
+        double scale = 255.0 / Math.max(1, max);
+
+        for (int y = from, i = 0; y < to; y++) {
+            boolean borderRow = y == 0 || y == height - 1;
+            for (int x = 0; x < width; x++, i++) {
+                if (borderRow || x == 0 || x == width - 1) {
+                    argb[i] = BLACK;
+                } else {
+                    int g = edgeColors[y * width + x];
+                    int level = table != null ? table[g] : (int) (g * scale);
+                    argb[i] = BLACK | level * 0x010101;
+                }
+            }
+        }
+
+        return argb;
+    }
+
+    /**
+     * Throws if the conversion has been cancelled.
+     *
+     * @param cancelled the cancellation flag
+     * @throws CancellationException if the flag is set
+     */
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Edge detection cancelled");
+        }
+    }
+}
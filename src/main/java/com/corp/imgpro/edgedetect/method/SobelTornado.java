@@ -1,46 +1,105 @@
 package com.corp.imgpro.edgedetect.method;
 
-import com.corp.imgpro.edgedetect.common.Filters;
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.manchester.tornado.api.TaskGraph;
 import uk.ac.manchester.tornado.api.TornadoExecutionPlan;
+import uk.ac.manchester.tornado.api.TornadoExecutionResult;
+import uk.ac.manchester.tornado.api.TornadoProfilerResult;
 import uk.ac.manchester.tornado.api.annotations.Parallel;
-import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.annotations.Reduce;
 import uk.ac.manchester.tornado.api.enums.DataTransferMode;
 import uk.ac.manchester.tornado.api.enums.ProfilerMode;
 import uk.ac.manchester.tornado.api.exceptions.TornadoExecutionPlanException;
 import uk.ac.manchester.tornado.api.math.TornadoMath;
-import uk.ac.manchester.tornado.api.types.matrix.Matrix2DInt;
+import uk.ac.manchester.tornado.api.types.arrays.IntArray;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 
 /**
  * Implementation of the Sobel edge detection algorithm using TornadoVM for GPU acceleration.
  * This class provides functionality to detect edges in images by computing intensity gradients
  * using Sobel operators and processing the computation on available GPU devices.
  *
- * <p>The class uses TornadoVM's TaskGraph API to parallelize the edge detection computation
- * and optimize performance through GPU execution. The implementation includes the following main steps:</p>
+ * <p>The class uses TornadoVM's TaskGraph API to run the convolution, the maximum reduction and the
+ * normalization on the device. The luminance and the normalization levels are the double-precision steps of
+ * {@link SobelStandard}, and the kernels use integer and single-precision arithmetic only, so they run on devices
+ * without {@code cl_khr_fp64} and still match the CPU exactly:</p>
+ * <ul>
+ *     <li>The grayscale values stay on the host: they are computed there in double precision and copied to the
+ *     device, one integer per pixel.</li>
+ *     <li>The gradient magnitudes stay on the device. Only the maximum gradient is read back; the host builds the
+ *     normalization table of that maximum, at most {@link #TABLE_SIZE} integers, and the device looks every
+ *     magnitude up in it. The gray levels are copied back, one integer per pixel.</li>
+ * </ul>
+ *
+ * <p>The execution plan holds two task graphs, run one after the other, sharing the magnitudes on the
+ * device:</p>
  * <ol>
- *     <li>Converting input image to matrix representation</li>
- *     <li>Computing edge colors using Sobel operators</li>
- *     <li>Normalizing the results</li>
- *     <li>Converting the processed matrix back to an image</li>
+ *     <li>{@code edge-detection-graph}, with the tasks {@code edges}, computing the gradient magnitudes, and
+ *     {@code max}, finding the maximum gradient with a device-side reduction</li>
+ *     <li>{@code normalization-graph}, with the task {@code normalize}, looking the magnitudes up in the
+ *     normalization table</li>
  * </ol>
  *
+ * <p>Execution plans are cached per image size and device in a {@link TornadoPlanCache}, so kernels are
+ * compiled and device buffers allocated only once per size; {@link #shutdown()} releases them. The device
+ * is selected with {@link TornadoDeviceIndex#DEVICE_PROPERTY}.</p>
+ *
+ * <p>The host-side copies and the table are timed by {@link Metrics}; the transfers, kernel compilation and kernel times are
+ * taken from the TornadoVM profiler of every execution and reported as stages of their own.</p>
+ *
+ * <p>All arrays are flat and row-major, indexed by {@code y * width + x}. The kernels use the same
+ * arithmetic as {@link SobelStandard}, so the result can be verified against it on any OpenCL device,
+ * including CPU implementations such as PoCL. The host grayscale copy, the maximum and normalization kernels and
+ * the profiler bookkeeping are shared with {@link GradientTornado}, which runs other gradient operators.</p>
+ *
  * <p>This class is designed as a utility class and cannot be instantiated.</p>
  *
  * @see uk.ac.manchester.tornado.api.TaskGraph
  * @see uk.ac.manchester.tornado.api.TornadoExecutionPlan
  * @see java.awt.image.BufferedImage
- * @see uk.ac.manchester.tornado.api.types.matrix.Matrix2DInt
+ * @see uk.ac.manchester.tornado.api.types.arrays.IntArray
  */
 
 public class SobelTornado {
     private static final Logger logger = LoggerFactory.getLogger(SobelTornado.class);
 
+    /**
+     * System property holding the maximum number of cached execution plans.
+     */
+    public static final String PLAN_CACHE_PROPERTY = "edgedetect.tornado.plans";
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "tornado";
+
+    /**
+     * The size of the device normalization table, which has room for every Sobel gradient magnitude.
+     */
+    static final int TABLE_SIZE = (int) GradientOperator.SOBEL.maxMagnitude() + 1;
+
+    /**
+     * Name of the task graph computing the gradient magnitudes, from which the normalization graph consumes them.
+     */
+    private static final String GRADIENT_GRAPH = "edge-detection-graph";
+
+    /**
+     * Execution plans reused across images of the same size on the same device.
+     */
+    private static final TornadoPlanCache<EdgeDetectionPlan> planCache = new TornadoPlanCache<>("edge-detection-plans",
+            Integer.getInteger(PLAN_CACHE_PROPERTY, 4), EdgeDetectionPlan::new);
+
     /**
      * Private constructor to prevent instantiation of this utility class.
      *
@@ -50,192 +109,335 @@ public class SobelTornado {
         throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
     }
 
+    /**
+     * Converts an input image to an edge-detected version using the Sobel operator with TornadoVM acceleration
+     * on the device configured with {@link TornadoDeviceIndex#DEVICE_PROPERTY}.
+     *
+     * @param image the input BufferedImage to process
+     * @return a new BufferedImage containing the edge-detected version of the input image
+     */
+    public static BufferedImage convert(BufferedImage image) {
+        return convert(image, TornadoDeviceIndex.configured());
+    }
+
     /**
      * Converts an input image to an edge-detected version using the Sobel operator with TornadoVM acceleration.
      * The method processes the image in the following steps:
      * <ol>
-     *     <li>Converts the input image to a matrix</li>
-     *     <li>Computes edge colors using Sobel operators</li>
-     *     <li>Normalizes the results using the maximum gradient</li>
-     *     <li>Converts the processed matrix back to an image</li>
+     *     <li>Looks up the cached execution plan for the image size and device, building it on a miss</li>
+     *     <li>Copies the grayscale values of the input image into the plan's device array</li>
+     *     <li>Runs edge detection and maximum reduction on the device</li>
+     *     <li>Builds the normalization table of the maximum gradient and runs the normalization on the device</li>
+     *     <li>Copies the gray levels into the output image</li>
      * </ol>
      *
-     * @param image the input BufferedImage to process
+     * @param image  the input BufferedImage to process
+     * @param device the device running the task graph
      * @return a new BufferedImage containing the edge-detected version of the input image
      */
-    public static BufferedImage convert(BufferedImage image) {
-        Matrix2DInt inputImageMatrix = convertImageToMatrix(image);
-        Matrix2DInt edgeImageMatrix = computeEdgeColors(inputImageMatrix);
-        Matrix2DInt outputImageMatrix = new Matrix2DInt(edgeImageMatrix.getNumRows(), edgeImageMatrix.getNumColumns());
-
-        int maxGradient = findMaxGradient(edgeImageMatrix);
-
-        //@formatter:off
-        TaskGraph taskGraph = new TaskGraph("edge-detection-graph")
-                .transferToDevice(DataTransferMode.FIRST_EXECUTION, maxGradient, edgeImageMatrix, outputImageMatrix)
-                .task("norm", SobelTornado::norm, maxGradient, edgeImageMatrix, outputImageMatrix)
-                .transferToHost(DataTransferMode.EVERY_EXECUTION, outputImageMatrix);
-        //@formatter:on
-
-        try (TornadoExecutionPlan tornadoExecutionPlan = new TornadoExecutionPlan(taskGraph.snapshot())) {
-            TornadoDevice device = TornadoExecutionPlan.getDevice(0, 1);
-            tornadoExecutionPlan.withProfiler(ProfilerMode.SILENT).withDevice(device).execute();
-        } catch (TornadoExecutionPlanException e) {
-            logger.error("Tornado execution error:", e);
-        }
-
-        return convertMatrixToImage(outputImageMatrix, image.getType());
+    public static BufferedImage convert(BufferedImage image, TornadoDeviceIndex device) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()), device);
     }
 
     /**
-     * Converts a BufferedImage to a Matrix2DInt representation.
+     * Converts an input image into a caller-provided output image of the same size on the device configured
+     * with {@link TornadoDeviceIndex#DEVICE_PROPERTY}.
      *
-     * @param image the input BufferedImage to convert
-     * @return a Matrix2DInt containing the image data
+     * @param image  the input BufferedImage to process
+     * @param output the image receiving the edge-detected version, for example from {@link BufferPool#acquireImage}
+     * @return {@code output}
+     * @throws IllegalArgumentException if the sizes of the images differ
      */
-    private static Matrix2DInt convertImageToMatrix(BufferedImage image) {
-        Matrix2DInt imageMatrix = new Matrix2DInt(image.getWidth(), image.getHeight());
+    public static BufferedImage convert(BufferedImage image, BufferedImage output) {
+        return convert(image, output, TornadoDeviceIndex.configured());
+    }
 
-        for (int x = 0; x < image.getWidth(); x++) {
-            for (int y = 0; y < image.getHeight(); y++) {
-                imageMatrix.set(x, y, image.getRGB(x, y));
+    /**
+     * Converts an input image into a caller-provided output image of the same size. The host and device arrays
+     * belong to the cached execution plan, so repeated conversions of one image size allocate nothing per image.
+     *
+     * @param image  the input BufferedImage to process
+     * @param output the image receiving the edge-detected version
+     * @param device the device running the task graph
+     * @return {@code output}
+     * @throws IllegalArgumentException if the sizes of the images differ
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output, TornadoDeviceIndex device) {
+        Rasters.requireSameSize(image, output);
+        while (true) {
+            EdgeDetectionPlan plan = planCache.acquire(image.getWidth(), image.getHeight(), device);
+            synchronized (plan) {
+                if (!plan.isClosed()) {
+                    return plan.execute(image, output);
+                }
             }
         }
+    }
 
-        return imageMatrix;
+    /**
+     * Returns the counters of the execution plan cache.
+     *
+     * @return the hit, miss, eviction and compilation statistics
+     */
+    public static TornadoPlanCache.Stats planCacheStats() {
+        return planCache.stats();
     }
 
     /**
-     * Converts a Matrix2DInt back to a BufferedImage.
+     * Closes all cached execution plans and releases their device memory. Further conversions build new plans.
+     */
+    public static void shutdown() {
+        planCache.close();
+    }
+
+    /**
+     * Reports the device-side times of one execution to a plan cache and to {@link Metrics}. Compilation is
+     * only reported by the execution that compiled the kernels.
      *
-     * @param imageMatrix the matrix to convert
-     * @param imageType   the type of the output image
-     * @return a new BufferedImage representing the matrix data
-     */
-    private static BufferedImage convertMatrixToImage(Matrix2DInt imageMatrix, int imageType) {
-        BufferedImage image = new BufferedImage(imageMatrix.getNumRows(), imageMatrix.getNumColumns(), imageType);
-        for (int x = 0; x < imageMatrix.getNumRows(); x++) {
-            for (int y = 0; y < imageMatrix.getNumColumns(); y++) {
-                image.setRGB(x, y, imageMatrix.get(x, y));
-            }
+     * @param cache   the plan cache of the executed plan
+     * @param profile the profiler result of the execution
+     * @param engine  the engine tag of the stage metrics
+     * @param width   the image width
+     * @param height  the image height
+     */
+    static void recordProfile(TornadoPlanCache<?> cache, TornadoProfilerResult profile, String engine,
+                              int width, int height) {
+        long compileNanos = profile.getCompileTime();
+        cache.recordCompileTime(compileNanos);
+        if (compileNanos > 0) {
+            Metrics.record(Stage.KERNEL_COMPILE, engine, width, height, compileNanos);
         }
-
-        return image;
+        Metrics.record(Stage.HOST_TO_DEVICE, engine, width, height, profile.getDeviceWriteTime());
+        Metrics.record(Stage.DEVICE_KERNEL, engine, width, height, profile.getDeviceKernelTime());
+        Metrics.record(Stage.DEVICE_TO_HOST, engine, width, height, profile.getDeviceReadTime());
     }
 
     /**
-     * Computes edge colors using Sobel operators.
-     * This method applies both horizontal and vertical Sobel operators to detect edges.
+     * Copies the grayscale values of an image into a device array with one bulk segment copy per row. The
+     * luminance is {@link Rasters#grayScaleRow(BufferedImage, int, int[], int)}, computed in double precision
+     * like {@link SobelStandard}.
      *
-     * @param input the input image matrix
-     * @return a new matrix containing the computed edge values
+     * @param image     the input image
+     * @param grayScale the destination array, indexed by {@code y * width + x}
+     * @param rowBuffer a scratch row of {@code width} elements
      */
-    private static Matrix2DInt computeEdgeColors(Matrix2DInt input) {
-        Matrix2DInt output = new Matrix2DInt(input.getNumRows(), input.getNumColumns());
+    static void copyGrayScale(BufferedImage image, IntArray grayScale, int[] rowBuffer) {
+        int width = image.getWidth();
+        MemorySegment segment = grayScale.getSegment();
 
-        Matrix2DInt valMatrix = new Matrix2DInt(3, 3);
-        Matrix2DInt sobelXMatrix = Filters.getTornadoSobelXMatrix();
-        Matrix2DInt sobelYMatrix = Filters.getTornadoSobelYMatrix();
+        for (int y = 0; y < image.getHeight(); y++) {
+            Rasters.grayScaleRow(image, y, rowBuffer, 0);
+            MemorySegment.copy(rowBuffer, 0, segment, ValueLayout.JAVA_INT, (long) y * width * Integer.BYTES, width);
+        }
+    }
 
-        for (int i = 1; i < input.getNumRows() - 1; i++) {
-            for (int j = 1; j < input.getNumColumns() - 1; j++) {
-                valMatrix.set(0, 0, convertRGBToGrayScale(input.get(i - 1, j - 1)));
-                valMatrix.set(0, 1, convertRGBToGrayScale(input.get(i - 1, j)));
-                valMatrix.set(0, 2, convertRGBToGrayScale(input.get(i - 1, j + 1)));
+    /**
+     * Fills the host scratch table with the normalization levels of a maximum gradient, like
+     * {@link SobelMath#normalizationTable(int, int[])}, and copies the used entries into the device table.
+     *
+     * @param maxGradient the maximum gradient read back from the device
+     * @param scratch     the host table of an earlier execution, reused if it is large enough
+     * @param table       the device table, with room for {@code maxGradient + 1} entries
+     * @return the host table, to be passed to the next execution
+     */
+    static int[] uploadNormalizationTable(int maxGradient, int[] scratch, IntArray table) {
+        int[] levels = SobelMath.normalizationTable(maxGradient,
+                scratch.length > maxGradient ? scratch : new int[maxGradient + 1]);
+        MemorySegment.copy(levels, 0, table.getSegment(), ValueLayout.JAVA_INT, 0, maxGradient + 1);
+        return levels;
+    }
 
-                valMatrix.set(0, 0, convertRGBToGrayScale(input.get(i, j - 1)));
-                valMatrix.set(0, 1, convertRGBToGrayScale(input.get(i, j)));
-                valMatrix.set(0, 2, convertRGBToGrayScale(input.get(i, j + 1)));
+    /**
+     * Copies the gray levels computed on the device into an image with one bulk segment copy per row.
+     *
+     * @param levels    the gray levels, indexed by {@code y * width + x}
+     * @param output    the output image
+     * @param rowBuffer a scratch row of {@code width} elements
+     */
+    static void writeLevels(IntArray levels, BufferedImage output, int[] rowBuffer) {
+        int width = output.getWidth();
+        MemorySegment segment = levels.getSegment();
 
-                valMatrix.set(2, 0, convertRGBToGrayScale(input.get(i + 1, j - 1)));
-                valMatrix.set(2, 1, convertRGBToGrayScale(input.get(i + 1, j)));
-                valMatrix.set(2, 2, convertRGBToGrayScale(input.get(i + 1, j + 1)));
+        for (int y = 0; y < output.getHeight(); y++) {
+            MemorySegment.copy(segment, ValueLayout.JAVA_INT, (long) y * width * Integer.BYTES, rowBuffer, 0, width);
+            Rasters.setGrayRow(output, y, rowBuffer, 0, 0, width);
+        }
+    }
 
-                int gx = mask(sobelXMatrix, valMatrix);
-                int gy = mask(sobelYMatrix, valMatrix);
+    /**
+     * Computes edge colors using Sobel operators.
+     * This method applies both horizontal and vertical Sobel operators to detect edges and is annotated
+     * for parallel execution with TornadoVM. Border pixels are set to zero.
+     *
+     * @param grayScale  the grayscale values of the image
+     * @param width      the image width
+     * @param height     the image height
+     * @param edgeColors the output gradient magnitudes
+     */
+    private static void computeEdgeColors(IntArray grayScale, int width, int height, IntArray edgeColors) {
+        for (@Parallel int y = 0; y < height; y++) {
+            for (@Parallel int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if (x == 0 || y == 0 || x == width - 1 || y == height - 1) {
+                    edgeColors.set(index, 0);
+                } else {
+                    int above = index - width;
+                    int below = index + width;
 
-                float gval = TornadoMath.sqrt((float) (gx * gx) + (gy * gy));
-                int g = (int) gval;
-                output.set(i, j, g);
+                    int gx = (grayScale.get(below - 1) - grayScale.get(above - 1))
+                            + 2 * (grayScale.get(below) - grayScale.get(above))
+                            + (grayScale.get(below + 1) - grayScale.get(above + 1));
+                    int gy = (grayScale.get(above + 1) - grayScale.get(above - 1))
+                            + 2 * (grayScale.get(index + 1) - grayScale.get(index - 1))
+                            + (grayScale.get(below + 1) - grayScale.get(below - 1));
+
+                    int squared = gx * gx + gy * gy;
+                    edgeColors.set(index, isqrt(squared, (int) TornadoMath.sqrt((float) squared)));
+                }
             }
         }
-
-        return output;
     }
 
     /**
-     * Applies a mask operation between two matrices.
+     * Corrects the truncated single-precision square root of a squared gradient to the integer square root,
+     * which {@code (int) Math.sqrt} computes on the CPU. OpenCL allows a few ulp of error in {@code sqrt}, so the
+     * truncated root can be one off when the squared gradient is at or next to a perfect square.
      *
-     * @param sobelMatrix the Sobel operator matrix
-     * @param valMatrix   the values matrix
-     * @return the result of the mask operation
-     */
-    private static int mask(Matrix2DInt sobelMatrix, Matrix2DInt valMatrix) {
-        int gval = 0;
-        for (int k = 0; k < sobelMatrix.getNumRows(); k++) {
-            for (int l = 0; l < sobelMatrix.getNumColumns(); l++) {
-                gval += sobelMatrix.get(k, l) * valMatrix.get(k, l);
-            }
+     * @param squared  the squared gradient magnitude
+     * @param estimate the truncated single-precision square root of {@code squared}
+     * @return the largest {@code g} with {@code g * g <= squared}
+     */
+    static int isqrt(int squared, int estimate) {
+        int root = estimate;
+        if (root * root > squared) {
+            root--;
+        } else if ((root + 1) * (root + 1) <= squared) {
+            root++;
         }
-        return gval;
+        return root;
     }
 
     /**
-     * Normalizes the edge values and converts them to RGB colors.
-     * This method is annotated for parallel execution with TornadoVM.
+     * Finds the maximum gradient value in the edge array with a device-side reduction.
+     * The result array must be initialized with 0 before execution.
      *
-     * @param maxGradient the maximum gradient value for normalization
-     * @param input       the input matrix containing edge values
-     * @param output      the output matrix for normalized RGB values
+     * @param edgeColors  the array containing edge values
+     * @param maxGradient single-element array receiving the maximum gradient
      */
-    private static void norm(int maxGradient, Matrix2DInt input, Matrix2DInt output) {
-        double scale = 255.0 / maxGradient;
-
-        for (@Parallel int i = 1; i < input.getNumRows() - 1; i++) {
-            for (@Parallel int j = 1; j < input.getNumColumns() - 1; j++) {
-                int edgeColor = input.get(i, j);
-                edgeColor = (int) (edgeColor * scale);
-                edgeColor = 0xff000000 | (edgeColor << 16) |
-                        (edgeColor << 8) | edgeColor;
-
-                output.set(i, j, edgeColor);
-            }
+    static void findMaxGradient(IntArray edgeColors, @Reduce IntArray maxGradient) {
+        for (@Parallel int i = 0; i < edgeColors.getSize(); i++) {
+            maxGradient.set(0, TornadoMath.max(maxGradient.get(0), edgeColors.get(i)));
         }
     }
 
     /**
-     * Finds the maximum gradient value in the edge matrix.
+     * Looks every gradient magnitude up in the normalization table. The magnitudes are 0 on the border, and so
+     * are the levels, since every table maps 0 to 0.
      *
-     * @param imageMatrix the matrix containing edge values
-     * @return the maximum gradient value found
-     */
-    private static int findMaxGradient(Matrix2DInt imageMatrix) {
-        int max = -1;
-        for (int i = 1; i < imageMatrix.getNumRows() - 1; i++) {
-            for (int j = 1; j < imageMatrix.getNumColumns() - 1; j++) {
-                if (max < imageMatrix.get(i, j)) {
-                    max = imageMatrix.get(i, j);
-                }
-            }
+     * @param edgeColors the gradient magnitudes
+     * @param table      the normalization table of the maximum gradient
+     * @param levels     the output gray levels
+     */
+    static void normalize(IntArray edgeColors, IntArray table, IntArray levels) {
+        for (@Parallel int i = 0; i < edgeColors.getSize(); i++) {
+            levels.set(i, table.get(edgeColors.get(i)));
         }
-        return max;
     }
 
     /**
-     * Converts an RGB color value to its grayscale equivalent using the luminance formula.
-     * The formula used is: 0.2126R + 0.7152G + 0.0722B
-     *
-     * @param rgbValue the RGB color value to convert
-     * @return the grayscale value
-     */
-    private static int convertRGBToGrayScale(int rgbValue) {
-        Color c = new Color(rgbValue);
-        // Convert gradient value to color
-        int r = c.getRed();
-        int g = c.getGreen();
-        int b = c.getBlue();
-
-        // Linear luminance representation of RGB
-        return (int) (0.2126 * r + 0.7152 * g + 0.0722 * b);
+     * A cached execution plan for one image size and device. The task graphs and all of their buffers are built
+     * once; each execution only copies new grayscale values and the normalization table in and the maximum
+     * gradient and the gray levels out.
+     */
+    private static final class EdgeDetectionPlan implements TornadoPlanCache.CachedPlan {
+        private final int width;
+        private final int height;
+        private final IntArray grayScale;
+        private final IntArray maxGradient;
+        private final IntArray edgeColors;
+        private final IntArray table;
+        private final IntArray levels;
+        private final int[] rowBuffer;
+        private int[] hostTable = new int[0];
+        private final TornadoExecutionPlan executionPlan;
+        private boolean closed;
+
+        /**
+         * Builds the task graph and execution plan for the given key.
+         *
+         * @param key the image dimensions and device
+         */
+        EdgeDetectionPlan(TornadoPlanCache.Key key) {
+            this.width = key.width();
+            this.height = key.height();
+            this.grayScale = new IntArray(width * height);
+            this.maxGradient = new IntArray(1);
+            this.edgeColors = new IntArray(width * height);
+            this.table = new IntArray(TABLE_SIZE);
+            this.levels = new IntArray(width * height);
+            this.rowBuffer = new int[width];
+
+            //@formatter:off
+            TaskGraph gradients = new TaskGraph(GRADIENT_GRAPH)
+                    .transferToDevice(DataTransferMode.EVERY_EXECUTION, grayScale, maxGradient)
+                    .task("edges", SobelTornado::computeEdgeColors, grayScale, width, height, edgeColors)
+                    .task("max", SobelTornado::findMaxGradient, edgeColors, maxGradient)
+                    .persistOnDevice(edgeColors)
+                    .transferToHost(DataTransferMode.EVERY_EXECUTION, maxGradient);
+            TaskGraph normalization = new TaskGraph("normalization-graph")
+                    .consumeFromDevice(GRADIENT_GRAPH, edgeColors)
+                    .transferToDevice(DataTransferMode.EVERY_EXECUTION, table)
+                    .task("normalize", SobelTornado::normalize, edgeColors, table, levels)
+                    .transferToHost(DataTransferMode.EVERY_EXECUTION, levels);
+            //@formatter:on
+
+            this.executionPlan = new TornadoExecutionPlan(gradients.snapshot(), normalization.snapshot());
+            this.executionPlan.withProfiler(ProfilerMode.SILENT).withDevice(key.device().lookup());
+            logger.info("[TornadoVM] Built execution plan for {}x{} on device {}", width, height, key.device());
+        }
+
+        /**
+         * Runs the plan on an image of the plan's size. Callers hold the plan's monitor.
+         *
+         * @param image  the input image
+         * @param output the image receiving the result
+         * @return {@code output}
+         */
+        BufferedImage execute(BufferedImage image, BufferedImage output) {
+            StageEvent event = Metrics.begin(Stage.IMAGE_TO_ARRAY, ENGINE, width, height);
+            copyGrayScale(image, grayScale, rowBuffer);
+            Metrics.end(event);
+            maxGradient.init(0);
+
+            TornadoExecutionResult result = executionPlan.withGraph(0).execute();
+            recordProfile(planCache, result.getProfilerResult(), ENGINE, width, height);
+            logger.debug("[TornadoVM] {}x{} max gradient: {}", width, height, maxGradient.get(0));
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+            hostTable = uploadNormalizationTable(maxGradient.get(0), hostTable, table);
+            Metrics.end(event);
+            result = executionPlan.withGraph(1).execute();
+            recordProfile(planCache, result.getProfilerResult(), ENGINE, width, height);
+
+            event = Metrics.begin(Stage.ARRAY_TO_IMAGE, ENGINE, width, height);
+            writeLevels(levels, output, rowBuffer);
+            Metrics.end(event);
+            return output;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            try {
+                executionPlan.close();
+            } catch (TornadoExecutionPlanException e) {
+                logger.error("Tornado execution error:", e);
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
     }
 }
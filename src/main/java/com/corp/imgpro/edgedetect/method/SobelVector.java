@@ -0,0 +1,222 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+
+/**
+ * A utility class implementing the Sobel edge detection algorithm with the Vector API
+ * ({@code jdk.incubator.vector}). Grayscale conversion, both Sobel passes, the magnitude, the maximum
+ * and the normalization run across the lanes of the preferred vector species, with a scalar tail for
+ * the remaining columns. The output is identical to {@link SobelStandard#convert(BufferedImage)}.
+ *
+ * <p>The vector kernels are only used when the {@code jdk.incubator.vector} module is resolved at run
+ * time and the CPU offers at least {@value #MIN_LANES} integer lanes, where they outperform the scalar
+ * code. Otherwise every call falls back to {@link SobelRaster}. The decision can be forced with the
+ * system property {@code edgedetect.vector} set to {@code true} or {@code false}.</p>
+ */
+public class SobelVector {
+    private static final Logger logger = LoggerFactory.getLogger(SobelVector.class);
+
+    /**
+     * Name of the incubator module providing the Vector API.
+     */
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /**
+     * Engine tag of the stage metrics; the scalar fallback reports as {@link SobelRaster}.
+     */
+    private static final String ENGINE = "vector";
+
+    /**
+     * Minimum number of integer lanes for the vector kernels to be chosen automatically.
+     */
+    private static final int MIN_LANES = 8;
+
+    /**
+     * Whether the vector kernels are used, decided once per JVM.
+     */
+    private static final boolean ENABLED = detect();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SobelVector() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Returns whether the vector kernels are used by {@link #convert(BufferedImage)}.
+     *
+     * @return {@code true} if the Vector API is available and selected on this CPU
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Converts an input image to its edge-detected version using the Sobel operator.
+     * Falls back to {@link SobelRaster#convert(BufferedImage)} when the vector kernels are not enabled.
+     *
+     * @param image the input image to be processed
+     * @return a new BufferedImage containing the edge-detected version of the input image
+     */
+    public static BufferedImage convert(BufferedImage image) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), image.getType()));
+    }
+
+    /**
+     * Converts an input image to its edge-detected version, writing every pixel of a caller-provided output
+     * image. The border, which {@link SobelStandard} leaves untouched, is cleared. Intermediate arrays come
+     * from the shared {@link BufferPool}. Falls back to {@link SobelRaster#convert(BufferedImage, BufferedImage)}
+     * when the vector kernels are not enabled.
+     *
+     * @param image  the input image to be processed
+     * @param output the image receiving the result, of the same size as {@code image} and any type
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public static BufferedImage convert(BufferedImage image, BufferedImage output) {
+        if (!ENABLED) {
+            return SobelRaster.convert(image, output);
+        }
+        Rasters.requireSameSize(image, output);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferPool pool = BufferPool.shared();
+
+        int[] grayScale = pool.acquireInts(width * height);
+        int[] edgeColors = pool.acquireInts(width * height);
+        try {
+            StageEvent event = Metrics.begin(Stage.GRAYSCALE, ENGINE, width, height);
+            convertToGrayScale(image, grayScale);
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+            int maxGradient = computeEdgeColors(grayScale, width, height, edgeColors);
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+            norm(maxGradient, edgeColors, output);
+            Metrics.end(event);
+        } finally {
+            pool.release(edgeColors);
+            pool.release(grayScale);
+        }
+
+        return output;
+    }
+
+    /**
+     * Converts the image to flat, row-major grayscale values, using the vector kernel for packed
+     * integer RGB layouts and {@link Rasters#grayScaleRow(BufferedImage, int, int[], int)} otherwise.
+     *
+     * @param image     the input image
+     * @param grayScale the destination, indexed by {@code y * width + x}
+     */
+    private static void convertToGrayScale(BufferedImage image, int[] grayScale) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int type = image.getType();
+
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            WritableRaster raster = image.getRaster();
+            int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            for (int y = 0; y < height; y++) {
+                VectorKernels.grayScaleRow(data, Rasters.packedRowStart(raster, y), grayScale, y * width, width);
+            }
+        } else {
+            for (int y = 0; y < height; y++) {
+                Rasters.grayScaleRow(image, y, grayScale, y * width);
+            }
+        }
+    }
+
+    /**
+     * Computes the edge colors of all interior pixels and tracks the maximum gradient on the way.
+     *
+     * @param grayScale  the row-major grayscale values of the image
+     * @param width      the image width
+     * @param height     the image height
+     * @param edgeColors the row-major destination of the gradient magnitudes
+     * @return the maximum gradient value found, or -1 if the image has no interior pixels
+     */
+    private static int computeEdgeColors(int[] grayScale, int width, int height, int[] edgeColors) {
+        int max = -1;
+
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            int rowMax = VectorKernels.gradientRow(grayScale, row - width, row, row + width, width, edgeColors, row);
+            if (max < rowMax) {
+                max = rowMax;
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Normalizes the edge values and writes them into the output image, clearing its border.
+     *
+     * @param maxGradient the maximum gradient value used for normalization
+     * @param edgeColors  the row-major gradient magnitudes
+     * @param output      the output image
+     */
+    private static void norm(int maxGradient, int[] edgeColors, BufferedImage output) {
+        int width = output.getWidth();
+        int height = output.getHeight();
+        int type = output.getType();
+        BufferPool pool = BufferPool.shared();
+        int[] table = SobelMath.normalizationTable(maxGradient, pool.acquireInts(maxGradient + 1));
+
+        WritableRaster raster = output.getRaster();
+        boolean packed = type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB;
+        int alpha = type == BufferedImage.TYPE_INT_ARGB ? 0xff000000 : 0;
+
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            VectorKernels.normRow(table, edgeColors, row, 1, width - 1);
+            if (packed) {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                VectorKernels.packRow(edgeColors, row, data, Rasters.packedRowStart(raster, y), 1, width - 1, alpha);
+            } else {
+                Rasters.setGrayRow(output, y, edgeColors, row, 1, width - 1);
+            }
+        }
+        Rasters.clearBorder(output);
+        pool.release(table);
+    }
+
+    /**
+     * Decides whether the vector kernels are used, honouring the {@code edgedetect.vector} property.
+     *
+     * @return {@code true} if the vector kernels should be used
+     */
+    private static boolean detect() {
+        String override = System.getProperty("edgedetect.vector");
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            logger.info("[Vector] Module {} is not available, using scalar kernels", VECTOR_MODULE);
+            return false;
+        }
+        try {
+            int lanes = VectorKernels.lanes();
+            boolean enabled = override != null ? Boolean.parseBoolean(override) : lanes >= MIN_LANES;
+            logger.info("[Vector] {} integer lanes, vector kernels {}", lanes, enabled ? "enabled" : "disabled");
+            return enabled;
+        } catch (LinkageError e) {
+            logger.warn("[Vector] Vector API cannot be loaded, using scalar kernels: {}", e.toString());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.manchester.tornado.api.TaskGraph;
+import uk.ac.manchester.tornado.api.TornadoExecutionPlan;
+import uk.ac.manchester.tornado.api.TornadoExecutionResult;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.enums.DataTransferMode;
+import uk.ac.manchester.tornado.api.enums.ProfilerMode;
+import uk.ac.manchester.tornado.api.exceptions.TornadoExecutionPlanException;
+import uk.ac.manchester.tornado.api.math.TornadoMath;
+import uk.ac.manchester.tornado.api.types.arrays.IntArray;
+
+import java.awt.image.BufferedImage;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * The device side of {@link SobelHybrid}: computes the Sobel gradients of a band of rows on a TornadoVM device.
+ * The grayscale values of the band and its one-row halo are computed on the host and copied to the device, and
+ * the gradient magnitudes and the maximum of the band are copied back; the normalization waits for the maximum
+ * of the whole image and happens on the host. Rows move between the Java arrays and the off-heap memory of the
+ * {@link IntArray}s with bulk {@link MemorySegment} copies rather than one {@code get} or {@code set} per pixel.
+ *
+ * <p>Plans are cached per image width, band height and device in a {@link TornadoPlanCache}. Every band uses the
+ * plan of the full band height; a shorter band, such as the last one or one stolen back by the CPU, passes its
+ * number of valid rows in a one-element array, so that no plan is compiled per band size. The kernel uses the
+ * arithmetic of {@link SobelTornado}, so the gradients can be verified against the CPU on any OpenCL device,
+ * including PoCL.</p>
+ */
+public class TornadoBandProcessor implements SobelHybrid.BandProcessor, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TornadoBandProcessor.class);
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "hybrid";
+
+    private final TornadoDeviceIndex device;
+    private final int bandRows;
+    private final TornadoPlanCache<BandPlan> planCache;
+
+    /**
+     * Creates a processor for bands of up to the given number of rows.
+     *
+     * @param device   the device running the bands
+     * @param bandRows the number of rows of a plan
+     */
+    public TornadoBandProcessor(TornadoDeviceIndex device, int bandRows) {
+        this.device = device;
+        this.bandRows = bandRows;
+        this.planCache = new TornadoPlanCache<>("hybrid-band-plans",
+                Integer.getInteger(SobelTornado.PLAN_CACHE_PROPERTY, 4), BandPlan::new);
+    }
+
+    /**
+     * Computes the gradients of the rows {@code [from, to)} on the device, in as many executions of the plan as
+     * the band has plan heights.
+     */
+    @Override
+    public int gradients(BufferedImage image, int from, int to, int[] edges) {
+        int max = -1;
+        for (int start = from; start < to; start += bandRows) {
+            int end = Math.min(to, start + bandRows);
+            while (true) {
+                BandPlan plan = planCache.acquire(image.getWidth(), bandRows, device);
+                synchronized (plan) {
+                    if (!plan.isClosed()) {
+                        max = Math.max(max, plan.execute(image, start, end, edges, planCache));
+                        break;
+                    }
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Counts the plans built by the cache, one per miss, and the executions that compiled kernels.
+     */
+    @Override
+    public long warmUps() {
+        TornadoPlanCache.Stats stats = planCache.stats();
+        return stats.misses() + stats.compilations();
+    }
+
+    /**
+     * Returns the counters of the execution plan cache.
+     *
+     * @return the hit, miss, eviction and compilation statistics
+     */
+    public TornadoPlanCache.Stats planCacheStats() {
+        return planCache.stats();
+    }
+
+    /**
+     * Closes the cached execution plans and releases their device memory.
+     */
+    @Override
+    public void close() {
+        planCache.close();
+    }
+
+    /**
+     * Computes the gradient magnitudes of a band. Row {@code y} of the band is row {@code y + 1} of the grayscale
+     * array, whose first and last rows are the halo. Rows from the number of valid rows on, and the first and
+     * last column, are set to zero.
+     *
+     * @param grayScale the grayscale values of the band and its halo
+     * @param validRows single-element array holding the number of rows of the band
+     * @param width     the image width
+     * @param rows      the number of rows of the plan
+     * @param edges     the output gradient magnitudes
+     */
+    private static void bandGradients(IntArray grayScale, IntArray validRows, int width, int rows, IntArray edges) {
+        int valid = validRows.get(0);
+
+        for (@Parallel int y = 0; y < rows; y++) {
+            for (@Parallel int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if (y >= valid || x == 0 || x == width - 1) {
+                    edges.set(index, 0);
+                } else {
+                    int above = index;
+                    int center = index + width;
+                    int below = index + 2 * width;
+
+                    int gx = (grayScale.get(below - 1) - grayScale.get(above - 1))
+                            + 2 * (grayScale.get(below) - grayScale.get(above))
+                            + (grayScale.get(below + 1) - grayScale.get(above + 1));
+                    int gy = (grayScale.get(above + 1) - grayScale.get(above - 1))
+                            + 2 * (grayScale.get(center + 1) - grayScale.get(center - 1))
+                            + (grayScale.get(below + 1) - grayScale.get(below - 1));
+
+                    int squared = gx * gx + gy * gy;
+                    edges.set(index, SobelTornado.isqrt(squared, (int) TornadoMath.sqrt((float) squared)));
+                }
+            }
+        }
+    }
+
+    /**
+     * A cached execution plan for one image width, band height and device.
+     */
+    private static final class BandPlan implements TornadoPlanCache.CachedPlan {
+        private final int width;
+        private final int rows;
+        private final IntArray grayScale;
+        private final IntArray validRows;
+        private final IntArray edges;
+        private final IntArray maxGradient;
+        private final int[] rowBuffer;
+        private final TornadoExecutionPlan executionPlan;
+        private boolean closed;
+
+        /**
+         * Builds the task graph and execution plan for the given key, whose height is the band height.
+         *
+         * @param key the image width, band height and device
+         */
+        BandPlan(TornadoPlanCache.Key key) {
+            this.width = key.width();
+            this.rows = key.height();
+            this.grayScale = new IntArray((rows + 2) * width);
+            this.validRows = new IntArray(1);
+            this.edges = new IntArray(rows * width);
+            this.maxGradient = new IntArray(1);
+            this.rowBuffer = new int[width];
+
+            //@formatter:off
+            TaskGraph taskGraph = new TaskGraph("hybrid-band-graph")
+                    .transferToDevice(DataTransferMode.EVERY_EXECUTION, grayScale, validRows, maxGradient)
+                    .task("edges", TornadoBandProcessor::bandGradients, grayScale, validRows, width, rows, edges)
+                    .task("max", SobelTornado::findMaxGradient, edges, maxGradient)
+                    .transferToHost(DataTransferMode.EVERY_EXECUTION, edges, maxGradient);
+            //@formatter:on
+
+            this.executionPlan = new TornadoExecutionPlan(taskGraph.snapshot());
+            this.executionPlan.withProfiler(ProfilerMode.SILENT).withDevice(key.device().lookup());
+            logger.info("[TornadoVM] Built band plan for {}x{} on device {}", width, rows, key.device());
+        }
+
+        /**
+         * Runs the plan on the rows {@code [from, to)}, at most the plan's height. Callers hold the plan's monitor.
+         *
+         * @param image the input image
+         * @param from  the first row (inclusive), at least 1
+         * @param to    the last row (exclusive), at most {@code height - 1}
+         * @param edges the gradient magnitudes of the image
+         * @param cache the cache holding the plan, for the compilation statistics
+         * @return the maximum gradient of the interior pixels of the band, or -1 if it has none
+         */
+        int execute(BufferedImage image, int from, int to, int[] edges, TornadoPlanCache<BandPlan> cache) {
+            int valid = to - from;
+            StageEvent event = Metrics.begin(Stage.IMAGE_TO_ARRAY, ENGINE, width, valid);
+            MemorySegment grayScaleSegment = grayScale.getSegment();
+            for (int i = 0; i < valid + 2; i++) {
+                Rasters.grayScaleRow(image, from - 1 + i, rowBuffer, 0);
+                MemorySegment.copy(rowBuffer, 0, grayScaleSegment, ValueLayout.JAVA_INT, (long) i * width * Integer.BYTES,
+                        width);
+            }
+            Metrics.end(event);
+            validRows.set(0, valid);
+            maxGradient.init(0);
+
+            TornadoExecutionResult result = executionPlan.execute();
+            SobelTornado.recordProfile(cache, result.getProfilerResult(), ENGINE, width, valid);
+
+            event = Metrics.begin(Stage.ARRAY_TO_IMAGE, ENGINE, width, valid);
+            MemorySegment.copy(this.edges.getSegment(), ValueLayout.JAVA_INT, 0, edges, from * width, valid * width);
+            Metrics.end(event);
+            return width < 3 ? -1 : maxGradient.get(0);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            try {
+                executionPlan.close();
+            } catch (TornadoExecutionPlanException e) {
+                logger.error("Tornado execution error:", e);
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.corp.imgpro.edgedetect.method;
+
+import uk.ac.manchester.tornado.api.TornadoExecutionPlan;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+
+/**
+ * Identifies a TornadoVM device by its driver (backend) index and device index, as listed by
+ * {@code tornado --devices} in the form {@code driver:device}.
+ *
+ * @param driver the driver index
+ * @param device the device index within the driver
+ */
+public record TornadoDeviceIndex(int driver, int device) {
+
+    /**
+     * System property selecting the device used by default, e.g. {@code -Dedgedetect.tornado.device=0:0}.
+     */
+    public static final String DEVICE_PROPERTY = "edgedetect.tornado.device";
+
+    /**
+     * Device used when {@link #DEVICE_PROPERTY} is not set.
+     */
+    private static final String DEFAULT_DEVICE = "0:1";
+
+    /**
+     * Parses a device index in the form {@code driver:device}.
+     *
+     * @param value the text to parse
+     * @return the device index
+     * @throws IllegalArgumentException if the text is not in the expected form
+     */
+    public static TornadoDeviceIndex parse(String value) {
+        String[] parts = value.trim().split(":");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Tornado device must be given as driver:device, got '%s'".formatted(value));
+        }
+        try {
+            return new TornadoDeviceIndex(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Tornado device must be given as driver:device, got '%s'".formatted(value), e);
+        }
+    }
+
+    /**
+     * Returns the device configured with {@link #DEVICE_PROPERTY}, or {@code 0:1} if the property is not set.
+     *
+     * @return the configured device index
+     */
+    public static TornadoDeviceIndex configured() {
+        return parse(System.getProperty(DEVICE_PROPERTY, DEFAULT_DEVICE));
+    }
+
+    /**
+     * Looks up the TornadoVM device with this index.
+     *
+     * @return the device
+     */
+    public TornadoDevice lookup() {
+        return TornadoExecutionPlan.getDevice(driver, device);
+    }
+
+    @Override
+    public String toString() {
+        return driver + ":" + device;
+    }
+}
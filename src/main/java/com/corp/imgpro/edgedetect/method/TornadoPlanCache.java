@@ -0,0 +1,185 @@
+package com.corp.imgpro.edgedetect.method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A long-lived, least-recently-used cache of TornadoVM execution plans keyed by image dimensions and device.
+ * Building a task graph, taking its snapshot and executing it for the first time compiles the kernels and
+ * allocates the device buffers; keeping the plan and its buffers alive lets every further image of the same
+ * size and device skip that work. Evicted plans, and all plans on {@link #close()}, are closed explicitly so
+ * their device memory is released.
+ *
+ * <p>The cache counts hits, misses and evictions, and the executions reporting kernel compilation together
+ * with the time spent compiling, so a steady state without recompilation can be confirmed.</p>
+ *
+ * @param <P> the type of the cached plans
+ */
+public class TornadoPlanCache<P extends TornadoPlanCache.CachedPlan> implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TornadoPlanCache.class);
+
+    /**
+     * A cached plan owning a TornadoVM execution plan and its buffers.
+     * Callers synchronize on the plan while executing it and must check {@link #isClosed()} first, since the
+     * plan may have been evicted between {@link #acquire(int, int, TornadoDeviceIndex)} and execution. The
+     * cache synchronizes on the plan before closing it.
+     */
+    public interface CachedPlan {
+
+        /**
+         * Closes the execution plan and releases its device memory.
+         */
+        void close();
+
+        /**
+         * Returns whether the plan has been closed.
+         *
+         * @return {@code true} once {@link #close()} has been called
+         */
+        boolean isClosed();
+    }
+
+    /**
+     * Key of a cached plan.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @param device the device running the plan
+     */
+    public record Key(int width, int height, TornadoDeviceIndex device) {
+    }
+
+    /**
+     * Snapshot of the cache counters.
+     *
+     * @param hits         number of lookups served by an existing plan
+     * @param misses       number of lookups that built a new plan
+     * @param evictions    number of plans closed to make room for new ones
+     * @param compilations number of executions that compiled kernels
+     * @param compileNanos total kernel compilation time in nanoseconds
+     * @param size         number of plans currently cached
+     */
+    public record Stats(long hits, long misses, long evictions, long compilations, long compileNanos, int size) {
+    }
+
+    private final String name;
+    private final int capacity;
+    private final Function<Key, P> factory;
+    private final LinkedHashMap<Key, P> plans = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong compilations = new AtomicLong();
+    private final AtomicLong compileNanos = new AtomicLong();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param name     the cache name used in log messages
+     * @param capacity the maximum number of cached plans
+     * @param factory  builds a new plan for a key on a cache miss
+     */
+    public TornadoPlanCache(String name, int capacity, Function<Key, P> factory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Plan cache capacity must be positive, got %d".formatted(capacity));
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the plan for the given image dimensions and device, building it on a miss and evicting the
+     * least recently used plan if the cache is full.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @param device the device running the plan
+     * @return the cached plan
+     */
+    public P acquire(int width, int height, TornadoDeviceIndex device) {
+        Key key = new Key(width, height, device);
+        List<P> evicted = new ArrayList<>();
+        P plan;
+
+        synchronized (plans) {
+            plan = plans.get(key);
+            if (plan != null) {
+                hits.incrementAndGet();
+                return plan;
+            }
+            misses.incrementAndGet();
+            plan = factory.apply(key);
+            plans.put(key, plan);
+
+            Iterator<Map.Entry<Key, P>> iterator = plans.entrySet().iterator();
+            while (plans.size() > capacity && iterator.hasNext()) {
+                Map.Entry<Key, P> eldest = iterator.next();
+                iterator.remove();
+                evicted.add(eldest.getValue());
+                evictions.incrementAndGet();
+                logger.debug("[{}] Evicting plan {}", name, eldest.getKey());
+            }
+        }
+        evicted.forEach(TornadoPlanCache::closePlan);
+
+        return plan;
+    }
+
+    /**
+     * Records the compilation time reported by the profiler for one execution of a cached plan.
+     *
+     * @param nanos the compilation time of the execution in nanoseconds, 0 if nothing was compiled
+     */
+    public void recordCompileTime(long nanos) {
+        if (nanos > 0) {
+            compilations.incrementAndGet();
+            compileNanos.addAndGet(nanos);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        synchronized (plans) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), compilations.get(), compileNanos.get(), plans.size());
+        }
+    }
+
+    /**
+     * Closes all cached plans. The cache stays usable and builds new plans on demand.
+     */
+    @Override
+    public void close() {
+        List<P> closing;
+        synchronized (plans) {
+            closing = new ArrayList<>(plans.values());
+            plans.clear();
+        }
+        closing.forEach(TornadoPlanCache::closePlan);
+        logger.info("[{}] Closed {} plans, {}", name, closing.size(), stats());
+    }
+
+    /**
+     * Closes a plan once no caller is executing it.
+     *
+     * @param plan the plan to close
+     */
+    private static void closePlan(CachedPlan plan) {
+        synchronized (plan) {
+            plan.close();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Sobel kernels written against the {@code jdk.incubator.vector} API.
+ * This class references incubator types directly and must only be loaded after
+ * {@link SobelVector} has checked that the module is present in the boot layer.
+ *
+ * <p>Every kernel keeps the arithmetic of {@link SobelMath} lane by lane, so the results are identical
+ * to the scalar engines:</p>
+ * <ul>
+ *     <li>luminance is computed in {@code double} lanes with the same evaluation order;</li>
+ *     <li>the squared magnitude of 8-bit Sobel responses is below 2<sup>24</sup>, so it converts to
+ *     {@code float} exactly, and the correctly rounded {@code float} square root truncates to the same
+ *     integer as the {@code double} one for all values in that range;</li>
+ *     <li>normalization gathers from the exact lookup table of {@link SobelMath#normalizationTable(int)}.</li>
+ * </ul>
+ */
+final class VectorKernels {
+
+    /**
+     * Integer species at the preferred width, used by the convolution and normalization kernels.
+     */
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Float species with the same lane count as {@link #INT_SPECIES}.
+     */
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Double species at the preferred width, used by the luminance kernel.
+     */
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Integer species with the same lane count as {@link #DOUBLE_SPECIES}.
+     */
+    private static final VectorSpecies<Integer> HALF_INT_SPECIES = VectorSpecies.of(int.class,
+            VectorShape.forBitSize(DOUBLE_SPECIES.vectorBitSize() / 2));
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private VectorKernels() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Returns the number of integer lanes processed per vector operation.
+     *
+     * @return the lane count of the preferred integer species
+     */
+    static int lanes() {
+        return INT_SPECIES.length();
+    }
+
+    /**
+     * Converts a row of packed {@code 0xAARRGGBB} pixels to grayscale values.
+     *
+     * @param argb       the packed pixels
+     * @param argbOffset index of the first pixel in {@code argb}
+     * @param dest       the destination of the grayscale values
+     * @param destOffset index of the first value in {@code dest}
+     * @param width      the number of pixels to convert
+     */
+    static void grayScaleRow(int[] argb, int argbOffset, int[] dest, int destOffset, int width) {
+        int bound = HALF_INT_SPECIES.loopBound(width);
+        int x = 0;
+
+        for (; x < bound; x += HALF_INT_SPECIES.length()) {
+            IntVector p = IntVector.fromArray(HALF_INT_SPECIES, argb, argbOffset + x);
+            DoubleVector r = toDouble(p.lanewise(VectorOperators.LSHR, 16).and(0xff));
+            DoubleVector g = toDouble(p.lanewise(VectorOperators.LSHR, 8).and(0xff));
+            DoubleVector b = toDouble(p.and(0xff));
+
+            DoubleVector luminance = r.mul(0.2126).add(g.mul(0.7152)).add(b.mul(0.0722));
+            ((IntVector) luminance.convertShape(VectorOperators.D2I, HALF_INT_SPECIES, 0)).intoArray(dest, destOffset + x);
+        }
+        for (; x < width; x++) {
+            int p = argb[argbOffset + x];
+            dest[destOffset + x] = SobelMath.luminance((p >> 16) & 0xff, (p >> 8) & 0xff, p & 0xff);
+        }
+    }
+
+    /**
+     * Computes the gradient magnitudes of the interior columns of one row, as
+     * {@link SobelMath#gradientRow(int[], int, int[], int, int[], int, int, int[], int)} does.
+     *
+     * @param gray        the row-major grayscale values
+     * @param aboveOffset index of column 0 of the row above
+     * @param rowOffset   index of column 0 of the current row
+     * @param belowOffset index of column 0 of the row below
+     * @param width       the image width
+     * @param edges       the destination of the gradient magnitudes
+     * @param edgesOffset index of column 0 in {@code edges}
+     * @return the maximum gradient of the row, or -1 if the row has no interior columns
+     */
+    static int gradientRow(int[] gray, int aboveOffset, int rowOffset, int belowOffset, int width,
+                           int[] edges, int edgesOffset) {
+        int lanes = INT_SPECIES.length();
+        IntVector max = IntVector.broadcast(INT_SPECIES, -1);
+        int x = 1;
+
+        for (; x + lanes <= width - 1; x += lanes) {
+            IntVector aboveLeft = IntVector.fromArray(INT_SPECIES, gray, aboveOffset + x - 1);
+            IntVector aboveCenter = IntVector.fromArray(INT_SPECIES, gray, aboveOffset + x);
+            IntVector aboveRight = IntVector.fromArray(INT_SPECIES, gray, aboveOffset + x + 1);
+            IntVector left = IntVector.fromArray(INT_SPECIES, gray, rowOffset + x - 1);
+            IntVector right = IntVector.fromArray(INT_SPECIES, gray, rowOffset + x + 1);
+            IntVector belowLeft = IntVector.fromArray(INT_SPECIES, gray, belowOffset + x - 1);
+            IntVector belowCenter = IntVector.fromArray(INT_SPECIES, gray, belowOffset + x);
+            IntVector belowRight = IntVector.fromArray(INT_SPECIES, gray, belowOffset + x + 1);
+
+            IntVector gx = belowLeft.sub(aboveLeft)
+                    .add(belowCenter.sub(aboveCenter).lanewise(VectorOperators.LSHL, 1))
+                    .add(belowRight.sub(aboveRight));
+            IntVector gy = aboveRight.sub(aboveLeft)
+                    .add(right.sub(left).lanewise(VectorOperators.LSHL, 1))
+                    .add(belowRight.sub(belowLeft));
+
+            IntVector squared = gx.mul(gx).add(gy.mul(gy));
+            FloatVector magnitude = (FloatVector) squared.convertShape(VectorOperators.I2F, FLOAT_SPECIES, 0);
+            IntVector g = (IntVector) magnitude.lanewise(VectorOperators.SQRT)
+                    .convertShape(VectorOperators.F2I, INT_SPECIES, 0);
+
+            g.intoArray(edges, edgesOffset + x);
+            max = max.max(g);
+        }
+
+        int vectorMax = max.reduceLanes(VectorOperators.MAX);
+        int tailMax = SobelMath.gradientRange(gray, aboveOffset, gray, rowOffset, gray, belowOffset,
+                x, width - 1, edges, edgesOffset);
+
+        return Math.max(vectorMax, tailMax);
+    }
+
+    /**
+     * Replaces the gradient magnitudes of the columns {@code [fromX, toX)} by their normalized gray levels.
+     *
+     * @param table  the normalization table
+     * @param edges  the gradient magnitudes, overwritten by the gray levels
+     * @param offset index of column 0 in {@code edges}
+     * @param fromX  the first column to normalize (inclusive)
+     * @param toX    the last column to normalize (exclusive)
+     */
+    static void normRow(int[] table, int[] edges, int offset, int fromX, int toX) {
+        int lanes = INT_SPECIES.length();
+        int x = fromX;
+
+        for (; x + lanes <= toX; x += lanes) {
+            IntVector.fromArray(INT_SPECIES, table, 0, edges, offset + x).intoArray(edges, offset + x);
+        }
+        for (; x < toX; x++) {
+            edges[offset + x] = table[edges[offset + x]];
+        }
+    }
+
+    /**
+     * Writes normalized gray levels as packed pixels {@code alpha | v << 16 | v << 8 | v}.
+     *
+     * @param levels       the gray levels
+     * @param levelsOffset index of column 0 in {@code levels}
+     * @param pixels       the packed destination pixels
+     * @param pixelsOffset index of column 0 in {@code pixels}
+     * @param fromX        the first column to write (inclusive)
+     * @param toX          the last column to write (exclusive)
+     * @param alpha        the alpha bits to set, {@code 0xff000000} or 0
+     */
+    static void packRow(int[] levels, int levelsOffset, int[] pixels, int pixelsOffset, int fromX, int toX, int alpha) {
+        int lanes = INT_SPECIES.length();
+        int x = fromX;
+
+        for (; x + lanes <= toX; x += lanes) {
+            IntVector.fromArray(INT_SPECIES, levels, levelsOffset + x)
+                    .mul(0x010101)
+                    .or(alpha)
+                    .intoArray(pixels, pixelsOffset + x);
+        }
+        for (; x < toX; x++) {
+            pixels[pixelsOffset + x] = alpha | levels[levelsOffset + x] * 0x010101;
+        }
+    }
+
+    /**
+     * Converts integer lanes to double lanes of the same count.
+     *
+     * @param vector the integer vector of {@link #HALF_INT_SPECIES}
+     * @return the double vector of {@link #DOUBLE_SPECIES}
+     */
+    private static DoubleVector toDouble(IntVector vector) {
+        return (DoubleVector) vector.convertShape(VectorOperators.I2D, DOUBLE_SPECIES, 0);
+    }
+}
@@ -0,0 +1,137 @@
+package com.corp.imgpro.edgedetect.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds with logarithmic buckets. Each power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so percentiles are accurate to within 12.5% over the whole range of
+ * {@code long} while the histogram takes a few kilobytes. Recording is safe from any number of threads.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Base-2 logarithm of the number of sub-buckets per power of two.
+     */
+    private static final int SUB_BITS = 3;
+
+    /**
+     * Number of sub-buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * Total number of buckets, covering all non-negative {@code long} values.
+     */
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * Summary of a histogram at one point in time. Percentiles are the upper bounds of their buckets.
+     *
+     * @param count      the number of recorded values
+     * @param meanNanos  the mean value
+     * @param p50Nanos   the median
+     * @param p90Nanos   the 90th percentile
+     * @param p99Nanos   the 99th percentile
+     * @param maxNanos   the largest value
+     * @param totalNanos the sum of all values
+     */
+    public record Snapshot(long count, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos,
+                           long totalNanos) {
+    }
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos the duration in nanoseconds; negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        total.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns a summary of the values recorded so far. Values recorded concurrently may be partly included.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        long sum = total.sum();
+        long largest = max.get();
+
+        return new Snapshot(n, n == 0 ? 0 : (double) sum / n, percentile(counts, n, 0.50, largest),
+                percentile(counts, n, 0.90, largest), percentile(counts, n, 0.99, largest), largest, sum);
+    }
+
+    /**
+     * Returns the bucket of a value.
+     *
+     * @param value a non-negative value
+     * @return the bucket index
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest value falling into a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the upper bound of the bucket
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding a percentile, capped at the largest recorded value.
+     *
+     * @param counts   the bucket counts
+     * @param n        the total count
+     * @param fraction the percentile as a fraction
+     * @param largest  the largest recorded value
+     * @return the percentile, or 0 if the histogram is empty
+     */
+    private static long percentile(long[] counts, long n, double fraction, long largest) {
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), largest);
+            }
+        }
+        return largest;
+    }
+}
@@ -0,0 +1,191 @@
+package com.corp.imgpro.edgedetect.metrics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A utility class timing the stages of the edge detection pipeline. Every stage is recorded twice: into an
+ * in-process {@link LatencyHistogram} per stage and engine, which {@link #snapshot()} and {@link #report()} expose,
+ * and as a {@link StageEvent} for Java Flight Recorder when a recording enables it.
+ *
+ * <p>Every thread reuses one event per stage, so timing a stage allocates nothing and the instrumentation stays
+ * in production builds. A stage timed again on the same thread before it has ended, such as the convolution of
+ * an engine called from within another engine's convolution, gets an event of its own, so the open event keeps
+ * its engine, size and start time. A stage is timed as follows:</p>
+ * <pre>{@code
+ * StageEvent event = Metrics.begin(Stage.CONVOLUTION, "raster", width, height);
+ * int max = computeEdgeColors(...);
+ * Metrics.end(event);
+ * }</pre>
+ */
+public class Metrics {
+
+    /**
+     * Summary of one stage of one engine.
+     *
+     * @param stage     the stage
+     * @param engine    the engine tag
+     * @param histogram the summary of the recorded times
+     */
+    public record StageStats(Stage stage, String engine, LatencyHistogram.Snapshot histogram) {
+    }
+
+    private static final Map<Stage, ConcurrentHashMap<String, LatencyHistogram>> histograms = new EnumMap<>(Stage.class);
+
+    /**
+     * The events of the current thread, indexed by stage ordinal and created on first use.
+     */
+    private static final ThreadLocal<StageEvent[]> events =
+            ThreadLocal.withInitial(() -> new StageEvent[Stage.values().length]);
+
+    static {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private Metrics() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Starts timing a stage on the current thread, reusing the thread's event of the stage unless it is still open.
+     *
+     * @param stage  the stage
+     * @param engine the engine tag, such as the name of the detector
+     * @param width  the image width
+     * @param height the image height
+     * @return the event to pass to {@link #end(StageEvent)} when the stage is done
+     */
+    public static StageEvent begin(Stage stage, String engine, int width, int height) {
+        StageEvent[] cached = events.get();
+        StageEvent event = cached[stage.ordinal()];
+        if (event == null || event.open) {
+            event = new StageEvent();
+            event.kind = stage;
+            event.stage = stage.label();
+            if (cached[stage.ordinal()] == null) {
+                cached[stage.ordinal()] = event;
+            }
+        }
+        event.open = true;
+        event.engine = engine;
+        event.width = width;
+        event.height = height;
+        event.begin();
+        event.startNanos = System.nanoTime();
+
+        return event;
+    }
+
+    /**
+     * Stops timing a stage, records its time and commits the event if a recording enables it.
+     *
+     * @param event the event returned by {@link #begin(Stage, String, int, int)}
+     */
+    public static void end(StageEvent event) {
+        long nanos = System.nanoTime() - event.startNanos;
+        event.end();
+        event.open = false;
+        histogram(event.kind, event.engine).record(nanos);
+        if (event.shouldCommit()) {
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Stops timing a stage whose image size is only known at its end, such as decoding.
+     *
+     * @param event  the event returned by {@link #begin(Stage, String, int, int)}
+     * @param width  the image width
+     * @param height the image height
+     */
+    public static void end(StageEvent event, int width, int height) {
+        event.width = width;
+        event.height = height;
+        end(event);
+    }
+
+    /**
+     * Records a stage timed elsewhere, such as by a device profiler. The event is committed with a duration of
+     * about zero, its {@code nanos} field carrying the stage time.
+     *
+     * @param stage  the stage
+     * @param engine the engine tag
+     * @param width  the image width
+     * @param height the image height
+     * @param nanos  the time of the stage in nanoseconds
+     */
+    public static void record(Stage stage, String engine, int width, int height, long nanos) {
+        StageEvent event = begin(stage, engine, width, height);
+        event.end();
+        event.open = false;
+        histogram(stage, engine).record(nanos);
+        if (event.shouldCommit()) {
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the statistics of every stage and engine recorded so far, in pipeline order.
+     *
+     * @return the statistics
+     */
+    public static List<StageStats> snapshot() {
+        List<StageStats> stats = new ArrayList<>();
+        histograms.forEach((stage, engines) -> engines.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> stats.add(new StageStats(stage, e.getKey(), e.getValue().snapshot()))));
+
+        return stats;
+    }
+
+    /**
+     * Formats the statistics of {@link #snapshot()} as a table with times in milliseconds.
+     *
+     * @return the report, one line per stage and engine after a header line
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder("%-15s %-10s %8s %10s %10s %10s %10s %10s%n".formatted(
+                "stage", "engine", "count", "mean", "p50", "p90", "p99", "max"));
+        for (StageStats stats : snapshot()) {
+            LatencyHistogram.Snapshot h = stats.histogram();
+            report.append("%-15s %-10s %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n".formatted(
+                    stats.stage().label(), stats.engine(), h.count(), h.meanNanos() / 1e6, h.p50Nanos() / 1e6,
+                    h.p90Nanos() / 1e6, h.p99Nanos() / 1e6, h.maxNanos() / 1e6));
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Discards all recorded times, for example after warm-up.
+     */
+    public static void reset() {
+        histograms.values().forEach(Map::clear);
+    }
+
+    /**
+     * Returns the histogram of a stage and engine, creating it on first use.
+     *
+     * @param stage  the stage
+     * @param engine the engine tag
+     * @return the histogram
+     */
+    private static LatencyHistogram histogram(Stage stage, String engine) {
+        ConcurrentHashMap<String, LatencyHistogram> engines = histograms.get(stage);
+        LatencyHistogram histogram = engines.get(engine);
+
+        return histogram != null ? histogram : engines.computeIfAbsent(engine, e -> new LatencyHistogram());
+    }
+}
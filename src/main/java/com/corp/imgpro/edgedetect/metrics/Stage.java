@@ -0,0 +1,88 @@
+package com.corp.imgpro.edgedetect.metrics;
+
+/**
+ * The stages of the edge detection pipeline that are timed by {@link Metrics}. Engines that fuse stages, such as
+ * grayscale conversion and convolution in a single pass, report the fused work under the later stage.
+ */
+public enum Stage {
+    /**
+     * Decoding the input file into an image.
+     */
+    DECODE("decode"),
+    /**
+     * Copying the image into the packed pixel array of a device engine.
+     */
+    IMAGE_TO_ARRAY("image-to-array"),
+    /**
+     * Converting the image to grayscale values.
+     */
+    GRAYSCALE("grayscale"),
+    /**
+     * Building the reduced levels of an image pyramid for a preview.
+     */
+    DOWNSAMPLE("downsample"),
+    /**
+     * Computing the Sobel gradient magnitudes.
+     */
+    CONVOLUTION("convolution"),
+    /**
+     * Finding the maximum gradient.
+     */
+    MAX_REDUCTION("max-reduction"),
+    /**
+     * Scaling the gradients to gray levels and writing the output image.
+     */
+    NORMALIZATION("normalization"),
+    /**
+     * Thinning the gradients of the Canny detector to local maxima and classifying them by the two thresholds.
+     */
+    SUPPRESSION("suppression"),
+    /**
+     * Connecting the weak edges of the Canny detector to strong ones and writing the output image.
+     */
+    HYSTERESIS("hysteresis"),
+    /**
+     * Copying input data from the host to the device.
+     */
+    HOST_TO_DEVICE("host-to-device"),
+    /**
+     * Compiling device kernels, including driver installation.
+     */
+    KERNEL_COMPILE("kernel-compile"),
+    /**
+     * Running all kernels of a task graph on the device.
+     */
+    DEVICE_KERNEL("device-kernel"),
+    /**
+     * Copying results from the device to the host.
+     */
+    DEVICE_TO_HOST("device-to-host"),
+    /**
+     * Copying the packed pixel array of a device engine back to an image.
+     */
+    ARRAY_TO_IMAGE("array-to-image"),
+    /**
+     * Encoding the edge map into an output file.
+     */
+    ENCODE("encode");
+
+    private final String label;
+
+    /**
+     * Creates a stage.
+     *
+     * @param label the name used in events and reports
+     */
+    Stage(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the name used in events and reports.
+     *
+     * @return the label
+     */
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,63 @@
+package com.corp.imgpro.edgedetect.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one stage of converting one image. The event is disabled by default and switched on
+ * by the {@code edgedetect.jfc} recording profile.
+ *
+ * <p>Stages timed on the recording thread span the event's own duration. Stages reported by a device profiler,
+ * such as transfers and kernel compilation, are committed with a duration of about zero; for both kinds
+ * {@link #nanos} holds the stage time. {@link Metrics} reuses one instance per stage and thread while it is not
+ * {@link #open}.</p>
+ */
+@Name(StageEvent.NAME)
+@Label("Edge Detection Stage")
+@Description("Time spent in one stage of the edge detection of an image")
+@Category({"Edge Detection"})
+@Enabled(false)
+@StackTrace(false)
+public class StageEvent extends jdk.jfr.Event {
+
+    /**
+     * Name of the event type in recordings.
+     */
+    public static final String NAME = "com.corp.imgpro.edgedetect.Stage";
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Stage Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+
+    /**
+     * The stage as a constant, used to find its histogram; not recorded.
+     */
+    transient Stage kind;
+
+    /**
+     * Start of the stage from {@link System#nanoTime()}; not recorded.
+     */
+    transient long startNanos;
+
+    /**
+     * Whether the stage has begun and not yet ended, so that a nested begin must not reuse the event; not recorded.
+     */
+    transient boolean open;
+}
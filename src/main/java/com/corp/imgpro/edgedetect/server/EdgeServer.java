@@ -0,0 +1,521 @@
+package com.corp.imgpro.edgedetect.server;
+
+import com.corp.imgpro.edgedetect.cache.CachingEdgeDetector;
+import com.corp.imgpro.edgedetect.cache.EdgeMapCache;
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.engine.EdgeDetector;
+import com.corp.imgpro.edgedetect.engine.EngineRegistry;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A local HTTP service running edge detection, built on the JDK's {@code com.sun.net.httpserver}.
+ *
+ * <pre>
+ * EdgeServer [--host 127.0.0.1] [--port 8080] [--engine auto|standard|raster|...]
+ *            [--budget-megapixels N] [--queue-timeout MILLIS] [--max-body-mb N]
+ *            [--cache-mb N] [--cache-dir DIR] [--cache-disk-mb N]
+ * </pre>
+ *
+ * <ul>
+ *     <li>{@code POST /detect} takes the bytes of any image ImageIO can decode and answers with the edge map as
+ *     PNG, or with {@code ?format=raw} as one unsigned gray byte per pixel in row-major order. Both carry the
+ *     image size in the {@code X-Image-Width} and {@code X-Image-Height} headers</li>
+ *     <li>{@code GET /metrics} answers with the stage latencies of {@link Metrics}, the admission counters and
+ *     the buffer pool statistics as plain text, followed by the {@link EdgeMapCache} statistics when the cache
+ *     is enabled with {@code --cache-mb} or {@code --cache-dir}</li>
+ * </ul>
+ *
+ * <p>Every request runs on its own virtual thread, which only reads the request and writes the response.
+ * Decoding, edge detection and encoding run on the common {@link ForkJoinPool}, the pool {@code parallel}
+ * already uses, so concurrent requests share one worker per core instead of oversubscribing the CPU. Before that
+ * a request must be admitted by a {@link PixelBudget}: its image size is read from the header, and if the pixels
+ * in flight would exceed the budget it waits up to the queue timeout and is then rejected with
+ * {@code 429 Too Many Requests}. Images larger than the whole budget are rejected with
+ * {@code 413 Content Too Large}, and so are request bodies above {@code --max-body-mb} (default
+ * {@value #DEFAULT_MAX_BODY_MB}), before they are read. Bodies that are not a decodable image and malformed
+ * {@code Content-Length} headers get {@code 400 Bad Request}, and requests cut short by a shutdown get {@code 503 Service Unavailable}.</p>
+ */
+public class EdgeServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EdgeServer.class);
+
+    /**
+     * Default port of the service.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * Estimated heap bytes per admitted pixel: the decoded image, the grayscale and gradient arrays, the output
+     * image and the encoded buffers.
+     */
+    private static final int BYTES_PER_PIXEL = 24;
+
+    /**
+     * Default time a request may wait for admission.
+     */
+    private static final long DEFAULT_QUEUE_TIMEOUT_MILLIS = 2_000;
+
+    /**
+     * Default size of the disk tier of the edge map cache, in megabytes.
+     */
+    private static final long DEFAULT_CACHE_DISK_MB = 1024;
+
+    /**
+     * Default maximum size of a request body, in megabytes.
+     */
+    public static final long DEFAULT_MAX_BODY_MB = 64;
+
+    /**
+     * Largest request body that fits in one array, with room for the byte telling an oversized body apart.
+     */
+    private static final long MAX_BODY_BYTES_LIMIT = Integer.MAX_VALUE - 16;
+
+    private final HttpServer server;
+    private final EdgeDetector detector;
+    private final PixelBudget budget;
+    private final long maxBodyBytes;
+    private final ExecutorService requests;
+    private final ForkJoinPool workers = ForkJoinPool.commonPool();
+
+    /**
+     * Creates a server accepting request bodies of up to {@value #DEFAULT_MAX_BODY_MB} megabytes;
+     * {@link #start()} starts accepting requests.
+     *
+     * @param address  the address to bind, port 0 for any free port
+     * @param detector the edge detection engine
+     * @param budget   the admission control
+     * @throws IOException if the address cannot be bound
+     */
+    public EdgeServer(InetSocketAddress address, EdgeDetector detector, PixelBudget budget) throws IOException {
+        this(address, detector, budget, DEFAULT_MAX_BODY_MB << 20);
+    }
+
+    /**
+     * Creates a server; {@link #start()} starts accepting requests.
+     *
+     * @param address      the address to bind, port 0 for any free port
+     * @param detector     the edge detection engine
+     * @param budget       the admission control
+     * @param maxBodyBytes the largest request body accepted, larger ones get {@code 413}
+     * @throws IOException if the address cannot be bound
+     */
+    public EdgeServer(InetSocketAddress address, EdgeDetector detector, PixelBudget budget, long maxBodyBytes)
+            throws IOException {
+        if (maxBodyBytes < 1) {
+            throw new IllegalArgumentException("Maximum body size must be positive");
+        }
+        this.detector = detector;
+        this.budget = budget;
+        this.maxBodyBytes = Math.min(maxBodyBytes, MAX_BODY_BYTES_LIMIT);
+        this.requests = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(requests);
+        this.server.createContext("/detect", this::detect);
+        this.server.createContext("/metrics", this::metrics);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+        logger.info("[Server] Listening on {} with engine {}, budget {}", server.getAddress(), detector.name(),
+                budget.stats());
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     *
+     * @return the port
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits for the requests in flight.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        requests.close();
+        logger.info("[Server] Stopped, {}", budget.stats());
+    }
+
+    /**
+     * Parses the command line and runs the server until the JVM is shut down.
+     *
+     * @param args the command line arguments
+     * @throws IOException if the address cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        String engine = EngineRegistry.AUTO;
+        long budgetPixels = Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 2 / BYTES_PER_PIXEL);
+        long queueTimeout = DEFAULT_QUEUE_TIMEOUT_MILLIS;
+        long cacheMb = 0;
+        Path cacheDir = null;
+        long cacheDiskMb = DEFAULT_CACHE_DISK_MB;
+        long maxBodyMb = DEFAULT_MAX_BODY_MB;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host" -> host = value(args, ++i);
+                case "--port" -> port = Integer.parseInt(value(args, ++i));
+                case "--engine" -> engine = value(args, ++i);
+                case "--budget-megapixels" -> budgetPixels = Math.min(Integer.MAX_VALUE,
+                        (long) (Double.parseDouble(value(args, ++i)) * 1_000_000));
+                case "--queue-timeout" -> queueTimeout = Long.parseLong(value(args, ++i));
+                case "--cache-mb" -> cacheMb = Long.parseLong(value(args, ++i));
+                case "--cache-dir" -> cacheDir = Path.of(value(args, ++i));
+                case "--cache-disk-mb" -> cacheDiskMb = Long.parseLong(value(args, ++i));
+                case "--max-body-mb" -> maxBodyMb = Long.parseLong(value(args, ++i));
+                default -> {
+                    System.err.println("Usage: EdgeServer [--host ADDRESS] [--port N] [--engine NAME] "
+                            + "[--budget-megapixels N] [--queue-timeout MILLIS] [--cache-mb N] [--cache-dir DIR] "
+                            + "[--cache-disk-mb N] [--max-body-mb N]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        EngineRegistry engines = EngineRegistry.load();
+        EdgeDetector detector = engines.get(engine);
+        if (cacheMb > 0 || cacheDir != null) {
+            detector = new CachingEdgeDetector(detector, EdgeMapCache.open(cacheMb << 20, cacheDir, cacheDiskMb << 20));
+        }
+        EdgeServer server = new EdgeServer(new InetSocketAddress(host, port), detector,
+                new PixelBudget((int) budgetPixels, queueTimeout), maxBodyMb << 20);
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().unstarted(() -> {
+            server.close();
+            engines.close();
+        }));
+        server.start();
+    }
+
+    /**
+     * Handles {@code POST /detect}. Failures are answered before the exchange is closed.
+     *
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void detect(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                respond(exchange);
+            } catch (InterruptedException e) {
+                // Answer before restoring the interrupt, which would close the connection of a virtual thread
+                try {
+                    sendText(exchange, 503, "Server is shutting down");
+                } finally {
+                    Thread.currentThread().interrupt();
+                }
+            } catch (ExecutionException e) {
+                logger.error("[Server] Edge detection failed for {}:", exchange.getRemoteAddress(), e.getCause());
+                sendText(exchange, 500, "Edge detection failed: " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Reads, admits, converts and answers one {@code POST /detect} request.
+     *
+     * @param exchange the request and response
+     * @throws IOException          if the response cannot be written
+     * @throws InterruptedException if the thread is interrupted while waiting for admission or a worker
+     * @throws ExecutionException   if edge detection or encoding fails on a worker
+     */
+    private void respond(HttpExchange exchange) throws IOException, InterruptedException, ExecutionException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            sendText(exchange, 405, "Use POST with the image bytes as body");
+            return;
+        }
+        String query = exchange.getRequestURI().getQuery();
+        boolean raw = query != null && List.of(query.split("&")).contains("format=raw");
+        long length;
+        try {
+            length = contentLength(exchange);
+        } catch (NumberFormatException e) {
+            sendText(exchange, 400, "Malformed Content-Length: " + e.getMessage());
+            return;
+        }
+        byte[] body = readBody(exchange, length);
+        if (body == null) {
+            sendText(exchange, 413, "Request body exceeds the limit of %d bytes".formatted(maxBodyBytes));
+            return;
+        }
+
+        ImageReader reader = reader(body);
+        if (reader == null) {
+            sendText(exchange, 400, "Not a readable image");
+            return;
+        }
+        try {
+            int width;
+            int height;
+            try {
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+            } catch (IOException e) {
+                sendText(exchange, 400, "Unreadable image header: " + e.getMessage());
+                return;
+            }
+            long pixels = (long) width * height;
+            if (!budget.fits(pixels)) {
+                sendText(exchange, 413, "Image of %d x %d pixels exceeds the budget of %d pixels".formatted(
+                        width, height, budget.stats().capacityPixels()));
+                return;
+            }
+            if (!budget.acquire(pixels)) {
+                exchange.getResponseHeaders().set("Retry-After", Long.toString(budget.retryAfterSeconds()));
+                sendText(exchange, 429, "Too many pixels in flight, retry later");
+                return;
+            }
+            byte[] result;
+            try {
+                BufferedImage image;
+                try {
+                    image = workers.submit(() -> decode(reader, width, height)).get();
+                } catch (ExecutionException e) {
+                    IOException cause = ioCause(e);
+                    if (cause == null) {
+                        throw e;
+                    }
+                    sendText(exchange, 400, "Unreadable image: " + cause.getMessage());
+                    return;
+                }
+                result = workers.submit(() -> process(image, raw)).get();
+            } finally {
+                budget.release(pixels);
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", raw ? "application/octet-stream" : "image/png");
+            exchange.getResponseHeaders().set("X-Image-Width", Integer.toString(width));
+            exchange.getResponseHeaders().set("X-Image-Height", Integer.toString(height));
+            exchange.sendResponseHeaders(200, result.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(result);
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Returns the {@link IOException} behind a failed worker task. The pool wraps checked exceptions of its tasks
+     * in {@link RuntimeException}s, so the whole cause chain is searched.
+     *
+     * @param failure the failure of the task
+     * @return the I/O exception, or {@code null} if the task failed otherwise
+     */
+    private static IOException ioCause(ExecutionException failure) {
+        for (Throwable cause = failure.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException io) {
+                return io;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Handles {@code GET /metrics}.
+     *
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String cache = detector instanceof CachingEdgeDetector caching ? caching.cache().stats() + System.lineSeparator() : "";
+            sendText(exchange, 200, "%s%s%n%s%n%s".formatted(Metrics.report(), budget.stats(), BufferPool.shared().stats(),
+                    cache));
+        }
+    }
+
+    /**
+     * Returns the {@code Content-Length} of a request. The JDK server already rejects most malformed values
+     * before the handler runs, but other {@code HttpServer} providers need not.
+     *
+     * @param exchange the request
+     * @return the announced body length, or -1 if the header is missing, e.g. for a chunked body
+     * @throws NumberFormatException if the header is not a non-negative decimal number
+     */
+    private static long contentLength(HttpExchange exchange) {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length == null) {
+            return -1;
+        }
+        long value = Long.parseLong(length.trim());
+        if (value < 0) {
+            throw new NumberFormatException("Negative length " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the request body, unless it is larger than the limit. A body announced as too large by its
+     * {@code Content-Length} is not read at all; a chunked body is read up to one byte past the limit.
+     *
+     * @param exchange the request
+     * @param length   the {@link #contentLength(HttpExchange) announced length}, -1 if unknown
+     * @return the body, or {@code null} if it exceeds the limit
+     * @throws IOException if the body cannot be read
+     */
+    private byte[] readBody(HttpExchange exchange, long length) throws IOException {
+        if (length > maxBodyBytes) {
+            return null;
+        }
+        byte[] body = exchange.getRequestBody().readNBytes((int) maxBodyBytes + 1);
+
+        return body.length > maxBodyBytes ? null : body;
+    }
+
+    /**
+     * Decodes one image on a worker thread.
+     *
+     * @param reader the reader positioned on the request body
+     * @param width  the image width
+     * @param height the image height
+     * @return the decoded image
+     * @throws IOException if the image cannot be decoded
+     */
+    private BufferedImage decode(ImageReader reader, int width, int height) throws IOException {
+        StageEvent event = Metrics.begin(Stage.DECODE, detector.name(), width, height);
+        try {
+            return reader.read(0);
+        } finally {
+            Metrics.end(event);
+        }
+    }
+
+    /**
+     * Converts and encodes one image on a worker thread.
+     *
+     * @param image the decoded image
+     * @param raw   {@code true} for one gray byte per pixel, {@code false} for PNG
+     * @return the response body
+     * @throws IOException if the edge map cannot be encoded
+     */
+    private byte[] process(BufferedImage image, boolean raw) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferPool pool = BufferPool.shared();
+        BufferedImage output = pool.acquireImage(width, height, BufferedImage.TYPE_INT_RGB);
+        try {
+            detector.convert(image, output);
+
+            StageEvent event = Metrics.begin(Stage.ENCODE, detector.name(), width, height);
+            byte[] encoded = raw ? grayBytes(output) : png(output);
+            Metrics.end(event);
+            return encoded;
+        } finally {
+            pool.release(output);
+        }
+    }
+
+    /**
+     * Returns a reader positioned on the image in the given bytes.
+     *
+     * @param body the encoded image
+     * @return the reader, to be disposed by the caller, or {@code null} if no reader understands the bytes
+     * @throws IOException if the bytes cannot be read
+     */
+    private static ImageReader reader(byte[] body) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(body));
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+
+        return reader;
+    }
+
+    /**
+     * Extracts the gray levels of an edge map.
+     *
+     * @param edges the edge map, of type {@code TYPE_INT_RGB}
+     * @return one byte per pixel in row-major order
+     */
+    private static byte[] grayBytes(BufferedImage edges) {
+        int[] data = ((DataBufferInt) edges.getRaster().getDataBuffer()).getData();
+        byte[] levels = new byte[edges.getWidth() * edges.getHeight()];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = (byte) data[i];
+        }
+
+        return levels;
+    }
+
+    /**
+     * Encodes an edge map as PNG.
+     *
+     * @param edges the edge map
+     * @return the PNG bytes
+     * @throws IOException if encoding fails
+     */
+    private static byte[] png(BufferedImage edges) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(edges, "png", encoded);
+
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Sends a plain text response.
+     *
+     * @param exchange the exchange
+     * @param status   the HTTP status code
+     * @param text     the response body
+     * @throws IOException if the response cannot be written
+     */
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Returns the value following an option.
+     *
+     * @param args  the command line arguments
+     * @param index the index of the value
+     * @return the option value
+     * @throws IllegalArgumentException if the value is missing
+     */
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for option %s".formatted(args[index - 1]));
+        }
+        return args[index];
+    }
+}
@@ -0,0 +1,116 @@
+package com.corp.imgpro.edgedetect.server;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control by image size. Every request holds as many permits as its image has pixels while it is
+ * decoded, converted and encoded, so the memory and CPU time in flight stay bounded by the capacity no matter
+ * whether the traffic consists of many thumbnails or a few large scans. Requests that do not fit wait in a fair
+ * queue for a bounded time and are rejected afterwards.
+ */
+public class PixelBudget {
+
+    /**
+     * Admission counters.
+     *
+     * @param capacityPixels the number of pixels that may be in flight
+     * @param inFlightPixels the number of pixels currently admitted
+     * @param admitted       the number of requests admitted
+     * @param queued         the number of requests that had to wait, whether they were admitted afterwards or
+     *                       rejected
+     * @param rejected       the number of requests rejected after waiting
+     * @param oversized      the number of requests larger than the whole capacity
+     */
+    public record Stats(long capacityPixels, long inFlightPixels, long admitted, long queued, long rejected,
+                        long oversized) {
+    }
+
+    private final int capacity;
+    private final long queueTimeoutMillis;
+    private final Semaphore permits;
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong oversized = new AtomicLong();
+
+    /**
+     * Creates a budget.
+     *
+     * @param capacityPixels     the number of pixels that may be in flight
+     * @param queueTimeoutMillis how long a request may wait for permits; 0 rejects immediately when full
+     * @throws IllegalArgumentException if the capacity is not positive or the timeout is negative
+     */
+    public PixelBudget(int capacityPixels, long queueTimeoutMillis) {
+        if (capacityPixels < 1 || queueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Capacity must be positive and the queue timeout not negative, got %d and %d"
+                    .formatted(capacityPixels, queueTimeoutMillis));
+        }
+        this.capacity = capacityPixels;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.permits = new Semaphore(capacityPixels, true);
+    }
+
+    /**
+     * Returns whether an image of the given size can ever be admitted.
+     *
+     * @param pixels the number of pixels of the image
+     * @return {@code true} if the image is not larger than the capacity
+     */
+    public boolean fits(long pixels) {
+        boolean fits = pixels <= capacity;
+        if (!fits) {
+            oversized.incrementAndGet();
+        }
+        return fits;
+    }
+
+    /**
+     * Admits an image, waiting up to the queue timeout for enough pixels to be released.
+     *
+     * @param pixels the number of pixels of the image, at most the capacity
+     * @return {@code true} if the image was admitted and {@link #release(long)} must be called when it is done
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean acquire(long pixels) throws InterruptedException {
+        int n = (int) pixels;
+        // The timed variant honours the fair queue, the untimed one would barge ahead of waiting requests
+        boolean admittedNow = permits.tryAcquire(n, 0, TimeUnit.MILLISECONDS);
+        if (!admittedNow && queueTimeoutMillis > 0) {
+            queued.incrementAndGet();
+            admittedNow = permits.tryAcquire(n, queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        (admittedNow ? admitted : rejected).incrementAndGet();
+
+        return admittedNow;
+    }
+
+    /**
+     * Returns the pixels of a finished image to the budget.
+     *
+     * @param pixels the number of pixels passed to {@link #acquire(long)}
+     */
+    public void release(long pixels) {
+        permits.release((int) pixels);
+    }
+
+    /**
+     * Returns the suggested number of seconds a rejected client should wait before retrying.
+     *
+     * @return the queue timeout rounded up to whole seconds, at least 1
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, (queueTimeoutMillis + 999) / 1000);
+    }
+
+    /**
+     * Returns a snapshot of the admission counters.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        return new Stats(capacity, capacity - permits.availablePermits(), admitted.get(), queued.get(),
+                rejected.get(), oversized.get());
+    }
+}
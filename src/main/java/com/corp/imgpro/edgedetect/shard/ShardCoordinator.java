@@ -0,0 +1,734 @@
+package com.corp.imgpro.edgedetect.shard;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sobel edge detection sharded across worker processes. The coordinator converts the image to grayscale, splits
+ * it into square tiles and sends every tile with its one-pixel halo to a {@link ShardWorker} in the
+ * {@link TileProtocol binary tile format}. The workers answer with the gradients and the maximum gradient of
+ * their tiles; the coordinator takes the maximum of the tile maxima for the global normalization and writes the
+ * tiles into the output image. The result is identical to {@code SobelStandard}.
+ *
+ * <pre>
+ * ShardCoordinator (--spawn N | --workers HOST:PORT,...) [--tile N] [--timeout-ms N] [--slow-ms N]
+ *                  [--output DIR] image...
+ * </pre>
+ *
+ * <p>Every worker has one connection and a dispatch thread that sends it one tile at a time from a shared queue,
+ * so fast workers take more tiles. A worker whose connection fails or does not answer within the
+ * {@link Settings#timeoutMillis() timeout} is dropped and its tile goes back to the queue. A worker that is
+ * merely slow keeps its tile, but once the queue is empty an idle worker also takes any tile that has been in
+ * flight for longer than {@link Settings#slowMillis()}, and the first answer wins: the conversion finishes as soon
+ * as every tile has an answer, and the connection of the slower worker is reused only after its late answer has
+ * been read and dropped. If every worker has failed, the coordinator converts the remaining tiles itself.</p>
+ *
+ * <p>{@link #spawn(int, List)} starts the workers as child JVMs with the flags and class path of the current
+ * one, which is how several workers are tested on one host; {@link #connect(List)} uses workers that are already
+ * running, e.g. on other hosts.</p>
+ */
+public class ShardCoordinator implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "shard";
+
+    /**
+     * Time an idle dispatch thread waits before looking for work again.
+     */
+    private static final long IDLE_WAIT_MILLIS = 5;
+
+    /**
+     * The tiling and the failure handling of a coordinator.
+     *
+     * @param tileSize      the width and height of a tile in pixels
+     * @param timeoutMillis the time a worker may take to answer a tile before it is dropped
+     * @param slowMillis    the time after which a tile in flight is also given to an idle worker
+     */
+    public record Settings(int tileSize, long timeoutMillis, long slowMillis) {
+
+        /**
+         * System property setting the tile size.
+         */
+        public static final String TILE_PROPERTY = "edgedetect.shard.tile";
+
+        /**
+         * System property setting the worker timeout in milliseconds.
+         */
+        public static final String TIMEOUT_PROPERTY = "edgedetect.shard.timeout";
+
+        /**
+         * System property setting the time after which a tile counts as slow, in milliseconds.
+         */
+        public static final String SLOW_PROPERTY = "edgedetect.shard.slow";
+
+        /**
+         * Tiles of 1024 x 1024 pixels, a 30 second timeout and duplicates after 2 seconds.
+         */
+        public static final Settings DEFAULT = new Settings(1024, 30_000, 2_000);
+
+        /**
+         * Creates settings.
+         *
+         * @throws IllegalArgumentException if a value is not positive
+         */
+        public Settings {
+            if (tileSize < 1 || timeoutMillis < 1 || slowMillis < 1) {
+                throw new IllegalArgumentException("Shard settings must be positive, got tile %d, timeout %d, slow %d"
+                        .formatted(tileSize, timeoutMillis, slowMillis));
+            }
+        }
+
+        /**
+         * Returns the settings configured with {@value #TILE_PROPERTY}, {@value #TIMEOUT_PROPERTY} and
+         * {@value #SLOW_PROPERTY}, taking unset ones from {@link #DEFAULT}.
+         *
+         * @return the configured settings
+         */
+        public static Settings configured() {
+            return new Settings(Integer.getInteger(TILE_PROPERTY, DEFAULT.tileSize),
+                    Long.getLong(TIMEOUT_PROPERTY, DEFAULT.timeoutMillis),
+                    Long.getLong(SLOW_PROPERTY, DEFAULT.slowMillis));
+        }
+    }
+
+    /**
+     * Counters of one conversion.
+     *
+     * @param tiles       the number of tiles of the image
+     * @param reassigned  the number of tiles sent again after their worker failed or was slow
+     * @param local       the number of tiles the coordinator converted itself
+     * @param liveWorkers the number of workers still connected afterwards
+     */
+    public record ShardStats(int tiles, int reassigned, int local, int liveWorkers) {
+    }
+
+    private final List<WorkerLink> workers;
+    private final Settings settings;
+    private final ExecutorService dispatchers;
+    private volatile ShardStats lastStats = new ShardStats(0, 0, 0, 0);
+
+    private ShardCoordinator(List<WorkerLink> workers, Settings settings) {
+        this.workers = workers;
+        this.settings = settings;
+        this.dispatchers = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().daemon()
+                .name("shard-dispatch-", 0).factory());
+    }
+
+    /**
+     * Connects to running workers.
+     *
+     * @param addresses the worker addresses
+     * @param settings  the tiling and failure handling
+     * @return the coordinator
+     * @throws IOException if no worker can be reached
+     */
+    public static ShardCoordinator connect(List<InetSocketAddress> addresses, Settings settings) throws IOException {
+        List<WorkerLink> links = new ArrayList<>();
+        for (InetSocketAddress address : addresses) {
+            links.add(new WorkerLink(address, null));
+        }
+        return open(links, settings);
+    }
+
+    /**
+     * Connects to running workers with the {@link Settings#configured() configured settings}.
+     *
+     * @param addresses the worker addresses
+     * @return the coordinator
+     * @throws IOException if no worker can be reached
+     */
+    public static ShardCoordinator connect(List<InetSocketAddress> addresses) throws IOException {
+        return connect(addresses, Settings.configured());
+    }
+
+    /**
+     * Starts worker JVMs on this host and connects to them. The workers run with the JVM flags, the class path
+     * and the module path of the current JVM and exit when the coordinator is closed or dies.
+     *
+     * @param count      the number of workers
+     * @param workerArgs additional {@link ShardWorker} options, e.g. to simulate failures
+     * @param settings   the tiling and failure handling
+     * @return the coordinator
+     * @throws IOException if no worker can be started
+     */
+    public static ShardCoordinator spawn(int count, List<String> workerArgs, Settings settings) throws IOException {
+        List<WorkerLink> links = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Process process = new ProcessBuilder(workerCommand(workerArgs))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            try {
+                int port = awaitPort(process, i);
+                links.add(new WorkerLink(new InetSocketAddress("127.0.0.1", port), process));
+            } catch (IOException e) {
+                process.destroyForcibly();
+                logger.error("[Shard] Worker {} did not start: {}", i, e.getMessage());
+            }
+        }
+        return open(links, settings);
+    }
+
+    /**
+     * Starts worker JVMs on this host with the {@link Settings#configured() configured settings}.
+     *
+     * @param count      the number of workers
+     * @param workerArgs additional {@link ShardWorker} options
+     * @return the coordinator
+     * @throws IOException if no worker can be started
+     */
+    public static ShardCoordinator spawn(int count, List<String> workerArgs) throws IOException {
+        return spawn(count, workerArgs, Settings.configured());
+    }
+
+    /**
+     * Converts an image into a new {@code TYPE_INT_RGB} edge map.
+     *
+     * @param image the input image
+     * @return the edge map
+     */
+    public BufferedImage convert(BufferedImage image) {
+        return convert(image, new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB));
+    }
+
+    /**
+     * Converts an image into a caller-provided output image on the workers. Conversions are serialized, since
+     * each worker has one connection. {@link Metrics} times grayscale, convolution, which is the time until the
+     * last tile arrived, and normalization.
+     *
+     * @param image  the input image
+     * @param output the image receiving the edge map, of the same size as {@code image} and any type
+     * @return {@code output}
+     * @throws IllegalArgumentException if the output size differs from the input size
+     */
+    public synchronized BufferedImage convert(BufferedImage image, BufferedImage output) {
+        Rasters.requireSameSize(image, output);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferPool pool = BufferPool.shared();
+
+        int[] grayScale = pool.acquireInts(width * height);
+        try {
+            StageEvent event = Metrics.begin(Stage.GRAYSCALE, ENGINE, width, height);
+            for (int y = 0; y < height; y++) {
+                Rasters.grayScaleRow(image, y, grayScale, y * width);
+            }
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.CONVOLUTION, ENGINE, width, height);
+            List<Tile> tiles = tiles(width, height);
+            Dispatch dispatch = new Dispatch(grayScale, width, height, tiles);
+            dispatch.run();
+            Metrics.end(event);
+
+            event = Metrics.begin(Stage.NORMALIZATION, ENGINE, width, height);
+            int maxGradient = -1;
+            for (Tile tile : tiles) {
+                maxGradient = Math.max(maxGradient, tile.result.get().maxGradient());
+            }
+            int[] table = maxGradient < 0 ? new int[1] : SobelMath.normalizationTable(maxGradient);
+            int[] levels = new int[settings.tileSize()];
+            for (Tile tile : tiles) {
+                Rectangle core = tile.core;
+                int[] gradients = tile.result.get().gradients();
+                for (int row = 0; row < core.height; row++) {
+                    for (int x = 0; x < core.width; x++) {
+                        levels[x] = table[gradients[row * core.width + x]];
+                    }
+                    Rasters.setGrayRow(output, core.y + row, levels, -core.x, core.x, core.x + core.width);
+                }
+            }
+            Metrics.end(event);
+        } finally {
+            pool.release(grayScale);
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the counters of the last conversion.
+     *
+     * @return the statistics of the last {@link #convert(BufferedImage, BufferedImage)}
+     */
+    public ShardStats lastStats() {
+        return lastStats;
+    }
+
+    /**
+     * Closes the connections and stops the spawned workers.
+     */
+    @Override
+    public void close() {
+        dispatchers.shutdownNow();
+        workers.forEach(WorkerLink::close);
+    }
+
+    /**
+     * Parses the command line, converts the images and writes the edge maps as PNG files next to them or into
+     * the output directory.
+     *
+     * @param args the command line arguments
+     * @throws IOException if no worker is available or an image cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        int spawn = 0;
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        Settings defaults = Settings.configured();
+        int tileSize = defaults.tileSize();
+        long timeoutMillis = defaults.timeoutMillis();
+        long slowMillis = defaults.slowMillis();
+        Path output = null;
+        List<Path> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--spawn" -> spawn = Integer.parseInt(value(args, ++i));
+                case "--workers" -> {
+                    for (String worker : value(args, ++i).split(",")) {
+                        int colon = worker.lastIndexOf(':');
+                        addresses.add(new InetSocketAddress(worker.substring(0, colon),
+                                Integer.parseInt(worker.substring(colon + 1))));
+                    }
+                }
+                case "--tile" -> tileSize = Integer.parseInt(value(args, ++i));
+                case "--timeout-ms" -> timeoutMillis = Long.parseLong(value(args, ++i));
+                case "--slow-ms" -> slowMillis = Long.parseLong(value(args, ++i));
+                case "--output" -> output = Path.of(value(args, ++i));
+                default -> {
+                    if (args[i].startsWith("--")) {
+                        System.err.println("Usage: ShardCoordinator (--spawn N | --workers HOST:PORT,...) [--tile N] "
+                                + "[--timeout-ms N] [--slow-ms N] [--output DIR] image...");
+                        System.exit(2);
+                    }
+                    inputs.add(Path.of(args[i]));
+                }
+            }
+        }
+
+        Settings settings = new Settings(tileSize, timeoutMillis, slowMillis);
+        try (ShardCoordinator coordinator = spawn > 0 ? spawn(spawn, List.of(), settings)
+                : connect(addresses, settings)) {
+            for (Path input : inputs) {
+                BufferedImage image = ImageIO.read(input.toFile());
+                if (image == null) {
+                    throw new IOException("Not a readable image: " + input);
+                }
+                long start = System.nanoTime();
+                BufferedImage edges = coordinator.convert(image);
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+                String name = input.getFileName().toString().replaceFirst("\\.[^.]*$", "") + "-edges.png";
+                Path target = output != null ? output.resolve(name) : input.resolveSibling(name);
+                ImageIO.write(edges, "png", target.toFile());
+                logger.info("[Shard] {} ({} x {}) in {} ms, {}", input, image.getWidth(), image.getHeight(), elapsed,
+                        coordinator.lastStats());
+            }
+        }
+    }
+
+    /**
+     * Splits an image into tiles.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @return the tiles in row-major order, indexed by their id
+     */
+    private List<Tile> tiles(int width, int height) {
+        int size = settings.tileSize();
+        List<Tile> tiles = new ArrayList<>();
+        for (int y = 0; y < height; y += size) {
+            for (int x = 0; x < width; x += size) {
+                tiles.add(new Tile(tiles.size(), new Rectangle(x, y, Math.min(size, width - x),
+                        Math.min(size, height - y))));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Connects the links and creates the coordinator, failing if none is connected.
+     *
+     * @param links    the worker links
+     * @param settings the tiling and failure handling
+     * @return the coordinator
+     * @throws IOException if no link could be connected
+     */
+    private static ShardCoordinator open(List<WorkerLink> links, Settings settings) throws IOException {
+        List<WorkerLink> connected = new ArrayList<>();
+        for (WorkerLink link : links) {
+            try {
+                link.connect(settings.timeoutMillis());
+                connected.add(link);
+            } catch (IOException e) {
+                logger.error("[Shard] Cannot connect to worker {}: {}", link.address, e.getMessage());
+                link.close();
+            }
+        }
+        if (connected.isEmpty()) {
+            throw new IOException("No shard worker available");
+        }
+        logger.info("[Shard] Coordinator connected to {} workers", connected.size());
+        return new ShardCoordinator(connected, settings);
+    }
+
+    /**
+     * Builds the command line of a worker JVM from the current JVM.
+     *
+     * @param workerArgs additional worker options
+     * @return the command
+     */
+    private static List<String> workerCommand(List<String> workerArgs) {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+                .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            // A debugger agent would try to bind the port of the coordinator's agent
+            if (!argument.startsWith("-agentlib:jdwp") && !argument.startsWith("-Xrunjdwp")) {
+                command.add(argument);
+            }
+        }
+        Module module = ShardWorker.class.getModule();
+        if (module.isNamed()) {
+            command.addAll(List.of("-m", module.getName() + "/" + ShardWorker.class.getName()));
+        } else {
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), ShardWorker.class.getName()));
+        }
+        command.add("--exit-on-stdin-close");
+        command.addAll(workerArgs);
+        return command;
+    }
+
+    /**
+     * Reads the standard output of a spawned worker up to its {@value ShardWorker#READY} line and keeps draining
+     * it into the log afterwards, so that the worker never blocks on a full pipe.
+     *
+     * @param process the worker process
+     * @param index   the worker index, for the log
+     * @return the port the worker listens on
+     * @throws IOException if the worker exits before it is ready
+     */
+    private static int awaitPort(Process process, int index) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(ShardWorker.READY + " ")) {
+                int port = Integer.parseInt(line.substring(ShardWorker.READY.length() + 1).trim());
+                Thread.ofPlatform().daemon().name("shard-worker-" + index + "-output").start(() -> {
+                    try {
+                        String output;
+                        while ((output = reader.readLine()) != null) {
+                            logger.debug("[Shard] Worker {}: {}", index, output);
+                        }
+                    } catch (IOException e) {
+                        logger.debug("[Shard] Output of worker {} closed: {}", index, e.getMessage());
+                    }
+                });
+                return port;
+            }
+            logger.debug("[Shard] Worker {}: {}", index, line);
+        }
+        throw new IOException("Worker exited with status " + process.onExit().join().exitValue());
+    }
+
+    /**
+     * Returns the value following an option.
+     *
+     * @param args  the command line arguments
+     * @param index the index of the value
+     * @return the option value
+     * @throws IllegalArgumentException if the value is missing
+     */
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for option %s".formatted(args[index - 1]));
+        }
+        return args[index];
+    }
+
+    /**
+     * A tile of the current conversion.
+     */
+    private static final class Tile {
+        private final int id;
+        private final Rectangle core;
+        private final AtomicReference<TileProtocol.TileResult> result = new AtomicReference<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile long startedNanos;
+
+        Tile(int id, Rectangle core) {
+            this.id = id;
+            this.core = core;
+        }
+    }
+
+    /**
+     * The distribution of the tiles of one conversion over the live workers.
+     */
+    private final class Dispatch {
+        private final int[] grayScale;
+        private final int width;
+        private final int height;
+        private final List<Tile> tiles;
+        private final Queue<Tile> pending;
+        private final AtomicInteger remaining;
+        private final AtomicInteger reassigned = new AtomicInteger();
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+        Dispatch(int[] grayScale, int width, int height, List<Tile> tiles) {
+            this.grayScale = grayScale;
+            this.width = width;
+            this.height = height;
+            this.tiles = tiles;
+            this.pending = new ConcurrentLinkedQueue<>(tiles);
+            this.remaining = new AtomicInteger(tiles.size());
+        }
+
+        /**
+         * Runs one dispatch loop per live worker until every tile has a result or every loop has ended, then
+         * converts the tiles left over by failed workers locally. A loop still waiting for the answer to a tile
+         * that another worker answered first is not waited for; the next loop on its worker starts after it.
+         */
+        void run() {
+            List<CompletableFuture<Void>> loops = new ArrayList<>();
+            for (WorkerLink worker : workers) {
+                if (!worker.failed) {
+                    worker.loop = worker.loop.exceptionally(e -> null).thenRunAsync(() -> dispatch(worker),
+                            dispatchers);
+                    loops.add(worker.loop);
+                }
+            }
+            try {
+                CompletableFuture.anyOf(finished, CompletableFuture.allOf(loops.toArray(CompletableFuture[]::new)))
+                        .get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for shard workers", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Shard dispatch failed", e.getCause());
+            }
+
+            int local = 0;
+            if (remaining.get() > 0) {
+                logger.warn("[Shard] All workers failed, converting {} tiles locally", remaining.get());
+                for (Tile tile : tiles) {
+                    if (tile.result.get() == null) {
+                        tile.result.set(TileProtocol.process(request(tile)));
+                        local++;
+                    }
+                }
+            }
+            int live = (int) workers.stream().filter(worker -> !worker.failed).count();
+            lastStats = new ShardStats(tiles.size(), reassigned.get(), local, live);
+        }
+
+        /**
+         * Sends tiles to one worker until every tile has a result or the worker fails.
+         *
+         * @param worker the worker
+         */
+        private void dispatch(WorkerLink worker) {
+            while (remaining.get() > 0 && !worker.failed) {
+                Tile tile = next();
+                if (tile == null) {
+                    try {
+                        Thread.sleep(IDLE_WAIT_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+
+                TileProtocol.TileResult result;
+                try {
+                    result = worker.exchange(request(tile));
+                } catch (IOException e) {
+                    logger.warn("[Shard] Dropping worker {} after tile {} failed: {}", worker.address, tile.id,
+                            e.toString());
+                    worker.fail();
+                    if (tile.inFlight.decrementAndGet() == 0 && tile.result.get() == null) {
+                        pending.add(tile);
+                        reassigned.incrementAndGet();
+                    }
+                    return;
+                }
+                tile.inFlight.decrementAndGet();
+                if (tile.result.compareAndSet(null, result) && remaining.decrementAndGet() == 0) {
+                    finished.complete(null);
+                }
+            }
+        }
+
+        /**
+         * Takes the next tile to send: a pending tile, or else a tile that is slow on another worker.
+         *
+         * @return the tile, marked as in flight, or {@code null} if there is nothing to do right now
+         */
+        private Tile next() {
+            Tile tile = pending.poll();
+            if (tile == null) {
+                long now = System.nanoTime();
+                for (Tile candidate : tiles) {
+                    if (candidate.result.get() == null && candidate.inFlight.get() == 1
+                            && now - candidate.startedNanos > settings.slowMillis() * 1_000_000
+                            && candidate.inFlight.compareAndSet(1, 2)) {
+                        logger.info("[Shard] Tile {} is slow, sending it to another worker", candidate.id);
+                        reassigned.incrementAndGet();
+                        candidate.startedNanos = now;
+                        return candidate;
+                    }
+                }
+                return null;
+            }
+            if (tile.result.get() != null) {
+                return next();
+            }
+            tile.inFlight.incrementAndGet();
+            tile.startedNanos = System.nanoTime();
+            return tile;
+        }
+
+        /**
+         * Builds the request of a tile from the grayscale values of its halo.
+         *
+         * @param tile the tile
+         * @return the request
+         */
+        private TileProtocol.TileRequest request(Tile tile) {
+            Rectangle halo = TileProtocol.halo(tile.core, width, height);
+            byte[] gray = new byte[halo.width * halo.height];
+            for (int row = 0; row < halo.height; row++) {
+                int source = (halo.y + row) * width + halo.x;
+                int target = row * halo.width;
+                for (int x = 0; x < halo.width; x++) {
+                    gray[target + x] = (byte) grayScale[source + x];
+                }
+            }
+            return new TileProtocol.TileRequest(tile.id, width, height, tile.core, gray);
+        }
+    }
+
+    /**
+     * The connection to one worker.
+     */
+    private static final class WorkerLink {
+        private final InetSocketAddress address;
+        private final Process process;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+        private volatile boolean failed;
+
+        /**
+         * The dispatch loop of the latest conversion on this connection, which may outlive its conversion while
+         * it reads a late answer. Only the thread holding the coordinator's lock replaces it.
+         */
+        private CompletableFuture<Void> loop = CompletableFuture.completedFuture(null);
+
+        WorkerLink(InetSocketAddress address, Process process) {
+            this.address = address;
+            this.process = process;
+        }
+
+        /**
+         * Opens the connection.
+         *
+         * @param timeoutMillis the connect and read timeout
+         * @throws IOException if the worker cannot be reached
+         */
+        void connect(long timeoutMillis) throws IOException {
+            socket = new Socket();
+            socket.connect(address, (int) Math.min(Integer.MAX_VALUE, timeoutMillis));
+            socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, timeoutMillis));
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Sends a tile and waits for its result. Only the dispatch thread of the worker calls this.
+         *
+         * @param request the tile
+         * @return the result
+         * @throws IOException if the connection fails or times out
+         */
+        TileProtocol.TileResult exchange(TileProtocol.TileRequest request) throws IOException {
+            TileProtocol.writeRequest(out, request);
+            out.flush();
+            return TileProtocol.readResult(in, request);
+        }
+
+        /**
+         * Marks the worker as failed and closes the connection, whose stream position is unknown.
+         */
+        void fail() {
+            failed = true;
+            closeSocket();
+        }
+
+        /**
+         * Closes the connection and, for a spawned worker, ends its process.
+         */
+        void close() {
+            failed = true;
+            closeSocket();
+            if (process != null) {
+                try {
+                    process.getOutputStream().close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    process.destroy();
+                }
+            }
+        }
+
+        /**
+         * Closes the socket, ignoring errors.
+         */
+        private void closeSocket() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    logger.debug("[Shard] Closing the connection to {} failed: {}", address, e.getMessage());
+                }
+            }
+        }
+    }
+}
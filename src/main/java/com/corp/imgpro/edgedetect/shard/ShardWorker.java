@@ -0,0 +1,209 @@
+package com.corp.imgpro.edgedetect.shard;
+
+import com.corp.imgpro.edgedetect.metrics.Metrics;
+import com.corp.imgpro.edgedetect.metrics.Stage;
+import com.corp.imgpro.edgedetect.metrics.StageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A worker process converting tiles for a {@link ShardCoordinator}. It listens on a local socket, serves every
+ * connection on its own thread and answers each {@link TileProtocol tile request} with the gradients of the
+ * tile, one request at a time per connection.
+ *
+ * <pre>
+ * ShardWorker [--host 127.0.0.1] [--port 0] [--exit-on-stdin-close] [--delay-ms N] [--fail-after N]
+ * </pre>
+ *
+ * <p>Once listening the worker prints {@value #READY} and its port on a line of its own to standard output,
+ * which is how a coordinator that spawned it learns the port. With {@code --exit-on-stdin-close} it exits when
+ * its standard input ends, so that spawned workers do not outlive their coordinator. {@code --delay-ms} and
+ * {@code --fail-after} simulate a slow worker and a worker that crashes after a number of tiles, to exercise the
+ * reassignment of the coordinator.</p>
+ */
+public class ShardWorker implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ShardWorker.class);
+
+    /**
+     * The word preceding the port in the line announcing that the worker is listening.
+     */
+    public static final String READY = "READY";
+
+    /**
+     * Engine tag of the stage metrics.
+     */
+    private static final String ENGINE = "shard";
+
+    private final ServerSocket server;
+    private final ExecutorService connections;
+    private final long delayMillis;
+    private final long failAfter;
+    private final AtomicLong tiles = new AtomicLong();
+
+    /**
+     * Creates a worker bound to an address; {@link #start()} starts accepting connections.
+     *
+     * @param address     the address to bind, port 0 for any free port
+     * @param delayMillis the time to wait before answering each tile, 0 for none
+     * @param failAfter   the number of tiles after which the worker process exits, 0 for never
+     * @throws IOException if the address cannot be bound
+     */
+    public ShardWorker(InetSocketAddress address, long delayMillis, long failAfter) throws IOException {
+        this.server = new ServerSocket();
+        this.server.bind(address);
+        this.connections = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().daemon()
+                .name("shard-connection-", 0).factory());
+        this.delayMillis = delayMillis;
+        this.failAfter = failAfter;
+    }
+
+    /**
+     * Starts accepting connections on a thread of its own.
+     */
+    public void start() {
+        Thread.ofPlatform().name("shard-accept").start(this::accept);
+        logger.info("[Shard] Worker listening on {}", server.getLocalSocketAddress());
+    }
+
+    /**
+     * Returns the port the worker is bound to.
+     *
+     * @return the port
+     */
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            logger.warn("[Shard] Closing the worker socket failed:", e);
+        }
+        connections.shutdownNow();
+        logger.info("[Shard] Worker stopped after {} tiles", tiles.get());
+    }
+
+    /**
+     * Parses the command line and runs the worker until the JVM is shut down or, with
+     * {@code --exit-on-stdin-close}, until standard input ends.
+     *
+     * @param args the command line arguments
+     * @throws IOException if the address cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = 0;
+        boolean exitOnStdinClose = false;
+        long delayMillis = 0;
+        long failAfter = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host" -> host = value(args, ++i);
+                case "--port" -> port = Integer.parseInt(value(args, ++i));
+                case "--exit-on-stdin-close" -> exitOnStdinClose = true;
+                case "--delay-ms" -> delayMillis = Long.parseLong(value(args, ++i));
+                case "--fail-after" -> failAfter = Long.parseLong(value(args, ++i));
+                default -> {
+                    System.err.println("Usage: ShardWorker [--host ADDRESS] [--port N] [--exit-on-stdin-close] "
+                            + "[--delay-ms N] [--fail-after N]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        ShardWorker worker = new ShardWorker(new InetSocketAddress(host, port), delayMillis, failAfter);
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().unstarted(worker::close));
+        worker.start();
+        System.out.println(READY + " " + worker.port());
+        System.out.flush();
+
+        if (exitOnStdinClose) {
+            while (System.in.read() >= 0) {
+                // Only the end of the stream matters
+            }
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Accepts connections until the server socket is closed.
+     */
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    logger.error("[Shard] Accepting a connection failed:", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers the tile requests of one connection until it is closed.
+     *
+     * @param socket the connection
+     */
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            TileProtocol.TileRequest request;
+            while ((request = TileProtocol.readRequest(in)) != null) {
+                StageEvent event = Metrics.begin(Stage.CONVOLUTION, ENGINE, request.core().width,
+                        request.core().height);
+                TileProtocol.TileResult result = TileProtocol.process(request);
+                Metrics.end(event);
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+                if (tiles.incrementAndGet() > failAfter && failAfter > 0) {
+                    logger.warn("[Shard] Simulating a crash after {} tiles", failAfter);
+                    Runtime.getRuntime().halt(3);
+                }
+                TileProtocol.writeResult(out, result);
+                out.flush();
+            }
+        } catch (IOException e) {
+            logger.warn("[Shard] Connection from {} failed: {}", socket.getRemoteSocketAddress(), e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the value following an option.
+     *
+     * @param args  the command line arguments
+     * @param index the index of the value
+     * @return the option value
+     * @throws IllegalArgumentException if the value is missing
+     */
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for option %s".formatted(args[index - 1]));
+        }
+        return args[index];
+    }
+}
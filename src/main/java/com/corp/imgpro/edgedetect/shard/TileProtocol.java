@@ -0,0 +1,234 @@
+package com.corp.imgpro.edgedetect.shard;
+
+import com.corp.imgpro.edgedetect.common.SobelMath;
+
+import java.awt.Rectangle;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * A utility class defining the binary tile format exchanged between the {@link ShardCoordinator} and its
+ * {@link ShardWorker} processes, and the computation of a tile.
+ *
+ * <p>All numbers are big-endian, as written by {@link DataOutputStream}. A request carries one tile:</p>
+ * <pre>
+ * int   magic            0x45445451 ("EDTQ")
+ * int   id               the tile index within the image
+ * int   imageWidth       the size of the whole image
+ * int   imageHeight
+ * int   x, y             the tile (core) rectangle in image coordinates
+ * int   width, height
+ * byte  gray[haloWidth * haloHeight]   unsigned grayscale values of the halo, row-major
+ * </pre>
+ * <p>The halo is the core grown by one pixel on every side and clipped to the image, so both sides derive it
+ * from the core and the image size. Sending the grayscale values, which are exact 8-bit integers, costs one byte
+ * per pixel instead of three for RGB. A result carries the gradients of the core:</p>
+ * <pre>
+ * int   magic            0x45445452 ("EDTR")
+ * int   id               the id of the request
+ * int   maxGradient      the maximum over the interior pixels of the core, -1 if it has none
+ * short gradient[width * height]       unsigned gradient magnitudes of the core, row-major, 0 on the image border
+ * </pre>
+ * <p>The gradients are not normalized, since normalization needs the maximum of the whole image; the Sobel
+ * magnitudes of 8-bit values are at most 1442 and fit in 16 bits.</p>
+ */
+public class TileProtocol {
+
+    /**
+     * The first word of a request.
+     */
+    public static final int REQUEST_MAGIC = 0x45445451;
+
+    /**
+     * The first word of a result.
+     */
+    public static final int RESULT_MAGIC = 0x45445452;
+
+    /**
+     * A tile to convert.
+     *
+     * @param id          the tile index within the image
+     * @param imageWidth  the width of the whole image
+     * @param imageHeight the height of the whole image
+     * @param core        the tile rectangle in image coordinates
+     * @param gray        the grayscale values of the halo, row-major
+     */
+    public record TileRequest(int id, int imageWidth, int imageHeight, Rectangle core, byte[] gray) {
+
+        /**
+         * Returns the core grown by one pixel on every side and clipped to the image.
+         *
+         * @return the halo rectangle in image coordinates
+         */
+        public Rectangle halo() {
+            return TileProtocol.halo(core, imageWidth, imageHeight);
+        }
+    }
+
+    /**
+     * The gradients of a converted tile.
+     *
+     * @param id          the id of the request
+     * @param maxGradient the maximum gradient of the interior pixels of the tile, or -1 if it has none
+     * @param gradients   the gradient magnitudes of the tile, row-major
+     */
+    public record TileResult(int id, int maxGradient, int[] gradients) {
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private TileProtocol() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Returns a tile rectangle grown by one pixel on every side and clipped to the image.
+     *
+     * @param core        the tile rectangle
+     * @param imageWidth  the image width
+     * @param imageHeight the image height
+     * @return the halo rectangle
+     */
+    public static Rectangle halo(Rectangle core, int imageWidth, int imageHeight) {
+        int x = Math.max(0, core.x - 1);
+        int y = Math.max(0, core.y - 1);
+        return new Rectangle(x, y, Math.min(imageWidth, core.x + core.width + 1) - x,
+                Math.min(imageHeight, core.y + core.height + 1) - y);
+    }
+
+    /**
+     * Computes the Sobel gradients of a tile with the arithmetic of {@code SobelStandard}.
+     *
+     * @param request the tile
+     * @return the gradients of the tile
+     */
+    public static TileResult process(TileRequest request) {
+        Rectangle core = request.core();
+        Rectangle halo = request.halo();
+        byte[] bytes = request.gray();
+        int[] gray = new int[bytes.length];
+        for (int i = 0; i < gray.length; i++) {
+            gray[i] = bytes[i] & 0xff;
+        }
+        int[] gradients = new int[core.width * core.height];
+        int fromX = Math.max(1, core.x);
+        int toX = Math.min(request.imageWidth() - 1, core.x + core.width);
+        int max = -1;
+
+        for (int y = Math.max(1, core.y); y < Math.min(request.imageHeight() - 1, core.y + core.height); y++) {
+            // Offsets of column 0 of the image, so that columns are addressed in image coordinates
+            int row = (y - halo.y) * halo.width - halo.x;
+            max = Math.max(max, SobelMath.gradientRange(gray, row - halo.width, gray, row, gray, row + halo.width,
+                    fromX, toX, gradients, (y - core.y) * core.width - core.x));
+        }
+
+        return new TileResult(request.id(), max, gradients);
+    }
+
+    /**
+     * Writes a request.
+     *
+     * @param out     the stream
+     * @param request the request
+     * @throws IOException if writing fails
+     */
+    public static void writeRequest(DataOutputStream out, TileRequest request) throws IOException {
+        Rectangle core = request.core();
+        out.writeInt(REQUEST_MAGIC);
+        out.writeInt(request.id());
+        out.writeInt(request.imageWidth());
+        out.writeInt(request.imageHeight());
+        out.writeInt(core.x);
+        out.writeInt(core.y);
+        out.writeInt(core.width);
+        out.writeInt(core.height);
+        out.write(request.gray());
+    }
+
+    /**
+     * Reads a request.
+     *
+     * @param in the stream
+     * @return the request, or {@code null} if the stream ended before a request
+     * @throws IOException if reading fails, the stream ends within a request or the data is not a request
+     */
+    public static TileRequest readRequest(DataInputStream in) throws IOException {
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        requireMagic(REQUEST_MAGIC, magic);
+        int id = in.readInt();
+        int imageWidth = in.readInt();
+        int imageHeight = in.readInt();
+        Rectangle core = new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        if (core.isEmpty() || core.x < 0 || core.y < 0 || core.x + core.width > imageWidth
+                || core.y + core.height > imageHeight) {
+            throw new IOException("Tile %s outside the %d x %d image".formatted(core, imageWidth, imageHeight));
+        }
+        Rectangle halo = halo(core, imageWidth, imageHeight);
+        byte[] gray = new byte[halo.width * halo.height];
+        in.readFully(gray);
+
+        return new TileRequest(id, imageWidth, imageHeight, core, gray);
+    }
+
+    /**
+     * Writes a result.
+     *
+     * @param out    the stream
+     * @param result the result
+     * @throws IOException if writing fails
+     */
+    public static void writeResult(DataOutputStream out, TileResult result) throws IOException {
+        out.writeInt(RESULT_MAGIC);
+        out.writeInt(result.id());
+        out.writeInt(result.maxGradient());
+        for (int gradient : result.gradients()) {
+            out.writeShort(gradient);
+        }
+    }
+
+    /**
+     * Reads the result of a request.
+     *
+     * @param in      the stream
+     * @param request the request the result answers
+     * @return the result
+     * @throws IOException if reading fails or the data is not the result of the request
+     */
+    public static TileResult readResult(DataInputStream in, TileRequest request) throws IOException {
+        requireMagic(RESULT_MAGIC, in.readInt());
+        int id = in.readInt();
+        if (id != request.id()) {
+            throw new IOException("Result for tile %d, expected tile %d".formatted(id, request.id()));
+        }
+        int max = in.readInt();
+        int[] gradients = new int[request.core().width * request.core().height];
+        for (int i = 0; i < gradients.length; i++) {
+            gradients[i] = in.readUnsignedShort();
+        }
+
+        return new TileResult(id, max, gradients);
+    }
+
+    /**
+     * Checks the first word of a message.
+     *
+     * @param expected the magic number of the message type
+     * @param actual   the word read
+     * @throws IOException if they differ
+     */
+    private static void requireMagic(int expected, int actual) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Bad tile message magic 0x%08x, expected 0x%08x".formatted(actual, expected));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.corp.imgpro.edgedetect.tools;
+
+import com.corp.imgpro.edgedetect.common.BufferPool;
+import com.corp.imgpro.edgedetect.engine.EdgeDetector;
+import com.corp.imgpro.edgedetect.engine.EngineRegistry;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Command line tool printing the bytes allocated per image by every engine, once for
+ * {@link EdgeDetector#convert(BufferedImage)} and once for
+ * {@link EdgeDetector#convert(BufferedImage, BufferedImage)} reusing one output image, after warm-up.
+ * Only allocations of the calling thread are counted, so work handed to other threads, such as the
+ * fork/join tasks of {@code parallel}, is not included.
+ *
+ * <p>Usage: {@code AllocationProbe [width height] [runs]}. Without arguments a random 1920 x 1080 RGB image
+ * and 200 warm-up runs are used.</p>
+ */
+public class AllocationProbe {
+
+    /**
+     * Number of timed runs per engine; the average allocation is reported.
+     */
+    private static final int MEASURED_RUNS = 10;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private AllocationProbe() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Runs the measurement and prints one line per engine followed by the pool statistics.
+     *
+     * @param args an optional width and height, followed by an optional number of warm-up runs
+     */
+    public static void main(String[] args) {
+        int width = args.length >= 2 ? Integer.parseInt(args[0]) : 1920;
+        int height = args.length >= 2 ? Integer.parseInt(args[1]) : 1080;
+        int warmUpRuns = args.length >= 3 ? Integer.parseInt(args[2]) : 200;
+        BufferedImage image = SpeedupCurve.randomImage(width, height);
+        BufferedImage output = new BufferedImage(width, height, image.getType());
+
+        System.out.printf("image %d x %d, bytes allocated per image by the calling thread%n", width, height);
+        System.out.println("engine\tconvert\tconvert-into");
+        try (EngineRegistry engines = EngineRegistry.load()) {
+            for (EdgeDetector detector : engines.detectors()) {
+                for (int i = 0; i < warmUpRuns; i++) {
+                    detector.convert(image);
+                    detector.convert(image, output);
+                }
+                long fresh = bytesPerRun(() -> detector.convert(image));
+                long pooled = bytesPerRun(() -> detector.convert(image, output));
+                System.out.printf("%s\t%d\t%d%n", detector.name(), fresh, pooled);
+            }
+        }
+        System.out.println(BufferPool.shared().stats());
+    }
+
+    /**
+     * Runs the given action several times and returns the average number of bytes it allocated.
+     *
+     * @param action the action to measure
+     * @return the bytes allocated by the calling thread per run
+     */
+    private static long bytesPerRun(Runnable action) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long start = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            action.run();
+        }
+
+        return (threads.getCurrentThreadAllocatedBytes() - start) / MEASURED_RUNS;
+    }
+}
@@ -0,0 +1,123 @@
+package com.corp.imgpro.edgedetect.tools;
+
+import com.corp.imgpro.edgedetect.method.SobelFrameStream;
+import com.corp.imgpro.edgedetect.method.SobelRaster;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command line tool simulating a fixed-camera feed and comparing {@link SobelFrameStream} with converting every
+ * frame from scratch with {@link SobelRaster}. Every frame is the background with a square object that moves a
+ * few pixels per frame, so only the tiles around the object change.
+ *
+ * <p>Usage: {@code FrameStreamBench [image-file | width height] [frames] [tile-size]}. Without an image file a
+ * random 1920 x 1080 RGB background is used. The tool prints the frames per second of both ways, the fraction
+ * of tiles the stream recomputed and how often it renormalized the edge map.</p>
+ */
+public class FrameStreamBench {
+
+    /**
+     * Width and height of the moving object in pixels.
+     */
+    private static final int OBJECT_SIZE = 96;
+
+    /**
+     * Distance the object moves per frame in pixels.
+     */
+    private static final int STEP = 6;
+
+    /**
+     * Number of untimed frames, to let the JIT compiler settle.
+     */
+    private static final int WARM_UP_FRAMES = 20;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private FrameStreamBench() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Runs the simulated feed through both ways and prints the results.
+     *
+     * @param args an optional image file or width and height, followed by an optional frame count and tile size
+     * @throws IOException if the image file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        BufferedImage background;
+        int next;
+        if (args.length >= 2 && args[0].chars().allMatch(Character::isDigit)) {
+            background = SpeedupCurve.randomImage(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+            next = 2;
+        } else if (args.length >= 1) {
+            background = ImageIO.read(new File(args[0]));
+            next = 1;
+        } else {
+            background = SpeedupCurve.randomImage(1920, 1080);
+            next = 0;
+        }
+        int frames = args.length > next ? Integer.parseInt(args[next]) : 200;
+        int tileSize = args.length > next + 1 ? Integer.parseInt(args[next + 1]) : SobelFrameStream.DEFAULT_TILE_SIZE;
+        BufferedImage frame = new BufferedImage(background.getWidth(), background.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            SobelRaster.convert(render(background, frame, i));
+        }
+        long fullNanos = 0;
+        for (int i = 0; i < frames; i++) {
+            render(background, frame, i);
+            long start = System.nanoTime();
+            SobelRaster.convert(frame);
+            fullNanos += System.nanoTime() - start;
+        }
+
+        SobelFrameStream warmUp = new SobelFrameStream(frame.getWidth(), frame.getHeight(), tileSize);
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            warmUp.next(render(background, frame, i));
+        }
+        SobelFrameStream stream = new SobelFrameStream(frame.getWidth(), frame.getHeight(), tileSize);
+        for (int i = 0; i < frames; i++) {
+            stream.next(render(background, frame, i));
+        }
+
+        System.out.printf("frames %d x %d, %d frames, %d px tiles%n", frame.getWidth(), frame.getHeight(), frames,
+                tileSize);
+        System.out.printf("full conversion: %.1f frames/s%n", frames * 1e9 / fullNanos);
+        System.out.printf("frame stream:    %s%n", stream.stats());
+    }
+
+    /**
+     * Draws a frame of the feed: the background with the object at its position for the frame index.
+     *
+     * @param background the background
+     * @param frame      the image receiving the frame
+     * @param index      the frame index
+     * @return {@code frame}
+     */
+    private static BufferedImage render(BufferedImage background, BufferedImage frame, int index) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int range = Math.max(1, width - OBJECT_SIZE);
+        int x = index * STEP % (2 * range);
+
+        Graphics2D graphics = frame.createGraphics();
+        try {
+            graphics.drawImage(background, 0, 0, null);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(x < range ? x : 2 * range - x, Math.max(0, (height - OBJECT_SIZE) / 2),
+                    OBJECT_SIZE, OBJECT_SIZE);
+        } finally {
+            graphics.dispose();
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,164 @@
+package com.corp.imgpro.edgedetect.tools;
+
+import com.corp.imgpro.edgedetect.metrics.LatencyHistogram;
+import com.corp.imgpro.edgedetect.server.EdgeServer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command line tool load testing a running {@link EdgeServer}. A fixed number of clients, each on its own
+ * virtual thread, post the same image back to back; the latency of every successful request is recorded and the
+ * throughput, the latency percentiles and the number of rejected requests are printed.
+ *
+ * <p>Usage: {@code LoadTest [image-file | width height] [clients] [requests] [url]}. Without arguments a random
+ * 1920 x 1080 image is posted 200 times by 8 clients to {@code http://127.0.0.1:8080/detect}.</p>
+ */
+public class LoadTest {
+
+    /**
+     * Number of untimed requests sent before the measurement, to let the server's JIT compiler settle.
+     */
+    private static final int WARM_UP_REQUESTS = 20;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private LoadTest() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Runs the load test and prints its results.
+     *
+     * @param args an optional image file or width and height, followed by the optional number of clients, number
+     *             of requests and URL
+     * @throws IOException          if the image cannot be read or encoded
+     * @throws InterruptedException if the main thread is interrupted while waiting for the clients
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        byte[] body;
+        int next;
+        if (args.length >= 2 && args[0].chars().allMatch(Character::isDigit)) {
+            body = png(SpeedupCurve.randomImage(Integer.parseInt(args[0]), Integer.parseInt(args[1])));
+            next = 2;
+        } else if (args.length >= 1) {
+            body = Files.readAllBytes(Path.of(args[0]));
+            next = 1;
+        } else {
+            body = png(SpeedupCurve.randomImage(1920, 1080));
+            next = 0;
+        }
+        int clients = args.length > next ? Integer.parseInt(args[next]) : 8;
+        int requests = args.length > next + 1 ? Integer.parseInt(args[next + 1]) : 200;
+        URI uri = URI.create(args.length > next + 2 ? args[next + 2] : "http://127.0.0.1:%d/detect".formatted(EdgeServer.DEFAULT_PORT));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().executor(executor).build()) {
+            HttpRequest request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+            run(client, request, Math.min(clients, WARM_UP_REQUESTS), WARM_UP_REQUESTS);
+
+            System.out.printf("%d clients, %d requests of %d bytes to %s%n", clients, requests, body.length, uri);
+            run(client, request, clients, requests).print();
+        }
+    }
+
+    /**
+     * Results of one load test run.
+     *
+     * @param latencies    the latencies of the successful requests
+     * @param rejected     the number of requests answered with {@code 429}
+     * @param failed       the number of requests failing otherwise
+     * @param elapsedNanos the wall-clock time of the run
+     */
+    private record Result(LatencyHistogram latencies, long rejected, long failed, long elapsedNanos) {
+
+        /**
+         * Prints the throughput and latency percentiles.
+         */
+        void print() {
+            LatencyHistogram.Snapshot h = latencies.snapshot();
+            System.out.printf("ok=%d rejected=%d failed=%d in %.2f s, %.1f requests/sec%n", h.count(), rejected, failed,
+                    elapsedNanos / 1e9, elapsedNanos == 0 ? 0 : h.count() * 1e9 / elapsedNanos);
+            System.out.printf("latency ms: mean=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f%n", h.meanNanos() / 1e6,
+                    h.p50Nanos() / 1e6, h.p90Nanos() / 1e6, h.p99Nanos() / 1e6, h.maxNanos() / 1e6);
+        }
+    }
+
+    /**
+     * Sends requests from several clients until the given number has been sent.
+     *
+     * @param client   the HTTP client
+     * @param request  the request to send
+     * @param clients  the number of concurrent clients
+     * @param requests the total number of requests
+     * @return the results
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    private static Result run(HttpClient client, HttpRequest request, int clients, int requests) throws InterruptedException {
+        LatencyHistogram latencies = new LatencyHistogram();
+        AtomicInteger remaining = new AtomicInteger(requests);
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            threads.add(Thread.ofVirtual().name("load-" + i).start(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    long sent = System.nanoTime();
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status == 200) {
+                            latencies.record(System.nanoTime() - sent);
+                        } else if (status == 429) {
+                            rejected.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        return new Result(latencies, rejected.get(), failed.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Encodes an image as PNG.
+     *
+     * @param image the image
+     * @return the PNG bytes
+     * @throws IOException if encoding fails
+     */
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", encoded);
+
+        return encoded.toByteArray();
+    }
+}
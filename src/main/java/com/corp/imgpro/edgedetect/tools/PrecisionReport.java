@@ -0,0 +1,168 @@
+package com.corp.imgpro.edgedetect.tools;
+
+import com.corp.imgpro.edgedetect.common.Precision;
+import com.corp.imgpro.edgedetect.method.SobelRaster;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command line tool measuring the error and the speed of every {@link Precision} mode of {@link SobelRaster}
+ * against {@link Precision#EXACT} on a corpus of images, so that the fastest mode a consumer of the edge maps
+ * tolerates can be chosen.
+ *
+ * <p>Usage: {@code PrecisionReport [INPUT... | width height]}. Each {@code INPUT} is an image file or a
+ * directory of image files. Without inputs the corpus is a random image and a smooth synthetic image of
+ * 1920 x 1080 pixels, or of the given size. For every mode the tool prints the maximum and the mean absolute
+ * difference of the gray levels, the share of differing pixels and the median conversion time summed over
+ * the corpus.</p>
+ */
+public class PrecisionReport {
+
+    /**
+     * Number of untimed passes over the corpus in every mode before measuring, so that the JIT compiler has
+     * compiled all modes and the timings do not depend on their order.
+     */
+    private static final int WARM_UP_PASSES = 5;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private PrecisionReport() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Converts the corpus in every mode and prints one line per mode.
+     *
+     * @param args image files or directories, or width and height of the synthetic corpus
+     * @throws IOException if an image file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        List<BufferedImage> corpus = corpus(args);
+        long pixels = corpus.stream().mapToLong(image -> (long) image.getWidth() * image.getHeight()).sum();
+        System.out.printf("%d images, %.1f megapixels%n", corpus.size(), pixels / 1e6);
+        System.out.println("precision\tmax-err\tmean-err\tdiffering\tmsecs\tspeedup");
+
+        for (int pass = 0; pass < WARM_UP_PASSES; pass++) {
+            for (Precision precision : Precision.values()) {
+                for (BufferedImage image : corpus) {
+                    SobelRaster.convert(image, newOutput(image), precision);
+                }
+            }
+        }
+
+        double exactMillis = 0;
+        for (Precision precision : Precision.values()) {
+            long differing = 0;
+            long errorSum = 0;
+            int maxError = 0;
+            double millis = 0;
+            for (BufferedImage image : corpus) {
+                BufferedImage expected = SobelRaster.convert(image, newOutput(image), Precision.EXACT);
+                BufferedImage actual = newOutput(image);
+                millis += SpeedupCurve.medianMillis(() -> SobelRaster.convert(image, actual, precision));
+
+                int width = image.getWidth();
+                int[] expectedRow = new int[width];
+                int[] actualRow = new int[width];
+                for (int y = 0; y < image.getHeight(); y++) {
+                    expected.getRGB(0, y, width, 1, expectedRow, 0, width);
+                    actual.getRGB(0, y, width, 1, actualRow, 0, width);
+                    for (int x = 0; x < width; x++) {
+                        int error = Math.abs((expectedRow[x] & 0xff) - (actualRow[x] & 0xff));
+                        if (error != 0) {
+                            differing++;
+                            errorSum += error;
+                            maxError = Math.max(maxError, error);
+                        }
+                    }
+                }
+            }
+            if (precision == Precision.EXACT) {
+                exactMillis = millis;
+            }
+            System.out.printf("%s\t%d\t%.4f\t%.3f%%\t%.1f\t%.2f%n", precision.label(), maxError,
+                    (double) errorSum / pixels, 100.0 * differing / pixels, millis, exactMillis / millis);
+        }
+    }
+
+    /**
+     * Loads the images named on the command line or creates the synthetic corpus.
+     *
+     * @param args image files or directories, or width and height
+     * @return the images
+     * @throws IOException if an image file cannot be read
+     */
+    private static List<BufferedImage> corpus(String[] args) throws IOException {
+        if (args.length == 0 || (args.length == 2 && args[0].chars().allMatch(Character::isDigit))) {
+            int width = args.length == 2 ? Integer.parseInt(args[0]) : 1920;
+            int height = args.length == 2 ? Integer.parseInt(args[1]) : 1080;
+            return List.of(SpeedupCurve.randomImage(width, height), smoothImage(width, height));
+        }
+
+        List<BufferedImage> images = new ArrayList<>();
+        for (String arg : args) {
+            File file = new File(arg);
+            File[] files = file.isDirectory() ? file.listFiles(File::isFile) : new File[]{file};
+            if (files == null) {
+                throw new IOException("Cannot list %s".formatted(file));
+            }
+            Arrays.sort(files);
+            for (File input : files) {
+                BufferedImage image = ImageIO.read(input);
+                if (image == null) {
+                    System.err.printf("Skipping %s: not a readable image%n", input);
+                } else {
+                    images.add(image);
+                }
+            }
+        }
+        if (images.isEmpty()) {
+            throw new IOException("No readable images in %s".formatted(Arrays.toString(args)));
+        }
+
+        return images;
+    }
+
+    /**
+     * Creates an RGB image of smooth color gradients and soft-edged discs, closer to a photograph than noise.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @return the synthetic image
+     */
+    static BufferedImage smoothImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double u = (double) x / width;
+                double v = (double) y / height;
+                double disc = Math.sin(u * 23) * Math.cos(v * 17);
+                int r = (int) (127.5 + 127.5 * Math.sin(u * 7 + disc));
+                int g = (int) (127.5 + 127.5 * Math.cos(v * 5 - disc));
+                int b = disc > 0.3 ? 230 : (int) (255 * u * v);
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Creates an output image for the conversion of an input image.
+     *
+     * @param image the input image
+     * @return an empty RGB image of the same size
+     */
+    private static BufferedImage newOutput(BufferedImage image) {
+        return new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
+}
@@ -0,0 +1,114 @@
+package com.corp.imgpro.edgedetect.tools;
+
+import com.corp.imgpro.edgedetect.method.SobelParallel;
+import com.corp.imgpro.edgedetect.method.SobelRaster;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line tool printing the speedup curve of {@link SobelParallel} from one thread up to the
+ * number of available processors, relative to the serial {@link SobelRaster} engine.
+ *
+ * <p>Usage: {@code SpeedupCurve [image-file | width height] [max-threads]}. Without an image file a
+ * random 4000 x 3000 RGB image is used.</p>
+ */
+public class SpeedupCurve {
+
+    /**
+     * Number of untimed runs per configuration, to let the JIT compiler settle.
+     */
+    private static final int WARM_UP_RUNS = 3;
+
+    /**
+     * Number of timed runs per configuration; the median is reported.
+     */
+    private static final int MEASURED_RUNS = 7;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private SpeedupCurve() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Runs the measurement and prints one line per thread count.
+     *
+     * @param args an optional image file or width and height, followed by an optional maximum thread count
+     * @throws IOException if the image file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        BufferedImage image;
+        int next;
+        if (args.length >= 2 && args[0].chars().allMatch(Character::isDigit)) {
+            image = randomImage(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+            next = 2;
+        } else if (args.length >= 1) {
+            image = ImageIO.read(new File(args[0]));
+            next = 1;
+        } else {
+            image = randomImage(4000, 3000);
+            next = 0;
+        }
+        int maxThreads = args.length > next ? Integer.parseInt(args[next]) : Runtime.getRuntime().availableProcessors();
+
+        double serial = medianMillis(() -> SobelRaster.convert(image));
+        System.out.printf("image %d x %d, serial %.1f ms%n", image.getWidth(), image.getHeight(), serial);
+        System.out.println("threads\tmsecs\tspeedup");
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+                double elapsed = medianMillis(() -> SobelParallel.convert(image, pool));
+                System.out.printf("%d\t%.1f\t%.2f%n", threads, elapsed, serial / elapsed);
+            }
+        }
+    }
+
+    /**
+     * Creates an RGB image filled with random pixels.
+     *
+     * @param width  the image width
+     * @param height the image height
+     * @return the random image
+     */
+    static BufferedImage randomImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Runs the given action several times and returns the median elapsed time of the measured runs.
+     *
+     * @param action the action to time
+     * @return the median elapsed time in milliseconds
+     */
+    static double medianMillis(Runnable action) {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            action.run();
+        }
+        long[] elapsed = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            action.run();
+            elapsed[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(elapsed);
+
+        return elapsed[MEASURED_RUNS / 2] / 1_000_000.0;
+    }
+}
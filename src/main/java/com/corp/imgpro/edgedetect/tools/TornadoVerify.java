@@ -0,0 +1,106 @@
+package com.corp.imgpro.edgedetect.tools;
+
+import com.corp.imgpro.edgedetect.method.SobelHybrid;
+import com.corp.imgpro.edgedetect.method.SobelStandard;
+import com.corp.imgpro.edgedetect.method.SobelTornado;
+import com.corp.imgpro.edgedetect.method.TornadoBandProcessor;
+import com.corp.imgpro.edgedetect.method.TornadoDeviceIndex;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command line tool verifying {@link SobelTornado} and the CPU + device split of {@link SobelHybrid} against
+ * {@link SobelStandard} on a chosen TornadoVM device. A CPU OpenCL implementation such as PoCL is enough, no GPU
+ * is needed.
+ *
+ * <p>Usage: {@code TornadoVerify [image-file | width height] [driver:device]}. Without an image file a
+ * random 1920 x 1080 RGB image is used; the device defaults to {@code 0:0}. The hybrid engine converts the image
+ * a few times, so that its split adapts and both sides steal bands, and every result is compared. The tool exits
+ * with status 1 if any pixel differs.</p>
+ */
+public class TornadoVerify {
+
+    /**
+     * Number of conversions with the hybrid engine.
+     */
+    private static final int HYBRID_RUNS = 4;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private TornadoVerify() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Runs both engines on the same image and prints the number of differing pixels.
+     *
+     * @param args an optional image file or width and height, followed by an optional device index
+     * @throws IOException if the image file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        BufferedImage image;
+        int next;
+        if (args.length >= 2 && args[0].chars().allMatch(Character::isDigit)) {
+            image = SpeedupCurve.randomImage(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+            next = 2;
+        } else if (args.length >= 1 && !args[0].contains(":")) {
+            image = ImageIO.read(new File(args[0]));
+            next = 1;
+        } else {
+            image = SpeedupCurve.randomImage(1920, 1080);
+            next = 0;
+        }
+        TornadoDeviceIndex device = TornadoDeviceIndex.parse(args.length > next ? args[next] : "0:0");
+        System.out.printf("image %d x %d, device %s (%s)%n", image.getWidth(), image.getHeight(), device,
+                device.lookup().getDeviceName());
+
+        BufferedImage expected = SobelStandard.convert(image);
+        long mismatches = compare("tornado", expected, SobelTornado.convert(image, device));
+
+        SobelHybrid.Settings settings = SobelHybrid.Settings.configured();
+        try (TornadoBandProcessor bands = new TornadoBandProcessor(device, settings.deviceRows())) {
+            SobelHybrid hybrid = new SobelHybrid(bands, settings);
+            for (int run = 0; run < HYBRID_RUNS; run++) {
+                BufferedImage output = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+                mismatches += compare("hybrid", expected, hybrid.convert(image, output));
+                System.out.printf("  %s%n", hybrid.lastStats());
+            }
+        }
+
+        SobelTornado.shutdown();
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares a result with the expected edge map and prints the number of differing pixels.
+     *
+     * @param engine   the name of the engine, for the output
+     * @param expected the edge map of {@link SobelStandard}
+     * @param actual   the edge map of the engine
+     * @return the number of differing pixels
+     */
+    private static long compare(String engine, BufferedImage expected, BufferedImage actual) {
+        long mismatches = 0;
+        int maxDifference = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int e = expected.getRGB(x, y);
+                int a = actual.getRGB(x, y);
+                if (e != a) {
+                    mismatches++;
+                    maxDifference = Math.max(maxDifference, Math.abs((e & 0xff) - (a & 0xff)));
+                }
+            }
+        }
+        System.out.printf("%s: mismatching pixels: %d, max level difference: %d%n", engine, mismatches, maxDifference);
+        return mismatches;
+    }
+}
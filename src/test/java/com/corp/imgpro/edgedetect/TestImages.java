@@ -0,0 +1,194 @@
+package com.corp.imgpro.edgedetect;
+
+import com.corp.imgpro.edgedetect.method.SobelStandard;
+import org.junit.jupiter.api.DynamicTest;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.DynamicTest.dynamicTest;
+
+/**
+ * Images shared by the engine tests: random noise in several image types, a smooth low-contrast image, a flat
+ * image with no gradient at all, and degenerate sizes with fewer than three rows or columns, which have no
+ * interior pixel. The engine tests compare their engine with {@link SobelStandard} on every image.
+ */
+public final class TestImages {
+
+    /**
+     * A named test image.
+     *
+     * @param name  the description shown in test names
+     * @param image the image
+     */
+    public record Sample(String name, BufferedImage image) {
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private TestImages() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Returns the images every engine is compared on.
+     *
+     * @return the samples
+     */
+    public static List<Sample> corpus() {
+        List<Sample> samples = new ArrayList<>();
+        samples.add(new Sample("random 67x43 int rgb", random(67, 43, BufferedImage.TYPE_INT_RGB, 1)));
+        samples.add(new Sample("random 130x97 int argb", random(130, 97, BufferedImage.TYPE_INT_ARGB, 2)));
+        samples.add(new Sample("random 41x29 3byte bgr", random(41, 29, BufferedImage.TYPE_3BYTE_BGR, 3)));
+        samples.add(new Sample("smooth 96x64", smooth(96, 64)));
+        samples.add(new Sample("flat 32x24", flat(32, 24, 0x7f3a9c)));
+        int[][] sizes = {{1, 1}, {1, 9}, {9, 1}, {2, 2}, {2, 7}, {7, 2}, {3, 3}, {3, 8}, {8, 3}};
+        for (int[] size : sizes) {
+            samples.add(new Sample("random %dx%d".formatted(size[0], size[1]),
+                    random(size[0], size[1], BufferedImage.TYPE_INT_RGB, 31L * size[0] + size[1])));
+        }
+        return samples;
+    }
+
+    /**
+     * Returns one test per image of the corpus comparing an engine with {@link SobelStandard}, pixel for pixel.
+     *
+     * @param engine the engine, creating its output
+     * @return the tests
+     */
+    public static Stream<DynamicTest> matchStandard(UnaryOperator<BufferedImage> engine) {
+        return corpus().stream().map(sample -> dynamicTest(sample.toString(), () ->
+                assertSameEdges(SobelStandard.convert(sample.image()), engine.apply(sample.image()))));
+    }
+
+    /**
+     * Returns one test per image of the corpus comparing an engine writing into a caller-provided output with
+     * {@link SobelStandard}. The output holds a white image beforehand, which checks that the engine writes
+     * every pixel, border included.
+     *
+     * @param engine the engine, given the image and the output
+     * @return the tests
+     */
+    public static Stream<DynamicTest> matchStandardInto(BinaryOperator<BufferedImage> engine) {
+        return corpus().stream().map(sample -> dynamicTest(sample.toString(), () -> {
+            BufferedImage image = sample.image();
+            BufferedImage output = flat(image.getWidth(), image.getHeight(), 0xffffff);
+            assertSameEdges(SobelStandard.convert(image), engine.apply(image, output));
+        }));
+    }
+
+    /**
+     * Creates an image of uniformly random colors.
+     *
+     * @param width  the width
+     * @param height the height
+     * @param type   the image type
+     * @param seed   the seed of the colors
+     * @return the image
+     */
+    public static BufferedImage random(int width, int height, int type, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Creates a low-contrast image of slowly varying colors, whose small maximum gradient stretches every
+     * difference in the normalized edge map.
+     *
+     * @param width  the width
+     * @param height the height
+     * @return the image
+     */
+    public static BufferedImage smooth(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = 100 + (int) (12 * Math.sin(x / 7.0));
+                int green = 90 + (int) (10 * Math.cos(y / 5.0));
+                int blue = 110 + (x + y) / 16;
+                image.setRGB(x, y, red << 16 | green << 8 | blue);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Creates an image of a single color.
+     *
+     * @param width  the width
+     * @param height the height
+     * @param rgb    the color
+     * @return the image
+     */
+    public static BufferedImage flat(int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Creates an empty image of the size and type of another one, for the engines writing into an output.
+     *
+     * @param image the image
+     * @return the output image
+     */
+    public static BufferedImage outputFor(BufferedImage image) {
+        return new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+    }
+
+    /**
+     * Returns the gray level of a pixel of an edge map.
+     *
+     * @param image the edge map
+     * @param x     the column
+     * @param y     the row
+     * @return the level, 0-255
+     */
+    public static int level(BufferedImage image, int x, int y) {
+        return image.getRGB(x, y) & 0xff;
+    }
+
+    /**
+     * Asserts that two edge maps have the same size and the same color in every pixel, ignoring alpha.
+     *
+     * @param expected the reference edge map
+     * @param actual   the edge map under test
+     */
+    public static void assertSameEdges(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth(), "width");
+        assertEquals(expected.getHeight(), actual.getHeight(), "height");
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int want = expected.getRGB(x, y) & 0xffffff;
+                int got = actual.getRGB(x, y) & 0xffffff;
+                if (want != got) {
+                    assertEquals(Integer.toHexString(want), Integer.toHexString(got), "pixel (%d, %d)".formatted(x, y));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.corp.imgpro.edgedetect.cache;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import com.corp.imgpro.edgedetect.engine.EdgeDetector;
+import com.corp.imgpro.edgedetect.method.SobelStandard;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link CachingEdgeDetector} answers repeated images from its cache with the edge map of its
+ * delegate, and passes the types it does not cache through.
+ */
+class CachingEdgeDetectorTest {
+
+    @Test
+    void repeatedImageIsAnsweredFromTheCache() {
+        CountingDetector delegate = new CountingDetector();
+        CachingEdgeDetector detector = new CachingEdgeDetector(delegate, new EdgeMapCache(1 << 20));
+        BufferedImage image = TestImages.random(23, 19, BufferedImage.TYPE_INT_RGB, 1);
+        BufferedImage expected = SobelStandard.convert(image);
+
+        TestImages.assertSameEdges(expected, detector.convert(image));
+        TestImages.assertSameEdges(expected, detector.convert(image));
+        TestImages.assertSameEdges(expected, detector.convert(image, TestImages.outputFor(image)));
+
+        assertEquals(1, delegate.calls.get());
+        assertEquals(2, detector.cache().stats().hits());
+        assertEquals(1, detector.cache().stats().misses());
+    }
+
+    @Test
+    void hitOverwritesAReusedOutput() {
+        CachingEdgeDetector detector = new CachingEdgeDetector(new CountingDetector(), new EdgeMapCache(1 << 20));
+        BufferedImage image = TestImages.random(23, 19, BufferedImage.TYPE_3BYTE_BGR, 2);
+        detector.convert(image);
+
+        BufferedImage output = TestImages.flat(23, 19, 0xffffff);
+        TestImages.assertSameEdges(SobelStandard.convert(image), detector.convert(image, output));
+    }
+
+    @Test
+    void otherDelegateDoesNotShareEntries() {
+        EdgeMapCache cache = new EdgeMapCache(1 << 20);
+        CountingDetector first = new CountingDetector();
+        CountingDetector second = new CountingDetector("other");
+        BufferedImage image = TestImages.random(11, 11, BufferedImage.TYPE_INT_RGB, 3);
+
+        new CachingEdgeDetector(first, cache).convert(image);
+        new CachingEdgeDetector(second, cache).convert(image);
+
+        assertEquals(1, first.calls.get());
+        assertEquals(1, second.calls.get());
+        assertEquals(0, cache.stats().hits());
+    }
+
+    @Test
+    void uncachedTypeGoesToTheDelegate() {
+        CountingDetector delegate = new CountingDetector();
+        CachingEdgeDetector detector = new CachingEdgeDetector(delegate, new EdgeMapCache(1 << 20));
+        BufferedImage image = TestImages.random(11, 11, BufferedImage.TYPE_USHORT_565_RGB, 4);
+
+        detector.convert(image);
+        detector.convert(image);
+
+        assertEquals(2, delegate.calls.get());
+        assertEquals(0, detector.cache().stats().entries());
+    }
+
+    /**
+     * The standard engine counting its conversions.
+     */
+    private static class CountingDetector implements EdgeDetector {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final String name;
+
+        /**
+         * Creates a counting engine named {@code counting}.
+         */
+        CountingDetector() {
+            this("counting");
+        }
+
+        /**
+         * Creates a counting engine.
+         *
+         * @param name the engine name, which is also its cache variant
+         */
+        CountingDetector(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public BufferedImage convert(BufferedImage image) {
+            calls.incrementAndGet();
+            return SobelStandard.convert(image);
+        }
+
+        @Override
+        public BufferedImage convert(BufferedImage image, BufferedImage output) {
+            calls.incrementAndGet();
+            return SobelStandard.convert(image, output);
+        }
+    }
+}
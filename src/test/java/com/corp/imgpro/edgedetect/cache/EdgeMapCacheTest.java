@@ -0,0 +1,159 @@
+package com.corp.imgpro.edgedetect.cache;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the keys of {@link EdgeMapCache}, the eviction of its memory tier and the persistence of its disk tier.
+ */
+class EdgeMapCacheTest {
+
+    @Test
+    void keyDependsOnThePixelsOnly() {
+        BufferedImage rgb = TestImages.random(13, 9, BufferedImage.TYPE_INT_RGB, 1);
+        BufferedImage argb = new BufferedImage(13, 9, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage bgr = new BufferedImage(13, 9, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 13; x++) {
+                // A translucent alpha does not change the key
+                argb.setRGB(x, y, 0x40000000 | rgb.getRGB(x, y) & 0xffffff);
+                bgr.setRGB(x, y, rgb.getRGB(x, y));
+            }
+        }
+
+        EdgeMapCache.Key key = EdgeMapCache.key(rgb, "standard");
+        assertEquals(key, EdgeMapCache.key(argb, "standard"));
+        assertEquals(key, EdgeMapCache.key(bgr, "standard"));
+        assertFalse(key.equals(EdgeMapCache.key(rgb, "raster")));
+
+        BufferedImage changed = TestImages.random(13, 9, BufferedImage.TYPE_INT_RGB, 1);
+        changed.setRGB(12, 8, changed.getRGB(12, 8) ^ 1);
+        assertFalse(key.equals(EdgeMapCache.key(changed, "standard")));
+    }
+
+    @Test
+    void memoryTierEvictsTheLeastRecentlyUsed() {
+        EdgeMapCache cache = new EdgeMapCache(20);
+        EdgeMapCache.Key first = key(1);
+        EdgeMapCache.Key second = key(2);
+        EdgeMapCache.Key third = key(3);
+
+        cache.put(first, new byte[9]);
+        cache.put(second, new byte[9]);
+        cache.get(first);
+        cache.put(third, new byte[9]);
+
+        assertTrue(cache.get(first) != null, "first");
+        assertSame(null, cache.get(second));
+        assertTrue(cache.get(third) != null, "third");
+        assertEquals(new EdgeMapCache.Stats(3, 0, 1, 1, 0, 2, 18, 0, 0), cache.stats());
+    }
+
+    @Test
+    void wrongNumberOfLevelsIsRejected() {
+        EdgeMapCache cache = new EdgeMapCache(100);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.put(key(1), new byte[8]));
+    }
+
+    @Test
+    void diskTierSurvivesARestart() throws IOException {
+        Path directory = Files.createTempDirectory("edge-map-cache");
+        try {
+            byte[] levels = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+            new EdgeMapCache(100, directory, 100).put(key(1), levels);
+
+            EdgeMapCache restarted = new EdgeMapCache(100, directory, 100);
+            byte[] read = restarted.get(key(1));
+            assertNotSame(levels, read);
+            assertEquals(Arrays.toString(levels), Arrays.toString(read));
+            // Promoted to memory by the disk hit
+            assertSame(read, restarted.get(key(1)));
+            assertEquals(new EdgeMapCache.Stats(1, 1, 0, 0, 0, 1, 9, 1, 9), restarted.stats());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void diskTierEvictsAndDropsDamagedFiles() throws IOException {
+        Path directory = Files.createTempDirectory("edge-map-cache");
+        try {
+            EdgeMapCache cache = new EdgeMapCache(0, directory, 20);
+            cache.put(key(1), new byte[9]);
+            cache.put(key(2), new byte[9]);
+            cache.put(key(3), new byte[9]);
+
+            assertSame(null, cache.get(key(1)));
+            assertEquals(2, cache.stats().diskFiles());
+            assertEquals(1, cache.stats().diskEvictions());
+
+            Files.write(directory.resolve(key(2).fileName()), new byte[4]);
+            assertSame(null, cache.get(key(2)));
+            assertEquals(1, cache.stats().diskFiles());
+            assertFalse(Files.exists(directory.resolve(key(2).fileName())));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void levelsRoundTripThroughAnEdgeMap() {
+        BufferedImage edges = TestImages.random(7, 5, BufferedImage.TYPE_INT_RGB, 4);
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                int level = edges.getRGB(x, y) & 0xff;
+                edges.setRGB(x, y, level << 16 | level << 8 | level);
+            }
+        }
+
+        BufferedImage written = EdgeMapCache.write(EdgeMapCache.levels(edges),
+                new BufferedImage(7, 5, BufferedImage.TYPE_INT_ARGB));
+
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                boolean border = x == 0 || y == 0 || x == 6 || y == 4;
+                assertEquals(border ? 0 : TestImages.level(edges, x, y), TestImages.level(written, x, y),
+                        "(%d, %d)".formatted(x, y));
+            }
+        }
+    }
+
+    /**
+     * Returns a key of a 3 x 3 image.
+     *
+     * @param id distinguishes the keys
+     * @return the key
+     */
+    private static EdgeMapCache.Key key(long id) {
+        return new EdgeMapCache.Key(id, id, 3, 3, "test");
+    }
+
+    /**
+     * Deletes a directory and its files.
+     *
+     * @param directory the directory
+     */
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.corp.imgpro.edgedetect.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the size classes, reuse, memory cap and leak detection of {@link BufferPool}. Every test uses a pool of
+ * its own, so the engines sharing {@link BufferPool#shared()} do not disturb the counters.
+ */
+class BufferPoolTest {
+
+    /**
+     * Smallest pooled array length.
+     */
+    private static final int MIN_LENGTH = 4096;
+
+    @Test
+    void sizeClassesWasteAtMostAQuarter() {
+        assertEquals(0, BufferPool.sizeClass(1));
+        assertEquals(MIN_LENGTH, BufferPool.classLength(0));
+        assertEquals(5120, BufferPool.classLength(BufferPool.sizeClass(MIN_LENGTH + 1)));
+        assertEquals(-1, BufferPool.sizeClass(Integer.MAX_VALUE));
+
+        for (int length = MIN_LENGTH + 1; length < 1 << 20; length += 97) {
+            int classLength = BufferPool.classLength(BufferPool.sizeClass(length));
+            assertTrue(classLength >= length && classLength - length <= classLength / 4,
+                    "%d in a class of %d".formatted(length, classLength));
+        }
+        for (int sizeClass = 0; sizeClass < 60; sizeClass++) {
+            assertEquals(sizeClass, BufferPool.sizeClass(BufferPool.classLength(sizeClass)));
+        }
+    }
+
+    @Test
+    void releasedArrayIsReusedForItsClass() {
+        BufferPool pool = new BufferPool(1 << 20, false);
+
+        int[] first = pool.acquireInts(5000);
+        assertEquals(5120, first.length);
+        pool.release(first);
+        assertSame(first, pool.acquireInts(4500));
+        assertNotSame(first, pool.acquireInts(4500));
+
+        BufferPool.Stats stats = pool.stats();
+        assertEquals(3, stats.acquisitions());
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(2, stats.outstanding());
+        assertEquals(0, stats.retainedBytes());
+    }
+
+    @Test
+    void imagesArePooledByExactSizeAndType() {
+        BufferPool pool = new BufferPool(1 << 20, false);
+
+        BufferedImage image = pool.acquireImage(30, 20, BufferedImage.TYPE_INT_RGB);
+        pool.release(image);
+        assertNotSame(image, pool.acquireImage(30, 20, BufferedImage.TYPE_INT_ARGB));
+        assertNotSame(image, pool.acquireImage(20, 30, BufferedImage.TYPE_INT_RGB));
+        assertSame(image, pool.acquireImage(30, 20, BufferedImage.TYPE_INT_RGB));
+    }
+
+    @Test
+    void arraysOfNoClassLengthAreDropped() {
+        BufferPool pool = new BufferPool(1 << 20, false);
+        pool.acquireInts(5000);
+
+        pool.release(new int[5000]);
+
+        assertEquals(1, pool.stats().drops());
+        assertEquals(0, pool.stats().retainedBytes());
+    }
+
+    @Test
+    void capEvictsTheLeastRecentlyUsedClass() {
+        // Room for two idle arrays of the smallest int class
+        BufferPool pool = new BufferPool(2L * MIN_LENGTH * Integer.BYTES, false);
+        int[] ints = pool.acquireInts(MIN_LENGTH);
+        char[] chars = pool.acquireChars(MIN_LENGTH);
+        int[] larger = pool.acquireInts(MIN_LENGTH + 1);
+
+        pool.release(ints);
+        pool.release(chars);
+        pool.release(larger);
+
+        // The int array, released first, made room for the larger one
+        BufferPool.Stats stats = pool.stats();
+        assertEquals(1, stats.evictions());
+        assertEquals((long) MIN_LENGTH * Character.BYTES + 5120L * Integer.BYTES, stats.retainedBytes());
+        assertSame(chars, pool.acquireChars(1));
+        assertSame(larger, pool.acquireInts(MIN_LENGTH + 1));
+        assertNotSame(ints, pool.acquireInts(1));
+
+        int[] tooLarge = pool.acquireInts(4 * MIN_LENGTH);
+        pool.release(tooLarge);
+        assertEquals(1, pool.stats().drops());
+    }
+
+    @Test
+    void clearDiscardsIdleBuffers() {
+        BufferPool pool = new BufferPool(1 << 20, false);
+        int[] buffer = pool.acquireInts(1);
+        pool.release(buffer);
+
+        pool.clear();
+
+        assertEquals(0, pool.stats().retainedBytes());
+        assertNotSame(buffer, pool.acquireInts(1));
+    }
+
+    @Test
+    void leakDetectionIgnoresForeignAndRepeatedReleases() {
+        BufferPool pool = new BufferPool(1 << 20, true);
+        int[] buffer = pool.acquireInts(1);
+
+        pool.release(buffer);
+        pool.release(buffer);
+        pool.release(new int[MIN_LENGTH]);
+
+        BufferPool.Stats stats = pool.stats();
+        assertEquals(0, stats.outstanding());
+        assertEquals((long) MIN_LENGTH * Integer.BYTES, stats.retainedBytes());
+    }
+
+    @Test
+    void leakDetectionReportsCollectedBuffers() throws InterruptedException {
+        BufferPool pool = new BufferPool(1 << 20, true);
+        pool.acquireInts(1);
+        assertEquals(1, pool.stats().outstanding());
+
+        for (int attempt = 0; attempt < 50 && pool.stats().leaks() == 0; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        BufferPool.Stats stats = pool.stats();
+        assertEquals(1, stats.leaks());
+        assertEquals(0, stats.outstanding());
+    }
+
+    @Test
+    void negativeCapIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(-1, false));
+    }
+}
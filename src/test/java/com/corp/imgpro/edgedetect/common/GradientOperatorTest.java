@@ -0,0 +1,62 @@
+package com.corp.imgpro.edgedetect.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the orientation of the predefined {@link GradientOperator}s: {@code gx} responds to intensity changing
+ * along the rows, {@code gy} to intensity changing along the columns.
+ */
+class GradientOperatorTest {
+
+    private static final int SIZE = 15;
+    private static final int CENTER = SIZE / 2;
+
+    @Test
+    void xRampHasOnlyAnXResponse() {
+        int[] ramp = Kernels.ramp(SIZE, SIZE, 3, 0);
+        for (GradientOperator operator : GradientOperator.predefined()) {
+            int gx = Kernels.response(operator.x(), ramp, SIZE, CENTER, CENTER);
+            int gy = Kernels.response(operator.y(), ramp, SIZE, CENTER, CENTER);
+            assertTrue(gx > 0, "%s gx is %d".formatted(operator.name(), gx));
+            assertEquals(0, gy, "%s gy".formatted(operator.name()));
+        }
+    }
+
+    @Test
+    void yRampHasOnlyAYResponse() {
+        int[] ramp = Kernels.ramp(SIZE, SIZE, 0, 3);
+        for (GradientOperator operator : GradientOperator.predefined()) {
+            int gx = Kernels.response(operator.x(), ramp, SIZE, CENTER, CENTER);
+            int gy = Kernels.response(operator.y(), ramp, SIZE, CENTER, CENTER);
+            assertEquals(0, gx, "%s gx".formatted(operator.name()));
+            assertTrue(gy > 0, "%s gy is %d".formatted(operator.name(), gy));
+        }
+    }
+
+    @Test
+    void xKernelsAreTheTransposedYKernels() {
+        for (GradientOperator operator : GradientOperator.predefined()) {
+            for (int dx = -operator.radius(); dx <= operator.radius(); dx++) {
+                for (int dy = -operator.radius(); dy <= operator.radius(); dy++) {
+                    assertEquals(operator.x().weight(dx, dy), operator.y().weight(dy, dx), operator.name());
+                }
+            }
+        }
+    }
+
+    @Test
+    void sobelKernelsAreTheFiltersMatricesSwapped() {
+        assertEquals(Kernel.of(Filters.getSobelYMatrix()), GradientOperator.SOBEL.x());
+        assertEquals(Kernel.of(Filters.getSobelXMatrix()), GradientOperator.SOBEL.y());
+    }
+
+    @Test
+    void operatorsAreParsedByName() {
+        assertEquals(GradientOperator.SCHARR, GradientOperator.parse(" Scharr "));
+        assertThrows(IllegalArgumentException.class, () -> GradientOperator.parse("roberts"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.corp.imgpro.edgedetect.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the factorization and compilation of {@link Kernel}.
+ */
+class KernelTest {
+
+    private static final int[][] LAPLACIAN = {{0, 1, 0}, {1, -4, 1}, {0, 1, 0}};
+
+    @Test
+    void separableWeightsAreTheProductOfTheirFactors() {
+        int[] horizontal = {-1, -2, 0, 2, 1};
+        int[] vertical = {1, 4, 6, 4, 1};
+        Kernel kernel = Kernel.separable(horizontal, vertical);
+        for (int dx = -2; dx <= 2; dx++) {
+            for (int dy = -2; dy <= 2; dy++) {
+                assertEquals(horizontal[dx + 2] * vertical[dy + 2], kernel.weight(dx, dy), "weight(%d, %d)".formatted(dx, dy));
+            }
+        }
+    }
+
+    @Test
+    void separableMatrixCompilesIntoTwoPassesWithoutZeroTaps() {
+        Kernel kernel = Kernel.of(Kernel.separable(new int[]{-1, 0, 1}, new int[]{1, 2, 1}).toMatrix());
+
+        assertTrue(kernel.isSeparable());
+        assertEquals(2, kernel.passes().size());
+        assertEquals(2, kernel.passes().get(0).taps());
+        assertEquals(3, kernel.passes().get(1).taps());
+        assertEquals(Kernel.separable(new int[]{-1, 0, 1}, new int[]{1, 2, 1}), kernel);
+    }
+
+    @Test
+    void generalMatrixCompilesIntoOnePass() {
+        Kernel kernel = Kernel.of(LAPLACIAN);
+
+        assertFalse(kernel.isSeparable());
+        assertEquals(1, kernel.passes().size());
+        assertEquals(5, kernel.passes().get(0).taps());
+    }
+
+    @Test
+    void passesReproduceTheWeights() {
+        for (Kernel kernel : new Kernel[]{Kernel.of(LAPLACIAN), GradientOperator.SOBEL_7.x(), GradientOperator.SCHARR.y()}) {
+            int radius = kernel.radius();
+            int size = 4 * radius + 1;
+            int center = 2 * radius;
+            int[] impulse = new int[size * size];
+            impulse[center * size + center] = 1;
+            // The response to an impulse is the kernel mirrored around the impulse
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dy = -radius; dy <= radius; dy++) {
+                    assertEquals(kernel.weight(dx, dy), Kernels.response(kernel, impulse, size, center - dx, center - dy),
+                            "%s weight(%d, %d)".formatted(kernel, dx, dy));
+                }
+            }
+        }
+    }
+
+    @Test
+    void invalidMatricesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Kernel.of(new int[][]{{1, 0}, {0, 1}}));
+        assertThrows(IllegalArgumentException.class, () -> Kernel.of(new int[][]{{1, 0, 1}, {0, 1}, {1, 0, 1}}));
+        assertThrows(IllegalArgumentException.class, () -> Kernel.of(new int[3][3]));
+        assertThrows(IllegalArgumentException.class, () -> Kernel.separable(new int[]{1, 2, 1}, new int[]{1, 0, 0, 0, 1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> Kernel.separable(new int[]{1 << 20, 0, 0}, new int[]{1 << 20, 0, 0}));
+    }
+}
@@ -0,0 +1,69 @@
+package com.corp.imgpro.edgedetect.common;
+
+/**
+ * Applies compiled kernels to small test images the way the engines do, pass by pass, so that the tests check
+ * the passes rather than the weight matrix they were compiled from.
+ */
+final class Kernels {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     *
+     * @throws IllegalStateException always, as this class should not be instantiated
+     */
+    private Kernels() {
+        throw new IllegalStateException("%s is a utility class and cannot be instantiated!".formatted(this.getClass().getName()));
+    }
+
+    /**
+     * Returns the response of a kernel at one pixel of a row-major image.
+     *
+     * @param kernel the kernel
+     * @param image  the row-major pixel values
+     * @param width  the image width
+     * @param x      the column, at least {@code radius} from the left and right edge
+     * @param y      the row, at least {@code radius} from the top and bottom edge
+     * @return the response
+     */
+    static int response(Kernel kernel, int[] image, int width, int x, int y) {
+        int[] source = image;
+        for (Kernel.Pass pass : kernel.passes()) {
+            int[] destination = new int[source.length];
+            for (int i = 0; i < source.length; i++) {
+                int column = i % width;
+                int row = i / width;
+                int sum = 0;
+                boolean inside = true;
+                for (int k = 0; k < pass.taps(); k++) {
+                    int tapX = column + pass.deltaX()[k];
+                    int tapY = row + pass.deltaY()[k];
+                    if (tapX < 0 || tapX >= width || tapY < 0 || tapY >= source.length / width) {
+                        inside = false;
+                        break;
+                    }
+                    sum += pass.weights()[k] * source[tapY * width + tapX];
+                }
+                destination[i] = inside ? sum : 0;
+            }
+            source = destination;
+        }
+        return source[y * width + x];
+    }
+
+    /**
+     * Creates a row-major image whose values grow by {@code stepX} per column and {@code stepY} per row.
+     *
+     * @param width  the width
+     * @param height the height
+     * @param stepX  the increase from one column to the next
+     * @param stepY  the increase from one row to the next
+     * @return the image
+     */
+    static int[] ramp(int width, int height, int stepX, int stepY) {
+        int[] image = new int[width * height];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = 100 + (i % width) * stepX + (i / width) * stepY;
+        }
+        return image;
+    }
+}
@@ -0,0 +1,63 @@
+package com.corp.imgpro.edgedetect.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the lookups of {@link EngineRegistry} and that {@value EngineRegistry#AUTO} is calibrated once, on its
+ * first lookup.
+ */
+class EngineRegistryTest {
+
+    @Test
+    void autoIsCalibratedOnItsFirstLookup() {
+        CountingDetector detector = new CountingDetector();
+        EngineRegistry registry = new EngineRegistry(List.of(detector));
+
+        assertSame(detector, registry.get("COUNTING"));
+        assertEquals(0, detector.calls.get());
+
+        EdgeDetector auto = registry.get(EngineRegistry.AUTO);
+        int calibrationCalls = detector.calls.get();
+        assertTrue(calibrationCalls > 0, "Calibration converted no image");
+
+        assertSame(auto, registry.get(EngineRegistry.AUTO));
+        assertEquals(calibrationCalls, detector.calls.get());
+    }
+
+    @Test
+    void unknownAndDuplicateNamesAreHandled() {
+        CountingDetector first = new CountingDetector();
+        EngineRegistry registry = new EngineRegistry(List.of(first, new CountingDetector()));
+
+        assertSame(first, registry.get("counting"));
+        assertEquals(List.of("counting", EngineRegistry.AUTO), List.copyOf(registry.names()));
+        assertThrows(IllegalArgumentException.class, () -> registry.get("missing"));
+    }
+
+    /**
+     * Engine returning a blank image and counting its conversions.
+     */
+    private static class CountingDetector implements EdgeDetector {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return "counting";
+        }
+
+        @Override
+        public BufferedImage convert(BufferedImage image) {
+            calls.incrementAndGet();
+            return new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        }
+    }
+}
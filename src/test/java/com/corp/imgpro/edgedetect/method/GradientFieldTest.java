@@ -0,0 +1,169 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the components of {@link GradientField}: the direction of {@code gx} and {@code gy} on intensity ramps,
+ * the orientation bins, the storage type of the responses and the magnitude against {@link SobelStandard}.
+ */
+class GradientFieldTest {
+
+    private static final int SIZE = 24;
+    private static final List<GradientOperator> OPERATORS = List.of(GradientOperator.SOBEL, GradientOperator.SOBEL_7);
+
+    @Test
+    void xRampHasAnXGradientAndOrientationZero() {
+        for (GradientOperator operator : OPERATORS) {
+            GradientField field = all(ramp((x, y) -> 8 * x), operator);
+            forEachInterior(field, i -> {
+                assertTrue(gx(field, i) > 0, "%s gx at %d".formatted(operator.name(), i));
+                assertEquals(0, gy(field, i), "%s gy at %d".formatted(operator.name(), i));
+                assertEquals(0, field.orientation()[i], "%s orientation at %d".formatted(operator.name(), i));
+            });
+        }
+    }
+
+    @Test
+    void yRampHasAYGradientAndOrientationHalfPi() {
+        for (GradientOperator operator : OPERATORS) {
+            GradientField field = all(ramp((x, y) -> 8 * y), operator);
+            forEachInterior(field, i -> {
+                assertEquals(0, gx(field, i), "%s gx at %d".formatted(operator.name(), i));
+                assertTrue(gy(field, i) > 0, "%s gy at %d".formatted(operator.name(), i));
+                // π / 2 lies in bin floor(9 / 2) of nine
+                assertEquals(4, field.orientation()[i], "%s orientation at %d".formatted(operator.name(), i));
+            });
+        }
+    }
+
+    @Test
+    void diagonalRampsFallIntoTheirBins() {
+        for (GradientOperator operator : OPERATORS) {
+            // Growing towards the bottom right: θ = π / 4, bin floor(9 / 4)
+            GradientField down = all(ramp((x, y) -> 4 * (x + y)), operator);
+            // Growing towards the top right: θ = -π / 4, folded to 3π / 4, bin floor(27 / 4)
+            GradientField up = all(ramp((x, y) -> 4 * (x - y + SIZE)), operator);
+            forEachInterior(down, i -> {
+                assertEquals(gx(down, i), gy(down, i), "%s at %d".formatted(operator.name(), i));
+                assertEquals(2, down.orientation()[i], "%s orientation at %d".formatted(operator.name(), i));
+                assertEquals(6, up.orientation()[i], "%s orientation at %d".formatted(operator.name(), i));
+            });
+        }
+    }
+
+    @Test
+    void responsesAreShortWhenTheyFit() {
+        for (GradientOperator operator : GradientOperator.predefined()) {
+            assertEquals(operator != GradientOperator.SOBEL_7, GradientField.fitsShort(operator), operator.name());
+        }
+        BufferedImage image = TestImages.random(8, 8, BufferedImage.TYPE_INT_RGB, 5);
+        GradientField compact = GradientField.compute(image, GradientOperator.SOBEL, EnumSet.of(GradientField.Component.GX));
+        GradientField wide = GradientField.compute(image, GradientOperator.SOBEL_7, EnumSet.of(GradientField.Component.GX));
+
+        assertTrue(compact.hasShortResponses());
+        assertEquals(64, compact.gxShort().length);
+        assertThrows(IllegalStateException.class, compact::gx);
+        assertThrows(IllegalStateException.class, compact::gyShort);
+        assertFalse(wide.hasShortResponses());
+        assertEquals(64, wide.gx().length);
+        assertThrows(IllegalStateException.class, wide::gxShort);
+        assertThrows(IllegalStateException.class, wide::magnitude);
+    }
+
+    @Test
+    void magnitudeMatchesTheStandardEngine() {
+        for (TestImages.Sample sample : TestImages.corpus()) {
+            BufferedImage image = sample.image();
+            int width = image.getWidth();
+            GradientField field = GradientField.compute(image, GradientOperator.SOBEL,
+                    EnumSet.of(GradientField.Component.MAGNITUDE));
+            int[][] expected = SobelStandard.Stages.computeEdgeColors(image);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < width; x++) {
+                    assertEquals(expected[x][y], (int) field.magnitude()[y * width + x],
+                            "%s (%d, %d)".formatted(sample, x, y));
+                }
+            }
+            assertEquals(Math.max(0, SobelStandard.Stages.findMaxGradient(expected)), (int) field.maxMagnitude(),
+                    sample.toString());
+        }
+    }
+
+    /**
+     * Computes every component of the field of an image.
+     *
+     * @param image    the input image
+     * @param operator the gradient operator
+     * @return the field
+     */
+    private static GradientField all(BufferedImage image, GradientOperator operator) {
+        return GradientField.compute(image, operator, EnumSet.allOf(GradientField.Component.class));
+    }
+
+    /**
+     * Returns the X response of a pixel in either storage type.
+     *
+     * @param field the field
+     * @param i     the row-major index of the pixel
+     * @return the response
+     */
+    private static float gx(GradientField field, int i) {
+        return field.hasShortResponses() ? field.gxShort()[i] : field.gx()[i];
+    }
+
+    /**
+     * Returns the Y response of a pixel in either storage type.
+     *
+     * @param field the field
+     * @param i     the row-major index of the pixel
+     * @return the response
+     */
+    private static float gy(GradientField field, int i) {
+        return field.hasShortResponses() ? field.gyShort()[i] : field.gy()[i];
+    }
+
+    /**
+     * Creates a gray image of {@link #SIZE} pixels square.
+     *
+     * @param level the gray level of a pixel, given its column and row
+     * @return the image
+     */
+    private static BufferedImage ramp(IntBinaryOperator level) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int v = level.applyAsInt(x, y);
+                image.setRGB(x, y, v << 16 | v << 8 | v);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Calls an assertion for every pixel outside the border of a field.
+     *
+     * @param field     the field
+     * @param assertion the assertion, given the row-major index of the pixel
+     */
+    private static void forEachInterior(GradientField field, IntConsumer assertion) {
+        int radius = field.operator().radius();
+        for (int y = radius; y < field.height() - radius; y++) {
+            for (int x = radius; x < field.width() - radius; x++) {
+                assertion.accept(y * field.width() + x);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import com.corp.imgpro.edgedetect.common.Kernel;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.DynamicTest.dynamicTest;
+
+/**
+ * Compares {@link GradientFilter} with a direct convolution over the weight matrices of each predefined operator,
+ * and with {@link SobelStandard} for the 3x3 Sobel operator.
+ */
+class GradientFilterTest {
+
+    @TestFactory
+    Stream<DynamicTest> sobelMatchesTheStandardEngine() {
+        return TestImages.matchStandard(image -> GradientFilter.convert(image, GradientOperator.SOBEL));
+    }
+
+    @TestFactory
+    Stream<DynamicTest> operatorsMatchADirectConvolution() {
+        return GradientOperator.predefined().stream().flatMap(operator -> TestImages.corpus().stream().map(sample ->
+                dynamicTest(operator.name() + ", " + sample, () -> TestImages.assertSameEdges(
+                        convolve(sample.image(), operator), GradientFilter.convert(sample.image(), operator)))));
+    }
+
+    /**
+     * Computes the edge map of an operator pixel by pixel from the weights of its kernels.
+     *
+     * @param image    the input image
+     * @param operator the operator
+     * @return the edge map
+     */
+    private static BufferedImage convolve(BufferedImage image, GradientOperator operator) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int radius = operator.radius();
+        int[] gray = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            Rasters.grayScaleRow(image, y, gray, y * width);
+        }
+
+        int[] magnitudes = new int[width * height];
+        int max = -1;
+        for (int y = radius; y < height - radius; y++) {
+            for (int x = radius; x < width - radius; x++) {
+                long gx = response(operator.x(), gray, width, x, y);
+                long gy = response(operator.y(), gray, width, x, y);
+                magnitudes[y * width + x] = (int) Math.sqrt((double) (gx * gx + gy * gy));
+                max = Math.max(max, magnitudes[y * width + x]);
+            }
+        }
+
+        BufferedImage output = TestImages.outputFor(image);
+        int[] table = max < 0 ? new int[1] : SobelMath.normalizationTable(max);
+        for (int y = radius; y < height - radius; y++) {
+            for (int x = radius; x < width - radius; x++) {
+                int level = table[magnitudes[y * width + x]];
+                output.setRGB(x, y, level << 16 | level << 8 | level);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Returns the response of a kernel at one pixel.
+     *
+     * @param kernel the kernel
+     * @param gray   the row-major grayscale values
+     * @param width  the image width
+     * @param x      the column
+     * @param y      the row
+     * @return the response
+     */
+    private static long response(Kernel kernel, int[] gray, int width, int x, int y) {
+        long sum = 0;
+        for (int dx = -kernel.radius(); dx <= kernel.radius(); dx++) {
+            for (int dy = -kernel.radius(); dy <= kernel.radius(); dy++) {
+                sum += (long) kernel.weight(dx, dy) * gray[(y + dy) * width + x + dx];
+            }
+        }
+        return sum;
+    }
+}
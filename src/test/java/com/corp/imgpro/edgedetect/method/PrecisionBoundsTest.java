@@ -0,0 +1,101 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import com.corp.imgpro.edgedetect.common.Precision;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.DynamicTest.dynamicTest;
+
+/**
+ * Checks the error bounds documented in {@link Precision} for the raster engine, level by level, against the
+ * exact edge map of {@link SobelStandard}.
+ */
+class PrecisionBoundsTest {
+
+    @TestFactory
+    Stream<DynamicTest> exactModeMatchesTheStandardEngine() {
+        return TestImages.corpus().stream().map(sample -> dynamicTest(sample.toString(), () ->
+                TestImages.assertSameEdges(SobelStandard.convert(sample.image()),
+                        SobelRaster.convert(sample.image(), Precision.EXACT))));
+    }
+
+    @TestFactory
+    Stream<DynamicTest> fixedPointStaysWithinItsBound() {
+        return TestImages.corpus().stream().map(sample -> dynamicTest(sample.toString(), () -> {
+            BufferedImage image = sample.image();
+            int bound = fixedPointBound(image);
+            BufferedImage expected = SobelStandard.convert(image);
+            BufferedImage actual = SobelRaster.convert(image, Precision.FIXED_POINT);
+            forEachPixel(image, (x, y) -> {
+                int error = Math.abs(TestImages.level(expected, x, y) - TestImages.level(actual, x, y));
+                assertTrue(error <= bound, "pixel (%d, %d) is off by %d levels, bound %d".formatted(x, y, error, bound));
+            });
+        }));
+    }
+
+    @TestFactory
+    Stream<DynamicTest> l1StaysWithinItsBound() {
+        return TestImages.corpus().stream().map(sample -> dynamicTest(sample.toString(), () -> {
+            BufferedImage image = sample.image();
+            // The sqrt(2) factors bound the L1 magnitude of the fixed-point gradients; the fixed-point error and the
+            // truncation of the exact root, worth sqrt(2) * 255 / max levels on low-contrast images, come on top
+            int slack = fixedPointBound(image);
+            BufferedImage expected = SobelStandard.convert(image);
+            BufferedImage actual = SobelRaster.convert(image, Precision.L1);
+            forEachPixel(image, (x, y) -> {
+                int exact = TestImages.level(expected, x, y);
+                int level = TestImages.level(actual, x, y);
+                int low = (int) Math.floor(exact / Math.sqrt(2)) - slack;
+                int high = Math.min(255, (int) Math.ceil(exact * Math.sqrt(2)) + slack);
+                assertTrue(level >= low && level <= high, "pixel (%d, %d) is at level %d, exact %d, bounds [%d, %d]"
+                        .formatted(x, y, level, exact, low, high));
+            });
+        }));
+    }
+
+    /**
+     * Returns the documented bound of the fixed-point mode, {@code 24 * 255 / (max - 12) + 1} levels for an image
+     * whose exact maximum gradient {@code max} is above 12; below that any level may change.
+     *
+     * @param image the input image
+     * @return the bound in levels
+     */
+    private static int fixedPointBound(BufferedImage image) {
+        int max = SobelStandard.Stages.findMaxGradient(SobelStandard.Stages.computeEdgeColors(image));
+        return max <= 12 ? 255 : 24 * 255 / (max - 12) + 1;
+    }
+
+    /**
+     * Calls an action for every pixel of an image.
+     *
+     * @param image  the image
+     * @param action the action, given the column and row
+     */
+    private static void forEachPixel(BufferedImage image, PixelAction action) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                action.accept(x, y);
+            }
+        }
+    }
+
+    /**
+     * An assertion on one pixel.
+     */
+    @FunctionalInterface
+    private interface PixelAction {
+
+        /**
+         * Checks a pixel.
+         *
+         * @param x the column
+         * @param y the row
+         */
+        void accept(int x, int y);
+    }
+}
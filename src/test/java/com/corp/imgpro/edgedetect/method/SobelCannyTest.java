@@ -0,0 +1,247 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import com.corp.imgpro.edgedetect.common.GradientOperator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link SobelCanny} on step edges, whose Canny edge is a line one pixel wide along the step, and checks
+ * that the bands of a parallel run join like a serial run.
+ */
+class SobelCannyTest {
+
+    private static final int SIZE = 64;
+    private static final ForkJoinPool SERIAL = new ForkJoinPool(1);
+    private static final ForkJoinPool PARALLEL = new ForkJoinPool(4);
+
+    @AfterAll
+    static void closePools() {
+        SERIAL.shutdown();
+        PARALLEL.shutdown();
+    }
+
+    @Test
+    void verticalStepGivesOneColumn() {
+        for (GradientOperator operator : List.of(GradientOperator.SOBEL, GradientOperator.SOBEL_7)) {
+            BufferedImage edges = canny(step((x, y) -> x >= SIZE / 2), operator, PARALLEL);
+            int margin = operator.radius() + 1;
+            for (int y = 0; y < SIZE; y++) {
+                boolean interior = y >= margin && y < SIZE - margin;
+                assertEquals(interior ? List.of(SIZE / 2 - 1) : List.of(), edgeColumns(edges, y),
+                        "%s row %d".formatted(operator.name(), y));
+            }
+        }
+    }
+
+    @Test
+    void horizontalStepGivesOneRow() {
+        for (GradientOperator operator : List.of(GradientOperator.SOBEL, GradientOperator.SOBEL_7)) {
+            BufferedImage edges = canny(step((x, y) -> y >= SIZE / 2), operator, PARALLEL);
+            int margin = operator.radius() + 1;
+            for (int y = 0; y < SIZE; y++) {
+                List<Integer> expected = new ArrayList<>();
+                if (y == SIZE / 2 - 1) {
+                    for (int x = margin; x < SIZE - margin; x++) {
+                        expected.add(x);
+                    }
+                }
+                assertEquals(expected, edgeColumns(edges, y), "%s row %d".formatted(operator.name(), y));
+            }
+        }
+    }
+
+    @Test
+    void steepDiagonalStepGivesOnePixelPerRow() {
+        // White right of the line x = (y + 16) / 2
+        BufferedImage edges = canny(step((x, y) -> 2 * x > y + 16), GradientOperator.SOBEL, PARALLEL);
+        int previous = -1;
+        for (int y = 2; y < SIZE - 2; y++) {
+            List<Integer> columns = edgeColumns(edges, y);
+            assertEquals(1, columns.size(), "row %d: %s".formatted(y, columns));
+            int x = columns.get(0);
+            assertTrue(Math.abs(x - (y + 16) / 2.0) <= 1, "row %d: column %d".formatted(y, x));
+            assertTrue(previous < 0 || x - previous <= 1, "row %d: gap after column %d".formatted(y, previous));
+            previous = x;
+        }
+    }
+
+    @Test
+    void shallowDiagonalStepGivesOnePixelPerColumn() {
+        // White below the line y = (x + 16) / 2
+        BufferedImage edges = canny(step((x, y) -> 2 * y > x + 16), GradientOperator.SOBEL, PARALLEL);
+        int previous = -1;
+        for (int x = 2; x < SIZE - 2; x++) {
+            List<Integer> rows = edgeRows(edges, x);
+            assertEquals(1, rows.size(), "column %d: %s".formatted(x, rows));
+            int y = rows.get(0);
+            assertTrue(Math.abs(y - (x + 16) / 2.0) <= 1, "column %d: row %d".formatted(x, y));
+            assertTrue(previous < 0 || y - previous <= 1, "column %d: gap after row %d".formatted(x, previous));
+            previous = y;
+        }
+    }
+
+    @Test
+    void diagonalStepGivesAStaircaseAlongTheStep() {
+        // Four sectors compare a pixel on a 45 degree edge with its diagonal neighbours, two diagonals away, so
+        // the edge is a 4-connected staircase over the two diagonals next to the step, without gaps
+        for (GradientOperator operator : List.of(GradientOperator.SOBEL, GradientOperator.SOBEL_7)) {
+            BufferedImage edges = canny(step((x, y) -> x > y), operator, PARALLEL);
+            int margin = operator.radius() + 1;
+            for (int y = margin + 1; y < SIZE - margin - 1; y++) {
+                List<Integer> columns = edgeColumns(edges, y);
+                assertFalse(columns.isEmpty(), "%s row %d".formatted(operator.name(), y));
+                for (int x : columns) {
+                    assertTrue(x == y || x == y + 1, "%s row %d: %s".formatted(operator.name(), y, columns));
+                }
+            }
+        }
+    }
+
+    @Test
+    void discKeepsEverySide() {
+        int center = SIZE / 2;
+        int radius = 20;
+        BufferedImage edges = canny(step((x, y) -> (x - center) * (x - center) + (y - center) * (y - center)
+                <= radius * radius), GradientOperator.SOBEL_7, PARALLEL);
+
+        assertTrue(isEdgeNear(edges, center - radius, center), "left side");
+        assertTrue(isEdgeNear(edges, center + radius, center), "right side");
+        assertTrue(isEdgeNear(edges, center, center - radius), "top side");
+        assertTrue(isEdgeNear(edges, center, center + radius), "bottom side");
+        // One edge pixel where each side of the disc crosses the center row and column
+        assertEquals(2, edgeColumns(edges, center).size(), "center row");
+        assertEquals(2, edgeRows(edges, center).size(), "center column");
+    }
+
+    @Test
+    void parallelBandsMatchASerialRun() {
+        for (TestImages.Sample sample : TestImages.corpus()) {
+            SobelCanny.Parameters parameters = new SobelCanny.Parameters(GradientOperator.SOBEL, 0.1, 0.3);
+            BufferedImage image = sample.image();
+            TestImages.assertSameEdges(
+                    SobelCanny.convert(image, TestImages.outputFor(image), SERIAL, parameters),
+                    SobelCanny.convert(image, TestImages.outputFor(image), PARALLEL, parameters));
+        }
+    }
+
+    @Test
+    void flatAndTinyImagesHaveNoEdges() {
+        for (BufferedImage image : List.of(TestImages.flat(40, 30, 0x808080),
+                TestImages.random(2, 9, BufferedImage.TYPE_INT_RGB, 7), TestImages.random(5, 5, BufferedImage.TYPE_INT_RGB, 8))) {
+            BufferedImage edges = canny(image, GradientOperator.SOBEL, PARALLEL);
+            for (int y = 0; y < image.getHeight(); y++) {
+                assertEquals(List.of(), edgeColumns(edges, y), "%dx%d row %d".formatted(image.getWidth(), image.getHeight(), y));
+            }
+        }
+    }
+
+    /**
+     * Runs the detector with the default thresholds.
+     *
+     * @param image    the input image
+     * @param operator the gradient operator
+     * @param pool     the pool running the bands
+     * @return the edge map
+     */
+    private static BufferedImage canny(BufferedImage image, GradientOperator operator, ForkJoinPool pool) {
+        SobelCanny.Parameters parameters = new SobelCanny.Parameters(operator, SobelCanny.Parameters.DEFAULT.low(),
+                SobelCanny.Parameters.DEFAULT.high());
+        BufferedImage output = TestImages.flat(image.getWidth(), image.getHeight(), 0xffffff);
+        return SobelCanny.convert(image, output, pool, parameters);
+    }
+
+    /**
+     * Creates a black and white image of {@link #SIZE} pixels square.
+     *
+     * @param white whether a pixel is white
+     * @return the image
+     */
+    private static BufferedImage step(Region white) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                image.setRGB(x, y, white.contains(x, y) ? 0xffffff : 0);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Returns the columns of the edge pixels of a row.
+     *
+     * @param edges the edge map
+     * @param y     the row
+     * @return the columns, in increasing order
+     */
+    private static List<Integer> edgeColumns(BufferedImage edges, int y) {
+        List<Integer> columns = new ArrayList<>();
+        for (int x = 0; x < edges.getWidth(); x++) {
+            if (TestImages.level(edges, x, y) == 255) {
+                columns.add(x);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the rows of the edge pixels of a column.
+     *
+     * @param edges the edge map
+     * @param x     the column
+     * @return the rows, in increasing order
+     */
+    private static List<Integer> edgeRows(BufferedImage edges, int x) {
+        List<Integer> rows = new ArrayList<>();
+        for (int y = 0; y < edges.getHeight(); y++) {
+            if (TestImages.level(edges, x, y) == 255) {
+                rows.add(y);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns whether an edge pixel lies within one pixel of a point.
+     *
+     * @param edges the edge map
+     * @param x     the column of the point
+     * @param y     the row of the point
+     * @return {@code true} if one of the nine pixels around the point is an edge
+     */
+    private static boolean isEdgeNear(BufferedImage edges, int x, int y) {
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (TestImages.level(edges, x + dx, y + dy) == 255) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A set of pixels.
+     */
+    @FunctionalInterface
+    private interface Region {
+
+        /**
+         * Returns whether a pixel belongs to the set.
+         *
+         * @param x the column
+         * @param y the row
+         * @return {@code true} if it does
+         */
+        boolean contains(int x, int y);
+    }
+}
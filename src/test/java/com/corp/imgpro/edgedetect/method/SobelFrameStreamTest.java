@@ -0,0 +1,140 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Feeds {@link SobelFrameStream} sequences of frames and checks every edge map against {@link SobelStandard},
+ * together with the number of tiles recomputed and the renormalizations.
+ */
+class SobelFrameStreamTest {
+
+    /**
+     * Tile size that does not divide the frame size, so the last row and column of tiles are partial.
+     */
+    private static final int TILE_SIZE = 16;
+
+    /**
+     * Frame width, five tiles of which the last is partial.
+     */
+    private static final int WIDTH = 70;
+
+    /**
+     * Frame height, three tiles of which the last is partial.
+     */
+    private static final int HEIGHT = 45;
+
+    /**
+     * Number of tiles of a frame.
+     */
+    private static final int TILES = 5 * 3;
+
+    @TestFactory
+    Stream<DynamicTest> firstFrameMatchesTheStandardEngine() {
+        return TestImages.matchStandard(image -> new SobelFrameStream(image.getWidth(), image.getHeight(), TILE_SIZE)
+                .next(image));
+    }
+
+    @Test
+    void unchangedFrameRecomputesNothing() {
+        SobelFrameStream stream = new SobelFrameStream(WIDTH, HEIGHT, TILE_SIZE);
+        BufferedImage frame = TestImages.random(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB, 1);
+        BufferedImage expected = SobelStandard.convert(frame);
+
+        TestImages.assertSameEdges(expected, stream.next(frame));
+        TestImages.assertSameEdges(expected, stream.next(copy(frame)));
+
+        assertStats(stream, 2, TILES, 1);
+    }
+
+    @Test
+    void changedPixelRecomputesItsTileOnly() {
+        SobelFrameStream stream = new SobelFrameStream(WIDTH, HEIGHT, TILE_SIZE);
+        BufferedImage frame = TestImages.random(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB, 2);
+        stream.next(frame);
+
+        // On a tile corner, so the halo reaches into the three neighbouring tiles
+        BufferedImage changed = copy(frame);
+        changed.setRGB(32, 16, ~frame.getRGB(32, 16));
+        TestImages.assertSameEdges(SobelStandard.convert(changed), stream.next(changed));
+
+        assertEquals(TILES + 1, stream.stats().recomputedTiles());
+    }
+
+    @Test
+    void newMaximumRenormalizesTheWholeMap() {
+        SobelFrameStream stream = new SobelFrameStream(WIDTH, HEIGHT, TILE_SIZE);
+        BufferedImage frame = TestImages.smooth(WIDTH, HEIGHT);
+        TestImages.assertSameEdges(SobelStandard.convert(frame), stream.next(frame));
+
+        // A white pixel raises the maximum, and removing it lowers the maximum back
+        BufferedImage spike = copy(frame);
+        spike.setRGB(50, 35, 0xffffff);
+        TestImages.assertSameEdges(SobelStandard.convert(spike), stream.next(spike));
+        TestImages.assertSameEdges(SobelStandard.convert(frame), stream.next(frame));
+
+        assertStats(stream, 3, TILES + 2, 3);
+    }
+
+    @Test
+    void sameLuminanceLeavesTheTileClean() {
+        SobelFrameStream stream = new SobelFrameStream(WIDTH, HEIGHT, TILE_SIZE);
+        BufferedImage frame = TestImages.flat(WIDTH, HEIGHT, 0x808080);
+        stream.next(frame);
+
+        // Alpha does not enter the luminance
+        BufferedImage argb = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        argb.getGraphics().drawImage(frame, 0, 0, null);
+        argb.setRGB(10, 10, 0x40808080);
+        TestImages.assertSameEdges(SobelStandard.convert(frame), stream.next(argb));
+
+        assertStats(stream, 2, TILES, 1);
+    }
+
+    @Test
+    void frameOfAnotherSizeIsRejected() {
+        SobelFrameStream stream = new SobelFrameStream(WIDTH, HEIGHT, TILE_SIZE);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> stream.next(new BufferedImage(HEIGHT, WIDTH, BufferedImage.TYPE_INT_RGB)));
+        assertThrows(IllegalArgumentException.class, () -> new SobelFrameStream(0, HEIGHT));
+        assertThrows(IllegalArgumentException.class, () -> new SobelFrameStream(WIDTH, HEIGHT, 0));
+    }
+
+    /**
+     * Asserts the counters of a stream.
+     *
+     * @param stream           the stream
+     * @param frames           the expected number of frames
+     * @param recomputedTiles  the expected number of recomputed tiles
+     * @param renormalizations the expected number of renormalizations
+     */
+    private static void assertStats(SobelFrameStream stream, long frames, long recomputedTiles,
+                                    long renormalizations) {
+        SobelFrameStream.FrameStats stats = stream.stats();
+        assertEquals(frames, stats.frames(), "frames");
+        assertEquals(recomputedTiles, stats.recomputedTiles(), "recomputed tiles");
+        assertEquals(frames * TILES, stats.totalTiles(), "total tiles");
+        assertEquals(renormalizations, stats.renormalizations(), "renormalizations");
+    }
+
+    /**
+     * Copies a frame, as a camera would deliver the same picture in a new image.
+     *
+     * @param frame the frame
+     * @return the copy
+     */
+    private static BufferedImage copy(BufferedImage frame) {
+        BufferedImage copy = new BufferedImage(frame.getWidth(), frame.getHeight(), frame.getType());
+        copy.setData(frame.getData());
+        return copy;
+    }
+}
@@ -0,0 +1,30 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link SobelHybrid} with {@link SobelStandard} on the images of {@link TestImages}, with the CPU band
+ * processor standing in for the device so that the tests need no TornadoVM device. Small bands make both sides
+ * claim, and steal, several bands per image.
+ */
+class SobelHybridTest {
+
+    private static final SobelHybrid.Settings SETTINGS = new SobelHybrid.Settings(8, 4, 0.5);
+
+    @TestFactory
+    Stream<DynamicTest> matchesTheStandardEngine() {
+        return TestImages.matchStandardInto(new SobelHybrid(SobelHybrid::cpuGradients, SETTINGS)::convert);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> leavesTheRowsOfAFailingDeviceToTheCpu() {
+        SobelHybrid.BandProcessor failing = (image, from, to, edges) -> {
+            throw new IllegalStateException("no device");
+        };
+        return TestImages.matchStandardInto(new SobelHybrid(failing, SETTINGS)::convert);
+    }
+}
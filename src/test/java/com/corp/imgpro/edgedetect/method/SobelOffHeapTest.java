@@ -0,0 +1,33 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import com.corp.imgpro.edgedetect.common.OffHeapRaster;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link SobelOffHeap} with {@link SobelStandard} on the images of {@link TestImages}, into a new raster
+ * and in place.
+ */
+class SobelOffHeapTest {
+
+    @TestFactory
+    Stream<DynamicTest> matchesTheStandardEngine() {
+        return TestImages.matchStandard(image -> {
+            try (OffHeapRaster raster = OffHeapRaster.of(image); OffHeapRaster edges = SobelOffHeap.convert(raster)) {
+                return edges.toImage(image.getType());
+            }
+        });
+    }
+
+    @TestFactory
+    Stream<DynamicTest> matchesTheStandardEngineInPlace() {
+        return TestImages.matchStandard(image -> {
+            try (OffHeapRaster raster = OffHeapRaster.of(image)) {
+                return SobelOffHeap.convert(raster, raster).toImage(image.getType());
+            }
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link SobelParallel} with {@link SobelStandard} on the images of {@link TestImages}.
+ */
+class SobelParallelTest {
+
+    @TestFactory
+    Stream<DynamicTest> matchesTheStandardEngine() {
+        return TestImages.matchStandard(SobelParallel::convert);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> overwritesAReusedOutput() {
+        return TestImages.matchStandardInto(SobelParallel::convert);
+    }
+}
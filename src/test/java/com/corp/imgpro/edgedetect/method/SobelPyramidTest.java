@@ -0,0 +1,135 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the regions of {@link SobelPyramid} against the gradients of {@link SobelStandard} normalized by the
+ * maximum of the region, and the sizes of the pyramid levels.
+ */
+class SobelPyramidTest {
+
+    @TestFactory
+    Stream<DynamicTest> wholeImageRegionMatchesTheStandardEngine() {
+        return TestImages.matchStandard(image -> SobelPyramid.convertRegion(image,
+                new Rectangle(0, 0, image.getWidth(), image.getHeight())));
+    }
+
+    @Test
+    void regionsHaveTheGradientsOfTheWholeImage() {
+        BufferedImage image = TestImages.random(61, 47, BufferedImage.TYPE_INT_RGB, 11);
+        int[][] gradients = SobelStandard.Stages.computeEdgeColors(image);
+        List<Rectangle> regions = List.of(
+                new Rectangle(10, 12, 20, 15),
+                new Rectangle(0, 0, 9, 7),
+                new Rectangle(50, 40, 11, 7),
+                new Rectangle(-5, 30, 12, 30),
+                new Rectangle(20, 46, 30, 1),
+                new Rectangle(33, 20, 1, 1));
+
+        for (Rectangle region : regions) {
+            BufferedImage edges = SobelPyramid.convertRegion(image, region);
+            Rectangle bounds = region.intersection(new Rectangle(0, 0, 61, 47));
+
+            assertEquals(bounds.width, edges.getWidth(), "width of " + region);
+            assertEquals(bounds.height, edges.getHeight(), "height of " + region);
+            assertRegion(image, gradients, bounds, edges);
+        }
+    }
+
+    @Test
+    void regionOutsideTheImageIsRejected() {
+        BufferedImage image = TestImages.random(16, 16, BufferedImage.TYPE_INT_RGB, 12);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> SobelPyramid.convertRegion(image, new Rectangle(16, 0, 4, 4)));
+        assertThrows(IllegalArgumentException.class,
+                () -> SobelPyramid.convertRegion(image, new Rectangle(2, 2, 0, 4)));
+    }
+
+    @Test
+    void pyramidStopsAtTheViewSize() {
+        BufferedImage image = TestImages.random(65, 49, BufferedImage.TYPE_INT_RGB, 13);
+
+        List<SobelPyramid.Level> levels = SobelPyramid.pyramid(image, 16, 12);
+
+        assertEquals(2, levels.size());
+        assertEquals(32, levels.get(0).width());
+        assertEquals(24, levels.get(0).height());
+        assertEquals(16, levels.get(1).width());
+        assertEquals(12, levels.get(1).height());
+        assertTrue(SobelPyramid.pyramid(image, 33, 1).isEmpty());
+
+        BufferedImage preview = SobelPyramid.preview(image, 16, 12);
+        assertEquals(16, preview.getWidth());
+        assertEquals(12, preview.getHeight());
+    }
+
+    @Test
+    void levelAveragesTwoByTwoBlocks() {
+        BufferedImage image = TestImages.flat(4, 2, 0x000000);
+        image.setRGB(0, 0, 0xffffff);
+        image.setRGB(1, 1, 0xffffff);
+        image.setRGB(3, 0, 0xffffff);
+
+        SobelPyramid.Level level = SobelPyramid.downsample(image);
+
+        // White has the truncated luminance 254: (254 + 254 + 2) >> 2 and (254 + 2) >> 2
+        assertEquals(2, level.width());
+        assertEquals(1, level.height());
+        assertEquals(127, level.grayScale()[0]);
+        assertEquals(64, level.grayScale()[1]);
+    }
+
+    /**
+     * Asserts that every pixel of a region edge map is the image gradient scaled by the maximum gradient of the
+     * region, and black on the image border.
+     *
+     * @param image     the image
+     * @param gradients the gradients of the whole image, indexed by column and row
+     * @param bounds    the region within the image
+     * @param edges     the edge map of the region
+     */
+    private static void assertRegion(BufferedImage image, int[][] gradients, Rectangle bounds, BufferedImage edges) {
+        int max = -1;
+        for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+            for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+                if (interior(image, x, y)) {
+                    max = Math.max(max, gradients[x][y]);
+                }
+            }
+        }
+        for (int y = 0; y < bounds.height; y++) {
+            for (int x = 0; x < bounds.width; x++) {
+                int imageX = bounds.x + x;
+                int imageY = bounds.y + y;
+                int expected = interior(image, imageX, imageY) ? (int) (gradients[imageX][imageY] * (255.0 / max)) : 0;
+                assertEquals(expected, TestImages.level(edges, x, y),
+                        "(%d, %d) of %s".formatted(imageX, imageY, bounds));
+            }
+        }
+    }
+
+    /**
+     * Returns whether a pixel has all eight neighbours in the image.
+     *
+     * @param image the image
+     * @param x     the column
+     * @param y     the row
+     * @return {@code true} if the pixel is not on the border
+     */
+    private static boolean interior(BufferedImage image, int x, int y) {
+        return x > 0 && y > 0 && x < image.getWidth() - 1 && y < image.getHeight() - 1;
+    }
+}
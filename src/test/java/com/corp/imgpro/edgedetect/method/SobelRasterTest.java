@@ -0,0 +1,23 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link SobelRaster} with {@link SobelStandard} on the images of {@link TestImages}.
+ */
+class SobelRasterTest {
+
+    @TestFactory
+    Stream<DynamicTest> matchesTheStandardEngine() {
+        return TestImages.matchStandard(SobelRaster::convert);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> overwritesAReusedOutput() {
+        return TestImages.matchStandardInto(SobelRaster::convert);
+    }
+}
@@ -0,0 +1,59 @@
+package com.corp.imgpro.edgedetect.method;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks {@link SobelStandard}, the reference of every other engine, on a hand-computed step and against its own
+ * convert-into path.
+ */
+class SobelStandardTest {
+
+    @Test
+    void stepGivesFullLevelsBesideIt() {
+        // Columns 0 and 1 black, 2 and 3 white: both interior pixels see gx = 4 * 255 and gy = 0
+        BufferedImage image = new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 3; y++) {
+            image.setRGB(2, y, 0xffffff);
+            image.setRGB(3, y, 0xffffff);
+        }
+
+        BufferedImage edges = SobelStandard.convert(image);
+
+        int[][] expected = {{0, 0, 0, 0}, {0, 255, 255, 0}, {0, 0, 0, 0}};
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertEquals(expected[y][x], TestImages.level(edges, x, y), "(%d, %d)".formatted(x, y));
+            }
+        }
+    }
+
+    @Test
+    void newOutputHasTheInputType() {
+        for (int type : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+                BufferedImage.TYPE_3BYTE_BGR}) {
+            assertEquals(type, SobelStandard.convert(TestImages.random(9, 7, type, type)).getType());
+        }
+    }
+
+    @TestFactory
+    Stream<DynamicTest> overwritesAReusedOutput() {
+        return TestImages.matchStandardInto(SobelStandard::convert);
+    }
+
+    @Test
+    void outputOfAnotherSizeIsRejected() {
+        BufferedImage image = TestImages.random(9, 7, BufferedImage.TYPE_INT_RGB, 3);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> SobelStandard.convert(image, new BufferedImage(7, 9, BufferedImage.TYPE_INT_RGB)));
+    }
+}
@@ -0,0 +1,65 @@
+package com.corp.imgpro.edgedetect.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that {@link Metrics} records every timed stage under its own engine, including stages nested on one
+ * thread. The engine tags are unique to this test, since the histograms are global.
+ */
+class MetricsTest {
+
+    @Test
+    void endedEventIsReused() {
+        StageEvent first = Metrics.begin(Stage.ENCODE, "metrics-test-reuse", 2, 2);
+        Metrics.end(first);
+        StageEvent second = Metrics.begin(Stage.ENCODE, "metrics-test-reuse", 2, 2);
+        Metrics.end(second);
+
+        assertSame(first, second);
+        assertEquals(2, count(Stage.ENCODE, "metrics-test-reuse"));
+    }
+
+    @Test
+    void nestedStageGetsAnEventOfItsOwn() {
+        StageEvent outer = Metrics.begin(Stage.CONVOLUTION, "metrics-test-outer", 40, 30);
+        StageEvent inner = Metrics.begin(Stage.CONVOLUTION, "metrics-test-inner", 20, 10);
+        Metrics.record(Stage.CONVOLUTION, "metrics-test-device", 20, 10, 1_000);
+        Metrics.end(inner);
+        Metrics.end(outer);
+
+        assertNotSame(outer, inner);
+        assertEquals("metrics-test-outer", outer.engine);
+        assertEquals(40, outer.width);
+        assertEquals(1, count(Stage.CONVOLUTION, "metrics-test-outer"));
+        assertEquals(1, count(Stage.CONVOLUTION, "metrics-test-inner"));
+        assertEquals(1, count(Stage.CONVOLUTION, "metrics-test-device"));
+    }
+
+    @Test
+    void sizeKnownAtTheEndIsRecorded() {
+        StageEvent event = Metrics.begin(Stage.DECODE, "metrics-test-decode", 0, 0);
+        Metrics.end(event, 64, 48);
+
+        assertEquals(64, event.width);
+        assertEquals(48, event.height);
+        assertEquals(1, count(Stage.DECODE, "metrics-test-decode"));
+    }
+
+    /**
+     * Returns the number of recorded times of a stage and engine.
+     *
+     * @param stage  the stage
+     * @param engine the engine tag
+     * @return the count, 0 if nothing was recorded
+     */
+    private static long count(Stage stage, String engine) {
+        return Metrics.snapshot().stream()
+                .filter(stats -> stats.stage() == stage && stats.engine().equals(engine))
+                .mapToLong(stats -> stats.histogram().count())
+                .sum();
+    }
+}
@@ -0,0 +1,195 @@
+package com.corp.imgpro.edgedetect.server;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import com.corp.imgpro.edgedetect.engine.StandardEdgeDetector;
+import com.corp.imgpro.edgedetect.method.SobelStandard;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends requests to an {@link EdgeServer} running the standard engine on the loopback interface and checks the
+ * edge maps and the error statuses.
+ */
+class EdgeServerTest {
+
+    /**
+     * Address the server is bound to.
+     */
+    private static final String HOST = "127.0.0.1";
+
+    /**
+     * Pixel budget of the server, smaller than the oversized test image.
+     */
+    private static final int BUDGET_PIXELS = 100_000;
+
+    /**
+     * Body limit of the server, larger than every test image.
+     */
+    private static final long MAX_BODY_BYTES = 64 << 10;
+
+    private static EdgeServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new EdgeServer(new InetSocketAddress(HOST, 0), new StandardEdgeDetector(),
+                new PixelBudget(BUDGET_PIXELS, 0), MAX_BODY_BYTES);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void pngResponseMatchesTheStandardEngine() throws Exception {
+        BufferedImage image = TestImages.random(67, 43, BufferedImage.TYPE_INT_RGB, 1);
+
+        HttpResponse<byte[]> response = post("/detect", png(image));
+
+        assertEquals(200, response.statusCode());
+        assertEquals("image/png", response.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals("67", response.headers().firstValue("X-Image-Width").orElseThrow());
+        assertEquals("43", response.headers().firstValue("X-Image-Height").orElseThrow());
+        TestImages.assertSameEdges(SobelStandard.convert(image),
+                ImageIO.read(new ByteArrayInputStream(response.body())));
+    }
+
+    @Test
+    void rawResponseHoldsOneGrayBytePerPixel() throws Exception {
+        BufferedImage image = TestImages.random(31, 17, BufferedImage.TYPE_INT_RGB, 2);
+        BufferedImage expected = SobelStandard.convert(image);
+
+        HttpResponse<byte[]> response = post("/detect?format=raw", png(image));
+
+        assertEquals(200, response.statusCode());
+        byte[] levels = response.body();
+        assertEquals(31 * 17, levels.length);
+        for (int y = 0; y < 17; y++) {
+            for (int x = 0; x < 31; x++) {
+                assertEquals(TestImages.level(expected, x, y), levels[y * 31 + x] & 0xff, "(%d, %d)".formatted(x, y));
+            }
+        }
+    }
+
+    @Test
+    void getIsNotAllowed() throws Exception {
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri("/detect")).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(405, response.statusCode());
+        assertEquals("POST", response.headers().firstValue("Allow").orElseThrow());
+    }
+
+    @Test
+    void bodyThatIsNoImageIsABadRequest() throws Exception {
+        assertEquals(400, post("/detect", "not an image".getBytes(StandardCharsets.UTF_8)).statusCode());
+    }
+
+    @Test
+    void malformedContentLengthIsABadRequest() throws IOException {
+        for (String length : new String[]{"12abc", "-5"}) {
+            assertEquals(400, rawStatus("Content-Length: " + length), length);
+        }
+    }
+
+    @Test
+    void bodyAboveTheLimitIsTooLarge() throws Exception {
+        assertEquals(413, post("/detect", new byte[(int) MAX_BODY_BYTES + 1]).statusCode());
+    }
+
+    @Test
+    void imageAboveTheBudgetIsTooLarge() throws Exception {
+        BufferedImage image = TestImages.flat(1_000, 101, 0x808080);
+
+        assertEquals(413, post("/detect", png(image)).statusCode());
+    }
+
+    @Test
+    void metricsReportTheAdmissionCounters() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/metrics")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("capacityPixels=" + BUDGET_PIXELS), response.body());
+    }
+
+    /**
+     * Posts a body to the server.
+     *
+     * @param path the path and query
+     * @param body the request body
+     * @return the response
+     */
+    private static HttpResponse<byte[]> post(String path, byte[] body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri(path))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Sends a {@code POST /detect} with a hand-written header, which {@link HttpClient} would not send, and
+     * returns the status code.
+     *
+     * @param header the extra header line
+     * @return the status code of the response
+     */
+    private static int rawStatus(String header) throws IOException {
+        try (Socket socket = new Socket(HOST, server.port())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /detect HTTP/1.1\r\nHost: localhost\r\n" + header + "\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String status = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII)).readLine();
+            return Integer.parseInt(status.split(" ")[1]);
+        }
+    }
+
+    /**
+     * Encodes an image as PNG.
+     *
+     * @param image the image
+     * @return the PNG bytes
+     */
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the URI of a path on the server.
+     *
+     * @param path the path and query
+     * @return the URI
+     */
+    private static URI uri(String path) {
+        return URI.create("http://%s:%d%s".formatted(HOST, server.port(), path));
+    }
+}
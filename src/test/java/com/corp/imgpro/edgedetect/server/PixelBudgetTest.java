@@ -0,0 +1,78 @@
+package com.corp.imgpro.edgedetect.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the admission decisions of {@link PixelBudget} and its counters.
+ */
+class PixelBudgetTest {
+
+    @Test
+    void admitsUpToTheCapacity() throws InterruptedException {
+        PixelBudget budget = new PixelBudget(100, 0);
+
+        assertTrue(budget.acquire(60));
+        assertFalse(budget.acquire(50));
+        budget.release(60);
+        assertTrue(budget.acquire(50));
+
+        assertEquals(new PixelBudget.Stats(100, 50, 2, 0, 1, 0), budget.stats());
+    }
+
+    @Test
+    void waitingRequestsCountAsQueuedWhenRejected() throws InterruptedException {
+        PixelBudget budget = new PixelBudget(100, 20);
+
+        assertTrue(budget.acquire(100));
+        assertFalse(budget.acquire(1));
+        assertFalse(budget.acquire(1));
+
+        assertEquals(new PixelBudget.Stats(100, 100, 1, 2, 2, 0), budget.stats());
+    }
+
+    @Test
+    void waitingRequestIsAdmittedOnRelease() throws InterruptedException {
+        PixelBudget budget = new PixelBudget(100, 10_000);
+        assertTrue(budget.acquire(100));
+
+        Thread releaser = Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            budget.release(100);
+        });
+        assertTrue(budget.acquire(70));
+        releaser.join();
+
+        assertEquals(new PixelBudget.Stats(100, 70, 2, 1, 0, 0), budget.stats());
+    }
+
+    @Test
+    void imagesLargerThanTheCapacityNeverFit() {
+        PixelBudget budget = new PixelBudget(100, 0);
+
+        assertTrue(budget.fits(100));
+        assertFalse(budget.fits(101));
+        assertEquals(1, budget.stats().oversized());
+    }
+
+    @Test
+    void retryAfterIsTheQueueTimeoutInWholeSeconds() {
+        assertEquals(1, new PixelBudget(1, 0).retryAfterSeconds());
+        assertEquals(1, new PixelBudget(1, 1_000).retryAfterSeconds());
+        assertEquals(2, new PixelBudget(1, 1_001).retryAfterSeconds());
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PixelBudget(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PixelBudget(1, -1));
+    }
+}
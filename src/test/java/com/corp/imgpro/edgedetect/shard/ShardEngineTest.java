@@ -0,0 +1,114 @@
+package com.corp.imgpro.edgedetect.shard;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import com.corp.imgpro.edgedetect.common.Rasters;
+import com.corp.imgpro.edgedetect.common.SobelMath;
+import com.corp.imgpro.edgedetect.method.SobelStandard;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares the sharded engine with {@link SobelStandard}: {@link TileProtocol#process} on tiles cut in the
+ * coordinator's way, and a {@link ShardCoordinator} dispatching to two in-process {@link ShardWorker}s.
+ */
+class ShardEngineTest {
+
+    /**
+     * Tile size small enough to cut the test images into several tiles, with remainders on both axes.
+     */
+    private static final int TILE_SIZE = 16;
+
+    private static final List<ShardWorker> workers = new ArrayList<>();
+    private static ShardCoordinator coordinator;
+
+    @BeforeAll
+    static void startWorkers() throws IOException {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ShardWorker worker = new ShardWorker(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0, 0);
+            workers.add(worker);
+            worker.start();
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.port()));
+        }
+        coordinator = ShardCoordinator.connect(addresses, new ShardCoordinator.Settings(TILE_SIZE, 10_000, 2_000));
+    }
+
+    @AfterAll
+    static void stopWorkers() {
+        if (coordinator != null) {
+            coordinator.close();
+        }
+        workers.forEach(ShardWorker::close);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> tilesMatchTheStandardEngine() {
+        return TestImages.matchStandard(ShardEngineTest::convertByTiles);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> coordinatorMatchesTheStandardEngine() {
+        return TestImages.matchStandardInto(coordinator::convert);
+    }
+
+    /**
+     * Converts an image tile by tile with {@link TileProtocol#process}, without the network.
+     *
+     * @param image the input image
+     * @return the edge map
+     */
+    private static BufferedImage convertByTiles(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] grayScale = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            Rasters.grayScaleRow(image, y, grayScale, y * width);
+        }
+
+        List<Rectangle> cores = new ArrayList<>();
+        List<TileProtocol.TileResult> results = new ArrayList<>();
+        int max = -1;
+        for (int y = 0; y < height; y += TILE_SIZE) {
+            for (int x = 0; x < width; x += TILE_SIZE) {
+                Rectangle core = new Rectangle(x, y, Math.min(TILE_SIZE, width - x), Math.min(TILE_SIZE, height - y));
+                Rectangle halo = TileProtocol.halo(core, width, height);
+                byte[] gray = new byte[halo.width * halo.height];
+                for (int row = 0; row < halo.height; row++) {
+                    for (int column = 0; column < halo.width; column++) {
+                        gray[row * halo.width + column] = (byte) grayScale[(halo.y + row) * width + halo.x + column];
+                    }
+                }
+                TileProtocol.TileResult result = TileProtocol.process(
+                        new TileProtocol.TileRequest(cores.size(), width, height, core, gray));
+                cores.add(core);
+                results.add(result);
+                max = Math.max(max, result.maxGradient());
+            }
+        }
+
+        int[] table = max < 0 ? new int[1] : SobelMath.normalizationTable(max);
+        BufferedImage output = TestImages.outputFor(image);
+        for (int i = 0; i < cores.size(); i++) {
+            Rectangle core = cores.get(i);
+            int[] gradients = results.get(i).gradients();
+            for (int row = 0; row < core.height; row++) {
+                for (int x = 0; x < core.width; x++) {
+                    int level = table[gradients[row * core.width + x]];
+                    output.setRGB(core.x + x, core.y + row, level << 16 | level << 8 | level);
+                }
+            }
+        }
+        return output;
+    }
+}
@@ -0,0 +1,96 @@
+package com.corp.imgpro.edgedetect.shard;
+
+import com.corp.imgpro.edgedetect.TestImages;
+import com.corp.imgpro.edgedetect.method.SobelStandard;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exercises the reassignment of the {@link ShardCoordinator} with workers simulating slowness and crashes: the
+ * result must still equal {@link SobelStandard}, and the statistics and the elapsed time must show which worker
+ * did the work.
+ */
+class ShardFailoverTest {
+
+    /**
+     * Tile size cutting the test images into a few tiles.
+     */
+    private static final int TILE_SIZE = 16;
+
+    /**
+     * Answer delay of the slow worker, far beyond the time the other worker needs for the whole image.
+     */
+    private static final long SLOW_DELAY_MILLIS = 3_000;
+
+    @Test
+    void slowTileIsAnsweredByAnotherWorker() throws IOException {
+        // The fast worker needs about 8 x 20 ms, so the slow one surely holds a tile by then
+        try (ShardWorker fast = new ShardWorker(loopback(0), 20, 0);
+             ShardWorker slow = new ShardWorker(loopback(0), SLOW_DELAY_MILLIS, 0)) {
+            fast.start();
+            slow.start();
+            try (ShardCoordinator coordinator = ShardCoordinator.connect(
+                    List.of(loopback(fast.port()), loopback(slow.port())),
+                    new ShardCoordinator.Settings(TILE_SIZE, 10_000, 100))) {
+                BufferedImage image = TestImages.random(64, 32, BufferedImage.TYPE_INT_RGB, 5);
+                BufferedImage expected = SobelStandard.convert(image);
+
+                long start = System.nanoTime();
+                BufferedImage edges = coordinator.convert(image);
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+                TestImages.assertSameEdges(expected, edges);
+                assertEquals(new ShardCoordinator.ShardStats(8, 1, 0, 2), coordinator.lastStats());
+                assertTrue(elapsedMillis < SLOW_DELAY_MILLIS,
+                        "The conversion waited %d ms for the slow worker".formatted(elapsedMillis));
+
+                // The slow connection still owes the late answer, which must not be taken for a new tile
+                TestImages.assertSameEdges(expected, coordinator.convert(image));
+                assertEquals(2, coordinator.lastStats().liveWorkers());
+                BufferedImage other = TestImages.random(64, 32, BufferedImage.TYPE_INT_RGB, 6);
+                TestImages.assertSameEdges(SobelStandard.convert(other), coordinator.convert(other));
+            }
+        }
+    }
+
+    @Test
+    void crashedWorkersLeaveTheirTilesToTheCoordinator() throws IOException {
+        long timeoutMillis = 10_000;
+        try (ShardCoordinator coordinator = ShardCoordinator.spawn(2, List.of("--fail-after", "1"),
+                new ShardCoordinator.Settings(TILE_SIZE, timeoutMillis, 2_000))) {
+            BufferedImage image = TestImages.random(32, 48, BufferedImage.TYPE_INT_RGB, 7);
+
+            long start = System.nanoTime();
+            BufferedImage edges = coordinator.convert(image);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            TestImages.assertSameEdges(SobelStandard.convert(image), edges);
+            // Each worker answers its first tile and exits on its second
+            ShardCoordinator.ShardStats stats = coordinator.lastStats();
+            assertEquals(6, stats.tiles());
+            assertEquals(4, stats.local());
+            assertEquals(0, stats.liveWorkers());
+            assertTrue(stats.reassigned() >= 2, "Reassigned " + stats.reassigned());
+            assertTrue(elapsedMillis < timeoutMillis,
+                    "The crashes were noticed only after %d ms".formatted(elapsedMillis));
+        }
+    }
+
+    /**
+     * Returns a loopback address.
+     *
+     * @param port the port, 0 for any
+     * @return the address
+     */
+    private static InetSocketAddress loopback(int port) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+}